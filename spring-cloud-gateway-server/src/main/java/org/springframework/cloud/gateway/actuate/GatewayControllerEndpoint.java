@@ -17,9 +17,11 @@
 package org.springframework.cloud.gateway.actuate;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -27,6 +29,7 @@ import reactor.core.publisher.Mono;
 import org.springframework.boot.actuate.endpoint.web.annotation.RestControllerEndpoint;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.WeightCalculatorWebFilter;
 import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
 import org.springframework.cloud.gateway.handler.predicate.RoutePredicateFactory;
 import org.springframework.cloud.gateway.route.Route;
@@ -34,6 +37,8 @@ import org.springframework.cloud.gateway.route.RouteDefinition;
 import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
 import org.springframework.cloud.gateway.route.RouteDefinitionWriter;
 import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceStats;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceStats.InstanceStats;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -45,13 +50,40 @@ import org.springframework.web.bind.annotation.PathVariable;
 @RestControllerEndpoint(id = "gateway")
 public class GatewayControllerEndpoint extends AbstractGatewayControllerEndpoint {
 
+	private final WeightCalculatorWebFilter weightCalculatorWebFilter;
+
+	private final ServiceInstanceStats serviceInstanceStats;
+
 	public GatewayControllerEndpoint(List<GlobalFilter> globalFilters,
 			List<GatewayFilterFactory> gatewayFilters,
 			List<RoutePredicateFactory> routePredicates,
 			RouteDefinitionWriter routeDefinitionWriter, RouteLocator routeLocator,
 			RouteDefinitionLocator routeDefinitionLocator) {
+		this(globalFilters, gatewayFilters, routePredicates, routeDefinitionWriter,
+				routeLocator, routeDefinitionLocator, null);
+	}
+
+	public GatewayControllerEndpoint(List<GlobalFilter> globalFilters,
+			List<GatewayFilterFactory> gatewayFilters,
+			List<RoutePredicateFactory> routePredicates,
+			RouteDefinitionWriter routeDefinitionWriter, RouteLocator routeLocator,
+			RouteDefinitionLocator routeDefinitionLocator,
+			WeightCalculatorWebFilter weightCalculatorWebFilter) {
+		this(globalFilters, gatewayFilters, routePredicates, routeDefinitionWriter,
+				routeLocator, routeDefinitionLocator, weightCalculatorWebFilter, null);
+	}
+
+	public GatewayControllerEndpoint(List<GlobalFilter> globalFilters,
+			List<GatewayFilterFactory> gatewayFilters,
+			List<RoutePredicateFactory> routePredicates,
+			RouteDefinitionWriter routeDefinitionWriter, RouteLocator routeLocator,
+			RouteDefinitionLocator routeDefinitionLocator,
+			WeightCalculatorWebFilter weightCalculatorWebFilter,
+			ServiceInstanceStats serviceInstanceStats) {
 		super(routeDefinitionLocator, globalFilters, gatewayFilters, routePredicates,
 				routeDefinitionWriter, routeLocator);
+		this.weightCalculatorWebFilter = weightCalculatorWebFilter;
+		this.serviceInstanceStats = serviceInstanceStats;
 	}
 
 	@GetMapping("/routedefinitions")
@@ -86,6 +118,42 @@ public class GatewayControllerEndpoint extends AbstractGatewayControllerEndpoint
 		return r;
 	}
 
+	@GetMapping("/weights")
+	public Mono<Map<String, Map<String, Double>>> weights() {
+		if (this.weightCalculatorWebFilter == null) {
+			return Mono.just(Collections.emptyMap());
+		}
+		return Mono.just(this.weightCalculatorWebFilter.getEffectiveWeights());
+	}
+
+	@GetMapping("/instances")
+	public Mono<Map<String, Map<String, Map<String, Object>>>> instances() {
+		if (this.serviceInstanceStats == null) {
+			return Mono.just(Collections.emptyMap());
+		}
+		Map<String, Map<String, Map<String, Object>>> services = new HashMap<>();
+		this.serviceInstanceStats.getStats().forEach((serviceId, instances) -> {
+			Map<String, Map<String, Object>> serialized = new HashMap<>();
+			instances.forEach(
+					(address, stats) -> serialized.put(address, serialize(stats)));
+			services.put(serviceId, serialized);
+		});
+		return Mono.just(services);
+	}
+
+	Map<String, Object> serialize(InstanceStats stats) {
+		HashMap<String, Object> s = new HashMap<>();
+		s.put("inFlight", stats.getInFlight());
+		if (!Double.isNaN(stats.getLatency())) {
+			s.put("latencyMs", stats.getLatency() / TimeUnit.MILLISECONDS.toNanos(1));
+		}
+		s.put("consecutiveFailures", stats.getConsecutiveFailures());
+		s.put("ejected", stats.isEjected());
+		s.put("ejections", stats.getEjections());
+		s.put("healthy", stats.isHealthy());
+		return s;
+	}
+
 	@GetMapping("/routes/{id}")
 	public Mono<ResponseEntity<Map<String, Object>>> route(@PathVariable String id) {
 		// @formatter:off
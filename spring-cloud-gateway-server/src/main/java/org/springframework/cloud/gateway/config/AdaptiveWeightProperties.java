@@ -0,0 +1,117 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.config;
+
+import java.time.Duration;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.NotNull;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.style.ToStringCreator;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Configuration properties for adjusting the weights of the routes of Weight groups from
+ * their observed latency and error rate.
+ */
+@Validated
+@ConfigurationProperties("spring.cloud.gateway.weight.adaptive")
+public class AdaptiveWeightProperties {
+
+	/**
+	 * Adjusts the weights of the routes of each Weight group from their latency and error
+	 * rate.
+	 */
+	private boolean enabled;
+
+	/**
+	 * Smoothing factor of the moving averages of latency and error rate, between 0 and 1.
+	 * Higher values follow the latest requests more closely.
+	 */
+	@DecimalMin(value = "0", inclusive = false)
+	@DecimalMax("1")
+	private double alpha = 0.1;
+
+	/**
+	 * Lowest effective weight of a route, as a factor of its configured weight.
+	 */
+	@DecimalMin(value = "0", inclusive = false)
+	@DecimalMax("1")
+	private double minFactor = 0.5;
+
+	/**
+	 * Highest effective weight of a route, as a factor of its configured weight.
+	 */
+	@DecimalMin("1")
+	private double maxFactor = 2.0;
+
+	/**
+	 * Minimum time between two adjustments of the weights of a group.
+	 */
+	@NotNull
+	private Duration updateInterval = Duration.ofSeconds(1);
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public double getAlpha() {
+		return alpha;
+	}
+
+	public void setAlpha(double alpha) {
+		this.alpha = alpha;
+	}
+
+	public double getMinFactor() {
+		return minFactor;
+	}
+
+	public void setMinFactor(double minFactor) {
+		this.minFactor = minFactor;
+	}
+
+	public double getMaxFactor() {
+		return maxFactor;
+	}
+
+	public void setMaxFactor(double maxFactor) {
+		this.maxFactor = maxFactor;
+	}
+
+	public Duration getUpdateInterval() {
+		return updateInterval;
+	}
+
+	public void setUpdateInterval(Duration updateInterval) {
+		this.updateInterval = updateInterval;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringCreator(this).append("enabled", enabled).append("alpha", alpha)
+				.append("minFactor", minFactor).append("maxFactor", maxFactor)
+				.append("updateInterval", updateInterval).toString();
+	}
+
+}
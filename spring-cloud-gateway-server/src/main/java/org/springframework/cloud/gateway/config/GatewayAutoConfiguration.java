@@ -22,6 +22,8 @@ import java.util.List;
 import java.util.Set;
 import java.util.function.Supplier;
 
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.netflix.hystrix.HystrixObservableCommand;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.ssl.SslContextBuilder;
@@ -60,6 +62,7 @@ import org.springframework.cloud.gateway.config.conditional.ConditionalOnEnabled
 import org.springframework.cloud.gateway.config.conditional.ConditionalOnEnabledGlobalFilter;
 import org.springframework.cloud.gateway.config.conditional.ConditionalOnEnabledPredicate;
 import org.springframework.cloud.gateway.filter.AdaptCachedBodyGlobalFilter;
+import org.springframework.cloud.gateway.filter.BufferedBodyBudgetWebFilter;
 import org.springframework.cloud.gateway.filter.ForwardPathFilter;
 import org.springframework.cloud.gateway.filter.ForwardRoutingFilter;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
@@ -72,10 +75,13 @@ import org.springframework.cloud.gateway.filter.WeightCalculatorWebFilter;
 import org.springframework.cloud.gateway.filter.factory.AddRequestHeaderGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.AddRequestParameterGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.AddResponseHeaderGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.ConsistentHashGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.DedupeResponseHeaderGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.FallbackHeadersGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.FanOutGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.HystrixGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.IpFilterGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.MapRequestHeaderGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.PrefixPathGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.PreserveHostHeaderGatewayFilterFactory;
@@ -87,6 +93,7 @@ import org.springframework.cloud.gateway.filter.factory.RequestHeaderSizeGateway
 import org.springframework.cloud.gateway.filter.factory.RequestHeaderToRequestUriGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.RequestRateLimiterGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.RequestSizeGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.ResponseSizeGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.RetryGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.RewriteLocationResponseHeaderGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.RewritePathGatewayFilterFactory;
@@ -105,6 +112,7 @@ import org.springframework.cloud.gateway.filter.factory.rewrite.MessageBodyDecod
 import org.springframework.cloud.gateway.filter.factory.rewrite.MessageBodyEncoder;
 import org.springframework.cloud.gateway.filter.factory.rewrite.ModifyRequestBodyGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.rewrite.ModifyResponseBodyGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.rewrite.TranscodeGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.headers.ForwardedHeadersFilter;
 import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
 import org.springframework.cloud.gateway.filter.headers.RemoveHopByHopHeadersFilter;
@@ -120,8 +128,10 @@ import org.springframework.cloud.gateway.handler.predicate.BeforeRoutePredicateF
 import org.springframework.cloud.gateway.handler.predicate.BetweenRoutePredicateFactory;
 import org.springframework.cloud.gateway.handler.predicate.CloudFoundryRouteServiceRoutePredicateFactory;
 import org.springframework.cloud.gateway.handler.predicate.CookieRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.DispatchRoutePredicateFactory;
 import org.springframework.cloud.gateway.handler.predicate.HeaderRoutePredicateFactory;
 import org.springframework.cloud.gateway.handler.predicate.HostRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.JsonPointerRoutePredicateFactory;
 import org.springframework.cloud.gateway.handler.predicate.MethodRoutePredicateFactory;
 import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
 import org.springframework.cloud.gateway.handler.predicate.QueryRoutePredicateFactory;
@@ -140,8 +150,10 @@ import org.springframework.cloud.gateway.route.RouteDefinitionWriter;
 import org.springframework.cloud.gateway.route.RouteLocator;
 import org.springframework.cloud.gateway.route.RouteRefreshListener;
 import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
+import org.springframework.cloud.gateway.support.BufferedBodyBudget;
 import org.springframework.cloud.gateway.support.ConfigurationService;
 import org.springframework.cloud.gateway.support.StringToZonedDateTimeConverter;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceStats;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
@@ -237,9 +249,10 @@ public class GatewayAutoConfiguration {
 			List<GatewayFilterFactory> gatewayFilters,
 			List<RoutePredicateFactory> predicates,
 			RouteDefinitionLocator routeDefinitionLocator,
-			ConfigurationService configurationService) {
+			ConfigurationService configurationService,
+			RouteTableProperties routeTableProperties) {
 		return new RouteDefinitionRouteLocator(routeDefinitionLocator, predicates,
-				gatewayFilters, properties, configurationService);
+				gatewayFilters, properties, configurationService, routeTableProperties);
 	}
 
 	@Bean
@@ -275,14 +288,21 @@ public class GatewayAutoConfiguration {
 	 * @param routeLocator 上面装配的CachingRouteLocator
 	 * @param globalCorsProperties
 	 * @param environment
+	 * @param routeTableProperties the properties of the route table
 	 * @return
 	 */
 	@Bean
 	public RoutePredicateHandlerMapping routePredicateHandlerMapping(
 			FilteringWebHandler webHandler, RouteLocator routeLocator,
-			GlobalCorsProperties globalCorsProperties, Environment environment) {
+			GlobalCorsProperties globalCorsProperties, Environment environment,
+			RouteTableProperties routeTableProperties) {
 		return new RoutePredicateHandlerMapping(webHandler, routeLocator,
-				globalCorsProperties, environment);
+				globalCorsProperties, environment, routeTableProperties);
+	}
+
+	@Bean
+	public RouteTableProperties routeTableProperties() {
+		return new RouteTableProperties();
 	}
 
 	//读取配置文件中配置的RouteDefinition、FilterDefinition、PredicateDefinition并封装
@@ -367,16 +387,42 @@ public class GatewayAutoConfiguration {
 	@ConditionalOnEnabledGlobalFilter
 	public WebsocketRoutingFilter websocketRoutingFilter(WebSocketClient webSocketClient,
 			WebSocketService webSocketService,
-			ObjectProvider<List<HttpHeadersFilter>> headersFilters) {
+			ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+			HttpClientProperties httpClientProperties) {
 		return new WebsocketRoutingFilter(webSocketClient, webSocketService,
-				headersFilters);
+				headersFilters, httpClientProperties.isFusedHeadersFilters());
+	}
+
+	@Bean
+	public BufferedBodyProperties bufferedBodyProperties() {
+		return new BufferedBodyProperties();
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "spring.cloud.gateway.buffered-body.enabled")
+	public BufferedBodyBudget bufferedBodyBudget(BufferedBodyProperties properties) {
+		return new BufferedBodyBudget(properties.getMaxSize());
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "spring.cloud.gateway.buffered-body.enabled")
+	public BufferedBodyBudgetWebFilter bufferedBodyBudgetWebFilter(
+			BufferedBodyBudget bufferedBodyBudget) {
+		return new BufferedBodyBudgetWebFilter(bufferedBodyBudget);
+	}
+
+	@Bean
+	public AdaptiveWeightProperties adaptiveWeightProperties() {
+		return new AdaptiveWeightProperties();
 	}
 
 	@Bean
 	public WeightCalculatorWebFilter weightCalculatorWebFilter(
 			ConfigurationService configurationService,
-			ObjectProvider<RouteLocator> routeLocator) {
-		return new WeightCalculatorWebFilter(routeLocator, configurationService);
+			ObjectProvider<RouteLocator> routeLocator,
+			AdaptiveWeightProperties adaptiveWeightProperties) {
+		return new WeightCalculatorWebFilter(routeLocator, configurationService,
+				adaptiveWeightProperties);
 	}
 
 	/*
@@ -414,6 +460,12 @@ public class GatewayAutoConfiguration {
 		return new CookieRoutePredicateFactory();
 	}
 
+	@Bean
+	@ConditionalOnEnabledPredicate
+	public DispatchRoutePredicateFactory dispatchRoutePredicateFactory() {
+		return new DispatchRoutePredicateFactory();
+	}
+
 	@Bean
 	@ConditionalOnEnabledPredicate
 	public HeaderRoutePredicateFactory headerRoutePredicateFactory() {
@@ -451,6 +503,13 @@ public class GatewayAutoConfiguration {
 		return new ReadBodyRoutePredicateFactory(codecConfigurer.getReaders());
 	}
 
+	@Bean
+	@ConditionalOnEnabledPredicate
+	public JsonPointerRoutePredicateFactory jsonPointerRoutePredicateFactory(
+			ServerCodecConfigurer codecConfigurer) {
+		return new JsonPointerRoutePredicateFactory(codecConfigurer.getReaders());
+	}
+
 	@Bean
 	@ConditionalOnEnabledPredicate
 	public RemoteAddrRoutePredicateFactory remoteAddrRoutePredicateFactory() {
@@ -654,6 +713,24 @@ public class GatewayAutoConfiguration {
 		return new RequestSizeGatewayFilterFactory();
 	}
 
+	@Bean
+	@ConditionalOnEnabledFilter
+	public ResponseSizeGatewayFilterFactory responseSizeGatewayFilterFactory() {
+		return new ResponseSizeGatewayFilterFactory();
+	}
+
+	@Bean
+	@ConditionalOnEnabledFilter
+	public IpFilterGatewayFilterFactory ipFilterGatewayFilterFactory() {
+		return new IpFilterGatewayFilterFactory();
+	}
+
+	@Bean
+	@ConditionalOnEnabledFilter
+	public ConsistentHashGatewayFilterFactory consistentHashGatewayFilterFactory() {
+		return new ConsistentHashGatewayFilterFactory();
+	}
+
 	@Bean
 	@ConditionalOnEnabledFilter
 	public RequestHeaderSizeGatewayFilterFactory requestHeaderSizeGatewayFilterFactory() {
@@ -840,6 +917,16 @@ public class GatewayAutoConfiguration {
 			return new NettyRoutingFilter(httpClient, headersFilters, properties);
 		}
 
+		@Bean
+		@ConditionalOnEnabledFilter
+		public FanOutGatewayFilterFactory fanOutGatewayFilterFactory(
+				HttpClient httpClient,
+				ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+				ObjectProvider<FanOutGatewayFilterFactory.LegObserver> legObservers) {
+			return new FanOutGatewayFilterFactory(httpClient, headersFilters,
+					legObservers);
+		}
+
 		@Bean
 		@ConditionalOnEnabledGlobalFilter
 		public NettyWriteResponseFilter nettyWriteResponseFilter(
@@ -900,6 +987,18 @@ public class GatewayAutoConfiguration {
 
 	}
 
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass({ CBORFactory.class, SmileFactory.class })
+	protected static class TranscodeConfiguration {
+
+		@Bean
+		@ConditionalOnEnabledFilter
+		public TranscodeGatewayFilterFactory transcodeGatewayFilterFactory() {
+			return new TranscodeGatewayFilterFactory();
+		}
+
+	}
+
 	@Configuration(proxyBeanMethods = false)
 	@ConditionalOnClass(Health.class)
 	protected static class GatewayActuatorConfiguration {
@@ -913,10 +1012,13 @@ public class GatewayAutoConfiguration {
 				List<GatewayFilterFactory> gatewayFilters,
 				List<RoutePredicateFactory> routePredicates,
 				RouteDefinitionWriter routeDefinitionWriter, RouteLocator routeLocator,
-				RouteDefinitionLocator routeDefinitionLocator) {
+				RouteDefinitionLocator routeDefinitionLocator,
+				WeightCalculatorWebFilter weightCalculatorWebFilter,
+				ObjectProvider<ServiceInstanceStats> serviceInstanceStats) {
 			return new GatewayControllerEndpoint(globalFilters, gatewayFilters,
 					routePredicates, routeDefinitionWriter, routeLocator,
-					routeDefinitionLocator);
+					routeDefinitionLocator, weightCalculatorWebFilter,
+					serviceInstanceStats.getIfAvailable());
 		}
 
 		@Bean
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cloud.gateway.support.loadbalancer.RetainingServiceInstanceListSupplier;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceStats;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceSubsets;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceZones;
+import org.springframework.cloud.gateway.support.loadbalancer.SubsettingServiceInstanceListSupplier;
+import org.springframework.cloud.gateway.support.loadbalancer.ZoneAwareServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of the load balancer child context of every service, which narrows the
+ * {@link ServiceInstanceListSupplier} of the service to the subset of the gateway node
+ * and to the zone of the gateway, when they are enabled, so that the configured
+ * {@code ReactorServiceInstanceLoadBalancer} still chooses among the remaining instances.
+ * The {@link ServiceInstanceStats} retain the instances of the subset, before the zone is
+ * chosen, so that the statistics of the instances that left are dropped.
+ */
+@Configuration(proxyBeanMethods = false)
+public final class GatewayLoadBalancerClientConfiguration {
+
+	private GatewayLoadBalancerClientConfiguration() {
+	}
+
+	@Bean
+	public static BeanPostProcessor gatewayServiceInstanceListSupplierPostProcessor(
+			ObjectProvider<ServiceInstanceSubsets> serviceInstanceSubsets,
+			ObjectProvider<ServiceInstanceStats> serviceInstanceStats,
+			ObjectProvider<ServiceInstanceZones> serviceInstanceZones) {
+		return new ServiceInstanceListSupplierPostProcessor(serviceInstanceSubsets,
+				serviceInstanceStats, serviceInstanceZones);
+	}
+
+	private static final class ServiceInstanceListSupplierPostProcessor
+			implements BeanPostProcessor {
+
+		private final ObjectProvider<ServiceInstanceSubsets> subsets;
+
+		private final ObjectProvider<ServiceInstanceStats> stats;
+
+		private final ObjectProvider<ServiceInstanceZones> zones;
+
+		private ServiceInstanceListSupplierPostProcessor(
+				ObjectProvider<ServiceInstanceSubsets> subsets,
+				ObjectProvider<ServiceInstanceStats> stats,
+				ObjectProvider<ServiceInstanceZones> zones) {
+			this.subsets = subsets;
+			this.stats = stats;
+			this.zones = zones;
+		}
+
+		@Override
+		public Object postProcessAfterInitialization(Object bean, String beanName) {
+			if (!(bean instanceof ServiceInstanceListSupplier)) {
+				return bean;
+			}
+			ServiceInstanceListSupplier supplier = (ServiceInstanceListSupplier) bean;
+			ServiceInstanceSubsets subsets = this.subsets.getIfAvailable();
+			if (subsets != null) {
+				supplier = new SubsettingServiceInstanceListSupplier(supplier, subsets);
+			}
+			ServiceInstanceStats stats = this.stats.getIfAvailable();
+			if (stats != null) {
+				supplier = new RetainingServiceInstanceListSupplier(supplier, stats);
+			}
+			ServiceInstanceZones zones = this.zones.getIfAvailable();
+			if (zones != null) {
+				supplier = new ZoneAwareServiceInstanceListSupplier(supplier, zones);
+			}
+			return supplier;
+		}
+
+	}
+
+}
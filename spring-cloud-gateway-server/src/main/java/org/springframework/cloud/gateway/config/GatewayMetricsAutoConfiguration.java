@@ -17,8 +17,14 @@
 package org.springframework.cloud.gateway.config;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
 
 import org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration;
 import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
@@ -31,6 +37,12 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.web.reactive.HttpHandlerAutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.gateway.filter.GatewayMetricsFilter;
+import org.springframework.cloud.gateway.filter.factory.FanOutGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.BufferedBodyBudget;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceStats;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceStats.InstanceStats;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceZones;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceZones.ZoneStats;
 import org.springframework.cloud.gateway.support.tagsprovider.GatewayHttpTagsProvider;
 import org.springframework.cloud.gateway.support.tagsprovider.GatewayRouteTagsProvider;
 import org.springframework.cloud.gateway.support.tagsprovider.GatewayTagsProvider;
@@ -44,8 +56,9 @@ import org.springframework.web.reactive.DispatcherHandler;
 		matchIfMissing = true)
 @EnableConfigurationProperties
 @AutoConfigureBefore(HttpHandlerAutoConfiguration.class)
-@AutoConfigureAfter({ GatewayAutoConfiguration.class, MetricsAutoConfiguration.class,
-		CompositeMeterRegistryAutoConfiguration.class })
+@AutoConfigureAfter({ GatewayAutoConfiguration.class,
+		GatewayReactiveLoadBalancerClientAutoConfiguration.class,
+		MetricsAutoConfiguration.class, CompositeMeterRegistryAutoConfiguration.class })
 @ConditionalOnClass({ DispatcherHandler.class, MeterRegistry.class,
 		MetricsAutoConfiguration.class })
 public class GatewayMetricsAutoConfiguration {
@@ -77,6 +90,94 @@ public class GatewayMetricsAutoConfiguration {
 		return new PropertiesTagsProvider(gatewayMetricsProperties.getTags());
 	}
 
+	@Bean
+	@ConditionalOnBean(BufferedBodyBudget.class)
+	@ConditionalOnProperty(name = GatewayProperties.PREFIX + ".metrics.enabled",
+			matchIfMissing = true)
+	public MeterBinder bufferedBodyBudgetMeterBinder(BufferedBodyBudget budget,
+			GatewayProperties properties) {
+		String prefix = properties.getMetrics().getPrefix();
+		return registry -> {
+			Gauge.builder(prefix + ".buffered.body.used", budget,
+					BufferedBodyBudget::getUsedBytes).baseUnit("bytes")
+					.description("Body bytes currently buffered in memory")
+					.register(registry);
+			Gauge.builder(prefix + ".buffered.body.max", budget,
+					BufferedBodyBudget::getMaxBytes).baseUnit("bytes")
+					.description("Maximum body bytes buffered in memory")
+					.register(registry);
+		};
+	}
+
+	@Bean
+	@ConditionalOnBean(ServiceInstanceStats.class)
+	@ConditionalOnProperty(name = GatewayProperties.PREFIX + ".metrics.enabled",
+			matchIfMissing = true)
+	public MeterBinder serviceInstanceStatsMeterBinder(ServiceInstanceStats stats,
+			GatewayProperties properties) {
+		String prefix = properties.getMetrics().getPrefix() + ".loadbalancer.instance";
+		return registry -> {
+			if (!stats.isOutlierDetectionEnabled()) {
+				return;
+			}
+			stats.onInstance(instance -> {
+				Tags tags = Tags.of("serviceId", instance.getServiceId(), "instance",
+						instance.getAddress());
+				Gauge.builder(prefix + ".ejected", instance, i -> i.isEjected() ? 1 : 0)
+						.tags(tags).description("Whether the instance is ejected")
+						.register(registry);
+				FunctionCounter
+						.builder(prefix + ".ejections", instance,
+								InstanceStats::getEjections)
+						.tags(tags).description("Times the instance was ejected")
+						.register(registry);
+			});
+			stats.onRemoval(instance -> {
+				Tags tags = Tags.of("serviceId", instance.getServiceId(), "instance",
+						instance.getAddress());
+				registry.find(prefix + ".ejected").tags(tags).meters()
+						.forEach(registry::remove);
+				registry.find(prefix + ".ejections").tags(tags).meters()
+						.forEach(registry::remove);
+			});
+		};
+	}
+
+	@Bean
+	@ConditionalOnBean(ServiceInstanceZones.class)
+	@ConditionalOnProperty(name = GatewayProperties.PREFIX + ".metrics.enabled",
+			matchIfMissing = true)
+	public MeterBinder serviceInstanceZonesMeterBinder(ServiceInstanceZones zones,
+			GatewayProperties properties) {
+		String prefix = properties.getMetrics().getPrefix() + ".loadbalancer.zone";
+		return registry -> zones.onService(service -> {
+			Tags tags = Tags.of("serviceId", service.getServiceId(), "zone",
+					zones.getZone());
+			Gauge.builder(prefix + ".spill.ratio", service, ZoneStats::getSpillRatio)
+					.tags(tags)
+					.description("Share of the requests spilling over to other zones")
+					.register(registry);
+			FunctionCounter.builder(prefix + ".requests", service, ZoneStats::getRequests)
+					.tags(tags).description("Requests balanced over the zones")
+					.register(registry);
+			FunctionCounter.builder(prefix + ".spilled", service, ZoneStats::getSpilled)
+					.tags(tags).description("Requests spilled over to other zones")
+					.register(registry);
+		});
+	}
+
+	@Bean
+	@ConditionalOnBean(MeterRegistry.class)
+	@ConditionalOnProperty(name = GatewayProperties.PREFIX + ".metrics.enabled",
+			matchIfMissing = true)
+	public FanOutGatewayFilterFactory.LegObserver fanOutLegObserver(
+			MeterRegistry meterRegistry, GatewayProperties properties) {
+		String name = properties.getMetrics().getPrefix() + ".fanout.legs";
+		return (routeId, leg, outcome, durationNanos) -> Timer.builder(name)
+				.tag("routeId", routeId).tag("leg", leg).tag("outcome", outcome)
+				.register(meterRegistry).record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
 	@Bean
 	@ConditionalOnBean(MeterRegistry.class)
 	@ConditionalOnProperty(name = GatewayProperties.PREFIX + ".metrics.enabled",
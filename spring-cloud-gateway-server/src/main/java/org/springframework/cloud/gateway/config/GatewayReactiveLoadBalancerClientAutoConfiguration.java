@@ -16,6 +16,9 @@
 
 package org.springframework.cloud.gateway.config;
 
+import reactor.netty.http.client.HttpClient;
+
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
@@ -29,11 +32,19 @@ import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
 import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
 import org.springframework.cloud.gateway.config.conditional.ConditionalOnEnabledGlobalFilter;
 import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceHealthChecker;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceStats;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceSubsets;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceZones;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClientSpecification;
 import org.springframework.cloud.loadbalancer.config.LoadBalancerAutoConfiguration;
+import org.springframework.cloud.loadbalancer.config.LoadBalancerZoneConfig;
 import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
 import org.springframework.web.reactive.DispatcherHandler;
 
 /**
@@ -50,14 +61,82 @@ import org.springframework.web.reactive.DispatcherHandler;
 @EnableConfigurationProperties(LoadBalancerProperties.class)
 public class GatewayReactiveLoadBalancerClientAutoConfiguration {
 
+	@Bean
+	@ConditionalOnMissingBean
+	public ServiceInstanceStats gatewayServiceInstanceStats(
+			LoadBalancerProperties properties) {
+		return new ServiceInstanceStats(ServiceInstanceStats.DEFAULT_ALPHA,
+				properties.getOutlierDetection());
+	}
+
+	@Bean
+	@ConditionalOnBean(LoadBalancerClientFactory.class)
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(
+			name = "spring.cloud.gateway.loadbalancer.health-check.enabled",
+			havingValue = "true")
+	public ServiceInstanceHealthChecker gatewayServiceInstanceHealthChecker(
+			LoadBalancerClientFactory clientFactory,
+			ServiceInstanceStats serviceInstanceStats,
+			ObjectProvider<HttpClient> httpClient, LoadBalancerProperties properties) {
+		return new ServiceInstanceHealthChecker(clientFactory, serviceInstanceStats,
+				httpClient.getIfAvailable(HttpClient::create),
+				properties.getHealthCheck());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(
+			name = "spring.cloud.gateway.loadbalancer.zone-awareness.enabled",
+			havingValue = "true")
+	public ServiceInstanceZones gatewayServiceInstanceZones(
+			ObjectProvider<LoadBalancerZoneConfig> zoneConfig,
+			ServiceInstanceStats serviceInstanceStats,
+			LoadBalancerProperties properties) {
+		LoadBalancerZoneConfig config = zoneConfig.getIfAvailable();
+		if (config == null || !StringUtils.hasText(config.getZone())) {
+			throw new IllegalStateException(
+					"spring.cloud.loadbalancer.zone must be set for zone awareness");
+		}
+		return new ServiceInstanceZones(config.getZone(), properties.getZoneAwareness(),
+				serviceInstanceStats);
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(name = "spring.cloud.gateway.loadbalancer.subsetting.enabled",
+			havingValue = "true")
+	public ServiceInstanceSubsets gatewayServiceInstanceSubsets(
+			LoadBalancerProperties properties, Environment environment) {
+		String nodeId = properties.getSubsetting().getNodeId();
+		if (!StringUtils.hasText(nodeId)) {
+			nodeId = environment.getProperty("spring.cloud.client.hostname");
+		}
+		if (!StringUtils.hasText(nodeId)) {
+			throw new IllegalStateException(
+					"spring.cloud.gateway.loadbalancer.subsetting.node-id must be set for subsetting");
+		}
+		return new ServiceInstanceSubsets(nodeId, properties.getSubsetting().getSize());
+	}
+
+	@Bean
+	public LoadBalancerClientSpecification gatewayLoadBalancerClientSpecification() {
+		// applies to the child context of every service
+		return new LoadBalancerClientSpecification(
+				"default." + GatewayLoadBalancerClientConfiguration.class.getName(),
+				new Class<?>[] { GatewayLoadBalancerClientConfiguration.class });
+	}
+
 	@Bean
 	@ConditionalOnBean(LoadBalancerClientFactory.class)
 	@ConditionalOnMissingBean(ReactiveLoadBalancerClientFilter.class)
 	@Conditional(OnNoRibbonDefaultCondition.class)
 	@ConditionalOnEnabledGlobalFilter
 	public ReactiveLoadBalancerClientFilter gatewayLoadBalancerClientFilter(
-			LoadBalancerClientFactory clientFactory, LoadBalancerProperties properties) {
-		return new ReactiveLoadBalancerClientFilter(clientFactory, properties);
+			LoadBalancerClientFactory clientFactory, LoadBalancerProperties properties,
+			ServiceInstanceStats serviceInstanceStats) {
+		return new ReactiveLoadBalancerClientFilter(clientFactory, properties,
+				serviceInstanceStats);
 	}
 
 	private static final class OnNoRibbonDefaultCondition extends AnyNestedCondition {
@@ -81,6 +81,13 @@ public class HttpClientProperties {
 	/** Enables compression for Netty HttpClient. */
 	private boolean compression;
 
+	/**
+	 * Applies the request headers filters in a single pass, writing straight into the
+	 * Netty request headers. Only takes effect when every headers filter is a
+	 * FusibleHttpHeadersFilter.
+	 */
+	private boolean fusedHeadersFilters;
+
 	public Integer getConnectTimeout() {
 		return connectTimeout;
 	}
@@ -163,6 +170,14 @@ public class HttpClientProperties {
 		this.compression = compression;
 	}
 
+	public boolean isFusedHeadersFilters() {
+		return fusedHeadersFilters;
+	}
+
+	public void setFusedHeadersFilters(boolean fusedHeadersFilters) {
+		this.fusedHeadersFilters = fusedHeadersFilters;
+	}
+
 	@Override
 	public String toString() {
 		// @formatter:off
@@ -177,6 +192,7 @@ public class HttpClientProperties {
 				.append("websocket", websocket)
 				.append("wiretap", wiretap)
 				.append("compression", compression)
+				.append("fusedHeadersFilters", fusedHeadersFilters)
 				.toString();
 		// @formatter:on
 
@@ -16,6 +16,8 @@
 
 package org.springframework.cloud.gateway.config;
 
+import java.time.Duration;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -26,6 +28,44 @@ public class LoadBalancerProperties {
 
 	private boolean use404;
 
+	/**
+	 * How instances of a service are chosen, the service's configured
+	 * ReactorServiceInstanceLoadBalancer by default.
+	 */
+	private Strategy strategy = Strategy.DEFAULT;
+
+	/**
+	 * How many times the average number of requests in flight an instance may have before
+	 * requests hashed to it by the ConsistentHash filter spill over to the next instance
+	 * on the ring.
+	 */
+	private double consistentHashLoadFactor = 1.25;
+
+	/**
+	 * How many instances of a service the blocking LoadBalancerClient chooses ahead, in
+	 * the background, so that requests do not wait for it. 0 to choose one for every
+	 * request.
+	 */
+	private int prefetch;
+
+	/**
+	 * How long an instance chosen ahead may be used.
+	 */
+	private Duration prefetchTtl = Duration.ofSeconds(5);
+
+	/**
+	 * How long the blocking LoadBalancerClient may take to choose an instance.
+	 */
+	private Duration chooseTimeout = Duration.ofSeconds(5);
+
+	private OutlierDetection outlierDetection = new OutlierDetection();
+
+	private HealthCheck healthCheck = new HealthCheck();
+
+	private ZoneAwareness zoneAwareness = new ZoneAwareness();
+
+	private Subsetting subsetting = new Subsetting();
+
 	public boolean isUse404() {
 		return use404;
 	}
@@ -34,4 +74,424 @@ public class LoadBalancerProperties {
 		this.use404 = use404;
 	}
 
+	public Strategy getStrategy() {
+		return strategy;
+	}
+
+	public void setStrategy(Strategy strategy) {
+		this.strategy = strategy;
+	}
+
+	public double getConsistentHashLoadFactor() {
+		return consistentHashLoadFactor;
+	}
+
+	public void setConsistentHashLoadFactor(double consistentHashLoadFactor) {
+		this.consistentHashLoadFactor = consistentHashLoadFactor;
+	}
+
+	public int getPrefetch() {
+		return prefetch;
+	}
+
+	public void setPrefetch(int prefetch) {
+		this.prefetch = prefetch;
+	}
+
+	public Duration getPrefetchTtl() {
+		return prefetchTtl;
+	}
+
+	public void setPrefetchTtl(Duration prefetchTtl) {
+		this.prefetchTtl = prefetchTtl;
+	}
+
+	public Duration getChooseTimeout() {
+		return chooseTimeout;
+	}
+
+	public void setChooseTimeout(Duration chooseTimeout) {
+		this.chooseTimeout = chooseTimeout;
+	}
+
+	public OutlierDetection getOutlierDetection() {
+		return outlierDetection;
+	}
+
+	public void setOutlierDetection(OutlierDetection outlierDetection) {
+		this.outlierDetection = outlierDetection;
+	}
+
+	public HealthCheck getHealthCheck() {
+		return healthCheck;
+	}
+
+	public void setHealthCheck(HealthCheck healthCheck) {
+		this.healthCheck = healthCheck;
+	}
+
+	public ZoneAwareness getZoneAwareness() {
+		return zoneAwareness;
+	}
+
+	public void setZoneAwareness(ZoneAwareness zoneAwareness) {
+		this.zoneAwareness = zoneAwareness;
+	}
+
+	public Subsetting getSubsetting() {
+		return subsetting;
+	}
+
+	public void setSubsetting(Subsetting subsetting) {
+		this.subsetting = subsetting;
+	}
+
+	/**
+	 * How instances of a service are chosen.
+	 */
+	public enum Strategy {
+
+		/**
+		 * Use the ReactorServiceInstanceLoadBalancer configured for the service.
+		 */
+		DEFAULT,
+
+		/**
+		 * Choose the less loaded of two random instances.
+		 */
+		LEAST_LOADED
+
+	}
+
+	/**
+	 * Passive detection of the instances that fail or are much slower than the others,
+	 * from the outcome of the requests routed to them.
+	 */
+	public static class OutlierDetection {
+
+		/**
+		 * Whether failing instances are ejected from load balancing.
+		 */
+		private boolean enabled;
+
+		/**
+		 * How many consecutive failed requests eject an instance.
+		 */
+		private int consecutiveErrors = 5;
+
+		/**
+		 * The share of failed requests, within an interval, that ejects an instance.
+		 */
+		private double errorRate = 0.5;
+
+		/**
+		 * How many requests an instance must get within an interval for its error rate to
+		 * be considered.
+		 */
+		private int minimumRequests = 20;
+
+		/**
+		 * How many times the median latency of the instances of a service an instance may
+		 * have before it is ejected. Needs at least three instances.
+		 */
+		private double latencyFactor = 3;
+
+		/**
+		 * How often error rates and latencies are compared.
+		 */
+		private Duration interval = Duration.ofSeconds(10);
+
+		/**
+		 * How long an instance is ejected for, times the number of times in a row it was
+		 * ejected.
+		 */
+		private Duration baseEjectionTime = Duration.ofSeconds(30);
+
+		/**
+		 * The longest time an instance is ejected for.
+		 */
+		private Duration maxEjectionTime = Duration.ofMinutes(5);
+
+		/**
+		 * The most instances of a service, as a percentage, that may be ejected at the
+		 * same time. One instance may always be ejected, unless it is the only one.
+		 */
+		private int maxEjectionPercent = 10;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getConsecutiveErrors() {
+			return consecutiveErrors;
+		}
+
+		public void setConsecutiveErrors(int consecutiveErrors) {
+			this.consecutiveErrors = consecutiveErrors;
+		}
+
+		public double getErrorRate() {
+			return errorRate;
+		}
+
+		public void setErrorRate(double errorRate) {
+			this.errorRate = errorRate;
+		}
+
+		public int getMinimumRequests() {
+			return minimumRequests;
+		}
+
+		public void setMinimumRequests(int minimumRequests) {
+			this.minimumRequests = minimumRequests;
+		}
+
+		public double getLatencyFactor() {
+			return latencyFactor;
+		}
+
+		public void setLatencyFactor(double latencyFactor) {
+			this.latencyFactor = latencyFactor;
+		}
+
+		public Duration getInterval() {
+			return interval;
+		}
+
+		public void setInterval(Duration interval) {
+			this.interval = interval;
+		}
+
+		public Duration getBaseEjectionTime() {
+			return baseEjectionTime;
+		}
+
+		public void setBaseEjectionTime(Duration baseEjectionTime) {
+			this.baseEjectionTime = baseEjectionTime;
+		}
+
+		public Duration getMaxEjectionTime() {
+			return maxEjectionTime;
+		}
+
+		public void setMaxEjectionTime(Duration maxEjectionTime) {
+			this.maxEjectionTime = maxEjectionTime;
+		}
+
+		public int getMaxEjectionPercent() {
+			return maxEjectionPercent;
+		}
+
+		public void setMaxEjectionPercent(int maxEjectionPercent) {
+			this.maxEjectionPercent = maxEjectionPercent;
+		}
+
+	}
+
+	/**
+	 * Active health checks of the instances of the services that requests are routed to.
+	 */
+	public static class HealthCheck {
+
+		/**
+		 * Whether instances are probed, and skipped while they are unhealthy.
+		 */
+		private boolean enabled;
+
+		/**
+		 * The path probed on every instance. An instance is healthy when it answers with
+		 * a 2xx status.
+		 */
+		private String path = "/actuator/health";
+
+		/**
+		 * How often every instance is probed. The probes are spread over the interval.
+		 */
+		private Duration interval = Duration.ofSeconds(10);
+
+		/**
+		 * The most random delay added to every probe.
+		 */
+		private Duration jitter = Duration.ofSeconds(1);
+
+		/**
+		 * How long a probe may take before it fails.
+		 */
+		private Duration timeout = Duration.ofSeconds(2);
+
+		/**
+		 * How many probes in a row must fail for an instance to be unhealthy.
+		 */
+		private int unhealthyThreshold = 2;
+
+		/**
+		 * How many probes in a row must succeed for an unhealthy instance to be healthy
+		 * again.
+		 */
+		private int healthyThreshold = 2;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public void setPath(String path) {
+			this.path = path;
+		}
+
+		public Duration getInterval() {
+			return interval;
+		}
+
+		public void setInterval(Duration interval) {
+			this.interval = interval;
+		}
+
+		public Duration getJitter() {
+			return jitter;
+		}
+
+		public void setJitter(Duration jitter) {
+			this.jitter = jitter;
+		}
+
+		public Duration getTimeout() {
+			return timeout;
+		}
+
+		public void setTimeout(Duration timeout) {
+			this.timeout = timeout;
+		}
+
+		public int getUnhealthyThreshold() {
+			return unhealthyThreshold;
+		}
+
+		public void setUnhealthyThreshold(int unhealthyThreshold) {
+			this.unhealthyThreshold = unhealthyThreshold;
+		}
+
+		public int getHealthyThreshold() {
+			return healthyThreshold;
+		}
+
+		public void setHealthyThreshold(int healthyThreshold) {
+			this.healthyThreshold = healthyThreshold;
+		}
+
+	}
+
+	/**
+	 * Routing of the requests to the instances in the zone of the gateway, set with
+	 * spring.cloud.loadbalancer.zone, according to the zone metadata of the instances.
+	 */
+	public static class ZoneAwareness {
+
+		/**
+		 * Whether requests prefer the instances in the zone of the gateway.
+		 */
+		private boolean enabled;
+
+		/**
+		 * The share of the instances in the zone of the gateway that must be available,
+		 * neither ejected by outlier detection nor unhealthy, for requests to stay in the
+		 * zone.
+		 */
+		private double minAvailable = 0.5;
+
+		/**
+		 * How many times the load of the instances in other zones the instances in the
+		 * zone of the gateway may have before requests spill over to other zones. The
+		 * load of an instance is the number of requests in flight to it, plus one.
+		 */
+		private double loadFactor = 2;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public double getMinAvailable() {
+			return minAvailable;
+		}
+
+		public void setMinAvailable(double minAvailable) {
+			this.minAvailable = minAvailable;
+		}
+
+		public double getLoadFactor() {
+			return loadFactor;
+		}
+
+		public void setLoadFactor(double loadFactor) {
+			this.loadFactor = loadFactor;
+		}
+
+	}
+
+	/**
+	 * Balancing of the requests to a service over a subset of its instances only, the
+	 * same for as long as the instances do not change, so that every gateway node opens
+	 * connections to fewer instances.
+	 */
+	public static class Subsetting {
+
+		/**
+		 * Whether requests are balanced over a subset of the instances of a service.
+		 */
+		private boolean enabled;
+
+		/**
+		 * How many instances a subset has. Services with no more instances are not
+		 * subset.
+		 */
+		private int size = 20;
+
+		/**
+		 * The id of the gateway node that the subsets are chosen for, the host name by
+		 * default. Numeric ids, such as the ordinals of a stateful set, spread the nodes
+		 * exactly evenly over the instances, other ids are hashed.
+		 */
+		private String nodeId;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getSize() {
+			return size;
+		}
+
+		public void setSize(int size) {
+			this.size = size;
+		}
+
+		public String getNodeId() {
+			return nodeId;
+		}
+
+		public void setNodeId(String nodeId) {
+			this.nodeId = nodeId;
+		}
+
+	}
+
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.style.ToStringCreator;
+
+/**
+ * Configuration properties for how requests are matched against the route table.
+ */
+@ConfigurationProperties("spring.cloud.gateway.route-table")
+public class RouteTableProperties {
+
+	/**
+	 * Partitions the routes by the exact or wildcard suffix patterns of their Host
+	 * predicates, so that only the routes for the request host are tested.
+	 */
+	private boolean hostPartitioning;
+
+	/**
+	 * Indexes the routes by the values of their Dispatch predicates, so that only the
+	 * routes for the value of the request are tested.
+	 */
+	private boolean dispatchIndex;
+
+	/**
+	 * Tests the predicates of each route without side effects by cost and then by how
+	 * often they reject requests, before the predicates with side effects.
+	 */
+	private boolean adaptivePredicateOrder;
+
+	/**
+	 * Maximum number of (method, host, path) tuples for which the matched route is
+	 * cached, 0 to disable the cache. The cache is only used when the predicates of every
+	 * route only read the method, host and path of the request.
+	 */
+	private int matchCacheSize;
+
+	public boolean isHostPartitioning() {
+		return hostPartitioning;
+	}
+
+	public void setHostPartitioning(boolean hostPartitioning) {
+		this.hostPartitioning = hostPartitioning;
+	}
+
+	public boolean isDispatchIndex() {
+		return dispatchIndex;
+	}
+
+	public void setDispatchIndex(boolean dispatchIndex) {
+		this.dispatchIndex = dispatchIndex;
+	}
+
+	public boolean isAdaptivePredicateOrder() {
+		return adaptivePredicateOrder;
+	}
+
+	public void setAdaptivePredicateOrder(boolean adaptivePredicateOrder) {
+		this.adaptivePredicateOrder = adaptivePredicateOrder;
+	}
+
+	public int getMatchCacheSize() {
+		return matchCacheSize;
+	}
+
+	public void setMatchCacheSize(int matchCacheSize) {
+		this.matchCacheSize = matchCacheSize;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringCreator(this).append("hostPartitioning", hostPartitioning)
+				.append("dispatchIndex", dispatchIndex)
+				.append("adaptivePredicateOrder", adaptivePredicateOrder)
+				.append("matchCacheSize", matchCacheSize).toString();
+	}
+
+}
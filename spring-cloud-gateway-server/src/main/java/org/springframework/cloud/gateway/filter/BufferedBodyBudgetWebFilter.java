@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter;
+
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.gateway.support.BufferedBodyBudget;
+import org.springframework.core.Ordered;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.BUFFERED_BODY_RESERVATION_ATTR;
+
+/**
+ * Attaches a {@link BufferedBodyBudget.Reservation} to every exchange, so that bodies
+ * buffered while matching routes or running filters are accounted, and hands the reserved
+ * bytes back once the exchange completes.
+ */
+public class BufferedBodyBudgetWebFilter implements WebFilter, Ordered {
+
+	/**
+	 * Order of the buffered body budget web filter, before any predicate is evaluated.
+	 */
+	public static final int BUFFERED_BODY_BUDGET_FILTER_ORDER = Ordered.HIGHEST_PRECEDENCE
+			+ 1000;
+
+	private final BufferedBodyBudget budget;
+
+	public BufferedBodyBudgetWebFilter(BufferedBodyBudget budget) {
+		this.budget = budget;
+	}
+
+	@Override
+	public int getOrder() {
+		return BUFFERED_BODY_BUDGET_FILTER_ORDER;
+	}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		BufferedBodyBudget.Reservation reservation = budget.reserve();
+		exchange.getAttributes().put(BUFFERED_BODY_RESERVATION_ATTR, reservation);
+		return chain.filter(exchange).doFinally(s -> reservation.release());
+	}
+
+}
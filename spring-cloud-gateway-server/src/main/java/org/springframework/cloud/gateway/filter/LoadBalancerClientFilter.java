@@ -17,10 +17,20 @@
 package org.springframework.cloud.gateway.filter;
 
 import java.net.URI;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
@@ -35,6 +45,15 @@ import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.G
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.addOriginalRequestUrl;
 
 /**
+ * A {@link GlobalFilter} that routes requests using a blocking
+ * {@link LoadBalancerClient}, such as Ribbon.
+ * <p>
+ * The {@link LoadBalancerClient} is never called on the request path: instances are
+ * chosen on a bounded scheduler, within a timeout. When
+ * {@link LoadBalancerProperties#getPrefetch() prefetch} is set, instances of every
+ * service are also chosen ahead, in the background, and requests take them from there, so
+ * that they only wait for the {@link LoadBalancerClient} when none is left.
+ *
  * @deprecated in favour of {@link ReactiveLoadBalancerClientFilter}
  * @author Spencer Gibb
  * @author Tim Ysewyn
@@ -54,10 +73,27 @@ public class LoadBalancerClientFilter implements GlobalFilter, Ordered {
 
 	private LoadBalancerProperties properties;
 
+	private final Scheduler scheduler;
+
+	private final Map<String, Prefetched> prefetched = new ConcurrentHashMap<>();
+
 	public LoadBalancerClientFilter(LoadBalancerClient loadBalancer,
 			LoadBalancerProperties properties) {
+		this(loadBalancer, properties, Schedulers.boundedElastic());
+	}
+
+	/**
+	 * Creates a filter that calls the given {@link LoadBalancerClient} on the given
+	 * scheduler, which must allow blocking calls.
+	 * @param loadBalancer the load balancer client
+	 * @param properties the load balancer properties
+	 * @param scheduler the scheduler the load balancer client is called on
+	 */
+	public LoadBalancerClientFilter(LoadBalancerClient loadBalancer,
+			LoadBalancerProperties properties, Scheduler scheduler) {
 		this.loadBalancer = loadBalancer;
 		this.properties = properties;
+		this.scheduler = scheduler;
 	}
 
 	@Override
@@ -88,12 +124,38 @@ public class LoadBalancerClientFilter implements GlobalFilter, Ordered {
 			log.trace("LoadBalancerClientFilter url before: " + url);
 		}
 		// 服务选择
-		final ServiceInstance instance = choose(exchange);
+		return chooseInstance(exchange, url.getHost())
+				.switchIfEmpty(
+						Mono.error(() -> NotFoundException.create(properties.isUse404(),
+								"Unable to find instance for " + url.getHost())))
+				.flatMap(instance -> {
+					route(exchange, instance, schemePrefix, url);
+					return chain.filter(exchange);
+				});
+	}
 
-		if (instance == null) {
-			throw NotFoundException.create(properties.isUse404(),
-					"Unable to find instance for " + url.getHost());
+	private Mono<ServiceInstance> chooseInstance(ServerWebExchange exchange,
+			String serviceId) {
+		if (properties.getPrefetch() > 0) {
+			ServiceInstance instance = prefetched
+					.computeIfAbsent(serviceId, Prefetched::new).poll();
+			if (instance != null) {
+				return Mono.just(instance);
+			}
 		}
+		return onScheduler(() -> choose(exchange), serviceId);
+	}
+
+	private Mono<ServiceInstance> onScheduler(Callable<ServiceInstance> choose,
+			String serviceId) {
+		return Mono.fromCallable(choose).subscribeOn(scheduler)
+				.timeout(properties.getChooseTimeout())
+				.onErrorMap(TimeoutException.class, e -> new NotFoundException(
+						"Timed out choosing an instance for " + serviceId, e));
+	}
+
+	private void route(ServerWebExchange exchange, ServiceInstance instance,
+			String schemePrefix, URI url) {
 		// 用户提交的URL=http://192.168.211.1:18182/order/list?token=123
 		URI uri = exchange.getRequest().getURI();
 
@@ -112,11 +174,14 @@ public class LoadBalancerClientFilter implements GlobalFilter, Ordered {
 		}
 
 		exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, requestUrl);
-		return chain.filter(exchange);
 	}
 
 	/**
 	 * 该方法调用其实就是选择指定服务，这里涉及到负载均衡服务轮询调用算法
+	 * <p>
+	 * Called on the bounded scheduler for every request, unless
+	 * {@link LoadBalancerProperties#getPrefetch() prefetch} is set, in which case the
+	 * instances chosen ahead by service id are used first.
 	 * @param exchange
 	 * @return
 	 */
@@ -125,4 +190,91 @@ public class LoadBalancerClientFilter implements GlobalFilter, Ordered {
 				((URI) exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR)).getHost());
 	}
 
+	/**
+	 * The instances of a service chosen ahead, refilled in the background when half of
+	 * them were taken.
+	 */
+	private final class Prefetched {
+
+		private final String serviceId;
+
+		private final Queue<Instance> instances = new ConcurrentLinkedQueue<>();
+
+		private final AtomicInteger size = new AtomicInteger();
+
+		private final AtomicBoolean refilling = new AtomicBoolean();
+
+		private Prefetched(String serviceId) {
+			this.serviceId = serviceId;
+		}
+
+		private ServiceInstance poll() {
+			long now = System.nanoTime();
+			Instance instance;
+			do {
+				instance = instances.poll();
+				if (instance != null) {
+					size.decrementAndGet();
+				}
+			}
+			while (instance != null && now - instance.expiresAt >= 0);
+			if (size.get() <= properties.getPrefetch() / 2) {
+				refill();
+			}
+			return instance != null ? instance.instance : null;
+		}
+
+		// at most one refill of the service runs at a time, until the blocking calls
+		// of the previous one returned, even when they take longer than the timeout
+		private void refill() {
+			if (!refilling.compareAndSet(false, true)) {
+				return;
+			}
+			Mono.fromRunnable(() -> {
+				try {
+					fill();
+				}
+				finally {
+					refilling.set(false);
+				}
+			}).subscribeOn(scheduler).subscribe(null, throwable -> {
+				// the scheduler may have rejected the refill
+				refilling.set(false);
+				if (log.isDebugEnabled()) {
+					log.debug("Unable to choose instances of " + serviceId + " ahead",
+							throwable);
+				}
+			});
+		}
+
+		private void fill() {
+			long now = System.nanoTime();
+			long expiresAt = now + properties.getPrefetchTtl().toNanos();
+			long deadline = now + properties.getChooseTimeout().toNanos();
+			while (size.get() < properties.getPrefetch()
+					&& System.nanoTime() - deadline < 0) {
+				ServiceInstance instance = loadBalancer.choose(serviceId);
+				if (instance == null) {
+					break;
+				}
+				instances.offer(new Instance(instance, expiresAt));
+				size.incrementAndGet();
+			}
+		}
+
+	}
+
+	private static final class Instance {
+
+		private final ServiceInstance instance;
+
+		private final long expiresAt;
+
+		private Instance(ServiceInstance instance, long expiresAt) {
+			this.instance = instance;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
 }
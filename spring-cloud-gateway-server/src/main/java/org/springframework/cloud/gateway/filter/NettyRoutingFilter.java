@@ -31,11 +31,14 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.netty.http.client.HttpClient;
 import reactor.netty.http.client.HttpClientResponse;
+import reactor.netty.http.server.HttpServerResponse;
 
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.headers.FusedHttpHeadersFilter;
 import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
 import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter.Type;
+import org.springframework.cloud.gateway.filter.headers.NettyHeadersAdapter;
 import org.springframework.cloud.gateway.route.Route;
 import org.springframework.cloud.gateway.support.TimeoutException;
 import org.springframework.core.Ordered;
@@ -87,6 +90,12 @@ public class NettyRoutingFilter implements GlobalFilter, Ordered {
 	// do not use this headersFilters directly, use getHeadersFilters() instead.
 	private volatile List<HttpHeadersFilter> headersFilters;
 
+	// set by getHeadersFilters() when the request headers filters can be fused
+	private volatile FusedHttpHeadersFilter fusedRequestHeadersFilter;
+
+	// set by getHeadersFilters() when the response headers filters can be fused
+	private volatile FusedHttpHeadersFilter fusedResponseHeadersFilter;
+
 	public NettyRoutingFilter(HttpClient httpClient,
 			ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider,
 			HttpClientProperties properties) {
@@ -98,6 +107,12 @@ public class NettyRoutingFilter implements GlobalFilter, Ordered {
 	public List<HttpHeadersFilter> getHeadersFilters() {
 		if (headersFilters == null) {
 			headersFilters = headersFiltersProvider.getIfAvailable();
+			if (properties.isFusedHeadersFilters()) {
+				fusedRequestHeadersFilter = FusedHttpHeadersFilter.compile(headersFilters,
+						Type.REQUEST);
+				fusedResponseHeadersFilter = FusedHttpHeadersFilter
+						.compile(headersFilters, Type.RESPONSE);
+			}
 		}
 		return headersFilters;
 	}
@@ -126,11 +141,15 @@ public class NettyRoutingFilter implements GlobalFilter, Ordered {
 		final HttpMethod method = HttpMethod.valueOf(request.getMethodValue());
 		final String url = requestUrl.toASCIIString();
 
-		HttpHeaders filtered = filterRequest(getHeadersFilters(), exchange);
+		List<HttpHeadersFilter> headersFilters = getHeadersFilters();
+		final FusedHttpHeadersFilter fusedHeadersFilter = fusedRequestHeadersFilter;
 		// 创建Netty Request Header对象
 		final DefaultHttpHeaders httpHeaders = new DefaultHttpHeaders();
-		// 将请求的Header设置给它
-		filtered.forEach(httpHeaders::set);
+		if (fusedHeadersFilter == null) {
+			HttpHeaders filtered = filterRequest(headersFilters, exchange);
+			// 将请求的Header设置给它
+			filtered.forEach(httpHeaders::set);
+		}
 
 		boolean preserveHost = exchange
 				.getAttributeOrDefault(PRESERVE_HOST_HEADER_ATTRIBUTE, false);
@@ -139,7 +158,14 @@ public class NettyRoutingFilter implements GlobalFilter, Ordered {
 		Flux<HttpClientResponse> responseFlux = getHttpClient(route, exchange)
 				.headers(headers -> {
 					//netty request header添加http request header
-					headers.add(httpHeaders);
+					if (fusedHeadersFilter != null) {
+						// single pass straight into the outbound headers
+						fusedHeadersFilter.filter(request.getHeaders(), exchange,
+								headers::add);
+					}
+					else {
+						headers.add(httpHeaders);
+					}
 					// Will either be set below, or later by Netty
 					//修改netty request header的host
 					headers.remove(HttpHeaders.HOST);
@@ -168,10 +194,9 @@ public class NettyRoutingFilter implements GlobalFilter, Ordered {
 					//获得http response
 					ServerHttpResponse response = exchange.getResponse();
 					// put headers and status so filters can modify the response
-					HttpHeaders headers = new HttpHeaders();
-					// netty response header添加到http header
-					res.responseHeaders().forEach(
-							entry -> headers.add(entry.getKey(), entry.getValue()));
+					// the netty response headers are wrapped rather than copied
+					HttpHeaders headers = new HttpHeaders(
+							new NettyHeadersAdapter(res.responseHeaders()));
 
 					// 获取数据类型，并保存到ORIGINAL_RESPONSE_CONTENT_TYPE_ATTR
 					String contentTypeValue = headers.getFirst(HttpHeaders.CONTENT_TYPE);
@@ -186,8 +211,17 @@ public class NettyRoutingFilter implements GlobalFilter, Ordered {
 					// make sure headers filters run after setting status so it is
 					// available in response
 					// 确保Response的HttpHeadersFilter在请求响应后执行
-					HttpHeaders filteredResponseHeaders = HttpHeadersFilter.filter(
-							getHeadersFilters(), headers, exchange, Type.RESPONSE);
+					List<HttpHeadersFilter> responseHeadersFilters = getHeadersFilters();
+					FusedHttpHeadersFilter fusedResponseFilter = fusedResponseHeadersFilter;
+					HttpHeaders filteredResponseHeaders;
+					if (fusedResponseFilter != null) {
+						fusedResponseFilter.filterInPlace(headers, exchange);
+						filteredResponseHeaders = headers;
+					}
+					else {
+						filteredResponseHeaders = HttpHeadersFilter.filter(
+								responseHeadersFilters, headers, exchange, Type.RESPONSE);
+					}
 
 					if (!filteredResponseHeaders
 							.containsKey(HttpHeaders.TRANSFER_ENCODING)
@@ -203,7 +237,7 @@ public class NettyRoutingFilter implements GlobalFilter, Ordered {
 					exchange.getAttributes().put(CLIENT_RESPONSE_HEADER_NAMES,
 							filteredResponseHeaders.keySet());
 					//修改http response headers
-					response.getHeaders().putAll(filteredResponseHeaders);
+					setResponseHeaders(res, headers, filteredResponseHeaders, response);
 
 					return Mono.just(res);
 				});
@@ -239,6 +273,26 @@ public class NettyRoutingFilter implements GlobalFilter, Ordered {
 				"Unable to handle DataBuffer of type " + dataBuffer.getClass());
 	}
 
+	// The headers of the response are those of the server connection, which outlive the
+	// client response, so they have to be copied. When both are Netty headers, they are
+	// copied from one to the other without the adapters in between.
+	private void setResponseHeaders(HttpClientResponse clientResponse,
+			HttpHeaders headers, HttpHeaders filteredHeaders,
+			ServerHttpResponse response) {
+		if (filteredHeaders == headers
+				&& response instanceof AbstractServerHttpResponse) {
+			Object nativeResponse = ((AbstractServerHttpResponse) response)
+					.getNativeResponse();
+			if (nativeResponse instanceof HttpServerResponse) {
+				// filtered in place, so the client response headers are the filtered ones
+				((HttpServerResponse) nativeResponse).responseHeaders()
+						.setAll(clientResponse.responseHeaders());
+				return;
+			}
+		}
+		response.getHeaders().putAll(filteredHeaders);
+	}
+
 	//把请求目标地址返回的status设置到exchange.getResponse
 	private void setResponseStatus(HttpClientResponse clientResponse,
 			ServerHttpResponse response) {
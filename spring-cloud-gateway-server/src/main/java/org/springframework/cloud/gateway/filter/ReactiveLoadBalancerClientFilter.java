@@ -17,27 +17,39 @@
 package org.springframework.cloud.gateway.filter;
 
 import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import reactor.core.publisher.Mono;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.loadbalancer.LoadBalancerUriTools;
+import org.springframework.cloud.client.loadbalancer.reactive.DefaultRequest;
 import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
 import org.springframework.cloud.client.loadbalancer.reactive.Request;
 import org.springframework.cloud.client.loadbalancer.reactive.Response;
 import org.springframework.cloud.gateway.config.LoadBalancerProperties;
+import org.springframework.cloud.gateway.config.LoadBalancerProperties.Strategy;
 import org.springframework.cloud.gateway.support.DelegatingServiceInstance;
 import org.springframework.cloud.gateway.support.NotFoundException;
+import org.springframework.cloud.gateway.support.loadbalancer.ConsistentHashLoadBalancer;
+import org.springframework.cloud.gateway.support.loadbalancer.LeastLoadedLoadBalancer;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceStats;
 import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
 import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
 import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
 import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
 import org.springframework.web.server.ServerWebExchange;
 
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_SCHEME_PREFIX_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.LOAD_BALANCER_HASH_KEY_ATTR;
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.addOriginalRequestUrl;
 
 /**
@@ -59,14 +71,40 @@ public class ReactiveLoadBalancerClientFilter implements GlobalFilter, Ordered {
 
 	private static final int LOAD_BALANCER_CLIENT_FILTER_ORDER = 10150;
 
+	// how many times the configured load balancer is asked for an instance that is
+	// neither ejected by outlier detection nor unhealthy
+	private static final int MAX_CHOICES = 3;
+
 	private final LoadBalancerClientFactory clientFactory;
 
 	private LoadBalancerProperties properties;
 
+	@Nullable
+	private final ServiceInstanceStats stats;
+
+	private final Map<String, ReactorServiceInstanceLoadBalancer> leastLoadedLoadBalancers = new ConcurrentHashMap<>();
+
+	private final Map<String, ReactorServiceInstanceLoadBalancer> consistentHashLoadBalancers = new ConcurrentHashMap<>();
+
 	public ReactiveLoadBalancerClientFilter(LoadBalancerClientFactory clientFactory,
 			LoadBalancerProperties properties) {
+		this(clientFactory, properties, null);
+	}
+
+	/**
+	 * Creates a filter that records, in the given statistics, the requests in flight to
+	 * every instance, their latency and whether they failed with an error or a 5xx
+	 * status, from when the instance is chosen until the rest of the chain, up to the
+	 * routing filter, completes.
+	 * @param clientFactory the load balancer client factory
+	 * @param properties the load balancer properties
+	 * @param stats the statistics of the instances, may be {@code null}
+	 */
+	public ReactiveLoadBalancerClientFilter(LoadBalancerClientFactory clientFactory,
+			LoadBalancerProperties properties, @Nullable ServiceInstanceStats stats) {
 		this.clientFactory = clientFactory;
 		this.properties = properties;
+		this.stats = stats;
 	}
 
 	@Override
@@ -92,7 +130,7 @@ public class ReactiveLoadBalancerClientFilter implements GlobalFilter, Ordered {
 					+ " url before: " + url);
 		}
 
-		return choose(exchange).doOnNext(response -> {
+		Mono<Response<ServiceInstance>> chosen = choose(exchange).doOnNext(response -> {
 
 			if (!response.hasServer()) {
 				throw NotFoundException.create(properties.isUse404(),
@@ -119,7 +157,18 @@ public class ReactiveLoadBalancerClientFilter implements GlobalFilter, Ordered {
 				log.trace("LoadBalancerClientFilter url chosen: " + requestUrl);
 			}
 			exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, requestUrl);
-		}).then(chain.filter(exchange));
+		});
+
+		if (stats == null) {
+			return chosen.then(chain.filter(exchange));
+		}
+		return chosen.flatMap(response -> stats.record(response.getServer(),
+				chain.filter(exchange), () -> isServerError(exchange)));
+	}
+
+	private static boolean isServerError(ServerWebExchange exchange) {
+		HttpStatus status = exchange.getResponse().getStatusCode();
+		return status != null && status.is5xxServerError();
 	}
 
 	protected URI reconstructURI(ServiceInstance serviceInstance, URI original) {
@@ -129,12 +178,54 @@ public class ReactiveLoadBalancerClientFilter implements GlobalFilter, Ordered {
 	@SuppressWarnings("deprecation")
 	private Mono<Response<ServiceInstance>> choose(ServerWebExchange exchange) {
 		URI uri = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
-		ReactorLoadBalancer<ServiceInstance> loadBalancer = this.clientFactory
-				.getInstance(uri.getHost(), ReactorServiceInstanceLoadBalancer.class);
+		String hashKey = exchange.getAttribute(LOAD_BALANCER_HASH_KEY_ATTR);
+		if (hashKey != null) {
+			return consistentHashLoadBalancers
+					.computeIfAbsent(uri.getHost(),
+							this::createConsistentHashLoadBalancer)
+					.choose(new DefaultRequest<>(hashKey));
+		}
+		ReactorLoadBalancer<ServiceInstance> loadBalancer = getLoadBalancer(
+				uri.getHost());
 		if (loadBalancer == null) {
 			throw new NotFoundException("No loadbalancer available for " + uri.getHost());
 		}
-		return loadBalancer.choose(createRequest());
+		Mono<Response<ServiceInstance>> response = loadBalancer.choose(createRequest());
+		if (stats == null || !stats.isExcludingInstances()
+				|| loadBalancer instanceof LeastLoadedLoadBalancer) {
+			return response;
+		}
+		// the configured load balancer knows nothing of unavailable instances, ask again
+		return response.repeat(MAX_CHOICES - 1).takeUntil(
+				chosen -> !chosen.hasServer() || stats.isAvailable(chosen.getServer()))
+				.takeLast(1).next();
+	}
+
+	private ReactorServiceInstanceLoadBalancer getLoadBalancer(String serviceId) {
+		if (stats != null && properties.getStrategy() == Strategy.LEAST_LOADED) {
+			return leastLoadedLoadBalancers.computeIfAbsent(serviceId,
+					this::createLeastLoadedLoadBalancer);
+		}
+		return this.clientFactory.getInstance(serviceId,
+				ReactorServiceInstanceLoadBalancer.class);
+	}
+
+	private ReactorServiceInstanceLoadBalancer createLeastLoadedLoadBalancer(
+			String serviceId) {
+		return new LeastLoadedLoadBalancer(getInstanceListSupplier(serviceId), serviceId,
+				stats);
+	}
+
+	private ReactorServiceInstanceLoadBalancer createConsistentHashLoadBalancer(
+			String serviceId) {
+		return new ConsistentHashLoadBalancer(getInstanceListSupplier(serviceId),
+				serviceId, stats, properties.getConsistentHashLoadFactor());
+	}
+
+	private ObjectProvider<ServiceInstanceListSupplier> getInstanceListSupplier(
+			String serviceId) {
+		return clientFactory.getLazyProvider(serviceId,
+				ServiceInstanceListSupplier.class);
 	}
 
 	@SuppressWarnings("deprecation")
@@ -22,13 +22,17 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import reactor.core.publisher.Mono;
 
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.filter.headers.FusedHttpHeadersFilter;
+import org.springframework.cloud.gateway.filter.headers.FusibleHttpHeadersFilter;
 import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter.Type;
 import org.springframework.core.Ordered;
 import org.springframework.http.HttpHeaders;
 import org.springframework.util.StringUtils;
@@ -66,15 +70,28 @@ public class WebsocketRoutingFilter implements GlobalFilter, Ordered {
 
 	private final ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider;
 
+	private final boolean fuseHeadersFilters;
+
 	// do not use this headersFilters directly, use getHeadersFilters() instead.
 	private volatile List<HttpHeadersFilter> headersFilters;
 
+	// set by getHeadersFilters() when the headers filters can be fused
+	private volatile FusedHttpHeadersFilter fusedHeadersFilter;
+
 	public WebsocketRoutingFilter(WebSocketClient webSocketClient,
 			WebSocketService webSocketService,
 			ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider) {
+		this(webSocketClient, webSocketService, headersFiltersProvider, false);
+	}
+
+	public WebsocketRoutingFilter(WebSocketClient webSocketClient,
+			WebSocketService webSocketService,
+			ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider,
+			boolean fuseHeadersFilters) {
 		this.webSocketClient = webSocketClient;
 		this.webSocketService = webSocketService;
 		this.headersFiltersProvider = headersFiltersProvider;
+		this.fuseHeadersFilters = fuseHeadersFilters;
 	}
 
 	/* for testing */
@@ -103,7 +120,7 @@ public class WebsocketRoutingFilter implements GlobalFilter, Ordered {
 		setAlreadyRouted(exchange);
 
 		HttpHeaders headers = exchange.getRequest().getHeaders();
-		HttpHeaders filtered = filterRequest(getHeadersFilters(), exchange);
+		HttpHeaders filtered = filterRequestHeaders(exchange);
 
 		List<String> protocols = getProtocols(headers);
 
@@ -111,6 +128,15 @@ public class WebsocketRoutingFilter implements GlobalFilter, Ordered {
 				requestUrl, this.webSocketClient, filtered, protocols));
 	}
 
+	private HttpHeaders filterRequestHeaders(ServerWebExchange exchange) {
+		List<HttpHeadersFilter> filters = getHeadersFilters();
+		FusedHttpHeadersFilter fused = this.fusedHeadersFilter;
+		if (fused != null) {
+			return fused.filter(exchange.getRequest().getHeaders(), exchange);
+		}
+		return filterRequest(filters, exchange);
+	}
+
 	/* for testing */ List<String> getProtocols(HttpHeaders headers) {
 		List<String> protocols = headers.get(SEC_WEBSOCKET_PROTOCOL);
 		if (protocols != null) {
@@ -131,29 +157,14 @@ public class WebsocketRoutingFilter implements GlobalFilter, Ordered {
 					.getIfAvailable(ArrayList::new);
 
 			// remove host header unless specifically asked not to
-			headersFilters.add((headers, exchange) -> {
-				HttpHeaders filtered = new HttpHeaders();
-				filtered.addAll(headers);
-				filtered.remove(HttpHeaders.HOST);
-				boolean preserveHost = exchange
-						.getAttributeOrDefault(PRESERVE_HOST_HEADER_ATTRIBUTE, false);
-				if (preserveHost) {
-					String host = exchange.getRequest().getHeaders()
-							.getFirst(HttpHeaders.HOST);
-					filtered.add(HttpHeaders.HOST, host);
-				}
-				return filtered;
-			});
+			headersFilters.add(new HostHeaderFilter());
 
-			headersFilters.add((headers, exchange) -> {
-				HttpHeaders filtered = new HttpHeaders();
-				for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
-					if (!entry.getKey().toLowerCase().startsWith("sec-websocket")) {
-						filtered.addAll(entry.getKey(), entry.getValue());
-					}
-				}
-				return filtered;
-			});
+			headersFilters.add(new SecWebsocketHeadersFilter());
+
+			if (this.fuseHeadersFilters) {
+				this.fusedHeadersFilter = FusedHttpHeadersFilter
+						.compile(this.headersFilters, Type.REQUEST);
+			}
 		}
 
 		return this.headersFilters;
@@ -235,4 +246,65 @@ public class WebsocketRoutingFilter implements GlobalFilter, Ordered {
 
 	}
 
+	private static class HostHeaderFilter implements FusibleHttpHeadersFilter {
+
+		private static final Set<String> REMOVED_HEADER_NAMES = Collections
+				.singleton("host");
+
+		@Override
+		public HttpHeaders filter(HttpHeaders headers, ServerWebExchange exchange) {
+			HttpHeaders filtered = new HttpHeaders();
+			filtered.addAll(headers);
+			filtered.remove(HttpHeaders.HOST);
+			boolean preserveHost = exchange
+					.getAttributeOrDefault(PRESERVE_HOST_HEADER_ATTRIBUTE, false);
+			if (preserveHost) {
+				String host = exchange.getRequest().getHeaders()
+						.getFirst(HttpHeaders.HOST);
+				filtered.add(HttpHeaders.HOST, host);
+			}
+			return filtered;
+		}
+
+		@Override
+		public Set<String> getRemovedHeaderNames() {
+			return REMOVED_HEADER_NAMES;
+		}
+
+		@Override
+		public void edit(HttpHeaders input, ServerWebExchange exchange,
+				FusedHttpHeadersFilter.Edits edits) {
+			boolean preserveHost = exchange
+					.getAttributeOrDefault(PRESERVE_HOST_HEADER_ATTRIBUTE, false);
+			if (preserveHost) {
+				edits.set(HttpHeaders.HOST,
+						exchange.getRequest().getHeaders().getFirst(HttpHeaders.HOST));
+			}
+		}
+
+	}
+
+	private static class SecWebsocketHeadersFilter implements FusibleHttpHeadersFilter {
+
+		private static final Set<String> REMOVED_HEADER_PREFIXES = Collections
+				.singleton("sec-websocket");
+
+		@Override
+		public HttpHeaders filter(HttpHeaders headers, ServerWebExchange exchange) {
+			HttpHeaders filtered = new HttpHeaders();
+			for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+				if (!entry.getKey().toLowerCase().startsWith("sec-websocket")) {
+					filtered.addAll(entry.getKey(), entry.getValue());
+				}
+			}
+			return filtered;
+		}
+
+		@Override
+		public Set<String> getRemovedHeaderPrefixes() {
+			return REMOVED_HEADER_PREFIXES;
+		}
+
+	}
+
 }
@@ -16,22 +16,31 @@
 
 package org.springframework.cloud.gateway.filter;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.config.AdaptiveWeightProperties;
 import org.springframework.cloud.gateway.event.PredicateArgsEvent;
 import org.springframework.cloud.gateway.event.RefreshRoutesEvent;
 import org.springframework.cloud.gateway.event.WeightDefinedEvent;
+import org.springframework.cloud.gateway.route.Route;
 import org.springframework.cloud.gateway.route.RouteLocator;
 import org.springframework.cloud.gateway.support.ConfigurationService;
 import org.springframework.cloud.gateway.support.WeightConfig;
@@ -39,11 +48,14 @@ import org.springframework.context.ApplicationEvent;
 import org.springframework.context.event.SmartApplicationListener;
 import org.springframework.core.Ordered;
 import org.springframework.core.style.ToStringCreator;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
 import org.springframework.validation.Validator;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.WEIGHT_ATTR;
 
 /**
@@ -64,15 +76,32 @@ public class WeightCalculatorWebFilter
 
 	private final ConfigurationService configurationService;
 
-	private Random random = new Random();
+	// ThreadLocalRandom when null
+	private Random random;
 
 	private int order = WEIGHT_CALC_FILTER_ORDER;
 
 	private Map<String, GroupWeightConfig> groupWeights = new ConcurrentHashMap<>();
 
+	private final AdaptiveWeightProperties adaptiveWeightProperties;
+
+	// the group of each route, the statistics of the routes and when the weights of each
+	// group may next be adjusted, for adaptive weights
+	private final Map<String, String> routeGroups = new ConcurrentHashMap<>();
+
+	private final Map<String, RouteStats> routeStats = new ConcurrentHashMap<>();
+
+	private final Map<String, AtomicLong> nextAdjustments = new ConcurrentHashMap<>();
+
 	/* for testing */ WeightCalculatorWebFilter() {
+		this(new AdaptiveWeightProperties());
+	}
+
+	/* for testing */ WeightCalculatorWebFilter(
+			AdaptiveWeightProperties adaptiveWeightProperties) {
 		this.routeLocator = null;
 		this.configurationService = new ConfigurationService();
+		this.adaptiveWeightProperties = adaptiveWeightProperties;
 	}
 
 	@Deprecated
@@ -86,12 +115,20 @@ public class WeightCalculatorWebFilter
 		this.routeLocator = routeLocator;
 		this.configurationService = new ConfigurationService();
 		this.configurationService.setValidator(validator);
+		this.adaptiveWeightProperties = new AdaptiveWeightProperties();
 	}
 
 	public WeightCalculatorWebFilter(ObjectProvider<RouteLocator> routeLocator,
 			ConfigurationService configurationService) {
+		this(routeLocator, configurationService, new AdaptiveWeightProperties());
+	}
+
+	public WeightCalculatorWebFilter(ObjectProvider<RouteLocator> routeLocator,
+			ConfigurationService configurationService,
+			AdaptiveWeightProperties adaptiveWeightProperties) {
 		this.routeLocator = routeLocator;
 		this.configurationService = configurationService;
+		this.adaptiveWeightProperties = adaptiveWeightProperties;
 	}
 
 	/* for testing */
@@ -169,8 +206,14 @@ public class WeightCalculatorWebFilter
 				.anyMatch(key -> key.startsWith(WeightConfig.CONFIG_PREFIX + "."));
 	}
 
+	private double nextDouble() {
+		Random random = this.random;
+		return random != null ? random.nextDouble()
+				: ThreadLocalRandom.current().nextDouble();
+	}
+
 	// 更新config.ranges的数据
-	/* for testing */ void addWeightConfig(WeightConfig weightConfig) {
+	/* for testing */ synchronized void addWeightConfig(WeightConfig weightConfig) {
 		String group = weightConfig.getGroup();
 		GroupWeightConfig config;
 		// only create new GroupWeightConfig rather than modify
@@ -184,22 +227,28 @@ public class WeightCalculatorWebFilter
 		}
 
 		config.weights.put(weightConfig.getRouteId(), weightConfig.getWeight());
+		routeGroups.put(weightConfig.getRouteId(), group);
 
-		// recalculate
+		recalculate(config);
+		// only update after all calculations
+		groupWeights.put(group, config);
+	}
 
+	private void recalculate(GroupWeightConfig config) {
 		// normalize weights
-		int weightsSum = 0;
+		double weightsSum = 0;
 
-		for (Integer weight : config.weights.values()) {
-			weightsSum += weight;
+		for (Map.Entry<String, Integer> entry : config.weights.entrySet()) {
+			weightsSum += entry.getValue() * config.getFactor(entry.getKey());
 		}
 
 		final AtomicInteger index = new AtomicInteger(0);
 		for (Map.Entry<String, Integer> entry : config.weights.entrySet()) {
 			String routeId = entry.getKey();
-			Integer weight = entry.getValue();
-			Double nomalizedWeight = weight / (double) weightsSum;
+			double weight = entry.getValue() * config.getFactor(routeId);
+			Double nomalizedWeight = weight / weightsSum;
 			config.normalizedWeights.put(routeId, nomalizedWeight);
+			config.effectiveWeights.put(routeId, weight);
 
 			// recalculate rangeIndexes
 			config.rangeIndexes.put(index.getAndIncrement(), routeId);
@@ -218,13 +267,97 @@ public class WeightCalculatorWebFilter
 			config.ranges.add(range);
 		}
 
+		// primitive copies of the ranges, for the binary search in choose(), and of the
+		// weights, for chooseByKey()
+		config.routeIds = config.rangeIndexes.values().toArray(new String[0]);
+		config.upperRanges = new double[weightsSum > 0 ? values.size() : 0];
+		for (int i = 0; i < config.upperRanges.length; i++) {
+			config.upperRanges[i] = config.ranges.get(i + 1);
+		}
+		config.routeWeights = new double[values.size()];
+		config.routeHashes = new long[values.size()];
+		for (int i = 0; i < values.size(); i++) {
+			config.routeWeights[i] = values.get(i);
+			config.routeHashes[i] = mix(config.routeIds[i].hashCode());
+		}
+
 		if (log.isTraceEnabled()) {
 			log.trace("Recalculated group weight config " + config);
 		}
-		// only update after all calculations
+	}
+
+	private void record(ServerWebExchange exchange, SignalType signal, long latency) {
+		Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+		if (route == null || signal == SignalType.CANCEL) {
+			return;
+		}
+		String group = routeGroups.get(route.getId());
+		if (group == null) {
+			return;
+		}
+
+		HttpStatus status = exchange.getResponse().getStatusCode();
+		boolean error = signal == SignalType.ON_ERROR
+				|| (status != null && status.is5xxServerError());
+		routeStats.computeIfAbsent(route.getId(), id -> new RouteStats()).record(latency,
+				error, adaptiveWeightProperties.getAlpha());
+
+		// a single request per interval adjusts the weights of the group
+		long now = System.nanoTime();
+		AtomicLong nextAdjustment = nextAdjustments.computeIfAbsent(group,
+				key -> new AtomicLong(now));
+		long next = nextAdjustment.get();
+		if (now - next >= 0 && nextAdjustment.compareAndSet(next,
+				now + adaptiveWeightProperties.getUpdateInterval().toNanos())) {
+			adjustWeights(group);
+		}
+	}
+
+	/* for testing */ synchronized void adjustWeights(String group) {
+		GroupWeightConfig current = groupWeights.get(group);
+		if (current == null) {
+			return;
+		}
+
+		// the health of a route is its success rate per unit of latency, and its weight
+		// is scaled by its health relative to the average health of the group
+		Map<String, Double> healths = new HashMap<>();
+		double healthsSum = 0;
+		for (String routeId : current.weights.keySet()) {
+			RouteStats stats = routeStats.get(routeId);
+			if (stats != null && stats.hasSamples()) {
+				double health = stats.getHealth();
+				healths.put(routeId, health);
+				healthsSum += health;
+			}
+		}
+		if (healths.isEmpty() || healthsSum <= 0) {
+			return;
+		}
+
+		double averageHealth = healthsSum / healths.size();
+		GroupWeightConfig config = new GroupWeightConfig(current);
+		healths.forEach((routeId, health) -> config.factors.put(routeId,
+				Math.min(adaptiveWeightProperties.getMaxFactor(),
+						Math.max(adaptiveWeightProperties.getMinFactor(),
+								health / averageHealth))));
+
+		recalculate(config);
 		groupWeights.put(group, config);
 	}
 
+	/**
+	 * Returns the weights the routes of each group are currently chosen with. They are
+	 * the configured weights, unless adaptive weights are enabled.
+	 * @return the effective weight of each route, by group
+	 */
+	public Map<String, Map<String, Double>> getEffectiveWeights() {
+		Map<String, Map<String, Double>> effectiveWeights = new LinkedHashMap<>();
+		groupWeights.forEach((group, config) -> effectiveWeights.put(group,
+				Collections.unmodifiableMap(config.effectiveWeights)));
+		return effectiveWeights;
+	}
+
 	/* for testing */ Map<String, GroupWeightConfig> getGroupWeights() {
 		return groupWeights;
 	}
@@ -232,41 +365,162 @@ public class WeightCalculatorWebFilter
 	// 获取groupWeights中的config.ranges，判断当前获取的随机数是否在该区间，将路由信息存放在weights中
 	@Override
 	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-		Map<String, String> weights = getWeights(exchange);
+		// the route of a group is only chosen when a Weight predicate asks for it
+		if (groupWeights.isEmpty()) {
+			return chain.filter(exchange);
+		}
+		exchange.getAttributes().put(WEIGHT_ATTR, new Weights());
 
-		for (String group : groupWeights.keySet()) {
-			GroupWeightConfig config = groupWeights.get(group);
+		if (!adaptiveWeightProperties.isEnabled()) {
+			return chain.filter(exchange);
+		}
+		long start = System.nanoTime();
+		return chain.filter(exchange)
+				.doFinally(signal -> record(exchange, signal, System.nanoTime() - start));
+	}
 
-			if (config == null) {
-				if (log.isDebugEnabled()) {
-					log.debug("No GroupWeightConfig found for group: " + group);
-				}
-				continue; // nothing we can do, but this is odd
+	/**
+	 * Returns the route chosen for a weight group of the exchange. When a key is given,
+	 * the route is chosen from the key alone, so that the same key keeps being routed to
+	 * the same route of the group.
+	 * @param exchange the current exchange
+	 * @param group the weight group
+	 * @param key the key to choose the route from, or {@code null} to choose it randomly
+	 * @return the id of the chosen route, or {@code null} if none could be chosen
+	 */
+	@Nullable
+	public static String getRoute(ServerWebExchange exchange, String group,
+			@Nullable String key) {
+		Map<String, String> weights = exchange.getAttribute(WEIGHT_ATTR);
+		if (weights instanceof Weights) {
+			return ((Weights) weights).get(group, key);
+		}
+		return weights != null ? weights.get(group) : null;
+	}
+
+	@Nullable
+	private String choose(String group, @Nullable String key) {
+		GroupWeightConfig config = groupWeights.get(group);
+
+		if (config == null || config.upperRanges.length == 0) {
+			return null;
+		}
+
+		if (key != null) {
+			return chooseByKey(config, key);
+		}
+
+		double r = nextDouble();
+		double[] upperRanges = config.upperRanges;
+
+		// the first range whose upper bound is above r, or the last one if rounding
+		// left the sum of the weights just below 1
+		int low = 0;
+		int high = upperRanges.length - 1;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (r < upperRanges[middle]) {
+				high = middle;
 			}
+			else {
+				low = middle + 1;
+			}
+		}
 
-			double r = this.random.nextDouble();
+		if (log.isTraceEnabled()) {
+			log.trace("Weight for group: " + group + ", ranges: " + config.ranges
+					+ ", r: " + r + ", route: " + config.routeIds[low]);
+		}
 
-			List<Double> ranges = config.ranges;
+		return config.routeIds[low];
+	}
 
-			if (log.isTraceEnabled()) {
-				log.trace("Weight for group: " + group + ", ranges: " + ranges + ", r: "
-						+ r);
+	// weighted rendezvous hashing: each route scores the key, the highest score wins,
+	// and a route wins a key with a probability proportional to its weight. Changing the
+	// weight of a route only moves keys from or to that route.
+	private static String chooseByKey(GroupWeightConfig config, String key) {
+		long keyHash = mix(key.hashCode());
+		int chosen = -1;
+		double chosenScore = 0;
+		for (int i = 0; i < config.routeIds.length; i++) {
+			double weight = config.routeWeights[i];
+			if (weight <= 0) {
+				continue;
 			}
+			long hash = mix(keyHash ^ config.routeHashes[i]);
+			// uniform in (0, 1)
+			double u = ((hash >>> 11) + 0.5) * 0x1.0p-53;
+			double score = -weight / Math.log(u);
+			if (chosen < 0 || score > chosenScore) {
+				chosen = i;
+				chosenScore = score;
+			}
+		}
+		return config.routeIds[chosen];
+	}
+
+	// the finalizer of MurmurHash3
+	private static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	/**
+	 * The routes chosen for the weight groups of an exchange, each chosen the first time
+	 * it is looked up.
+	 */
+	private final class Weights extends AbstractMap<String, String> {
+
+		@Nullable
+		private Map<String, String> chosen;
+
+		@Override
+		public synchronized boolean containsKey(Object group) {
+			return get(group) != null;
+		}
+
+		@Override
+		public synchronized String get(Object group) {
+			return group instanceof String ? get((String) group, null) : null;
+		}
 
-			for (int i = 0; i < ranges.size() - 1; i++) {
-				if (r >= ranges.get(i) && r < ranges.get(i + 1)) {
-					String routeId = config.rangeIndexes.get(i);
-					weights.put(group, routeId);
-					break;
+		synchronized String get(String group, @Nullable String key) {
+			if (chosen == null) {
+				chosen = new HashMap<>(4);
+			}
+			String routeId = chosen.get(group);
+			if (routeId == null) {
+				routeId = choose(group, key);
+				if (routeId != null) {
+					chosen.put(group, routeId);
 				}
 			}
+			return routeId;
 		}
 
-		if (log.isTraceEnabled()) {
-			log.trace("Weights attr: " + weights);
+		@Override
+		public synchronized String put(String group, String routeId) {
+			if (chosen == null) {
+				chosen = new HashMap<>(4);
+			}
+			return chosen.put(group, routeId);
+		}
+
+		@Override
+		public synchronized Set<Entry<String, String>> entrySet() {
+			for (String group : groupWeights.keySet()) {
+				get(group);
+			}
+			if (chosen == null) {
+				return Collections.emptySet();
+			}
+			return Collections.unmodifiableMap(new HashMap<>(chosen)).entrySet();
 		}
 
-		return chain.filter(exchange);
 	}
 
 	/* for testing */ static class GroupWeightConfig {
@@ -281,6 +535,19 @@ public class WeightCalculatorWebFilter
 
 		List<Double> ranges = new ArrayList<>();
 
+		String[] routeIds = new String[0];
+
+		double[] upperRanges = new double[0];
+
+		double[] routeWeights = new double[0];
+
+		long[] routeHashes = new long[0];
+
+		// the factors of the adaptive weights, by route
+		Map<String, Double> factors = new HashMap<>();
+
+		LinkedHashMap<String, Double> effectiveWeights = new LinkedHashMap<>();
+
 		GroupWeightConfig(String group) {
 			this.group = group;
 		}
@@ -290,6 +557,11 @@ public class WeightCalculatorWebFilter
 			this.weights = new LinkedHashMap<>(other.weights);
 			this.normalizedWeights = new LinkedHashMap<>(other.normalizedWeights);
 			this.rangeIndexes = new LinkedHashMap<>(other.rangeIndexes);
+			this.factors = new HashMap<>(other.factors);
+		}
+
+		double getFactor(String routeId) {
+			return factors.getOrDefault(routeId, 1.0);
 		}
 
 		@Override
@@ -297,7 +569,41 @@ public class WeightCalculatorWebFilter
 			return new ToStringCreator(this).append("group", group)
 					.append("weights", weights)
 					.append("normalizedWeights", normalizedWeights)
-					.append("rangeIndexes", rangeIndexes).toString();
+					.append("rangeIndexes", rangeIndexes)
+					.append("effectiveWeights", effectiveWeights).toString();
+		}
+
+	}
+
+	/**
+	 * The moving averages of the latency and error rate of a route.
+	 */
+	private static final class RouteStats {
+
+		private long samples;
+
+		private double latency;
+
+		private double errorRate;
+
+		synchronized void record(long latency, boolean error, double alpha) {
+			double errors = error ? 1 : 0;
+			if (samples++ == 0) {
+				this.latency = latency;
+				this.errorRate = errors;
+			}
+			else {
+				this.latency += alpha * (latency - this.latency);
+				this.errorRate += alpha * (errors - this.errorRate);
+			}
+		}
+
+		synchronized boolean hasSamples() {
+			return samples > 0;
+		}
+
+		synchronized double getHealth() {
+			return (1 - errorRate) / Math.max(latency, 1);
 		}
 
 	}
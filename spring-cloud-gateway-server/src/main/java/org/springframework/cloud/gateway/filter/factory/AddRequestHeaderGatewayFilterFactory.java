@@ -20,7 +20,7 @@ import reactor.core.publisher.Mono;
 
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
-import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.gateway.support.CompiledTemplate;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.server.ServerWebExchange;
 
@@ -45,11 +45,12 @@ public class AddRequestHeaderGatewayFilterFactory
 
 	@Override
 	public GatewayFilter apply(NameValueConfig config) {
+		CompiledTemplate template = CompiledTemplate.compile(config.getValue());
 		return new GatewayFilter() {
 			@Override
 			public Mono<Void> filter(ServerWebExchange exchange,
 					GatewayFilterChain chain) {
-				String value = ServerWebExchangeUtils.expand(exchange, config.getValue());
+				String value = template.expand(exchange);
 				ServerHttpRequest request = exchange.getRequest().mutate()
 						.headers(httpHeaders -> httpHeaders.add(config.getName(), value))
 						.build();
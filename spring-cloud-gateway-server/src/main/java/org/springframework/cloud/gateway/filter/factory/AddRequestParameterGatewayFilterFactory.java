@@ -22,7 +22,7 @@ import reactor.core.publisher.Mono;
 
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
-import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.gateway.support.CompiledTemplate;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.util.StringUtils;
 import org.springframework.web.server.ServerWebExchange;
@@ -49,6 +49,7 @@ public class AddRequestParameterGatewayFilterFactory
 
 	@Override
 	public GatewayFilter apply(NameValueConfig config) {
+		CompiledTemplate template = CompiledTemplate.compile(config.getValue());
 		return new GatewayFilter() {
 			@Override
 			public Mono<Void> filter(ServerWebExchange exchange,
@@ -64,7 +65,7 @@ public class AddRequestParameterGatewayFilterFactory
 					}
 				}
 
-				String value = ServerWebExchangeUtils.expand(exchange, config.getValue());
+				String value = template.expand(exchange);
 				// TODO urlencode?
 				query.append(config.getName());
 				query.append('=');
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory;
+
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.http.HttpCookie;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.springframework.cloud.gateway.support.GatewayToStringStyler.filterToStringCreator;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.LOAD_BALANCER_HASH_KEY_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.getUriTemplateVariables;
+
+/**
+ * Resolves a key from a header, a cookie, a URI template variable or a
+ * {@link KeyResolver}, so that the {@code lb://} route sends every request with the same
+ * key to the same instance of the service, with consistent hashing. Requests without a
+ * key are load balanced as usual.
+ */
+public class ConsistentHashGatewayFilterFactory
+		extends AbstractGatewayFilterFactory<ConsistentHashGatewayFilterFactory.Config> {
+
+	public ConsistentHashGatewayFilterFactory() {
+		super(Config.class);
+	}
+
+	@Override
+	public GatewayFilter apply(Config config) {
+		config.validate();
+		return new GatewayFilter() {
+			@Override
+			public Mono<Void> filter(ServerWebExchange exchange,
+					GatewayFilterChain chain) {
+				return resolve(exchange, config)
+						.doOnNext(key -> exchange.getAttributes()
+								.put(LOAD_BALANCER_HASH_KEY_ATTR, key))
+						.then(Mono.defer(() -> chain.filter(exchange)));
+			}
+
+			@Override
+			public String toString() {
+				return filterToStringCreator(ConsistentHashGatewayFilterFactory.this)
+						.append("header", config.getHeader())
+						.append("cookie", config.getCookie())
+						.append("pathVariable", config.getPathVariable())
+						.append("keyResolver", config.getKeyResolver()).toString();
+			}
+		};
+	}
+
+	private static Mono<String> resolve(ServerWebExchange exchange, Config config) {
+		if (config.getHeader() != null) {
+			return Mono.justOrEmpty(
+					exchange.getRequest().getHeaders().getFirst(config.getHeader()));
+		}
+		if (config.getCookie() != null) {
+			HttpCookie cookie = exchange.getRequest().getCookies()
+					.getFirst(config.getCookie());
+			return Mono.justOrEmpty(cookie != null ? cookie.getValue() : null);
+		}
+		if (config.getPathVariable() != null) {
+			return Mono.justOrEmpty(
+					getUriTemplateVariables(exchange).get(config.getPathVariable()));
+		}
+		return config.getKeyResolver().resolve(exchange);
+	}
+
+	public static class Config {
+
+		private String header;
+
+		private String cookie;
+
+		private String pathVariable;
+
+		private KeyResolver keyResolver;
+
+		public String getHeader() {
+			return header;
+		}
+
+		public Config setHeader(String header) {
+			this.header = header;
+			return this;
+		}
+
+		public String getCookie() {
+			return cookie;
+		}
+
+		public Config setCookie(String cookie) {
+			this.cookie = cookie;
+			return this;
+		}
+
+		public String getPathVariable() {
+			return pathVariable;
+		}
+
+		public Config setPathVariable(String pathVariable) {
+			this.pathVariable = pathVariable;
+			return this;
+		}
+
+		public KeyResolver getKeyResolver() {
+			return keyResolver;
+		}
+
+		public Config setKeyResolver(KeyResolver keyResolver) {
+			this.keyResolver = keyResolver;
+			return this;
+		}
+
+		public void validate() {
+			long sources = Stream.of(header, cookie, pathVariable, keyResolver)
+					.filter(Objects::nonNull).count();
+			Assert.isTrue(sources == 1,
+					"exactly one of header, cookie, pathVariable or keyResolver must be set");
+		}
+
+	}
+
+}
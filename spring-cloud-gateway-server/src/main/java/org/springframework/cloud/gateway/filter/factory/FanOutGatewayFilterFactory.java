@@ -0,0 +1,458 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientResponse;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.BufferedBodyBudget;
+import org.springframework.cloud.gateway.support.CompiledTemplate;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter.filterRequest;
+import static org.springframework.cloud.gateway.support.GatewayToStringStyler.filterToStringCreator;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.isAlreadyRouted;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.setAlreadyRouted;
+
+/**
+ * Calls several upstream services in parallel and answers with a single JSON object
+ * holding each response under the name of its leg. Legs are sent with the shared
+ * {@link HttpClient} and the headers of the incoming request. A failed or timed out leg
+ * fails the whole request, unless it is optional, in which case it is rendered as
+ * {@code null}. Leg responses are copied as they are, without being parsed. Each of them
+ * is buffered up to the {@link Leg#getMaxSize() size limit} of its leg, and accounted
+ * against the {@link BufferedBodyBudget} when one is in use.
+ * <p>
+ * The filter takes the place of the routing filters: it runs after the other filters of
+ * the route, {@link #FAN_OUT_FILTER_ORDER just before} the routing filters, and marks the
+ * exchange as routed, so that the rest of the chain runs without routing the request
+ * again. The merged response is written once the rest of the chain completed.
+ */
+public class FanOutGatewayFilterFactory
+		extends AbstractGatewayFilterFactory<FanOutGatewayFilterFactory.Config> {
+
+	/**
+	 * Order of the fan-out filter, just before the routing filters.
+	 */
+	public static final int FAN_OUT_FILTER_ORDER = Ordered.LOWEST_PRECEDENCE - 1;
+
+	private static final Log log = LogFactory.getLog(FanOutGatewayFilterFactory.class);
+
+	/**
+	 * Default size limit of the response of a leg.
+	 */
+	public static final DataSize DEFAULT_LEG_MAX_SIZE = DataSize.ofMegabytes(1);
+
+	private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+
+	private static final NettyDataBufferFactory BUFFER_FACTORY = new NettyDataBufferFactory(
+			ByteBufAllocator.DEFAULT);
+
+	private final HttpClient httpClient;
+
+	private final ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider;
+
+	private final ObjectProvider<LegObserver> legObserverProvider;
+
+	private volatile List<HttpHeadersFilter> headersFilters;
+
+	public FanOutGatewayFilterFactory(HttpClient httpClient,
+			ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider,
+			ObjectProvider<LegObserver> legObserverProvider) {
+		super(Config.class);
+		this.httpClient = httpClient;
+		this.headersFiltersProvider = headersFiltersProvider;
+		this.legObserverProvider = legObserverProvider;
+	}
+
+	public List<HttpHeadersFilter> getHeadersFilters() {
+		if (headersFilters == null) {
+			headersFilters = headersFiltersProvider.getIfAvailable();
+		}
+		return headersFilters;
+	}
+
+	@Override
+	public GatewayFilter apply(Config config) {
+		config.validate();
+		List<Leg> legs = new ArrayList<>(config.getLegs());
+		List<byte[]> fieldNames = new ArrayList<>(legs.size());
+		List<CompiledTemplate> uris = new ArrayList<>(legs.size());
+		for (Leg leg : legs) {
+			fieldNames.add(fieldName(leg.getName()));
+			uris.add(CompiledTemplate.compileUri(leg.getUri()));
+		}
+		List<LegObserver> observers = legObserverProvider.orderedStream()
+				.collect(Collectors.toList());
+		LegObserver observer = (routeId, leg, outcome, durationNanos) -> {
+			for (LegObserver delegate : observers) {
+				delegate.onLegComplete(routeId, leg, outcome, durationNanos);
+			}
+		};
+
+		return new OrderedGatewayFilter(new GatewayFilter() {
+			@Override
+			public Mono<Void> filter(ServerWebExchange exchange,
+					GatewayFilterChain chain) {
+				if (isAlreadyRouted(exchange)) {
+					return chain.filter(exchange);
+				}
+				setAlreadyRouted(exchange);
+				HttpHeaders headers = legHeaders(exchange);
+				Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+				String routeId = route != null ? route.getId() : "";
+
+				return Flux.range(0, legs.size())
+						.flatMapSequential(i -> call(exchange, headers, legs.get(i),
+								uris.get(i), routeId, observer), legs.size())
+						.collectList().map(bodies -> merge(fieldNames, bodies))
+						.flatMap(body -> chain.filter(exchange)
+								.then(Mono.defer(() -> write(exchange, body))));
+			}
+
+			@Override
+			public String toString() {
+				return filterToStringCreator(FanOutGatewayFilterFactory.this)
+						.append("legs", legs).toString();
+			}
+		}, FAN_OUT_FILTER_ORDER);
+	}
+
+	private HttpHeaders legHeaders(ServerWebExchange exchange) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.putAll(filterRequest(getHeadersFilters(), exchange));
+		// legs are sent without a body, to their own hosts
+		headers.remove(HttpHeaders.HOST);
+		headers.remove(HttpHeaders.CONTENT_LENGTH);
+		headers.remove(HttpHeaders.CONTENT_TYPE);
+		headers.remove(HttpHeaders.TRANSFER_ENCODING);
+		headers.set(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+		return headers;
+	}
+
+	private Mono<byte[]> call(ServerWebExchange exchange, HttpHeaders headers, Leg leg,
+			CompiledTemplate uri, String routeId, LegObserver observer) {
+		DefaultHttpHeaders httpHeaders = new DefaultHttpHeaders();
+		headers.forEach(httpHeaders::set);
+
+		Mono<byte[]> response = httpClient.headers(h -> h.add(httpHeaders)).get()
+				.uri(uri.expand(exchange)).response((res, body) -> {
+					checkResponse(leg, res);
+					return readBody(exchange, leg, res, body);
+				}).next().defaultIfEmpty(NULL);
+		Mono<byte[]> timed = leg.getTimeout() == null ? response
+				: response.timeout(leg.getTimeout(),
+						Mono.error(new TimeoutException("Leg " + leg.getName()
+								+ " took longer than timeout: " + leg.getTimeout())));
+
+		Mono<byte[]> observed = Mono.defer(() -> {
+			long start = System.nanoTime();
+			return timed
+					.doOnSuccess(body -> observer.onLegComplete(routeId, leg.getName(),
+							LegObserver.SUCCESS, System.nanoTime() - start))
+					.doOnError(ex -> observer.onLegComplete(
+							routeId, leg.getName(), ex instanceof TimeoutException
+									? LegObserver.TIMEOUT : LegObserver.ERROR,
+							System.nanoTime() - start));
+		});
+
+		if (leg.isOptional()) {
+			return observed.onErrorResume(ex -> {
+				if (log.isDebugEnabled()) {
+					log.debug("Optional leg " + leg.getName() + " failed", ex);
+				}
+				return Mono.just(NULL);
+			});
+		}
+		return observed
+				.onErrorMap(TimeoutException.class,
+						ex -> new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT,
+								ex.getMessage(), ex))
+				.onErrorMap(ex -> !(ex instanceof ResponseStatusException),
+						ex -> new ResponseStatusException(HttpStatus.BAD_GATEWAY,
+								"Leg " + leg.getName() + " failed", ex));
+	}
+
+	private static Mono<byte[]> readBody(ServerWebExchange exchange, Leg leg,
+			HttpClientResponse response, ByteBufFlux body) {
+		long contentLength = contentLength(response);
+		long maxSize = leg.getMaxSize().toBytes();
+		if (contentLength > maxSize) {
+			return Mono.error(tooLarge(leg));
+		}
+		Flux<DataBuffer> buffers = BufferedBodyBudget.retain(exchange,
+				body.retain().map(BUFFER_FACTORY::wrap), contentLength);
+		return DataBufferUtils.join(buffers, (int) Math.min(maxSize, Integer.MAX_VALUE))
+				.map(dataBuffer -> {
+					byte[] bytes = new byte[dataBuffer.readableByteCount()];
+					dataBuffer.read(bytes);
+					DataBufferUtils.release(dataBuffer);
+					return bytes;
+				}).onErrorMap(DataBufferLimitException.class, ex -> tooLarge(leg));
+	}
+
+	private static long contentLength(HttpClientResponse response) {
+		String contentLength = response.responseHeaders().get(HttpHeaders.CONTENT_LENGTH);
+		try {
+			return contentLength != null ? Long.parseLong(contentLength) : -1;
+		}
+		catch (NumberFormatException ex) {
+			return -1;
+		}
+	}
+
+	private static ResponseStatusException tooLarge(Leg leg) {
+		return new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Leg " + leg.getName()
+				+ " responded with more than " + leg.getMaxSize().toBytes() + " bytes");
+	}
+
+	private static void checkResponse(Leg leg, HttpClientResponse response) {
+		HttpStatus.Series series = HttpStatus.Series.resolve(response.status().code());
+		if (series != HttpStatus.Series.SUCCESSFUL) {
+			throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Leg "
+					+ leg.getName() + " responded with " + response.status().code());
+		}
+		String contentType = response.responseHeaders().get(HttpHeaders.CONTENT_TYPE);
+		if (response.status().code() != HttpStatus.NO_CONTENT.value()
+				&& !isJson(contentType)) {
+			throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Leg "
+					+ leg.getName() + " did not respond with JSON: " + contentType);
+		}
+	}
+
+	private static boolean isJson(String contentType) {
+		if (!StringUtils.hasText(contentType)) {
+			return false;
+		}
+		try {
+			MediaType mediaType = MediaType.parseMediaType(contentType);
+			return MediaType.APPLICATION_JSON.equalsTypeAndSubtype(mediaType)
+					|| mediaType.getSubtype().endsWith("+json");
+		}
+		catch (InvalidMediaTypeException ex) {
+			return false;
+		}
+	}
+
+	private static byte[] fieldName(String name) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write('"');
+		byte[] quoted = JsonStringEncoder.getInstance().quoteAsUTF8(name);
+		out.write(quoted, 0, quoted.length);
+		out.write('"');
+		out.write(':');
+		return out.toByteArray();
+	}
+
+	private static byte[] merge(List<byte[]> fieldNames, List<byte[]> bodies) {
+		int size = 2;
+		for (int i = 0; i < bodies.size(); i++) {
+			size += fieldNames.get(i).length + bodies.get(i).length + 1;
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+		out.write('{');
+		for (int i = 0; i < bodies.size(); i++) {
+			if (i > 0) {
+				out.write(',');
+			}
+			byte[] fieldName = fieldNames.get(i);
+			byte[] body = bodies.get(i);
+			out.write(fieldName, 0, fieldName.length);
+			out.write(body, 0, body.length);
+		}
+		out.write('}');
+		return out.toByteArray();
+	}
+
+	private static Mono<Void> write(ServerWebExchange exchange, byte[] body) {
+		ServerHttpResponse response = exchange.getResponse();
+		if (response.isCommitted()) {
+			return Mono.empty();
+		}
+		response.setStatusCode(HttpStatus.OK);
+		response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+		response.getHeaders().setContentLength(body.length);
+		return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+	}
+
+	/**
+	 * Notified when a leg completes, for example to record its latency.
+	 */
+	@FunctionalInterface
+	public interface LegObserver {
+
+		/**
+		 * Outcome of a leg that responded in time.
+		 */
+		String SUCCESS = "SUCCESS";
+
+		/**
+		 * Outcome of a leg that failed.
+		 */
+		String ERROR = "ERROR";
+
+		/**
+		 * Outcome of a leg that did not respond in time.
+		 */
+		String TIMEOUT = "TIMEOUT";
+
+		void onLegComplete(String routeId, String leg, String outcome,
+				long durationNanos);
+
+	}
+
+	public static class Config {
+
+		private List<Leg> legs = new ArrayList<>();
+
+		public List<Leg> getLegs() {
+			return legs;
+		}
+
+		public Config setLegs(List<Leg> legs) {
+			this.legs = legs;
+			return this;
+		}
+
+		public Config addLeg(String name, String uri) {
+			return addLeg(new Leg().setName(name).setUri(uri));
+		}
+
+		public Config addLeg(Leg leg) {
+			this.legs.add(leg);
+			return this;
+		}
+
+		public void validate() {
+			Assert.notEmpty(this.legs, "legs may not be empty");
+			List<String> names = new ArrayList<>();
+			for (Leg leg : this.legs) {
+				Assert.hasText(leg.getName(), "leg name may not be empty");
+				Assert.hasText(leg.getUri(),
+						"uri of leg " + leg.getName() + " may not be empty");
+				Assert.isTrue(leg.getMaxSize() != null && leg.getMaxSize().toBytes() > 0,
+						"maxSize of leg " + leg.getName() + " must be greater than 0");
+				Assert.isTrue(!names.contains(leg.getName()),
+						"duplicate leg name " + leg.getName());
+				names.add(leg.getName());
+			}
+		}
+
+	}
+
+	public static class Leg {
+
+		private String name;
+
+		private String uri;
+
+		private Duration timeout;
+
+		private boolean optional;
+
+		private DataSize maxSize = DEFAULT_LEG_MAX_SIZE;
+
+		public String getName() {
+			return name;
+		}
+
+		public Leg setName(String name) {
+			this.name = name;
+			return this;
+		}
+
+		public String getUri() {
+			return uri;
+		}
+
+		public Leg setUri(String uri) {
+			this.uri = uri;
+			return this;
+		}
+
+		public Duration getTimeout() {
+			return timeout;
+		}
+
+		public Leg setTimeout(Duration timeout) {
+			this.timeout = timeout;
+			return this;
+		}
+
+		public boolean isOptional() {
+			return optional;
+		}
+
+		public Leg setOptional(boolean optional) {
+			this.optional = optional;
+			return this;
+		}
+
+		public DataSize getMaxSize() {
+			return maxSize;
+		}
+
+		public Leg setMaxSize(DataSize maxSize) {
+			this.maxSize = maxSize;
+			return this;
+		}
+
+		@Override
+		public String toString() {
+			return name + "=" + uri;
+		}
+
+	}
+
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.support.CidrTrie;
+import org.springframework.cloud.gateway.support.ipresolver.RemoteAddressResolver;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.springframework.cloud.gateway.support.GatewayToStringStyler.filterToStringCreator;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.setResponseStatus;
+
+/**
+ * Rejects requests from remote addresses that are in one of the denied subnets, or, when
+ * subnets are allowed, that are not in one of the allowed subnets, with
+ * {@code 403 Forbidden}. The subnets can also be read from a local file, which is read
+ * again when it changes, with lines such as {@code allow 10.0.0.0/8} or
+ * {@code deny 192.168.1.1}. A filter is not created when the file cannot be read.
+ */
+public class IpFilterGatewayFilterFactory
+		extends AbstractGatewayFilterFactory<IpFilterGatewayFilterFactory.Config> {
+
+	private static final Log log = LogFactory.getLog(IpFilterGatewayFilterFactory.class);
+
+	public IpFilterGatewayFilterFactory() {
+		super(Config.class);
+	}
+
+	@Override
+	public GatewayFilter apply(Config config) {
+		config.validate();
+		IpRules rules = new IpRules(config);
+		return new GatewayFilter() {
+			@Override
+			public Mono<Void> filter(ServerWebExchange exchange,
+					GatewayFilterChain chain) {
+				InetSocketAddress remoteAddress = config.getRemoteAddressResolver()
+						.resolve(exchange);
+				if (!rules.get().permits(remoteAddress)) {
+					if (log.isDebugEnabled()) {
+						log.debug("Rejecting request from " + remoteAddress);
+					}
+					setResponseStatus(exchange, HttpStatus.FORBIDDEN);
+					return exchange.getResponse().setComplete();
+				}
+				return chain.filter(exchange);
+			}
+
+			@Override
+			public String toString() {
+				return filterToStringCreator(IpFilterGatewayFilterFactory.this)
+						.append("allow", config.getAllow())
+						.append("deny", config.getDeny()).append("file", config.getFile())
+						.toString();
+			}
+		};
+	}
+
+	public static class Config {
+
+		private List<String> allow = new ArrayList<>();
+
+		private List<String> deny = new ArrayList<>();
+
+		private String file;
+
+		private Duration reloadInterval = Duration.ofSeconds(10);
+
+		private RemoteAddressResolver remoteAddressResolver = new RemoteAddressResolver() {
+		};
+
+		public List<String> getAllow() {
+			return allow;
+		}
+
+		public Config setAllow(List<String> allow) {
+			this.allow = allow;
+			return this;
+		}
+
+		public List<String> getDeny() {
+			return deny;
+		}
+
+		public Config setDeny(List<String> deny) {
+			this.deny = deny;
+			return this;
+		}
+
+		public String getFile() {
+			return file;
+		}
+
+		public Config setFile(String file) {
+			this.file = file;
+			return this;
+		}
+
+		public Duration getReloadInterval() {
+			return reloadInterval;
+		}
+
+		public Config setReloadInterval(Duration reloadInterval) {
+			this.reloadInterval = reloadInterval;
+			return this;
+		}
+
+		public RemoteAddressResolver getRemoteAddressResolver() {
+			return remoteAddressResolver;
+		}
+
+		public Config setRemoteAddressResolver(
+				RemoteAddressResolver remoteAddressResolver) {
+			this.remoteAddressResolver = remoteAddressResolver;
+			return this;
+		}
+
+		public void validate() {
+			Assert.notNull(this.allow, "allow may not be null");
+			Assert.notNull(this.deny, "deny may not be null");
+			Assert.notNull(this.reloadInterval, "reloadInterval may not be null");
+			Assert.isTrue(!this.reloadInterval.isNegative(),
+					"reloadInterval may not be negative");
+			Assert.notNull(this.remoteAddressResolver,
+					"remoteAddressResolver may not be null");
+		}
+
+	}
+
+	private static final class Rules {
+
+		private final CidrTrie allow;
+
+		private final CidrTrie deny;
+
+		private Rules(List<String> allow, List<String> deny) {
+			this.allow = CidrTrie.of(allow);
+			this.deny = CidrTrie.of(deny);
+		}
+
+		private boolean permits(@Nullable InetSocketAddress remoteAddress) {
+			if (deny.matches(remoteAddress)) {
+				return false;
+			}
+			return allow.isEmpty() || allow.matches(remoteAddress);
+		}
+
+	}
+
+	/**
+	 * The rules of a filter. The file, if any, is checked for changes at most once per
+	 * reload interval, off the request thread, while requests keep using the rules that
+	 * were read last.
+	 */
+	private static final class IpRules {
+
+		private final Config config;
+
+		private final Path file;
+
+		private final AtomicBoolean reloading = new AtomicBoolean();
+
+		private volatile Rules rules;
+
+		private volatile long nextCheck;
+
+		private volatile FileTime lastModified;
+
+		private IpRules(Config config) {
+			this.config = config;
+			this.file = StringUtils.hasText(config.getFile())
+					? Paths.get(config.getFile()) : null;
+			if (this.file == null) {
+				this.rules = new Rules(config.getAllow(), config.getDeny());
+				return;
+			}
+			// without the rules of the file, the filter would let every request through
+			try {
+				read();
+			}
+			catch (IOException e) {
+				throw new IllegalArgumentException(
+						"Unable to read IP filter rules from " + file, e);
+			}
+		}
+
+		private Rules get() {
+			if (file != null && System.nanoTime() - nextCheck >= 0
+					&& reloading.compareAndSet(false, true)) {
+				Mono.fromRunnable(this::reload).subscribeOn(Schedulers.boundedElastic())
+						.doFinally(signal -> reloading.set(false)).subscribe();
+			}
+			return rules;
+		}
+
+		private void reload() {
+			try {
+				read();
+			}
+			catch (IOException | IllegalArgumentException e) {
+				if (log.isWarnEnabled()) {
+					log.warn("Unable to read IP filter rules from " + file
+							+ ", keeping the previous rules", e);
+				}
+			}
+		}
+
+		private void read() throws IOException {
+			nextCheck = System.nanoTime() + config.getReloadInterval().toNanos();
+			FileTime modified = Files.getLastModifiedTime(file);
+			if (modified.equals(lastModified)) {
+				return;
+			}
+			List<String> allow = new ArrayList<>(config.getAllow());
+			List<String> deny = new ArrayList<>(config.getDeny());
+			for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+				parse(line, allow, deny);
+			}
+			rules = new Rules(allow, deny);
+			lastModified = modified;
+			if (log.isDebugEnabled()) {
+				log.debug("Read IP filter rules from " + file);
+			}
+		}
+
+		private static void parse(String line, List<String> allow, List<String> deny) {
+			String trimmed = line.trim();
+			if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+				return;
+			}
+			String[] actionAndSubnet = trimmed.split("\\s+", 2);
+			if (actionAndSubnet.length == 2 && "allow".equals(actionAndSubnet[0])) {
+				allow.add(actionAndSubnet[1]);
+			}
+			else if (actionAndSubnet.length == 2 && "deny".equals(actionAndSubnet[0])) {
+				deny.add(actionAndSubnet[1]);
+			}
+			else {
+				throw new IllegalArgumentException("Invalid IP filter rule: " + line);
+			}
+		}
+
+	}
+
+}
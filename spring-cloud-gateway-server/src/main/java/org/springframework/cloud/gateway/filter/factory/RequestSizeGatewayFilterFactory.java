@@ -16,12 +16,17 @@
 
 package org.springframework.cloud.gateway.filter.factory;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.support.BodySizeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 import org.springframework.util.unit.DataSize;
@@ -31,7 +36,9 @@ import static org.springframework.cloud.gateway.support.GatewayToStringStyler.fi
 
 /**
  * This filter blocks the request, if the request size is more than the permissible size.
- * The default request size is 5 MB.
+ * The default request size is 5 MB. Requests without a Content-Length header (such as
+ * chunked uploads) are counted as the body streams and aborted as soon as the limit is
+ * crossed.
  *
  * @author Arpan
  */
@@ -85,21 +92,34 @@ public class RequestSizeGatewayFilterFactory extends
 			public Mono<Void> filter(ServerWebExchange exchange,
 					GatewayFilterChain chain) {
 				ServerHttpRequest request = exchange.getRequest();
+				long maxSize = requestSizeConfig.getMaxSize().toBytes();
 				String contentLength = request.getHeaders().getFirst("content-length");
 				if (!StringUtils.isEmpty(contentLength)) {
 					Long currentRequestSize = Long.valueOf(contentLength);
-					if (currentRequestSize > requestSizeConfig.getMaxSize().toBytes()) {
-						exchange.getResponse()
-								.setStatusCode(HttpStatus.PAYLOAD_TOO_LARGE);
-						if (!exchange.getResponse().isCommitted()) {
-							exchange.getResponse().getHeaders().add("errorMessage",
-									getErrorMessage(currentRequestSize,
-											requestSizeConfig.getMaxSize().toBytes()));
-						}
-						return exchange.getResponse().setComplete();
+					if (currentRequestSize > maxSize) {
+						return reject(exchange,
+								getErrorMessage(currentRequestSize, maxSize));
 					}
+					return chain.filter(exchange);
 				}
-				return chain.filter(exchange);
+
+				// no Content-Length (e.g. chunked), count the bytes as the body streams
+				// and abort the upstream send once the limit is crossed
+				ServerHttpRequest decorator = new ServerHttpRequestDecorator(request) {
+					@Override
+					public Flux<DataBuffer> getBody() {
+						return BodySizeUtils.limitSize(super.getBody(), maxSize,
+								count -> new RequestSizeExceededException(
+										getErrorMessage(count, maxSize)));
+					}
+				};
+				return chain.filter(exchange.mutate().request(decorator).build())
+						.onErrorResume(RequestSizeExceededException.class, e -> {
+							if (exchange.getResponse().isCommitted()) {
+								return Mono.error(e);
+							}
+							return reject(exchange, e.getMessage());
+						});
 			}
 
 			@Override
@@ -110,6 +130,14 @@ public class RequestSizeGatewayFilterFactory extends
 		};
 	}
 
+	private static Mono<Void> reject(ServerWebExchange exchange, String errorMessage) {
+		exchange.getResponse().setStatusCode(HttpStatus.PAYLOAD_TOO_LARGE);
+		if (!exchange.getResponse().isCommitted()) {
+			exchange.getResponse().getHeaders().add("errorMessage", errorMessage);
+		}
+		return exchange.getResponse().setComplete();
+	}
+
 	public static class RequestSizeConfig {
 
 		// TODO: use boot data size type
@@ -139,4 +167,16 @@ public class RequestSizeGatewayFilterFactory extends
 
 	}
 
+	/**
+	 * Signalled by a request body without a Content-Length once more than the permissible
+	 * number of bytes has been read.
+	 */
+	static class RequestSizeExceededException extends DataBufferLimitException {
+
+		RequestSizeExceededException(String message) {
+			super(message);
+		}
+
+	}
+
 }
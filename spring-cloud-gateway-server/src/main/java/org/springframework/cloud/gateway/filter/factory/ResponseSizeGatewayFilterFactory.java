@@ -0,0 +1,178 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.support.BodySizeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.util.Assert;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.springframework.cloud.gateway.support.GatewayToStringStyler.filterToStringCreator;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_HEADER_NAMES;
+
+/**
+ * This filter limits the size of the response returned by the downstream service. A
+ * Content-Length larger than the permissible size is rejected before the body is read,
+ * otherwise the bytes are counted as the body streams back. If the limit is crossed
+ * before the response is committed, a 502 Bad Gateway with an {@code errorMessage} header
+ * is returned, otherwise the connection is aborted. The default response size is 5 MB.
+ */
+public class ResponseSizeGatewayFilterFactory extends
+		AbstractGatewayFilterFactory<ResponseSizeGatewayFilterFactory.ResponseSizeConfig> {
+
+	private static String ERROR = "Response size is larger than permissible limit."
+			+ " Response size is %s where permissible limit is %s";
+
+	public ResponseSizeGatewayFilterFactory() {
+		super(ResponseSizeGatewayFilterFactory.ResponseSizeConfig.class);
+	}
+
+	private static String getErrorMessage(long currentResponseSize, DataSize maxSize) {
+		return String.format(ERROR, DataSize.ofBytes(currentResponseSize), maxSize);
+	}
+
+	@Override
+	public List<String> shortcutFieldOrder() {
+		return Collections.singletonList("maxSize");
+	}
+
+	@Override
+	public GatewayFilter apply(ResponseSizeConfig config) {
+		config.validate();
+		DataSize maxSize = config.getMaxSize();
+		return new OrderedGatewayFilter(new GatewayFilter() {
+			@Override
+			public Mono<Void> filter(ServerWebExchange exchange,
+					GatewayFilterChain chain) {
+				ServerHttpResponse decorator = new ResponseSizeServerHttpResponse(
+						exchange.getResponse(), maxSize);
+				return chain.filter(exchange.mutate().response(decorator).build())
+						.onErrorResume(ResponseSizeExceededException.class,
+								e -> reject(exchange, e));
+			}
+
+			@Override
+			public String toString() {
+				return filterToStringCreator(ResponseSizeGatewayFilterFactory.this)
+						.append("max", maxSize).toString();
+			}
+		}, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+	}
+
+	private Mono<Void> reject(ServerWebExchange exchange,
+			ResponseSizeExceededException e) {
+		ServerHttpResponse response = exchange.getResponse();
+		if (response.isCommitted()) {
+			return Mono.error(e);
+		}
+		// drop the headers copied from the downstream response, they describe a body
+		// that is not going to be sent
+		Set<String> clientResponseHeaders = exchange.getAttributeOrDefault(
+				CLIENT_RESPONSE_HEADER_NAMES, Collections.emptySet());
+		clientResponseHeaders.forEach(header -> response.getHeaders().remove(header));
+		response.setStatusCode(HttpStatus.BAD_GATEWAY);
+		response.getHeaders().add("errorMessage", e.getMessage());
+		return response.setComplete();
+	}
+
+	public static class ResponseSizeConfig {
+
+		private DataSize maxSize = DataSize.ofBytes(5000000L);
+
+		public DataSize getMaxSize() {
+			return maxSize;
+		}
+
+		public ResponseSizeConfig setMaxSize(DataSize maxSize) {
+			this.maxSize = maxSize;
+			return this;
+		}
+
+		public void validate() {
+			Assert.notNull(this.maxSize, "maxSize may not be null");
+			Assert.isTrue(this.maxSize.toBytes() > 0, "maxSize must be greater than 0");
+		}
+
+	}
+
+	static class ResponseSizeServerHttpResponse extends ServerHttpResponseDecorator {
+
+		private final DataSize maxSize;
+
+		ResponseSizeServerHttpResponse(ServerHttpResponse delegate, DataSize maxSize) {
+			super(delegate);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+			long contentLength = getHeaders().getContentLength();
+			if (contentLength > maxSize.toBytes()) {
+				return Mono.error(exceeded(contentLength));
+			}
+			return super.writeWith(
+					BodySizeUtils.limitSize(body, maxSize.toBytes(), this::exceeded));
+		}
+
+		@Override
+		public Mono<Void> writeAndFlushWith(
+				Publisher<? extends Publisher<? extends DataBuffer>> body) {
+			return Mono.defer(() -> {
+				AtomicLong counter = new AtomicLong();
+				return super.writeAndFlushWith(Flux.from(body)
+						.map(publisher -> BodySizeUtils.limitSize(publisher, counter,
+								maxSize.toBytes(), this::exceeded)));
+			});
+		}
+
+		private ResponseSizeExceededException exceeded(long count) {
+			return new ResponseSizeExceededException(getErrorMessage(count, maxSize));
+		}
+
+	}
+
+	/**
+	 * Signalled by the response body once more than the permissible number of bytes has
+	 * been read from the downstream service.
+	 */
+	static class ResponseSizeExceededException extends DataBufferLimitException {
+
+		ResponseSizeExceededException(String message) {
+			super(message);
+		}
+
+	}
+
+}
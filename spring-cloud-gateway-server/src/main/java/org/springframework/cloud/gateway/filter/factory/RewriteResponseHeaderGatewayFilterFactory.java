@@ -19,6 +19,7 @@ package org.springframework.cloud.gateway.filter.factory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.regex.Pattern;
 
 import reactor.core.publisher.Mono;
 
@@ -68,6 +69,8 @@ public class RewriteResponseHeaderGatewayFilterFactory extends
 
 	@Override
 	public GatewayFilter apply(Config config) {
+		// compiled once here rather than on every response
+		config.compile();
 		return new GatewayFilter() {
 			@Override
 			public Mono<Void> filter(ServerWebExchange exchange,
@@ -100,10 +103,11 @@ public class RewriteResponseHeaderGatewayFilterFactory extends
 	}
 
 	protected List<String> rewriteHeaders(Config config, List<String> headers) {
+		Compiled compiled = config.compile();
 		ArrayList<String> rewrittenHeaders = new ArrayList<>();
 		for (int i = 0; i < headers.size(); i++) {
-			String rewriten = rewrite(headers.get(i), config.getRegexp(),
-					config.getReplacement());
+			String rewriten = compiled.pattern.matcher(headers.get(i))
+					.replaceAll(compiled.replacement);
 			rewrittenHeaders.add(rewriten);
 		}
 		return rewrittenHeaders;
@@ -119,12 +123,15 @@ public class RewriteResponseHeaderGatewayFilterFactory extends
 
 		private String replacement;
 
+		private volatile Compiled compiled;
+
 		public String getRegexp() {
 			return regexp;
 		}
 
 		public Config setRegexp(String regexp) {
 			this.regexp = regexp;
+			this.compiled = null;
 			return this;
 		}
 
@@ -134,9 +141,33 @@ public class RewriteResponseHeaderGatewayFilterFactory extends
 
 		public Config setReplacement(String replacement) {
 			this.replacement = replacement;
+			this.compiled = null;
 			return this;
 		}
 
+		// the pattern and replacement, compiled again only when they are set
+		private Compiled compile() {
+			Compiled current = compiled;
+			if (current == null) {
+				current = new Compiled(regexp, replacement);
+				compiled = current;
+			}
+			return current;
+		}
+
+	}
+
+	private static final class Compiled {
+
+		private final Pattern pattern;
+
+		private final String replacement;
+
+		private Compiled(String regexp, String replacement) {
+			this.pattern = Pattern.compile(regexp);
+			this.replacement = replacement.replace("$\\", "$");
+		}
+
 	}
 
 }
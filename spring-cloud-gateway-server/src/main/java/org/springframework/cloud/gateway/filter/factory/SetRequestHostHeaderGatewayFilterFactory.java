@@ -23,7 +23,7 @@ import reactor.core.publisher.Mono;
 
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
-import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.gateway.support.CompiledTemplate;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.server.ServerWebExchange;
 
@@ -62,11 +62,12 @@ public class SetRequestHostHeaderGatewayFilterFactory extends
 
 	@Override
 	public GatewayFilter apply(Config config) {
+		CompiledTemplate template = CompiledTemplate.compile(config.getHost());
 		return new GatewayFilter() {
 			@Override
 			public Mono<Void> filter(ServerWebExchange exchange,
 					GatewayFilterChain chain) {
-				String value = ServerWebExchangeUtils.expand(exchange, config.getHost());
+				String value = template.expand(exchange);
 
 				ServerHttpRequest request = exchange.getRequest().mutate()
 						.headers(httpHeaders -> {
@@ -23,13 +23,14 @@ import reactor.core.publisher.Mono;
 
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.server.PathContainer;
 import org.springframework.http.server.reactive.ServerHttpRequest;
-import org.springframework.util.StringUtils;
 import org.springframework.web.server.ServerWebExchange;
 
 import static org.springframework.cloud.gateway.support.GatewayToStringStyler.filterToStringCreator;
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.addOriginalRequestUrl;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.getRequestPath;
 
 /**
  * This filter removes the first part of the path, known as the prefix, from the request
@@ -75,21 +76,22 @@ public class StripPrefixGatewayFilterFactory
 					GatewayFilterChain chain) {
 				ServerHttpRequest request = exchange.getRequest();
 				addOriginalRequestUrl(exchange, request.getURI());
-				String path = request.getURI().getRawPath();
-				String[] originalParts = StringUtils.tokenizeToStringArray(path, "/");
+				PathContainer path = getRequestPath(exchange);
 
 				// all new paths start with /
 				StringBuilder newPath = new StringBuilder("/");
-				for (int i = 0; i < originalParts.length; i++) {
-					if (i >= config.getParts()) {
+				int part = 0;
+				for (PathContainer.Element element : path.elements()) {
+					if (element instanceof PathContainer.PathSegment
+							&& part++ >= config.getParts()) {
 						// only append slash if this is the second part or greater
 						if (newPath.length() > 1) {
 							newPath.append('/');
 						}
-						newPath.append(originalParts[i]);
+						newPath.append(element.value());
 					}
 				}
-				if (newPath.length() > 1 && path.endsWith("/")) {
+				if (newPath.length() > 1 && path.value().endsWith("/")) {
 					newPath.append('/');
 				}
 
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory.rewrite;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.util.Assert;
+
+/**
+ * Converts a body between two Jackson data formats, for example JSON and CBOR, one token
+ * at a time without building an object tree. Sources that support non-blocking parsing
+ * are converted as the buffers arrive, others are joined before being converted.
+ */
+public class JsonTokenTranscoder {
+
+	private final JsonFactory source;
+
+	private final JsonFactory target;
+
+	public JsonTokenTranscoder(JsonFactory source, JsonFactory target) {
+		Assert.notNull(source, "source may not be null");
+		Assert.notNull(target, "target may not be null");
+		this.source = source;
+		this.target = target;
+	}
+
+	/**
+	 * Converts the given body.
+	 * @param body the body in the source format.
+	 * @param bufferFactory the factory for the converted buffers.
+	 * @return the body in the target format.
+	 */
+	public Flux<DataBuffer> transcode(Publisher<? extends DataBuffer> body,
+			DataBufferFactory bufferFactory) {
+		if (source.canParseAsync()) {
+			return Flux.using(
+					() -> new TokenCopier(source.createNonBlockingByteArrayParser(),
+							bufferFactory),
+					copier -> Flux.from(body).concatMap(copier::feed)
+							.concatWith(Mono.defer(copier::complete)),
+					TokenCopier::close);
+		}
+		return DataBufferUtils.join(body)
+				.flatMapMany(
+						dataBuffer -> Flux.using(
+								() -> new TokenCopier(
+										source.createParser(
+												dataBuffer.asInputStream(true)),
+										bufferFactory),
+								TokenCopier::complete, TokenCopier::close));
+	}
+
+	@Override
+	public String toString() {
+		return source.getFormatName() + " -> " + target.getFormatName();
+	}
+
+	private class TokenCopier {
+
+		private final JsonParser parser;
+
+		private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		private final JsonGenerator generator;
+
+		private final DataBufferFactory bufferFactory;
+
+		TokenCopier(JsonParser parser, DataBufferFactory bufferFactory)
+				throws IOException {
+			this.parser = parser;
+			this.generator = target.createGenerator(output);
+			this.bufferFactory = bufferFactory;
+		}
+
+		Mono<DataBuffer> feed(DataBuffer dataBuffer) {
+			try {
+				byte[] bytes = new byte[dataBuffer.readableByteCount()];
+				dataBuffer.read(bytes);
+				((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).feedInput(bytes, 0,
+						bytes.length);
+				copyTokens();
+				return drain();
+			}
+			catch (IOException ex) {
+				return Mono.error(ex);
+			}
+			finally {
+				DataBufferUtils.release(dataBuffer);
+			}
+		}
+
+		Mono<DataBuffer> complete() {
+			try {
+				if (parser.getNonBlockingInputFeeder() != null) {
+					parser.getNonBlockingInputFeeder().endOfInput();
+				}
+				copyTokens();
+				generator.close();
+				return drain();
+			}
+			catch (IOException ex) {
+				return Mono.error(ex);
+			}
+		}
+
+		private void copyTokens() throws IOException {
+			JsonToken token = parser.nextToken();
+			while (token != null && token != JsonToken.NOT_AVAILABLE) {
+				generator.copyCurrentEvent(parser);
+				token = parser.nextToken();
+			}
+			generator.flush();
+		}
+
+		private Mono<DataBuffer> drain() {
+			if (output.size() == 0) {
+				return Mono.empty();
+			}
+			byte[] bytes = output.toByteArray();
+			output.reset();
+			return Mono.just(bufferFactory.wrap(bytes));
+		}
+
+		void close() {
+			try {
+				parser.close();
+			}
+			catch (IOException ignored) {
+				// nothing left to read
+			}
+		}
+
+	}
+
+}
@@ -27,6 +27,7 @@ import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
 import org.springframework.cloud.gateway.support.BodyInserterContext;
+import org.springframework.cloud.gateway.support.BufferedBodyBudget;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpHeaders;
@@ -41,6 +42,7 @@ import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.server.ServerWebExchange;
 
 import static org.springframework.cloud.gateway.support.GatewayToStringStyler.filterToStringCreator;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.BUFFERED_BODY_RESERVATION_ATTR;
 
 /**
  * GatewayFilter that modifies the request body.
@@ -87,7 +89,7 @@ public class ModifyRequestBodyGatewayFilterFactory extends
 			public Mono<Void> filter(ServerWebExchange exchange,
 					GatewayFilterChain chain) {
 				Class inClass = config.getInClass();
-				ServerRequest serverRequest = ServerRequest.create(exchange,
+				ServerRequest serverRequest = ServerRequest.create(retainBody(exchange),
 						messageReaders);
 
 				// TODO: flux or mono
@@ -135,6 +137,21 @@ public class ModifyRequestBodyGatewayFilterFactory extends
 		};
 	}
 
+	private ServerWebExchange retainBody(ServerWebExchange exchange) {
+		if (!exchange.getAttributes().containsKey(BUFFERED_BODY_RESERVATION_ATTR)) {
+			return exchange;
+		}
+		ServerHttpRequest request = new ServerHttpRequestDecorator(
+				exchange.getRequest()) {
+			@Override
+			public Flux<DataBuffer> getBody() {
+				return BufferedBodyBudget.retain(exchange, super.getBody(),
+						getHeaders().getContentLength());
+			}
+		};
+		return exchange.mutate().request(request).build();
+	}
+
 	protected Mono<Void> release(ServerWebExchange exchange,
 			CachedBodyOutputMessage outputMessage, Throwable throwable) {
 		if (outputMessage.isCached()) {
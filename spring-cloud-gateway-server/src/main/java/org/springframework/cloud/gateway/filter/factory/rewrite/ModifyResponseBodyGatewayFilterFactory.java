@@ -33,6 +33,7 @@ import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
 import org.springframework.cloud.gateway.support.BodyInserterContext;
+import org.springframework.cloud.gateway.support.BufferedBodyBudget;
 import org.springframework.core.Ordered;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferFactory;
@@ -314,7 +315,9 @@ public class ModifyResponseBodyGatewayFilterFactory extends
 			builder = ClientResponse.create(exchange.getResponse().getStatusCode(),
 					messageReaders);
 			return builder.headers(headers -> headers.putAll(httpHeaders))
-					.body(Flux.from(body)).build();
+					.body(BufferedBodyBudget.retain(exchange, body,
+							exchange.getResponse().getHeaders().getContentLength()))
+					.build();
 		}
 
 		private <T> Mono<T> extractBody(ServerWebExchange exchange,
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory.rewrite;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.lang.Nullable;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.springframework.cloud.gateway.support.GatewayToStringStyler.filterToStringCreator;
+
+/**
+ * Lets clients talk CBOR or Smile to backends that only speak JSON. Request bodies sent
+ * as {@code application/cbor} or {@code application/x-jackson-smile} are converted to
+ * JSON, and JSON responses are converted to the binary format the client prefers in its
+ * {@code Accept} header. Bodies are converted token by token, so large payloads are
+ * streamed rather than held in memory.
+ */
+public class TranscodeGatewayFilterFactory extends AbstractGatewayFilterFactory<Object> {
+
+	/**
+	 * Smile media type.
+	 */
+	public static final MediaType APPLICATION_SMILE = new MediaType("application",
+			"x-jackson-smile");
+
+	private final Map<MediaType, JsonTokenTranscoder> requestTranscoders = new LinkedHashMap<>();
+
+	private final Map<MediaType, JsonTokenTranscoder> responseTranscoders = new LinkedHashMap<>();
+
+	public TranscodeGatewayFilterFactory() {
+		JsonFactory json = new JsonFactory();
+		register(MediaType.APPLICATION_CBOR, new CBORFactory(), json);
+		register(APPLICATION_SMILE, new SmileFactory(), json);
+	}
+
+	private void register(MediaType mediaType, JsonFactory binary, JsonFactory json) {
+		requestTranscoders.put(mediaType, new JsonTokenTranscoder(binary, json));
+		responseTranscoders.put(mediaType, new JsonTokenTranscoder(json, binary));
+	}
+
+	@Override
+	public GatewayFilter apply(Object config) {
+		return new OrderedGatewayFilter((exchange, chain) -> {
+			ServerHttpRequest request = exchange.getRequest();
+			MediaType requestFormat = binaryFormat(request.getHeaders().getContentType());
+			MediaType responseFormat = acceptedFormat(request.getHeaders().getAccept());
+			if (requestFormat == null && responseFormat == null) {
+				return chain.filter(exchange);
+			}
+
+			ServerWebExchange.Builder builder = exchange.mutate()
+					.request(new TranscodedServerHttpRequest(exchange, requestFormat,
+							responseFormat));
+			if (responseFormat != null) {
+				builder.response(new TranscodedServerHttpResponse(exchange.getResponse(),
+						responseFormat));
+			}
+			return chain.filter(builder.build());
+		}, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1) {
+			@Override
+			public String toString() {
+				return filterToStringCreator(TranscodeGatewayFilterFactory.this)
+						.append("formats", requestTranscoders.keySet()).toString();
+			}
+		};
+	}
+
+	@Nullable
+	private MediaType binaryFormat(@Nullable MediaType contentType) {
+		if (contentType == null) {
+			return null;
+		}
+		for (MediaType format : requestTranscoders.keySet()) {
+			if (format.equalsTypeAndSubtype(contentType)) {
+				return format;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the binary format the client prefers, or {@code null} if it accepts JSON at
+	 * least as much as any binary format.
+	 */
+	@Nullable
+	private MediaType acceptedFormat(List<MediaType> accept) {
+		if (accept.isEmpty()) {
+			return null;
+		}
+		List<MediaType> sorted = new ArrayList<>(accept);
+		MediaType.sortBySpecificityAndQuality(sorted);
+		for (MediaType mediaType : sorted) {
+			if (mediaType.getQualityValue() == 0) {
+				continue;
+			}
+			for (MediaType format : responseTranscoders.keySet()) {
+				if (format.equalsTypeAndSubtype(mediaType)) {
+					return format;
+				}
+			}
+			if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isJson(@Nullable MediaType contentType) {
+		return contentType != null
+				&& (MediaType.APPLICATION_JSON.equalsTypeAndSubtype(contentType)
+						|| contentType.getSubtype().endsWith("+json"));
+	}
+
+	class TranscodedServerHttpRequest extends ServerHttpRequestDecorator {
+
+		private final ServerWebExchange exchange;
+
+		private final MediaType requestFormat;
+
+		private final HttpHeaders headers;
+
+		TranscodedServerHttpRequest(ServerWebExchange exchange,
+				@Nullable MediaType requestFormat, @Nullable MediaType responseFormat) {
+			super(exchange.getRequest());
+			this.exchange = exchange;
+			this.requestFormat = requestFormat;
+			this.headers = new HttpHeaders();
+			this.headers.putAll(super.getHeaders());
+			if (requestFormat != null) {
+				this.headers.setContentType(MediaType.APPLICATION_JSON);
+				this.headers.remove(HttpHeaders.CONTENT_LENGTH);
+				this.headers.set(HttpHeaders.TRANSFER_ENCODING, "chunked");
+			}
+			if (responseFormat != null) {
+				// the backend only speaks JSON
+				this.headers
+						.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+			}
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return headers;
+		}
+
+		@Override
+		public Flux<DataBuffer> getBody() {
+			if (requestFormat == null) {
+				return super.getBody();
+			}
+			return requestTranscoders.get(requestFormat)
+					.transcode(super.getBody(), exchange.getResponse().bufferFactory())
+					.onErrorMap(JsonProcessingException.class,
+							ex -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
+									"Malformed " + requestFormat + " request body", ex));
+		}
+
+	}
+
+	class TranscodedServerHttpResponse extends ServerHttpResponseDecorator {
+
+		private final MediaType responseFormat;
+
+		TranscodedServerHttpResponse(ServerHttpResponse delegate,
+				MediaType responseFormat) {
+			super(delegate);
+			this.responseFormat = responseFormat;
+		}
+
+		@Override
+		public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+			HttpHeaders headers = getHeaders();
+			if (!isJson(headers.getContentType())
+					|| headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+				return super.writeWith(body);
+			}
+			headers.setContentType(responseFormat);
+			headers.remove(HttpHeaders.CONTENT_LENGTH);
+			return super.writeWith(responseTranscoders.get(responseFormat).transcode(body,
+					bufferFactory()));
+		}
+
+		@Override
+		public Mono<Void> writeAndFlushWith(
+				Publisher<? extends Publisher<? extends DataBuffer>> body) {
+			return writeWith(Flux.from(body).flatMapSequential(p -> p));
+		}
+
+	}
+
+}
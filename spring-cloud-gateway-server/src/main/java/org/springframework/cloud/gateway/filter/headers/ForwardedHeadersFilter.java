@@ -21,9 +21,11 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.jetbrains.annotations.Nullable;
 
@@ -36,13 +38,16 @@ import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.server.ServerWebExchange;
 
-public class ForwardedHeadersFilter implements HttpHeadersFilter, Ordered {
+public class ForwardedHeadersFilter implements FusibleHttpHeadersFilter, Ordered {
 
 	/**
 	 * Forwarded header.
 	 */
 	public static final String FORWARDED_HEADER = "Forwarded";
 
+	private static final Set<String> REMOVED_HEADER_NAMES = Collections
+			.singleton("forwarded");
+
 	/* for testing */
 	static List<Forwarded> parse(List<String> values) {
 		ArrayList<Forwarded> forwardeds = new ArrayList<>();
@@ -95,7 +100,6 @@ public class ForwardedHeadersFilter implements HttpHeadersFilter, Ordered {
 
 	@Override
 	public HttpHeaders filter(HttpHeaders input, ServerWebExchange exchange) {
-		ServerHttpRequest request = exchange.getRequest();
 		HttpHeaders original = input;
 		HttpHeaders updated = new HttpHeaders();
 
@@ -106,10 +110,30 @@ public class ForwardedHeadersFilter implements HttpHeadersFilter, Ordered {
 			}
 		}
 
+		updated.addAll(FORWARDED_HEADER,
+				forwardedValues(original, exchange.getRequest()));
+
+		return updated;
+	}
+
+	@Override
+	public Set<String> getRemovedHeaderNames() {
+		return REMOVED_HEADER_NAMES;
+	}
+
+	@Override
+	public void edit(HttpHeaders input, ServerWebExchange exchange,
+			FusedHttpHeadersFilter.Edits edits) {
+		edits.set(FORWARDED_HEADER, forwardedValues(input, exchange.getRequest()));
+	}
+
+	private List<String> forwardedValues(HttpHeaders original,
+			ServerHttpRequest request) {
+		List<String> values = new ArrayList<>();
 		List<Forwarded> forwardeds = parse(original.get(FORWARDED_HEADER));
 
 		for (Forwarded f : forwardeds) {
-			updated.add(FORWARDED_HEADER, f.toHeaderValue());
+			values.add(f.toHeaderValue());
 		}
 
 		// TODO: add new forwarded
@@ -141,9 +165,9 @@ public class ForwardedHeadersFilter implements HttpHeadersFilter, Ordered {
 		}
 		// TODO: support by?
 
-		updated.add(FORWARDED_HEADER, forwarded.toHeaderValue());
+		values.add(forwarded.toHeaderValue());
 
-		return updated;
+		return values;
 	}
 
 	/* for testing */ static class Forwarded {
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.headers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.Nullable;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Applies a list of {@link FusibleHttpHeadersFilter}s in a single pass. The names the
+ * filters always remove are merged into one set when the filters are compiled, and for
+ * each exchange the input headers are copied once, skipping the removed ones, followed by
+ * the headers the filters set. The output can be written straight into another header
+ * container, such as the headers of the outbound Netty request.
+ */
+public final class FusedHttpHeadersFilter implements HttpHeadersFilter {
+
+	private static final Log log = LogFactory.getLog(FusedHttpHeadersFilter.class);
+
+	private final Type type;
+
+	private final List<FusibleHttpHeadersFilter> filters;
+
+	private final Removals removals;
+
+	// removals of the filters that follow each filter, these win over its edits
+	private final Removals[] laterRemovals;
+
+	private FusedHttpHeadersFilter(List<FusibleHttpHeadersFilter> filters, Type type) {
+		this.type = type;
+		this.filters = filters;
+		this.laterRemovals = new Removals[filters.size()];
+		Removals later = Removals.NONE;
+		for (int i = filters.size() - 1; i >= 0; i--) {
+			this.laterRemovals[i] = later;
+			later = later.and(filters.get(i));
+		}
+		this.removals = later;
+	}
+
+	/**
+	 * Compiles the filters that support the given type into a single filter.
+	 * @param filters the filters, in the order they are applied
+	 * @param type the type of headers to filter
+	 * @return the fused filter, or {@code null} if one of the filters is not a
+	 * {@link FusibleHttpHeadersFilter}
+	 */
+	@Nullable
+	public static FusedHttpHeadersFilter compile(
+			@Nullable List<HttpHeadersFilter> filters, Type type) {
+		List<FusibleHttpHeadersFilter> fusible = new ArrayList<>();
+		if (filters != null) {
+			for (HttpHeadersFilter filter : filters) {
+				if (!filter.supports(type)) {
+					continue;
+				}
+				if (!(filter instanceof FusibleHttpHeadersFilter)) {
+					if (log.isDebugEnabled()) {
+						log.debug("Unable to fuse " + type + " headers filters, " + filter
+								+ " is not a FusibleHttpHeadersFilter");
+					}
+					return null;
+				}
+				fusible.add((FusibleHttpHeadersFilter) filter);
+			}
+		}
+		return new FusedHttpHeadersFilter(fusible, type);
+	}
+
+	/**
+	 * Filters the headers, passing each resulting header value to the output.
+	 * @param input the Http Headers to filter
+	 * @param exchange the current exchange
+	 * @param output receives the name and value of each filtered header
+	 */
+	public void filter(HttpHeaders input, ServerWebExchange exchange,
+			BiConsumer<String, String> output) {
+		Edits edits = new Edits();
+		for (int i = 0; i < filters.size(); i++) {
+			edits.mask = laterRemovals[i];
+			filters.get(i).edit(input, exchange, edits);
+		}
+
+		for (Map.Entry<String, List<String>> entry : input.entrySet()) {
+			String name = entry.getKey();
+			String lowerCaseName = name.toLowerCase(Locale.ROOT);
+			if (removals.matches(lowerCaseName)
+					|| edits.edits.containsKey(lowerCaseName)) {
+				continue;
+			}
+			for (String value : entry.getValue()) {
+				output.accept(name, value);
+			}
+		}
+
+		for (Edit edit : edits.edits.values()) {
+			for (String value : edit.values) {
+				output.accept(edit.name, value);
+			}
+		}
+	}
+
+	/**
+	 * Filters the headers in place, without copying them, for headers that are not
+	 * read-only, such as the headers of a Netty response wrapped with a
+	 * {@link NettyHeadersAdapter}.
+	 * @param headers the Http Headers to filter
+	 * @param exchange the current exchange
+	 */
+	public void filterInPlace(HttpHeaders headers, ServerWebExchange exchange) {
+		Edits edits = new Edits();
+		for (int i = 0; i < filters.size(); i++) {
+			edits.mask = laterRemovals[i];
+			filters.get(i).edit(headers, exchange, edits);
+		}
+
+		List<String> removed = null;
+		for (String name : headers.keySet()) {
+			if (removals.matches(name.toLowerCase(Locale.ROOT))) {
+				if (removed == null) {
+					removed = new ArrayList<>();
+				}
+				removed.add(name);
+			}
+		}
+		if (removed != null) {
+			removed.forEach(headers::remove);
+		}
+
+		for (Edit edit : edits.edits.values()) {
+			if (edit.values.isEmpty()) {
+				headers.remove(edit.name);
+			}
+			else {
+				headers.put(edit.name, new ArrayList<>(edit.values));
+			}
+		}
+	}
+
+	@Override
+	public HttpHeaders filter(HttpHeaders input, ServerWebExchange exchange) {
+		HttpHeaders filtered = new HttpHeaders();
+		filter(input, exchange, filtered::add);
+		return filtered;
+	}
+
+	@Override
+	public boolean supports(Type type) {
+		return this.type == type;
+	}
+
+	@Override
+	public String toString() {
+		return "FusedHttpHeadersFilter{type=" + type + ", filters=" + filters + "}";
+	}
+
+	/**
+	 * The headers set or removed by the fused filters for one exchange.
+	 */
+	public static final class Edits {
+
+		// keyed by lower case name
+		private final Map<String, Edit> edits = new LinkedHashMap<>();
+
+		private Removals mask = Removals.NONE;
+
+		private Edits() {
+		}
+
+		/**
+		 * Sets a header, replacing any value it had.
+		 * @param name the header name
+		 * @param value the header value
+		 * @return these edits
+		 */
+		public Edits set(String name, String value) {
+			return set(name, Collections.singletonList(value));
+		}
+
+		/**
+		 * Sets a header, replacing any values it had.
+		 * @param name the header name
+		 * @param values the header values
+		 * @return these edits
+		 */
+		public Edits set(String name, List<String> values) {
+			String lowerCaseName = name.toLowerCase(Locale.ROOT);
+			if (!mask.matches(lowerCaseName)) {
+				edits.put(lowerCaseName, new Edit(name, values));
+			}
+			return this;
+		}
+
+		/**
+		 * Removes a header.
+		 * @param name the header name
+		 * @return these edits
+		 */
+		public Edits remove(String name) {
+			edits.put(name.toLowerCase(Locale.ROOT),
+					new Edit(name, Collections.emptyList()));
+			return this;
+		}
+
+	}
+
+	private static final class Edit {
+
+		private final String name;
+
+		private final List<String> values;
+
+		private Edit(String name, List<String> values) {
+			this.name = name;
+			this.values = values;
+		}
+
+	}
+
+	private static final class Removals {
+
+		private static final Removals NONE = new Removals(Collections.emptySet(),
+				new String[0]);
+
+		private final Set<String> names;
+
+		private final String[] prefixes;
+
+		private Removals(Set<String> names, String[] prefixes) {
+			this.names = names;
+			this.prefixes = prefixes;
+		}
+
+		private Removals and(FusibleHttpHeadersFilter filter) {
+			Set<String> names = new HashSet<>(this.names);
+			names.addAll(filter.getRemovedHeaderNames());
+			Set<String> prefixes = new LinkedHashSet<>();
+			Collections.addAll(prefixes, this.prefixes);
+			prefixes.addAll(filter.getRemovedHeaderPrefixes());
+			return new Removals(names, prefixes.toArray(new String[0]));
+		}
+
+		private boolean matches(String lowerCaseName) {
+			if (names.contains(lowerCaseName)) {
+				return true;
+			}
+			for (String prefix : prefixes) {
+				if (lowerCaseName.startsWith(prefix)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+	}
+
+}
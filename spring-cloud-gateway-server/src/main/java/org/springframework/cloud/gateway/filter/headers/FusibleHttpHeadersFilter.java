@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.headers;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * A {@link HttpHeadersFilter} that describes what it does, so that it can be combined
+ * with other filters into a {@link FusedHttpHeadersFilter} that copies the headers only
+ * once. The description must have the same effect as
+ * {@link #filter(HttpHeaders, ServerWebExchange)}, and may only read headers that no
+ * other filter writes, as all filters are given the original headers when fused.
+ */
+public interface FusibleHttpHeadersFilter extends HttpHeadersFilter {
+
+	/**
+	 * Returns the names of the headers this filter always removes.
+	 * @return lower case header names
+	 */
+	default Set<String> getRemovedHeaderNames() {
+		return Collections.emptySet();
+	}
+
+	/**
+	 * Returns the prefixes of the names of the headers this filter always removes.
+	 * @return lower case header name prefixes
+	 */
+	default Set<String> getRemovedHeaderPrefixes() {
+		return Collections.emptySet();
+	}
+
+	/**
+	 * Records the headers this filter sets or removes for the given exchange.
+	 * @param input the original Http Headers
+	 * @param exchange the current exchange
+	 * @param edits the edits to record into
+	 */
+	default void edit(HttpHeaders input, ServerWebExchange exchange,
+			FusedHttpHeadersFilter.Edits edits) {
+	}
+
+}
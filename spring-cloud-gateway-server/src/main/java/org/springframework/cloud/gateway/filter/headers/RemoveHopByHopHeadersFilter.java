@@ -28,7 +28,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.web.server.ServerWebExchange;
 
 @ConfigurationProperties("spring.cloud.gateway.filter.remove-hop-by-hop")
-public class RemoveHopByHopHeadersFilter implements HttpHeadersFilter, Ordered {
+public class RemoveHopByHopHeadersFilter implements FusibleHttpHeadersFilter, Ordered {
 
 	/**
 	 * Headers to remove as the result of applying the filter.
@@ -77,6 +77,11 @@ public class RemoveHopByHopHeadersFilter implements HttpHeadersFilter, Ordered {
 		return filtered;
 	}
 
+	@Override
+	public Set<String> getRemovedHeaderNames() {
+		return this.headers;
+	}
+
 	@Override
 	public boolean supports(Type type) {
 		return type.equals(Type.REQUEST) || type.equals(Type.RESPONSE);
@@ -24,7 +24,7 @@ import org.springframework.web.server.ServerWebExchange;
  * See https://datatracker.ietf.org/doc/html/rfc7230#section-3.3.3 for details.
  */
 public class TransferEncodingNormalizationHeadersFilter
-		implements HttpHeadersFilter, Ordered {
+		implements FusibleHttpHeadersFilter, Ordered {
 
 	@Override
 	public int getOrder() {
@@ -33,10 +33,7 @@ public class TransferEncodingNormalizationHeadersFilter
 
 	@Override
 	public HttpHeaders filter(HttpHeaders input, ServerWebExchange exchange) {
-		String transferEncoding = input.getFirst(HttpHeaders.TRANSFER_ENCODING);
-		if (transferEncoding != null
-				&& "chunked".equalsIgnoreCase(transferEncoding.trim())
-				&& input.containsKey(HttpHeaders.CONTENT_LENGTH)) {
+		if (isChunkedWithContentLength(input)) {
 
 			HttpHeaders filtered = new HttpHeaders();
 			// avoids read only if input is read only
@@ -48,4 +45,19 @@ public class TransferEncodingNormalizationHeadersFilter
 		return input;
 	}
 
+	@Override
+	public void edit(HttpHeaders input, ServerWebExchange exchange,
+			FusedHttpHeadersFilter.Edits edits) {
+		if (isChunkedWithContentLength(input)) {
+			edits.remove(HttpHeaders.CONTENT_LENGTH);
+		}
+	}
+
+	private boolean isChunkedWithContentLength(HttpHeaders input) {
+		String transferEncoding = input.getFirst(HttpHeaders.TRANSFER_ENCODING);
+		return transferEncoding != null
+				&& "chunked".equalsIgnoreCase(transferEncoding.trim())
+				&& input.containsKey(HttpHeaders.CONTENT_LENGTH);
+	}
+
 }
@@ -17,6 +17,8 @@
 package org.springframework.cloud.gateway.filter.headers;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -33,7 +35,7 @@ import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.G
 import static org.springframework.util.StringUtils.isEmpty;
 
 @ConfigurationProperties("spring.cloud.gateway.x-forwarded")
-public class XForwardedHeadersFilter implements HttpHeadersFilter, Ordered {
+public class XForwardedHeadersFilter implements FusibleHttpHeadersFilter, Ordered {
 
 	/** Default http port. */
 	public static final int HTTP_PORT = 80;
@@ -62,6 +64,10 @@ public class XForwardedHeadersFilter implements HttpHeadersFilter, Ordered {
 	/** X-Forwarded-Prefix Header. */
 	public static final String X_FORWARDED_PREFIX_HEADER = "X-Forwarded-Prefix";
 
+	private static final List<String> X_FORWARDED_HEADERS = Arrays.asList(
+			X_FORWARDED_FOR_HEADER, X_FORWARDED_HOST_HEADER, X_FORWARDED_PORT_HEADER,
+			X_FORWARDED_PROTO_HEADER, X_FORWARDED_PREFIX_HEADER);
+
 	/** The order of the XForwardedHeadersFilter. */
 	private int order = 0;
 
@@ -198,7 +204,6 @@ public class XForwardedHeadersFilter implements HttpHeadersFilter, Ordered {
 	@Override
 	public HttpHeaders filter(HttpHeaders input, ServerWebExchange exchange) {
 
-		ServerHttpRequest request = exchange.getRequest();
 		HttpHeaders original = input;
 		HttpHeaders updated = new HttpHeaders();
 
@@ -206,6 +211,31 @@ public class XForwardedHeadersFilter implements HttpHeadersFilter, Ordered {
 			updated.addAll(entry.getKey(), entry.getValue());
 		}
 
+		writeForwardedHeaders(updated, exchange);
+
+		return updated;
+	}
+
+	@Override
+	public void edit(HttpHeaders input, ServerWebExchange exchange,
+			FusedHttpHeadersFilter.Edits edits) {
+		// only the X-Forwarded headers are read and written
+		HttpHeaders updated = new HttpHeaders();
+		for (String name : X_FORWARDED_HEADERS) {
+			List<String> values = input.get(name);
+			if (values != null) {
+				updated.put(name, new ArrayList<>(values));
+			}
+		}
+
+		writeForwardedHeaders(updated, exchange);
+
+		updated.forEach(edits::set);
+	}
+
+	private void writeForwardedHeaders(HttpHeaders updated, ServerWebExchange exchange) {
+		ServerHttpRequest request = exchange.getRequest();
+
 		if (isForEnabled() && request.getRemoteAddress() != null
 				&& request.getRemoteAddress().getAddress() != null) {
 			String remoteAddr = request.getRemoteAddress().getAddress().getHostAddress();
@@ -261,8 +291,6 @@ public class XForwardedHeadersFilter implements HttpHeadersFilter, Ordered {
 			String host = toHostHeader(request);
 			write(updated, X_FORWARDED_HOST_HEADER, host, isHostAppend());
 		}
-
-		return updated;
 	}
 
 	private void updateRequest(HttpHeaders updated, URI originalUri,
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.handler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.gateway.handler.predicate.PredicateTraits;
+import org.springframework.cloud.gateway.support.HasConfig;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.URI_TEMPLATE_VARIABLES_ATTRIBUTE;
+
+/**
+ * An {@link AsyncPredicate} that matches when all of its operands match, like a chain of
+ * {@link AsyncPredicate#and}, but that tests the operands without side effects first,
+ * cheapest first and, among operands of the same cost, the ones that reject the most
+ * first. The operands with side effects are tested after them, in their original order.
+ * As the operands are only combined with {@code and}, the order does not change the
+ * result.
+ * <p>
+ * The operands that only add URI template variables, such as the {@code Path} and
+ * {@code Host} predicates, are reordered too, though among themselves they keep their
+ * original order, so that the same variables win. The variables they added are removed
+ * again when the predicate does not match, completes empty or fails, so that, whatever
+ * the order, an exchange only gets the variables of the route it matched.
+ *
+ * @param <T> the type of the input to the predicate
+ */
+public class AdaptiveAsyncPredicate<T> implements AsyncPredicate<T> {
+
+	// how many tests, on average, between two reorderings
+	static final int REORDER_INTERVAL = 1024;
+
+	// in their original order
+	private final List<Operand<T>> operands = new ArrayList<>();
+
+	private volatile Operand<T>[] order;
+
+	private final boolean uriVariables;
+
+	public AdaptiveAsyncPredicate(List<? extends AsyncPredicate<? super T>> predicates,
+			List<PredicateTraits> traits) {
+		Assert.notEmpty(predicates, "predicates may not be empty");
+		Assert.isTrue(predicates.size() == traits.size(),
+				"predicates and traits must have the same size");
+		for (int i = 0; i < predicates.size(); i++) {
+			Assert.notNull(predicates.get(i), "predicates may not contain null");
+			Assert.notNull(traits.get(i), "traits may not contain null");
+			this.operands.add(new Operand<>(i, predicates.get(i), traits.get(i)));
+		}
+		this.uriVariables = traits.stream().anyMatch(PredicateTraits::addsUriVariables);
+		reorder();
+	}
+
+	@Override
+	public Publisher<Boolean> apply(T t) {
+		if (ThreadLocalRandom.current().nextInt(REORDER_INTERVAL) == 0) {
+			reorder();
+		}
+		if (uriVariables && t instanceof ServerWebExchange) {
+			Map<String, Object> attributes = ((ServerWebExchange) t).getAttributes();
+			Object variables = attributes.get(URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+			// an operand that completes empty, such as ReadBody on an empty body, does
+			// not match either, and a failed test must not leak the variables to the
+			// next route
+			return test(this.order, 0, t).defaultIfEmpty(false).doOnNext(result -> {
+				if (!result) {
+					restore(attributes, variables);
+				}
+			}).doOnError(ex -> restore(attributes, variables));
+		}
+		return test(this.order, 0, t);
+	}
+
+	private static void restore(Map<String, Object> attributes,
+			@Nullable Object variables) {
+		if (variables == null) {
+			attributes.remove(URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+		}
+		else {
+			attributes.put(URI_TEMPLATE_VARIABLES_ATTRIBUTE, variables);
+		}
+	}
+
+	private Mono<Boolean> test(Operand<T>[] order, int index, T t) {
+		if (index == order.length) {
+			return Mono.just(true);
+		}
+		Operand<T> operand = order[index];
+		return Mono.from(operand.predicate.apply(t)).flatMap(result -> {
+			operand.record(result);
+			return !result ? Mono.just(false) : test(order, index + 1, t);
+		});
+	}
+
+	/**
+	 * Returns the operands in the order they are currently tested.
+	 * @return the operands
+	 */
+	public List<AsyncPredicate<? super T>> getOrder() {
+		List<AsyncPredicate<? super T>> predicates = new ArrayList<>();
+		for (Operand<T> operand : this.order) {
+			predicates.add(operand.predicate);
+		}
+		return predicates;
+	}
+
+	@SuppressWarnings("unchecked")
+	void reorder() {
+		// take the rates up front, so that they do not change while sorting
+		double[] rates = new double[operands.size()];
+		List<Operand<T>> reorderable = new ArrayList<>();
+		List<Operand<T>> fixed = new ArrayList<>();
+		for (Operand<T> operand : operands) {
+			rates[operand.index] = operand.getRejectionRate();
+			if (operand.traits.hasSideEffects()) {
+				fixed.add(operand);
+			}
+			else {
+				reorderable.add(operand);
+			}
+		}
+		reorderable.sort(
+				Comparator.comparing((Operand<T> operand) -> operand.traits.getCost())
+						.thenComparing(operand -> -rates[operand.index])
+						.thenComparingInt(operand -> operand.index));
+		// the operands adding URI template variables take the places they were sorted
+		// to, in their original order
+		List<Operand<T>> addingUriVariables = new ArrayList<>();
+		for (Operand<T> operand : operands) {
+			if (operand.traits.addsUriVariables()) {
+				addingUriVariables.add(operand);
+			}
+		}
+		Iterator<Operand<T>> next = addingUriVariables.iterator();
+		for (int i = 0; i < reorderable.size(); i++) {
+			if (reorderable.get(i).traits.addsUriVariables()) {
+				reorderable.set(i, next.next());
+			}
+		}
+		reorderable.addAll(fixed);
+		this.order = reorderable.toArray(new Operand[0]);
+	}
+
+	@Override
+	public void visitConjuncts(Consumer<HasConfig> visitor) {
+		operands.forEach(operand -> operand.predicate.visitConjuncts(visitor));
+	}
+
+	@Override
+	public String toString() {
+		return operands.stream().map(operand -> String.valueOf(operand.predicate))
+				.collect(Collectors.joining(" && ", "(", ")"));
+	}
+
+	private static final class Operand<T> {
+
+		private final int index;
+
+		private final AsyncPredicate<? super T> predicate;
+
+		private final PredicateTraits traits;
+
+		private final LongAdder tests = new LongAdder();
+
+		private final LongAdder rejections = new LongAdder();
+
+		private Operand(int index, AsyncPredicate<? super T> predicate,
+				PredicateTraits traits) {
+			this.index = index;
+			this.predicate = predicate;
+			this.traits = traits;
+		}
+
+		private void record(boolean result) {
+			if (traits.hasSideEffects()) {
+				return;
+			}
+			tests.increment();
+			if (!result) {
+				rejections.increment();
+			}
+		}
+
+		private double getRejectionRate() {
+			long count = tests.sum();
+			return count == 0 ? 0 : (double) rejections.sum() / count;
+		}
+
+	}
+
+}
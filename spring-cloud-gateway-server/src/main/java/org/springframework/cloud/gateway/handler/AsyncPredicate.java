@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.gateway.handler;
 
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -23,6 +24,8 @@ import org.reactivestreams.Publisher;
 import reactor.core.publisher.Mono;
 
 import org.springframework.cloud.gateway.handler.predicate.GatewayPredicate;
+import org.springframework.cloud.gateway.handler.predicate.PredicateTraits;
+import org.springframework.cloud.gateway.support.HasConfig;
 import org.springframework.util.Assert;
 import org.springframework.web.server.ServerWebExchange;
 
@@ -34,7 +37,7 @@ import org.springframework.web.server.ServerWebExchange;
 // AndAsyncPredicate将所有的Predict分为两部分：left和right，而每一部分Predict又被AsyncPredicate包装
 // 无论Route中包含多少个Predicate，包装后的AsyncPredicate中right Predicate中仅包含一个Predicate，其余的都是在left Predicate中
 // left Predicate使用AndAsyncPredicate，再对其中的Predicate用left、right递归拆分，直到left中仅有一个Predicate
-public interface AsyncPredicate<T> extends Function<T, Publisher<Boolean>> {
+public interface AsyncPredicate<T> extends Function<T, Publisher<Boolean>>, HasConfig {
 
 	default AsyncPredicate<T> and(AsyncPredicate<? super T> other) {
 		return new AndAsyncPredicate<>(this, other);
@@ -52,6 +55,15 @@ public interface AsyncPredicate<T> extends Function<T, Publisher<Boolean>> {
 		return new OrAsyncPredicate<>(this, other);
 	}
 
+	/**
+	 * Passes each predicate that must match for this predicate to match to the visitor:
+	 * the operands of an {@code and}, recursively, or else this predicate.
+	 * @param visitor receives the predicates
+	 */
+	default void visitConjuncts(Consumer<HasConfig> visitor) {
+		visitor.accept(this);
+	}
+
 	static AsyncPredicate<ServerWebExchange> from(
 			Predicate<? super ServerWebExchange> predicate) {
 		return new DefaultAsyncPredicate<>(GatewayPredicate.wrapIfNeeded(predicate));
@@ -61,8 +73,20 @@ public interface AsyncPredicate<T> extends Function<T, Publisher<Boolean>> {
 
 		private final Predicate<T> delegate;
 
+		private final PredicateTraits traits;
+
 		public DefaultAsyncPredicate(Predicate<T> delegate) {
+			this(delegate, null);
+		}
+
+		/**
+		 * Creates a predicate for a single predicate created by a factory.
+		 * @param delegate the predicate created by the factory
+		 * @param traits the traits of the factory
+		 */
+		public DefaultAsyncPredicate(Predicate<T> delegate, PredicateTraits traits) {
 			this.delegate = delegate;
+			this.traits = traits;
 		}
 
 		@Override
@@ -70,6 +94,35 @@ public interface AsyncPredicate<T> extends Function<T, Publisher<Boolean>> {
 			return Mono.just(delegate.test(t));
 		}
 
+		@Override
+		public Object getConfig() {
+			if (delegate instanceof HasConfig) {
+				return ((HasConfig) delegate).getConfig();
+			}
+			return null;
+		}
+
+		@Override
+		public PredicateTraits getTraits() {
+			if (traits != null) {
+				return traits;
+			}
+			if (delegate instanceof HasConfig) {
+				return ((HasConfig) delegate).getTraits();
+			}
+			return PredicateTraits.UNKNOWN;
+		}
+
+		@Override
+		public void visitConjuncts(Consumer<HasConfig> visitor) {
+			if (traits == null && delegate instanceof GatewayPredicate) {
+				((GatewayPredicate) delegate).visitConjuncts(visitor);
+			}
+			else {
+				visitor.accept(this);
+			}
+		}
+
 		@Override
 		public String toString() {
 			return this.delegate.toString();
@@ -120,6 +173,12 @@ public interface AsyncPredicate<T> extends Function<T, Publisher<Boolean>> {
 					result -> !result ? Mono.just(false) : Mono.from(right.apply(t)));
 		}
 
+		@Override
+		public void visitConjuncts(Consumer<HasConfig> visitor) {
+			left.visitConjuncts(visitor);
+			right.visitConjuncts(visitor);
+		}
+
 		@Override
 		public String toString() {
 			return String.format("(%s && %s)", this.left, this.right);
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.handler;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.cloud.gateway.handler.predicate.PredicateTraits;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * A bounded cache of the route matched by a request method, host and path, together with
+ * the URI template variables its predicates extracted. It is only valid for routes whose
+ * predicates read nothing else, see {@link #isCacheable(List)}.
+ * <p>
+ * Lookups do not lock. Once the cache is full, every new match evicts the least recently
+ * used of a sample of the cached matches, the samples being taken in turn around the
+ * whole cache, which approximates a least recently used cache.
+ */
+public class RouteMatchCache {
+
+	private static final Set<PredicateTraits.Input> KEY_INPUTS = EnumSet.of(
+			PredicateTraits.Input.METHOD, PredicateTraits.Input.HOST,
+			PredicateTraits.Input.PATH);
+
+	private static final int EVICTION_SAMPLE_SIZE = 8;
+
+	private final int maxSize;
+
+	private final Map<Key, Match> matches = new ConcurrentHashMap<>();
+
+	private final AtomicLong clock = new AtomicLong();
+
+	private final Object evictionLock = new Object();
+
+	// where the next eviction sample starts, guarded by the eviction lock
+	private Iterator<Map.Entry<Key, Match>> evictionCursor;
+
+	public RouteMatchCache(int maxSize) {
+		Assert.isTrue(maxSize > 0, "maxSize must be greater than 0");
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Tells whether the predicates of the routes only read the method, host and path of
+	 * the request, according to the traits of their factories, so that the same route
+	 * matches every request with the same method, host and path.
+	 * @param routes the routes
+	 * @return whether the route matched for a request can be cached
+	 */
+	public static boolean isCacheable(List<Route> routes) {
+		AtomicBoolean cacheable = new AtomicBoolean(true);
+		for (Route route : routes) {
+			route.getPredicate().visitConjuncts(predicate -> {
+				if (!KEY_INPUTS.containsAll(predicate.getTraits().getInputs())) {
+					cacheable.set(false);
+				}
+			});
+			if (!cacheable.get()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the match cached for the method, host and path of the exchange.
+	 * @param exchange the current exchange
+	 * @return the match, or {@code null} if none is cached
+	 */
+	@Nullable
+	public Match get(ServerWebExchange exchange) {
+		Match match = this.matches.get(new Key(exchange.getRequest()));
+		if (match != null) {
+			match.lastAccess = this.clock.incrementAndGet();
+		}
+		return match;
+	}
+
+	/**
+	 * Caches the route matched for the method, host and path of the exchange.
+	 * @param exchange the current exchange
+	 * @param route the matched route
+	 * @param uriVariables the URI template variables extracted while matching
+	 */
+	public void put(ServerWebExchange exchange, Route route,
+			Map<String, String> uriVariables) {
+		Match match = new Match(route, uriVariables.isEmpty() ? Collections.emptyMap()
+				: Collections.unmodifiableMap(new HashMap<>(uriVariables)));
+		match.lastAccess = this.clock.incrementAndGet();
+		this.matches.put(new Key(exchange.getRequest()), match);
+		if (this.matches.size() > this.maxSize) {
+			evict();
+		}
+	}
+
+	private void evict() {
+		synchronized (this.evictionLock) {
+			while (this.matches.size() > this.maxSize) {
+				Map.Entry<Key, Match> eldest = null;
+				for (int i = 0; i < EVICTION_SAMPLE_SIZE; i++) {
+					if (this.evictionCursor == null || !this.evictionCursor.hasNext()) {
+						this.evictionCursor = this.matches.entrySet().iterator();
+						if (!this.evictionCursor.hasNext()) {
+							return;
+						}
+					}
+					Map.Entry<Key, Match> entry = this.evictionCursor.next();
+					long lastAccess = entry.getValue().lastAccess;
+					if (eldest == null || lastAccess < eldest.getValue().lastAccess) {
+						eldest = entry;
+					}
+				}
+				this.matches.remove(eldest.getKey(), eldest.getValue());
+			}
+		}
+	}
+
+	public int size() {
+		return this.matches.size();
+	}
+
+	public void clear() {
+		this.matches.clear();
+	}
+
+	/**
+	 * A cached route match.
+	 */
+	public static final class Match {
+
+		private final Route route;
+
+		private final Map<String, String> uriVariables;
+
+		private volatile long lastAccess;
+
+		private Match(Route route, Map<String, String> uriVariables) {
+			this.route = route;
+			this.uriVariables = uriVariables;
+		}
+
+		public Route getRoute() {
+			return route;
+		}
+
+		public Map<String, String> getUriVariables() {
+			return uriVariables;
+		}
+
+	}
+
+	private static final class Key {
+
+		private final String method;
+
+		private final String host;
+
+		private final String path;
+
+		private final int hash;
+
+		private Key(ServerHttpRequest request) {
+			this.method = request.getMethodValue();
+			this.host = request.getHeaders().getFirst(HttpHeaders.HOST);
+			this.path = request.getPath().value();
+			this.hash = Objects.hash(method, host, path);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			Key key = (Key) o;
+			return Objects.equals(method, key.method) && Objects.equals(host, key.host)
+					&& Objects.equals(path, key.path);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+	}
+
+}
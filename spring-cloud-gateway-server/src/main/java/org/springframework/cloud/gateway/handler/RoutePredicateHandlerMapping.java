@@ -16,13 +16,19 @@
 
 package org.springframework.cloud.gateway.handler;
 
+import java.util.HashMap;
 import java.util.function.Function;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.config.RouteTableProperties;
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
 import org.springframework.cloud.gateway.route.Route;
 import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.support.BufferedBodyRejectedException;
+import org.springframework.context.ApplicationListener;
 import org.springframework.core.env.Environment;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.reactive.handler.AbstractHandlerMapping;
@@ -34,6 +40,9 @@ import static org.springframework.cloud.gateway.handler.RoutePredicateHandlerMap
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_HANDLER_MAPPER_ATTR;
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PREDICATE_ROUTE_ATTR;
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.URI_TEMPLATE_VARIABLES_ATTRIBUTE;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.getUriTemplateVariables;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.putUriTemplateVariables;
 
 /**
  * @author Spencer Gibb
@@ -45,7 +54,8 @@ import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.G
  * org.springframework.cloud.gateway.handler.RoutePredicateHandlerMapping：接收到请求，匹配Route
  * 通过断言找到路由，存储route信息到GATEWAY_ROUTE_ATTR
  */
-public class RoutePredicateHandlerMapping extends AbstractHandlerMapping {
+public class RoutePredicateHandlerMapping extends AbstractHandlerMapping
+		implements ApplicationListener<RefreshRoutesResultEvent> {
 
 	private final FilteringWebHandler webHandler;
 
@@ -55,11 +65,28 @@ public class RoutePredicateHandlerMapping extends AbstractHandlerMapping {
 
 	private final ManagementPortType managementPortType;
 
+	private final RouteTableProperties routeTableProperties;
+
+	private final Object routeTableMonitor = new Object();
+
+	// incremented on each refresh, so that a table built from older routes is not kept
+	private long routeTableVersion;
+
+	private volatile RouteTable routeTable;
+
 	public RoutePredicateHandlerMapping(FilteringWebHandler webHandler,
 			RouteLocator routeLocator, GlobalCorsProperties globalCorsProperties,
 			Environment environment) {
+		this(webHandler, routeLocator, globalCorsProperties, environment,
+				new RouteTableProperties());
+	}
+
+	public RoutePredicateHandlerMapping(FilteringWebHandler webHandler,
+			RouteLocator routeLocator, GlobalCorsProperties globalCorsProperties,
+			Environment environment, RouteTableProperties routeTableProperties) {
 		this.webHandler = webHandler;
 		this.routeLocator = routeLocator;
+		this.routeTableProperties = routeTableProperties;
 
 		this.managementPort = getPortProperty(environment, "management.server.");
 		this.managementPortType = getManagementPortType(environment);
@@ -139,7 +166,53 @@ public class RoutePredicateHandlerMapping extends AbstractHandlerMapping {
 	//无论匹配到的Route的Filter是否可以通过、访问地址是否有效，都不会继续往下匹配
 	//如果后面的微服务中没有接口，即使后面Filter执行链出错了，也不会继续返回重新找下一个Predicate谓词匹配的Route
 	protected Mono<Route> lookupRoute(ServerWebExchange exchange) {
-		return this.routeLocator.getRoutes()//获得全部Route
+		return matchRoute(exchange)
+				// TODO: error handling
+				.map(route -> {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Route matched: " + route.getId());
+					}
+					validateRoute(route, exchange); // 校验路由
+					return route;
+				});
+
+		/*
+		 * TODO: trace logging if (logger.isTraceEnabled()) {
+		 * logger.trace("RouteDefinition did not match: " + routeDefinition.getId()); }
+		 */
+	}
+
+	private Mono<Route> matchRoute(ServerWebExchange exchange) {
+		if (!usesRouteTable()) {
+			return testRoutes(this.routeLocator.getRoutes(), exchange);
+		}
+		return getRouteTable().flatMap(table -> {
+			RouteMatchCache cache = table.getMatchCache();
+			if (cache == null) {
+				return testRoutes(Flux.fromIterable(table.getRoutes(exchange)), exchange);
+			}
+			RouteMatchCache.Match match = cache.get(exchange);
+			if (match != null) {
+				if (!match.getUriVariables().isEmpty()) {
+					putUriTemplateVariables(exchange,
+							new HashMap<>(match.getUriVariables()));
+				}
+				return Mono.just(match.getRoute());
+			}
+			// variables put before matching would be cached with the match
+			boolean cacheable = !exchange.getAttributes()
+					.containsKey(URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+			return testRoutes(Flux.fromIterable(table.getRoutes(exchange)), exchange)
+					.doOnNext(route -> {
+						if (cacheable) {
+							cache.put(exchange, route, getUriTemplateVariables(exchange));
+						}
+					});
+		});
+	}
+
+	private Mono<Route> testRoutes(Flux<Route> routes, ServerWebExchange exchange) {
+		return routes//获得全部Route
 				// individually filter routes so that filterWhen error delaying is not a
 				// problem
 				.concatMap(route -> Mono.just(route).filterWhen(r -> {
@@ -153,24 +226,50 @@ public class RoutePredicateHandlerMapping extends AbstractHandlerMapping {
 						.doOnError(e -> logger.error(
 								"Error applying predicate for route: " + route.getId(),
 								e))
-						.onErrorResume(e -> Mono.empty()))
+						// unless the body could not be buffered, no other route is
+						// going to be able to read it either
+						.onErrorResume(e -> e instanceof BufferedBodyRejectedException
+								? Mono.error(e) : Mono.empty()))
 				// .defaultIfEmpty() put a static Route not found
 				// or .switchIfEmpty()
 				// .switchIfEmpty(Mono.<Route>empty().log("noroute"))
-				.next()//只取匹配后的第一个路由
-				// TODO: error handling
-				.map(route -> {
-					if (logger.isDebugEnabled()) {
-						logger.debug("Route matched: " + route.getId());
-					}
-					validateRoute(route, exchange);//校验路由
-					return route;
-				});
+				.next(); // 只取匹配后的第一个路由
+	}
 
-		/*
-		 * TODO: trace logging if (logger.isTraceEnabled()) {
-		 * logger.trace("RouteDefinition did not match: " + routeDefinition.getId()); }
-		 */
+	private boolean usesRouteTable() {
+		return this.routeTableProperties.isHostPartitioning()
+				|| this.routeTableProperties.isDispatchIndex()
+				|| this.routeTableProperties.getMatchCacheSize() > 0;
+	}
+
+	private Mono<RouteTable> getRouteTable() {
+		RouteTable table = this.routeTable;
+		if (table != null) {
+			return Mono.just(table);
+		}
+		long version;
+		synchronized (this.routeTableMonitor) {
+			version = this.routeTableVersion;
+		}
+		return this.routeLocator.getRoutes().collectList().map(routes -> {
+			RouteTable built = new RouteTable(routes, this.routeTableProperties);
+			synchronized (this.routeTableMonitor) {
+				if (this.routeTableVersion == version) {
+					this.routeTable = built;
+				}
+			}
+			return built;
+		});
+	}
+
+	@Override
+	public void onApplicationEvent(RefreshRoutesResultEvent event) {
+		if (event.isSuccess()) {
+			synchronized (this.routeTableMonitor) {
+				this.routeTableVersion++;
+				this.routeTable = null;
+			}
+		}
 	}
 
 	/**
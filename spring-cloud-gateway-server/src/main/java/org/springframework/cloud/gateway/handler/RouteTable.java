@@ -0,0 +1,269 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.handler;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.cloud.gateway.config.RouteTableProperties;
+import org.springframework.cloud.gateway.handler.predicate.DispatchRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.HostRoutePredicateFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * A snapshot of the routes, in order, that selects the routes that can match an exchange.
+ * When host partitioning is enabled, routes that require a Host predicate with only exact
+ * patterns, such as {@code www.example.org}, or wildcard suffix patterns, such as
+ * {@code **.example.org}, are indexed by host and only tested for requests with a
+ * matching host. When the dispatch index is enabled, routes that require a
+ * {@code Dispatch} predicate are indexed by its values and only tested for requests with
+ * one of those values. Other routes are tested for every request. When a match cache size
+ * is set and the predicates of all the routes only read the method, host and path of the
+ * request, the table also holds a {@link RouteMatchCache}.
+ * <p>
+ * The index assumes the default {@link org.springframework.util.AntPathMatcher} of the
+ * {@link HostRoutePredicateFactory}.
+ */
+public class RouteTable {
+
+	private final List<Route> routes;
+
+	private final boolean indexed;
+
+	// routes that are tested for every request
+	private final BitSet fallback = new BitSet();
+
+	private final Map<String, BitSet> exactHosts = new HashMap<>();
+
+	// suffixes of patterns starting with *, which stands for exactly one label
+	private final Map<String, BitSet> labelSuffixes = new HashMap<>();
+
+	// suffixes of patterns starting with **, which stands for any number of labels
+	private final Map<String, BitSet> hostSuffixes = new HashMap<>();
+
+	// keyed by the source and name the values are read from
+	private final Map<String, ValueIndex> valueIndexes = new LinkedHashMap<>();
+
+	private final RouteMatchCache matchCache;
+
+	public RouteTable(List<Route> routes, RouteTableProperties properties) {
+		this.routes = Collections.unmodifiableList(new ArrayList<>(routes));
+		boolean indexed = false;
+		for (int i = 0; i < this.routes.size(); i++) {
+			if (index(i, this.routes.get(i), properties)) {
+				indexed = true;
+			}
+			else {
+				this.fallback.set(i);
+			}
+		}
+		this.indexed = indexed;
+		this.matchCache = properties.getMatchCacheSize() > 0
+				&& RouteMatchCache.isCacheable(this.routes)
+						? new RouteMatchCache(properties.getMatchCacheSize()) : null;
+	}
+
+	/**
+	 * Returns all routes, in order.
+	 * @return the routes
+	 */
+	public List<Route> getRoutes() {
+		return routes;
+	}
+
+	/**
+	 * Returns the cache of matched routes.
+	 * @return the cache, or {@code null} if the matched routes are not cached
+	 */
+	@Nullable
+	public RouteMatchCache getMatchCache() {
+		return matchCache;
+	}
+
+	/**
+	 * Returns the routes, in order, that can match the exchange. Routes that are not
+	 * returned can not match it.
+	 * @param exchange the current exchange
+	 * @return the candidate routes
+	 */
+	public List<Route> getRoutes(ServerWebExchange exchange) {
+		if (!indexed) {
+			return routes;
+		}
+		BitSet candidates = (BitSet) fallback.clone();
+		String host = normalize(
+				exchange.getRequest().getHeaders().getFirst(HttpHeaders.HOST));
+		if (host != null) {
+			or(candidates, exactHosts.get(host));
+			or(candidates, hostSuffixes.get(host));
+			int dot = host.indexOf('.');
+			if (dot != -1) {
+				or(candidates, labelSuffixes.get(host.substring(dot + 1)));
+			}
+			for (; dot != -1; dot = host.indexOf('.', dot + 1)) {
+				or(candidates, hostSuffixes.get(host.substring(dot + 1)));
+			}
+		}
+		for (ValueIndex index : valueIndexes.values()) {
+			String value = index.source.getValue(exchange, index.name);
+			if (value != null) {
+				or(candidates, index.routes.get(value));
+			}
+		}
+		List<Route> selected = new ArrayList<>(candidates.cardinality());
+		for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+			selected.add(routes.get(i));
+		}
+		return selected;
+	}
+
+	private boolean index(int index, Route route, RouteTableProperties properties) {
+		List<Object> configs = new ArrayList<>();
+		route.getPredicate()
+				.visitConjuncts(predicate -> configs.add(predicate.getConfig()));
+		// any one of the required predicates is enough to index the route
+		for (Object config : configs) {
+			if (properties.isHostPartitioning()
+					&& config instanceof HostRoutePredicateFactory.Config && index(index,
+							((HostRoutePredicateFactory.Config) config).getPatterns())) {
+				return true;
+			}
+		}
+		for (Object config : configs) {
+			if (properties.isDispatchIndex()
+					&& config instanceof DispatchRoutePredicateFactory.Config) {
+				index(index, (DispatchRoutePredicateFactory.Config) config);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void index(int index, DispatchRoutePredicateFactory.Config config) {
+		String name = config.getSource() == DispatchRoutePredicateFactory.Source.HEADER
+				? config.getName().toLowerCase(Locale.ROOT) : config.getName();
+		ValueIndex valueIndex = valueIndexes.computeIfAbsent(
+				config.getSource() + ":" + name,
+				key -> new ValueIndex(config.getSource(), config.getName()));
+		config.getValues().forEach(value -> valueIndex.routes
+				.computeIfAbsent(value, v -> new BitSet()).set(index));
+	}
+
+	private boolean index(int index, @Nullable List<String> patterns) {
+		if (patterns == null || patterns.isEmpty()) {
+			return false;
+		}
+		List<String> exact = new ArrayList<>();
+		List<String> labels = new ArrayList<>();
+		List<String> suffixes = new ArrayList<>();
+		for (String pattern : patterns) {
+			String[] tokens = StringUtils.tokenizeToStringArray(pattern, ".", false,
+					true);
+			if (tokens.length == 0) {
+				return false;
+			}
+			if (!hasWildcard(tokens, 0)) {
+				exact.add(join(tokens, 0));
+			}
+			else if (tokens.length > 1 && "*".equals(tokens[0])
+					&& !hasWildcard(tokens, 1)) {
+				labels.add(join(tokens, 1));
+			}
+			else if (tokens.length > 1 && "**".equals(tokens[0])
+					&& !hasWildcard(tokens, 1)) {
+				suffixes.add(join(tokens, 1));
+			}
+			else {
+				// the pattern can match hosts that are not known up front
+				return false;
+			}
+		}
+		exact.forEach(
+				host -> exactHosts.computeIfAbsent(host, h -> new BitSet()).set(index));
+		labels.forEach(suffix -> labelSuffixes.computeIfAbsent(suffix, s -> new BitSet())
+				.set(index));
+		suffixes.forEach(suffix -> hostSuffixes.computeIfAbsent(suffix, s -> new BitSet())
+				.set(index));
+		return true;
+	}
+
+	private static boolean hasWildcard(String[] labels, int from) {
+		for (int i = from; i < labels.length; i++) {
+			String label = labels[i];
+			if (label.indexOf('*') != -1 || label.indexOf('?') != -1
+					|| label.indexOf('{') != -1 || label.indexOf('}') != -1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String join(String[] labels, int from) {
+		StringBuilder joined = new StringBuilder();
+		for (int i = from; i < labels.length; i++) {
+			if (i > from) {
+				joined.append('.');
+			}
+			joined.append(labels[i]);
+		}
+		return joined.toString();
+	}
+
+	// the same labels the AntPathMatcher compares, without empty ones
+	@Nullable
+	private static String normalize(@Nullable String host) {
+		if (host == null) {
+			return null;
+		}
+		if (!host.startsWith(".") && !host.endsWith(".") && !host.contains("..")) {
+			return host;
+		}
+		return join(StringUtils.tokenizeToStringArray(host, ".", false, true), 0);
+	}
+
+	private static void or(BitSet candidates, @Nullable BitSet routes) {
+		if (routes != null) {
+			candidates.or(routes);
+		}
+	}
+
+	private static final class ValueIndex {
+
+		private final DispatchRoutePredicateFactory.Source source;
+
+		private final String name;
+
+		private final Map<String, BitSet> routes = new HashMap<>();
+
+		private ValueIndex(DispatchRoutePredicateFactory.Source source, String name) {
+			this.source = source;
+			this.name = name;
+		}
+
+	}
+
+}
@@ -46,6 +46,12 @@ public class AfterRoutePredicateFactory
 		return Collections.singletonList(DATETIME_KEY);
 	}
 
+	@Override
+	public PredicateTraits getTraits() {
+		return PredicateTraits.pure(PredicateTraits.Cost.CHEAP,
+				PredicateTraits.Input.TIME);
+	}
+
 	@Override
 	public Predicate<ServerWebExchange> apply(Config config) {
 		return new GatewayPredicate() {
@@ -44,6 +44,12 @@ public class BeforeRoutePredicateFactory
 		return Collections.singletonList(DATETIME_KEY);
 	}
 
+	@Override
+	public PredicateTraits getTraits() {
+		return PredicateTraits.pure(PredicateTraits.Cost.CHEAP,
+				PredicateTraits.Input.TIME);
+	}
+
 	@Override
 	public Predicate<ServerWebExchange> apply(Config config) {
 		return new GatewayPredicate() {
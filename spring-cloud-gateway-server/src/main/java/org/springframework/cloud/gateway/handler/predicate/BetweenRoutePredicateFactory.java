@@ -53,6 +53,12 @@ public class BetweenRoutePredicateFactory
 		return Arrays.asList(DATETIME1_KEY, DATETIME2_KEY);
 	}
 
+	@Override
+	public PredicateTraits getTraits() {
+		return PredicateTraits.pure(PredicateTraits.Cost.CHEAP,
+				PredicateTraits.Input.TIME);
+	}
+
 	@Override
 	public Predicate<ServerWebExchange> apply(Config config) {
 		Assert.isTrue(config.getDatetime1().isBefore(config.getDatetime2()),
@@ -52,6 +52,12 @@ public class CloudFoundryRouteServiceRoutePredicateFactory
 		super(Object.class);
 	}
 
+	@Override
+	public PredicateTraits getTraits() {
+		return PredicateTraits.pure(PredicateTraits.Cost.CHEAP,
+				PredicateTraits.Input.HEADERS);
+	}
+
 	@Override
 	public Predicate<ServerWebExchange> apply(Object unused) {
 		return headerPredicate(X_CF_FORWARDED_URL)
@@ -19,6 +19,7 @@ package org.springframework.cloud.gateway.handler.predicate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
 import javax.validation.constraints.NotEmpty;
 
@@ -52,8 +53,15 @@ public class CookieRoutePredicateFactory
 		return Arrays.asList(NAME_KEY, REGEXP_KEY);
 	}
 
+	@Override
+	public PredicateTraits getTraits() {
+		return PredicateTraits.pure(PredicateTraits.Cost.EXPENSIVE,
+				PredicateTraits.Input.COOKIES);
+	}
+
 	@Override
 	public Predicate<ServerWebExchange> apply(Config config) {
+		Pattern pattern = Pattern.compile(config.regexp);
 		return new GatewayPredicate() {
 			@Override
 			public boolean test(ServerWebExchange exchange) {
@@ -63,7 +71,7 @@ public class CookieRoutePredicateFactory
 					return false;
 				}
 				for (HttpCookie cookie : cookies) {
-					if (cookie.getValue().matches(config.regexp)) {
+					if (pattern.matcher(cookie.getValue()).matches()) {
 						return true;
 					}
 				}
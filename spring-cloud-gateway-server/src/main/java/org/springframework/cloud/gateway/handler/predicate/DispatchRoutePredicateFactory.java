@@ -0,0 +1,197 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.handler.predicate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+import org.springframework.core.style.ToStringCreator;
+import org.springframework.http.HttpCookie;
+import org.springframework.lang.Nullable;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Matches requests whose header, query parameter or cookie has one of the given values,
+ * compared as is. Unlike the {@code Header}, {@code Query} and {@code Cookie} predicates,
+ * no regular expression is evaluated, and the route table can index the values, so that a
+ * request is only tested against the routes for its value.
+ */
+public class DispatchRoutePredicateFactory
+		extends AbstractRoutePredicateFactory<DispatchRoutePredicateFactory.Config> {
+
+	/**
+	 * Source key.
+	 */
+	public static final String SOURCE_KEY = "source";
+
+	/**
+	 * Name key.
+	 */
+	public static final String NAME_KEY = "name";
+
+	/**
+	 * Values key.
+	 */
+	public static final String VALUES_KEY = "values";
+
+	public DispatchRoutePredicateFactory() {
+		super(Config.class);
+	}
+
+	@Override
+	public List<String> shortcutFieldOrder() {
+		return Arrays.asList(SOURCE_KEY, NAME_KEY, VALUES_KEY);
+	}
+
+	@Override
+	public ShortcutType shortcutType() {
+		return ShortcutType.GATHER_LIST_TAIL;
+	}
+
+	@Override
+	public PredicateTraits getTraits() {
+		return PredicateTraits.pure(PredicateTraits.Cost.CHEAP,
+				PredicateTraits.Input.HEADERS, PredicateTraits.Input.QUERY,
+				PredicateTraits.Input.COOKIES);
+	}
+
+	@Override
+	public Predicate<ServerWebExchange> apply(Config config) {
+		Set<String> values = new HashSet<>(config.getValues());
+		return new GatewayPredicate() {
+			@Override
+			public boolean test(ServerWebExchange exchange) {
+				String value = config.getSource().getValue(exchange, config.getName());
+				return value != null && values.contains(value);
+			}
+
+			@Override
+			public Object getConfig() {
+				return config;
+			}
+
+			@Override
+			public String toString() {
+				return String.format("Dispatch: %s %s=%s", config.getSource(),
+						config.getName(), config.getValues());
+			}
+		};
+	}
+
+	/**
+	 * Where the value of a request is read from.
+	 */
+	public enum Source {
+
+		/**
+		 * The first value of the named header.
+		 */
+		HEADER {
+			@Override
+			public String getValue(ServerWebExchange exchange, String name) {
+				return exchange.getRequest().getHeaders().getFirst(name);
+			}
+		},
+
+		/**
+		 * The first value of the named query parameter.
+		 */
+		QUERY {
+			@Override
+			public String getValue(ServerWebExchange exchange, String name) {
+				return exchange.getRequest().getQueryParams().getFirst(name);
+			}
+		},
+
+		/**
+		 * The value of the first cookie with the name.
+		 */
+		COOKIE {
+			@Override
+			public String getValue(ServerWebExchange exchange, String name) {
+				HttpCookie cookie = exchange.getRequest().getCookies().getFirst(name);
+				return cookie != null ? cookie.getValue() : null;
+			}
+		};
+
+		/**
+		 * Reads the value of the request.
+		 * @param exchange the current exchange
+		 * @param name the name of the header, query parameter or cookie
+		 * @return the value, or {@code null} if the request has none
+		 */
+		@Nullable
+		public abstract String getValue(ServerWebExchange exchange, String name);
+
+	}
+
+	@Validated
+	public static class Config {
+
+		@NotNull
+		private Source source;
+
+		@NotEmpty
+		private String name;
+
+		@NotEmpty
+		private List<String> values = new ArrayList<>();
+
+		public Source getSource() {
+			return source;
+		}
+
+		public Config setSource(Source source) {
+			this.source = source;
+			return this;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public Config setName(String name) {
+			this.name = name;
+			return this;
+		}
+
+		public List<String> getValues() {
+			return values;
+		}
+
+		public Config setValues(List<String> values) {
+			this.values = values;
+			return this;
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringCreator(this).append("source", source).append("name", name)
+					.append("values", values).toString();
+		}
+
+	}
+
+}
@@ -16,12 +16,14 @@
 
 package org.springframework.cloud.gateway.handler.predicate;
 
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
+import org.springframework.cloud.gateway.support.HasConfig;
 import org.springframework.util.Assert;
 import org.springframework.web.server.ServerWebExchange;
 
-public interface GatewayPredicate extends Predicate<ServerWebExchange> {
+public interface GatewayPredicate extends Predicate<ServerWebExchange>, HasConfig {
 
 	@Override
 	default Predicate<ServerWebExchange> and(Predicate<? super ServerWebExchange> other) {
@@ -38,6 +40,15 @@ public interface GatewayPredicate extends Predicate<ServerWebExchange> {
 		return new OrGatewayPredicate(this, wrapIfNeeded(other));
 	}
 
+	/**
+	 * Passes each predicate that must match for this predicate to match to the visitor:
+	 * the operands of an {@code and}, recursively, or else this predicate.
+	 * @param visitor receives the predicates
+	 */
+	default void visitConjuncts(Consumer<HasConfig> visitor) {
+		visitor.accept(this);
+	}
+
 	static GatewayPredicate wrapIfNeeded(Predicate<? super ServerWebExchange> other) {
 		GatewayPredicate right;
 
@@ -110,6 +121,12 @@ public interface GatewayPredicate extends Predicate<ServerWebExchange> {
 			return (this.left.test(t) && this.right.test(t));
 		}
 
+		@Override
+		public void visitConjuncts(Consumer<HasConfig> visitor) {
+			this.left.visitConjuncts(visitor);
+			this.right.visitConjuncts(visitor);
+		}
+
 		@Override
 		public String toString() {
 			return String.format("(%s && %s)", this.left, this.right);
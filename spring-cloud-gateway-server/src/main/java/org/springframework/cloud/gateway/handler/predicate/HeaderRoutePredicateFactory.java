@@ -20,6 +20,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
 import javax.validation.constraints.NotEmpty;
 
@@ -53,9 +54,16 @@ public class HeaderRoutePredicateFactory
 		return Arrays.asList(HEADER_KEY, REGEXP_KEY);
 	}
 
+	@Override
+	public PredicateTraits getTraits() {
+		return PredicateTraits.pure(PredicateTraits.Cost.EXPENSIVE,
+				PredicateTraits.Input.HEADERS);
+	}
+
 	@Override
 	public Predicate<ServerWebExchange> apply(Config config) {
 		boolean hasRegex = !StringUtils.isEmpty(config.regexp);
+		Pattern pattern = hasRegex ? Pattern.compile(config.regexp) : null;
 
 		return new GatewayPredicate() {
 			@Override
@@ -70,7 +78,7 @@ public class HeaderRoutePredicateFactory
 					// check if a header value matches
 					for (int i = 0; i < values.size(); i++) {
 						String value = values.get(i);
-						if (value.matches(config.regexp)) {
+						if (pattern.matcher(value).matches()) {
 							return true;
 						}
 					}
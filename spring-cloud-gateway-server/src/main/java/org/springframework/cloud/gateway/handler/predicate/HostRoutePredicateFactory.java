@@ -57,6 +57,12 @@ public class HostRoutePredicateFactory
 		return ShortcutType.GATHER_LIST;
 	}
 
+	@Override
+	public PredicateTraits getTraits() {
+		return PredicateTraits.uriVariables(PredicateTraits.Cost.MODERATE,
+				PredicateTraits.Input.HOST);
+	}
+
 	@Override
 	public Predicate<ServerWebExchange> apply(Config config) {
 		return new GatewayPredicate() {
@@ -82,6 +88,11 @@ public class HostRoutePredicateFactory
 				return false;
 			}
 
+			@Override
+			public Object getConfig() {
+				return config;
+			}
+
 			@Override
 			public String toString() {
 				return String.format("Hosts: %s", config.getPatterns());
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.handler.predicate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import javax.validation.constraints.NotEmpty;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.gateway.handler.AsyncPredicate;
+import org.springframework.http.codec.HttpMessageReader;
+import org.springframework.util.StringUtils;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
+import org.springframework.web.server.UnsupportedMediaTypeStatusException;
+
+/**
+ * Predicate that matches a single field of a JSON request body, addressed by a JSON
+ * Pointer (RFC 6901), against an optional regular expression. The body is parsed once
+ * into a {@link JsonNode} tree that is shared by all the JSON Pointer predicates of an
+ * exchange, and no class has to be bound to it.
+ */
+public class JsonPointerRoutePredicateFactory
+		extends AbstractRoutePredicateFactory<JsonPointerRoutePredicateFactory.Config> {
+
+	/**
+	 * Pointer key.
+	 */
+	public static final String POINTER_KEY = "pointer";
+
+	/**
+	 * Regexp key.
+	 */
+	public static final String REGEXP_KEY = "regexp";
+
+	private static final Log log = LogFactory
+			.getLog(JsonPointerRoutePredicateFactory.class);
+
+	private final List<HttpMessageReader<?>> messageReaders;
+
+	public JsonPointerRoutePredicateFactory() {
+		this(HandlerStrategies.withDefaults().messageReaders());
+	}
+
+	public JsonPointerRoutePredicateFactory(List<HttpMessageReader<?>> messageReaders) {
+		super(Config.class);
+		this.messageReaders = messageReaders;
+	}
+
+	@Override
+	public List<String> shortcutFieldOrder() {
+		return Arrays.asList(POINTER_KEY, REGEXP_KEY);
+	}
+
+	@Override
+	public PredicateTraits getTraits() {
+		return PredicateTraits.sideEffecting(PredicateTraits.Cost.EXPENSIVE,
+				PredicateTraits.Input.BODY);
+	}
+
+	@Override
+	public AsyncPredicate<ServerWebExchange> applyAsync(Config config) {
+		JsonPointer pointer = JsonPointer.compile(config.getPointer());
+		Pattern pattern = StringUtils.hasText(config.getRegexp())
+				? Pattern.compile(config.getRegexp()) : null;
+		return new AsyncPredicate<ServerWebExchange>() {
+			@Override
+			public Publisher<Boolean> apply(ServerWebExchange exchange) {
+				return ReadBodyRoutePredicateFactory
+						.readBody(exchange, JsonNode.class, messageReaders)
+						.map(tree -> matches(tree.at(pointer), pattern))
+						.onErrorResume(this::isNotJson, ex -> {
+							if (log.isDebugEnabled()) {
+								log.debug("Request body could not be read as JSON", ex);
+							}
+							return Mono.just(false);
+						}).defaultIfEmpty(false);
+			}
+
+			private boolean isNotJson(Throwable ex) {
+				return ex instanceof ServerWebInputException
+						|| ex instanceof UnsupportedMediaTypeStatusException;
+			}
+
+			@Override
+			public String toString() {
+				return String.format("JsonPointer: pointer=%s regexp=%s",
+						config.getPointer(), config.getRegexp());
+			}
+
+			@Override
+			public PredicateTraits getTraits() {
+				return JsonPointerRoutePredicateFactory.this.getTraits();
+			}
+		};
+	}
+
+	private static boolean matches(JsonNode node, Pattern pattern) {
+		if (node.isMissingNode()) {
+			return false;
+		}
+		if (pattern == null) {
+			return true;
+		}
+		String value = node.isValueNode() ? node.asText() : node.toString();
+		return pattern.matcher(value).matches();
+	}
+
+	@Override
+	public Predicate<ServerWebExchange> apply(Config config) {
+		throw new UnsupportedOperationException(
+				"JsonPointerRoutePredicateFactory is only async.");
+	}
+
+	@Validated
+	public static class Config {
+
+		@NotEmpty
+		private String pointer;
+
+		private String regexp;
+
+		public String getPointer() {
+			return pointer;
+		}
+
+		public Config setPointer(String pointer) {
+			this.pointer = pointer;
+			return this;
+		}
+
+		public String getRegexp() {
+			return regexp;
+		}
+
+		public Config setRegexp(String regexp) {
+			this.regexp = regexp;
+			return this;
+		}
+
+	}
+
+}
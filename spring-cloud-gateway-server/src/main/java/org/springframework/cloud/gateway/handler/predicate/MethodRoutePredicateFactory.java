@@ -59,6 +59,12 @@ public class MethodRoutePredicateFactory
 		return ShortcutType.GATHER_LIST;
 	}
 
+	@Override
+	public PredicateTraits getTraits() {
+		return PredicateTraits.pure(PredicateTraits.Cost.CHEAP,
+				PredicateTraits.Input.METHOD);
+	}
+
 	@Override
 	public Predicate<ServerWebExchange> apply(Config config) {
 		return new GatewayPredicate() {
@@ -33,8 +33,8 @@ import org.springframework.web.util.pattern.PathPattern;
 import org.springframework.web.util.pattern.PathPattern.PathMatchInfo;
 import org.springframework.web.util.pattern.PathPatternParser;
 
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.getRequestPath;
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.putUriTemplateVariables;
-import static org.springframework.http.server.PathContainer.parsePath;
 
 /**
  * @author Spencer Gibb
@@ -77,6 +77,12 @@ public class PathRoutePredicateFactory
 		return ShortcutType.GATHER_LIST_TAIL_FLAG;
 	}
 
+	@Override
+	public PredicateTraits getTraits() {
+		return PredicateTraits.uriVariables(PredicateTraits.Cost.MODERATE,
+				PredicateTraits.Input.PATH);
+	}
+
 	@Override
 	public Predicate<ServerWebExchange> apply(Config config) {
 		final ArrayList<PathPattern> pathPatterns = new ArrayList<>();
@@ -91,28 +97,21 @@ public class PathRoutePredicateFactory
 		return new GatewayPredicate() {
 			@Override
 			public boolean test(ServerWebExchange exchange) {
-				PathContainer path = parsePath(
-						exchange.getRequest().getURI().getRawPath());
+				PathContainer path = getRequestPath(exchange);
 
-				PathPattern match = null;
 				for (int i = 0; i < pathPatterns.size(); i++) {
 					PathPattern pathPattern = pathPatterns.get(i);
-					if (pathPattern.matches(path)) {
-						match = pathPattern;
-						break;
+					PathMatchInfo pathMatchInfo = pathPattern.matchAndExtract(path);
+					if (pathMatchInfo != null) {
+						traceMatch("Pattern", pathPattern.getPatternString(), path, true);
+						putUriTemplateVariables(exchange,
+								pathMatchInfo.getUriVariables());
+						return true;
 					}
 				}
 
-				if (match != null) {
-					traceMatch("Pattern", match.getPatternString(), path, true);
-					PathMatchInfo pathMatchInfo = match.matchAndExtract(path);
-					putUriTemplateVariables(exchange, pathMatchInfo.getUriVariables());
-					return true;
-				}
-				else {
-					traceMatch("Pattern", config.getPatterns(), path, false);
-					return false;
-				}
+				traceMatch("Pattern", config.getPatterns(), path, false);
+				return false;
 			}
 
 			@Override
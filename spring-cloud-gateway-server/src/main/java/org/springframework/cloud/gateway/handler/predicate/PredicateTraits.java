@@ -0,0 +1,201 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.handler.predicate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.springframework.core.style.ToStringCreator;
+import org.springframework.util.Assert;
+
+/**
+ * Describes the predicates of a {@link RoutePredicateFactory}: how costly they are to
+ * test, which parts of the exchange they read and whether testing them changes the
+ * exchange, either in any way or only by adding URI template variables, which can be
+ * undone when the route does not match.
+ */
+public final class PredicateTraits {
+
+	/**
+	 * Traits of predicates nothing is known about: they are expensive, may read anything
+	 * and may change the exchange.
+	 */
+	public static final PredicateTraits UNKNOWN = new PredicateTraits(Cost.EXPENSIVE,
+			true, false, EnumSet.allOf(Input.class));
+
+	private final Cost cost;
+
+	private final boolean sideEffects;
+
+	private final boolean uriVariables;
+
+	private final Set<Input> inputs;
+
+	private PredicateTraits(Cost cost, boolean sideEffects, boolean uriVariables,
+			Set<Input> inputs) {
+		this.cost = cost;
+		this.sideEffects = sideEffects;
+		this.uriVariables = uriVariables;
+		this.inputs = Collections.unmodifiableSet(inputs);
+	}
+
+	/**
+	 * Traits of predicates that only read the given inputs.
+	 * @param cost the cost of testing the predicates
+	 * @param inputs the parts of the exchange the predicates read
+	 * @return the traits
+	 */
+	public static PredicateTraits pure(Cost cost, Input... inputs) {
+		return of(cost, false, false, inputs);
+	}
+
+	/**
+	 * Traits of predicates that read the given inputs and only change the exchange by
+	 * adding URI template variables to its attributes, with
+	 * {@code ServerWebExchangeUtils#putUriTemplateVariables}.
+	 * @param cost the cost of testing the predicates
+	 * @param inputs the parts of the exchange the predicates read
+	 * @return the traits
+	 */
+	public static PredicateTraits uriVariables(Cost cost, Input... inputs) {
+		return of(cost, false, true, inputs);
+	}
+
+	/**
+	 * Traits of predicates that read the given inputs and change the exchange, for
+	 * example by caching its body.
+	 * @param cost the cost of testing the predicates
+	 * @param inputs the parts of the exchange the predicates read
+	 * @return the traits
+	 */
+	public static PredicateTraits sideEffecting(Cost cost, Input... inputs) {
+		return of(cost, true, false, inputs);
+	}
+
+	private static PredicateTraits of(Cost cost, boolean sideEffects,
+			boolean uriVariables, Input... inputs) {
+		Assert.notNull(cost, "cost may not be null");
+		Set<Input> set = EnumSet.noneOf(Input.class);
+		set.addAll(Arrays.asList(inputs));
+		return new PredicateTraits(cost, sideEffects, uriVariables, set);
+	}
+
+	public Cost getCost() {
+		return cost;
+	}
+
+	public boolean hasSideEffects() {
+		return sideEffects;
+	}
+
+	public boolean addsUriVariables() {
+		return uriVariables;
+	}
+
+	public Set<Input> getInputs() {
+		return inputs;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringCreator(this).append("cost", cost)
+				.append("sideEffects", sideEffects).append("uriVariables", uriVariables)
+				.append("inputs", inputs).toString();
+	}
+
+	/**
+	 * How costly a predicate is to test, from the cheapest to the most expensive.
+	 */
+	public enum Cost {
+
+		/**
+		 * Compares a single value, such as the request method.
+		 */
+		CHEAP,
+
+		/**
+		 * Matches a pattern against a part of the request, such as its path.
+		 */
+		MODERATE,
+
+		/**
+		 * Matches regular expressions or reads the request body.
+		 */
+		EXPENSIVE
+
+	}
+
+	/**
+	 * A part of the exchange a predicate reads.
+	 */
+	public enum Input {
+
+		/**
+		 * The request method.
+		 */
+		METHOD,
+
+		/**
+		 * The request host, from the {@code Host} header.
+		 */
+		HOST,
+
+		/**
+		 * The request path.
+		 */
+		PATH,
+
+		/**
+		 * The query parameters.
+		 */
+		QUERY,
+
+		/**
+		 * The request headers.
+		 */
+		HEADERS,
+
+		/**
+		 * The request cookies.
+		 */
+		COOKIES,
+
+		/**
+		 * The remote address of the request.
+		 */
+		REMOTE_ADDRESS,
+
+		/**
+		 * The request body.
+		 */
+		BODY,
+
+		/**
+		 * The exchange attributes.
+		 */
+		ATTRIBUTES,
+
+		/**
+		 * The current time.
+		 */
+		TIME
+
+	}
+
+}
@@ -19,6 +19,7 @@ package org.springframework.cloud.gateway.handler.predicate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
 import javax.validation.constraints.NotEmpty;
 
@@ -52,12 +53,20 @@ public class QueryRoutePredicateFactory
 		return Arrays.asList(PARAM_KEY, REGEXP_KEY);
 	}
 
+	@Override
+	public PredicateTraits getTraits() {
+		return PredicateTraits.pure(PredicateTraits.Cost.EXPENSIVE,
+				PredicateTraits.Input.QUERY);
+	}
+
 	@Override
 	public Predicate<ServerWebExchange> apply(Config config) {
+		Pattern pattern = StringUtils.hasText(config.regexp)
+				? Pattern.compile(config.regexp) : null;
 		return new GatewayPredicate() {
 			@Override
 			public boolean test(ServerWebExchange exchange) {
-				if (!StringUtils.hasText(config.regexp)) {
+				if (pattern == null) {
 					// check existence of header
 					return exchange.getRequest().getQueryParams()
 							.containsKey(config.param);
@@ -69,7 +78,7 @@ public class QueryRoutePredicateFactory
 					return false;
 				}
 				for (String value : values) {
-					if (value != null && value.matches(config.regexp)) {
+					if (value != null && pattern.matcher(value).matches()) {
 						return true;
 					}
 				}
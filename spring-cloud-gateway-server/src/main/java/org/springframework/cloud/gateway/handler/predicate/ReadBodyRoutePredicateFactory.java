@@ -16,8 +16,10 @@
 
 package org.springframework.cloud.gateway.handler.predicate;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 import org.apache.commons.logging.Log;
@@ -28,14 +30,17 @@ import reactor.core.publisher.Mono;
 import org.springframework.cloud.gateway.handler.AsyncPredicate;
 import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.http.codec.HttpMessageReader;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.reactive.function.server.HandlerStrategies;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.server.ServerWebExchange;
 
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CACHED_SERVER_HTTP_REQUEST_DECORATOR_ATTR;
+
 /**
  * Predicate that reads the body and applies a user provided predicate to run on the body.
  * The body is cached in memory so that possible subsequent calls to the predicate do not
- * need to deserialize again.
+ * need to deserialize again, even when they expect different classes.
  */
 public class ReadBodyRoutePredicateFactory
 		extends AbstractRoutePredicateFactory<ReadBodyRoutePredicateFactory.Config> {
@@ -43,10 +48,10 @@ public class ReadBodyRoutePredicateFactory
 	protected static final Log log = LogFactory
 			.getLog(ReadBodyRoutePredicateFactory.class);
 
-	private static final String TEST_ATTRIBUTE = "read_body_predicate_test_attribute";
-
 	private static final String CACHE_REQUEST_BODY_OBJECT_KEY = "cachedRequestBodyObject";
 
+	private static final String CACHE_REQUEST_BODY_OBJECTS_KEY = "cachedRequestBodyObjects";
+
 	private final List<HttpMessageReader<?>> messageReaders;
 
 	public ReadBodyRoutePredicateFactory() {
@@ -59,56 +64,76 @@ public class ReadBodyRoutePredicateFactory
 		this.messageReaders = messageReaders;
 	}
 
+	@Override
+	public PredicateTraits getTraits() {
+		return PredicateTraits.sideEffecting(PredicateTraits.Cost.EXPENSIVE,
+				PredicateTraits.Input.BODY);
+	}
+
 	@Override
 	@SuppressWarnings("unchecked")
 	public AsyncPredicate<ServerWebExchange> applyAsync(Config config) {
 		return new AsyncPredicate<ServerWebExchange>() {
 			@Override
 			public Publisher<Boolean> apply(ServerWebExchange exchange) {
-				Class inClass = config.getInClass();
-
-				Object cachedBody = exchange.getAttribute(CACHE_REQUEST_BODY_OBJECT_KEY);
-				Mono<?> modifiedBody;
-				// We can only read the body from the request once, once that happens if
-				// we try to read the body again an exception will be thrown. The below
-				// if/else caches the body object as a request attribute in the
-				// ServerWebExchange so if this filter is run more than once (due to more
-				// than one route using it) we do not try to read the request body
-				// multiple times
-				if (cachedBody != null) {
-					try {
-						boolean test = config.predicate.test(cachedBody);
-						exchange.getAttributes().put(TEST_ATTRIBUTE, test);
-						return Mono.just(test);
-					}
-					catch (ClassCastException e) {
-						if (log.isDebugEnabled()) {
-							log.debug("Predicate test failed because class in predicate "
-									+ "does not match the cached body object", e);
-						}
-					}
-					return Mono.just(false);
-				}
-				else {
-					return ServerWebExchangeUtils.cacheRequestBodyAndRequest(exchange,
-							(serverHttpRequest) -> ServerRequest
-									.create(exchange.mutate().request(serverHttpRequest)
-											.build(), messageReaders)
-									.bodyToMono(inClass)
-									.doOnNext(objectValue -> exchange.getAttributes().put(
-											CACHE_REQUEST_BODY_OBJECT_KEY, objectValue))
-									.map(objectValue -> config.getPredicate()
-											.test(objectValue)));
-				}
+				return readBody(exchange, config.getInClass(), messageReaders)
+						.map(objectValue -> config.getPredicate().test(objectValue));
 			}
 
 			@Override
 			public String toString() {
 				return String.format("ReadBody: %s", config.getInClass());
 			}
+
+			@Override
+			public PredicateTraits getTraits() {
+				return ReadBodyRoutePredicateFactory.this.getTraits();
+			}
 		};
 	}
 
+	/**
+	 * Reads the request body as the given class. The raw body is read from the request
+	 * only once and kept in the exchange, and each class it is decoded to is cached, so
+	 * any number of body predicates, whatever class they expect, share a single read and
+	 * decode the body at most once per class. The last decoded body is also kept under
+	 * the {@code cachedRequestBodyObject} attribute, as it always was.
+	 * @param exchange the current exchange.
+	 * @param inClass the class to decode the body to.
+	 * @param messageReaders the readers used to decode the body.
+	 * @param <T> the type of the body.
+	 * @return the decoded body, or an empty {@link Mono} if there is no body.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> Mono<T> readBody(ServerWebExchange exchange, Class<T> inClass,
+			List<HttpMessageReader<?>> messageReaders) {
+		Map<Class<?>, Object> cachedBodies = (Map<Class<?>, Object>) exchange
+				.getAttributes()
+				.computeIfAbsent(CACHE_REQUEST_BODY_OBJECTS_KEY, key -> new HashMap<>());
+		Object cachedBody = cachedBodies.get(inClass);
+		if (cachedBody != null) {
+			return Mono.just(inClass.cast(cachedBody));
+		}
+		// We can only read the body from the request once, once that happens if we try
+		// to read the body again an exception will be thrown. The raw body and a request
+		// decorator that replays it are cached as request attributes in the
+		// ServerWebExchange so if more than one route reads the body we decode the
+		// cached copy instead of reading the request body multiple times
+		ServerHttpRequest cachedRequest = exchange
+				.getAttribute(CACHED_SERVER_HTTP_REQUEST_DECORATOR_ATTR);
+		Function<ServerHttpRequest, Mono<T>> decode = request -> ServerRequest
+				.create(exchange.mutate().request(request).build(), messageReaders)
+				.bodyToMono(inClass).doOnNext(objectValue -> {
+					cachedBodies.put(inClass, objectValue);
+					exchange.getAttributes().put(CACHE_REQUEST_BODY_OBJECT_KEY,
+							objectValue);
+				});
+		if (cachedRequest != null) {
+			return decode.apply(cachedRequest);
+		}
+		return ServerWebExchangeUtils.cacheRequestBodyAndRequest(exchange, decode);
+	}
+
 	@Override
 	@SuppressWarnings("unchecked")
 	public Predicate<ServerWebExchange> apply(Config config) {
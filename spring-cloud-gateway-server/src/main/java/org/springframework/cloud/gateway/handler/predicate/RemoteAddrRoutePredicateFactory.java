@@ -26,11 +26,10 @@ import java.util.function.Predicate;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 
-import io.netty.handler.ipfilter.IpFilterRuleType;
-import io.netty.handler.ipfilter.IpSubnetFilterRule;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.cloud.gateway.support.CidrTrie;
 import org.springframework.cloud.gateway.support.ipresolver.RemoteAddressResolver;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.server.ServerWebExchange;
@@ -62,17 +61,23 @@ public class RemoteAddrRoutePredicateFactory
 	}
 
 	@NotNull
-	private List<IpSubnetFilterRule> convert(List<String> values) {
-		List<IpSubnetFilterRule> sources = new ArrayList<>();
+	private CidrTrie convert(List<String> values) {
+		List<String> sources = new ArrayList<>();
 		for (String arg : values) {
 			addSource(sources, arg);
 		}
-		return sources;
+		return CidrTrie.of(sources);
+	}
+
+	@Override
+	public PredicateTraits getTraits() {
+		return PredicateTraits.pure(PredicateTraits.Cost.CHEAP,
+				PredicateTraits.Input.REMOTE_ADDRESS, PredicateTraits.Input.HEADERS);
 	}
 
 	@Override
 	public Predicate<ServerWebExchange> apply(Config config) {
-		List<IpSubnetFilterRule> sources = convert(config.sources);
+		CidrTrie sources = convert(config.sources);
 
 		return new GatewayPredicate() {
 			@Override
@@ -88,10 +93,8 @@ public class RemoteAddrRoutePredicateFactory
 								+ host);
 					}
 
-					for (IpSubnetFilterRule source : sources) {
-						if (source.matches(remoteAddress)) {
-							return true;
-						}
+					if (sources.matches(remoteAddress)) {
+						return true;
 					}
 				}
 
@@ -105,17 +108,12 @@ public class RemoteAddrRoutePredicateFactory
 		};
 	}
 
-	private void addSource(List<IpSubnetFilterRule> sources, String source) {
+	private void addSource(List<String> sources, String source) {
 		if (!source.contains("/")) { // no netmask, add default
 			source = source + "/32";
 		}
 
-		String[] ipAddressCidrPrefix = source.split("/", 2);
-		String ipAddress = ipAddressCidrPrefix[0];
-		int cidrPrefix = Integer.parseInt(ipAddressCidrPrefix[1]);
-
-		sources.add(
-				new IpSubnetFilterRule(ipAddress, cidrPrefix, IpFilterRuleType.ACCEPT));
+		sources.add(source);
 	}
 
 	@Validated
@@ -25,8 +25,6 @@ import org.springframework.cloud.gateway.support.NameUtils;
 import org.springframework.cloud.gateway.support.ShortcutConfigurable;
 import org.springframework.web.server.ServerWebExchange;
 
-import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.toAsyncPredicate;
-
 /**
  * @author Spencer Gibb
  */
@@ -70,11 +68,20 @@ public interface RoutePredicateFactory<C> extends ShortcutConfigurable, Configur
 	Predicate<ServerWebExchange> apply(C config);
 
 	default AsyncPredicate<ServerWebExchange> applyAsync(C config) {
-		return toAsyncPredicate(apply(config));
+		return new AsyncPredicate.DefaultAsyncPredicate<>(
+				GatewayPredicate.wrapIfNeeded(apply(config)), getTraits());
 	}
 
 	default String name() {
 		return NameUtils.normalizeRoutePredicateName(getClass());
 	}
 
+	/**
+	 * Describes the predicates created by this factory.
+	 * @return the traits of the predicates, {@link PredicateTraits#UNKNOWN} by default
+	 */
+	default PredicateTraits getTraits() {
+		return PredicateTraits.UNKNOWN;
+	}
+
 }
@@ -19,16 +19,23 @@ package org.springframework.cloud.gateway.handler.predicate;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.function.Predicate;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
 
 import org.springframework.cloud.gateway.event.WeightDefinedEvent;
+import org.springframework.cloud.gateway.filter.WeightCalculatorWebFilter;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.handler.AsyncPredicate;
 import org.springframework.cloud.gateway.support.WeightConfig;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.http.HttpCookie;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
 import org.springframework.web.server.ServerWebExchange;
 
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PREDICATE_ROUTE_ATTR;
@@ -83,36 +90,50 @@ public class WeightRoutePredicateFactory
 		}
 	}
 
+	@Override
+	public PredicateTraits getTraits() {
+		return PredicateTraits.pure(PredicateTraits.Cost.CHEAP,
+				PredicateTraits.Input.ATTRIBUTES, PredicateTraits.Input.HEADERS,
+				PredicateTraits.Input.COOKIES);
+	}
+
 	// 根据exchange的属性weights，获取到选择的路由chosenRoute
 	@Override
 	public Predicate<ServerWebExchange> apply(WeightConfig config) {
+		Assert.isNull(config.getKeyResolver(),
+				"keyResolver is only supported by applyAsync");
 		return new GatewayPredicate() {
 			@Override
 			public boolean test(ServerWebExchange exchange) {
-				Map<String, String> weights = exchange.getAttributeOrDefault(WEIGHT_ATTR,
-						Collections.emptyMap());
-
-				String routeId = exchange.getAttribute(GATEWAY_PREDICATE_ROUTE_ATTR);
-
-				// all calculations and comparison against random num happened in
-				// WeightCalculatorWebFilter
-				String group = config.getGroup();
-				if (weights.containsKey(group)) {
-
-					String chosenRoute = weights.get(group);
-					if (log.isTraceEnabled()) {
-						log.trace("in group weight: " + group + ", current route: "
-								+ routeId + ", chosen route: " + chosenRoute);
-					}
-
-					return routeId.equals(chosenRoute);
-				}
-				else if (log.isTraceEnabled()) {
-					log.trace("no weights found for group: " + group + ", current route: "
-							+ routeId);
-				}
-
-				return false;
+				return WeightRoutePredicateFactory.this.test(exchange, config,
+						getKey(exchange, config));
+			}
+
+			@Override
+			public String toString() {
+				return String.format("Weight: %s %s", config.getGroup(),
+						config.getWeight());
+			}
+		};
+	}
+
+	@Override
+	public AsyncPredicate<ServerWebExchange> applyAsync(WeightConfig config) {
+		KeyResolver keyResolver = config.getKeyResolver();
+		if (keyResolver == null) {
+			return super.applyAsync(config);
+		}
+		return new AsyncPredicate<ServerWebExchange>() {
+			@Override
+			public Publisher<Boolean> apply(ServerWebExchange exchange) {
+				return keyResolver.resolve(exchange)
+						.map(key -> test(exchange, config, key)).switchIfEmpty(
+								Mono.fromSupplier(() -> test(exchange, config, null)));
+			}
+
+			@Override
+			public PredicateTraits getTraits() {
+				return WeightRoutePredicateFactory.this.getTraits();
 			}
 
 			@Override
@@ -123,4 +144,45 @@ public class WeightRoutePredicateFactory
 		};
 	}
 
+	@Nullable
+	private static String getKey(ServerWebExchange exchange, WeightConfig config) {
+		if (config.getHeader() != null) {
+			return exchange.getRequest().getHeaders().getFirst(config.getHeader());
+		}
+		if (config.getCookie() != null) {
+			HttpCookie cookie = exchange.getRequest().getCookies()
+					.getFirst(config.getCookie());
+			return cookie != null ? cookie.getValue() : null;
+		}
+		return null;
+	}
+
+	private boolean test(ServerWebExchange exchange, WeightConfig config,
+			@Nullable String key) {
+		String routeId = exchange.getAttribute(GATEWAY_PREDICATE_ROUTE_ATTR);
+
+		// all calculations and comparison against random num happen in
+		// WeightCalculatorWebFilter, the first time the group is looked up. Requests
+		// with a key are always routed to the same route of the group.
+		String group = config.getGroup();
+		String chosenRoute = key != null
+				? WeightCalculatorWebFilter.getRoute(exchange, group, key)
+				: exchange.getAttributeOrDefault(WEIGHT_ATTR,
+						Collections.<String, String>emptyMap()).get(group);
+		if (chosenRoute != null) {
+			if (log.isTraceEnabled()) {
+				log.trace("in group weight: " + group + ", current route: " + routeId
+						+ ", chosen route: " + chosenRoute);
+			}
+
+			return routeId.equals(chosenRoute);
+		}
+		else if (log.isTraceEnabled()) {
+			log.trace("no weights found for group: " + group + ", current route: "
+					+ routeId);
+		}
+
+		return false;
+	}
+
 }
@@ -82,9 +82,10 @@ public class CachingRouteLocator implements Ordered, RouteLocator,
 		try {
 			fetch().collect(Collectors.toList()).subscribe(list -> Flux.fromIterable(list)
 					.materialize().collect(Collectors.toList()).subscribe(signals -> {
+						// update the cache first, so that listeners see the new routes
+						cache.put(CACHE_KEY, signals);
 						applicationEventPublisher
 								.publishEvent(new RefreshRoutesResultEvent(this));
-						cache.put(CACHE_KEY, signals);
 					}, throwable -> handleRefreshError(throwable)));
 		}
 		catch (Throwable e) {
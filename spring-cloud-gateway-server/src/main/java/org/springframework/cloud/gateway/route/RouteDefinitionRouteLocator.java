@@ -31,14 +31,18 @@ import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.config.RouteTableProperties;
 import org.springframework.cloud.gateway.event.FilterArgsEvent;
 import org.springframework.cloud.gateway.event.PredicateArgsEvent;
 import org.springframework.cloud.gateway.filter.FilterDefinition;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
+import org.springframework.cloud.gateway.handler.AdaptiveAsyncPredicate;
 import org.springframework.cloud.gateway.handler.AsyncPredicate;
+import org.springframework.cloud.gateway.handler.predicate.GatewayPredicate;
 import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.handler.predicate.PredicateTraits;
 import org.springframework.cloud.gateway.handler.predicate.RoutePredicateFactory;
 import org.springframework.cloud.gateway.support.ConfigurationService;
 import org.springframework.cloud.gateway.support.HasRouteId;
@@ -79,6 +83,8 @@ public class RouteDefinitionRouteLocator
 
 	private final GatewayProperties gatewayProperties;
 
+	private final RouteTableProperties routeTableProperties;
+
 	@Deprecated
 	public RouteDefinitionRouteLocator(RouteDefinitionLocator routeDefinitionLocator,
 			List<RoutePredicateFactory> predicates,
@@ -91,6 +97,7 @@ public class RouteDefinitionRouteLocator
 		gatewayFilterFactories.forEach(
 				factory -> this.gatewayFilterFactories.put(factory.name(), factory));
 		this.gatewayProperties = gatewayProperties;
+		this.routeTableProperties = new RouteTableProperties();
 	}
 
 	public RouteDefinitionRouteLocator(RouteDefinitionLocator routeDefinitionLocator,
@@ -98,12 +105,23 @@ public class RouteDefinitionRouteLocator
 			List<GatewayFilterFactory> gatewayFilterFactories,
 			GatewayProperties gatewayProperties,
 			ConfigurationService configurationService) {
+		this(routeDefinitionLocator, predicates, gatewayFilterFactories,
+				gatewayProperties, configurationService, new RouteTableProperties());
+	}
+
+	public RouteDefinitionRouteLocator(RouteDefinitionLocator routeDefinitionLocator,
+			List<RoutePredicateFactory> predicates,
+			List<GatewayFilterFactory> gatewayFilterFactories,
+			GatewayProperties gatewayProperties,
+			ConfigurationService configurationService,
+			RouteTableProperties routeTableProperties) {
 		this.routeDefinitionLocator = routeDefinitionLocator;
 		this.configurationService = configurationService;
 		initFactories(predicates);
 		gatewayFilterFactories.forEach(
 				factory -> this.gatewayFilterFactories.put(factory.name(), factory));
 		this.gatewayProperties = gatewayProperties;
+		this.routeTableProperties = routeTableProperties;
 	}
 
 	@Override
@@ -247,7 +265,18 @@ public class RouteDefinitionRouteLocator
 		List<PredicateDefinition> predicates = routeDefinition.getPredicates();
 		if (predicates == null || predicates.isEmpty()) {
 			// this is a very rare case, but possible, just match all
-			return AsyncPredicate.from(exchange -> true);
+			return new AsyncPredicate.DefaultAsyncPredicate<>(
+					GatewayPredicate.wrapIfNeeded(exchange -> true),
+					PredicateTraits.pure(PredicateTraits.Cost.CHEAP));
+		}
+		if (routeTableProperties.isAdaptivePredicateOrder() && predicates.size() > 1) {
+			List<AsyncPredicate<ServerWebExchange>> operands = new ArrayList<>();
+			List<PredicateTraits> traits = new ArrayList<>();
+			for (PredicateDefinition definition : predicates) {
+				operands.add(lookup(routeDefinition, definition));
+				traits.add(this.predicates.get(definition.getName()).getTraits());
+			}
+			return new AdaptiveAsyncPredicate<>(operands, traits);
 		}
 		AsyncPredicate<ServerWebExchange> predicate = lookup(routeDefinition,
 				predicates.get(0));
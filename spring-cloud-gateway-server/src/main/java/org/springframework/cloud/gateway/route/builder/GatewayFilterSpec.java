@@ -39,10 +39,13 @@ import org.springframework.cloud.gateway.filter.factory.AbstractChangeRequestUri
 import org.springframework.cloud.gateway.filter.factory.AddRequestHeaderGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.AddRequestParameterGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.AddResponseHeaderGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.ConsistentHashGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.DedupeResponseHeaderGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.DedupeResponseHeaderGatewayFilterFactory.Strategy;
 import org.springframework.cloud.gateway.filter.factory.FallbackHeadersGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.FanOutGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.HystrixGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.IpFilterGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.MapRequestHeaderGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.PrefixPathGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.PreserveHostHeaderGatewayFilterFactory;
@@ -54,6 +57,7 @@ import org.springframework.cloud.gateway.filter.factory.RequestHeaderSizeGateway
 import org.springframework.cloud.gateway.filter.factory.RequestHeaderToRequestUriGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.RequestRateLimiterGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.RequestSizeGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.ResponseSizeGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.RetryGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.RewriteLocationResponseHeaderGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.RewriteLocationResponseHeaderGatewayFilterFactory.StripVersion;
@@ -71,6 +75,7 @@ import org.springframework.cloud.gateway.filter.factory.StripPrefixGatewayFilter
 import org.springframework.cloud.gateway.filter.factory.rewrite.ModifyRequestBodyGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.rewrite.ModifyResponseBodyGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.rewrite.RewriteFunction;
+import org.springframework.cloud.gateway.filter.factory.rewrite.TranscodeGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
 import org.springframework.cloud.gateway.route.Route;
 import org.springframework.core.Ordered;
@@ -756,6 +761,61 @@ public class GatewayFilterSpec extends UriSpec {
 				.apply(c -> c.setMaxSize(size)));
 	}
 
+	/**
+	 * A filter that sets the maximum permissible size of a Response.
+	 * @param size the maximum size of a response
+	 * @return a {@link GatewayFilterSpec} that can be used to apply additional filters
+	 */
+	public GatewayFilterSpec setResponseSize(DataSize size) {
+		return filter(getBean(ResponseSizeGatewayFilterFactory.class)
+				.apply(c -> c.setMaxSize(size)));
+	}
+
+	/**
+	 * A filter that calls several upstream services in parallel and merges their JSON
+	 * responses into a single object, keyed by leg name.
+	 * @param configConsumer a {@link Consumer} to configure the legs
+	 * @return a {@link GatewayFilterSpec} that can be used to apply additional filters
+	 */
+	public GatewayFilterSpec fanOut(
+			Consumer<FanOutGatewayFilterFactory.Config> configConsumer) {
+		return filter(getBean(FanOutGatewayFilterFactory.class).apply(configConsumer));
+	}
+
+	/**
+	 * A filter that sends the requests with the same key to the same instance of an
+	 * {@code lb://} service, using consistent hashing.
+	 * @param configConsumer a {@link Consumer} to configure where the key is read from
+	 * @return a {@link GatewayFilterSpec} that can be used to apply additional filters
+	 */
+	public GatewayFilterSpec consistentHash(
+			Consumer<ConsistentHashGatewayFilterFactory.Config> configConsumer) {
+		return filter(
+				getBean(ConsistentHashGatewayFilterFactory.class).apply(configConsumer));
+	}
+
+	/**
+	 * A filter that rejects requests from remote addresses that are denied, or not
+	 * allowed, with {@code 403 Forbidden}.
+	 * @param configConsumer a {@link Consumer} to configure the allowed and denied
+	 * subnets
+	 * @return a {@link GatewayFilterSpec} that can be used to apply additional filters
+	 */
+	public GatewayFilterSpec ipFilter(
+			Consumer<IpFilterGatewayFilterFactory.Config> configConsumer) {
+		return filter(getBean(IpFilterGatewayFilterFactory.class).apply(configConsumer));
+	}
+
+	/**
+	 * A filter that converts CBOR and Smile request bodies to JSON, and JSON response
+	 * bodies to the CBOR or Smile format accepted by the client.
+	 * @return a {@link GatewayFilterSpec} that can be used to apply additional filters
+	 */
+	public GatewayFilterSpec transcode() {
+		return filter(getBean(TranscodeGatewayFilterFactory.class).apply(c -> {
+		}));
+	}
+
 	/**
 	 * A filter that sets the maximum permissible size of headers of Request.
 	 * @param size the maximum size of header of request
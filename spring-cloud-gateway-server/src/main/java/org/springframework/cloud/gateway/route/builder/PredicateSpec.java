@@ -22,14 +22,17 @@ import java.util.Collections;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
 import org.springframework.cloud.gateway.handler.AsyncPredicate;
 import org.springframework.cloud.gateway.handler.predicate.AfterRoutePredicateFactory;
 import org.springframework.cloud.gateway.handler.predicate.BeforeRoutePredicateFactory;
 import org.springframework.cloud.gateway.handler.predicate.BetweenRoutePredicateFactory;
 import org.springframework.cloud.gateway.handler.predicate.CloudFoundryRouteServiceRoutePredicateFactory;
 import org.springframework.cloud.gateway.handler.predicate.CookieRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.DispatchRoutePredicateFactory;
 import org.springframework.cloud.gateway.handler.predicate.HeaderRoutePredicateFactory;
 import org.springframework.cloud.gateway.handler.predicate.HostRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.JsonPointerRoutePredicateFactory;
 import org.springframework.cloud.gateway.handler.predicate.MethodRoutePredicateFactory;
 import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
 import org.springframework.cloud.gateway.handler.predicate.QueryRoutePredicateFactory;
@@ -114,6 +117,20 @@ public class PredicateSpec extends UriSpec {
 				.applyAsync(c -> c.setName(name).setRegexp(regex)));
 	}
 
+	/**
+	 * A predicate that checks if a header, query parameter or cookie has one of the given
+	 * values. Can be indexed by the route table.
+	 * @param source where the value is read from
+	 * @param name the name of the header, query parameter or cookie
+	 * @param values the values to match
+	 * @return a {@link BooleanSpec} to be used to add logical operators
+	 */
+	public BooleanSpec dispatch(DispatchRoutePredicateFactory.Source source, String name,
+			String... values) {
+		return asyncPredicate(getBean(DispatchRoutePredicateFactory.class).applyAsync(
+				c -> c.setSource(source).setName(name).setValues(Arrays.asList(values))));
+	}
+
 	/**
 	 * A predicate that checks if a given header is present on the request.
 	 * @param header the header name to check
@@ -224,6 +241,28 @@ public class PredicateSpec extends UriSpec {
 				.applyAsync(c -> c.setPredicate(inClass, predicate)));
 	}
 
+	/**
+	 * A predicate that checks if a field of a JSON request body matches a regular
+	 * expression.
+	 * @param pointer the JSON Pointer of the field, such as {@code /user/id}
+	 * @param regex the regular expression to evaluate the field value against
+	 * @return a {@link BooleanSpec} to be used to add logical operators
+	 */
+	public BooleanSpec jsonPointer(String pointer, String regex) {
+		return asyncPredicate(getBean(JsonPointerRoutePredicateFactory.class)
+				.applyAsync(c -> c.setPointer(pointer).setRegexp(regex)));
+	}
+
+	/**
+	 * A predicate that checks if a field is present in a JSON request body.
+	 * @param pointer the JSON Pointer of the field, such as {@code /user/id}
+	 * @return a {@link BooleanSpec} to be used to add logical operators
+	 */
+	public BooleanSpec jsonPointer(String pointer) {
+		return asyncPredicate(getBean(JsonPointerRoutePredicateFactory.class)
+				.applyAsync(c -> c.setPointer(pointer)));
+	}
+
 	/**
 	 * A predicate that checks if a query parameter matches a regular expression.
 	 * @param param the query parameter name
@@ -296,6 +335,21 @@ public class PredicateSpec extends UriSpec {
 				.setGroup(group).setRouteId(routeBuilder.getId()).setWeight(weight)));
 	}
 
+	/**
+	 * A predicate which will select a route based on its assigned weight, always
+	 * selecting the same route of the group for the same key.
+	 * @param group the group the route belongs to
+	 * @param weight the weight for the route
+	 * @param keyResolver the {@link KeyResolver} resolving the key of a request, the
+	 * route is selected randomly for requests without a key
+	 * @return a {@link BooleanSpec} to be used to add logical operators
+	 */
+	public BooleanSpec weight(String group, int weight, KeyResolver keyResolver) {
+		return asyncPredicate(getBean(WeightRoutePredicateFactory.class)
+				.applyAsync(c -> c.setGroup(group).setRouteId(routeBuilder.getId())
+						.setWeight(weight).setKeyResolver(keyResolver)));
+	}
+
 	public BooleanSpec cloudFoundryRouteService() {
 		return predicate(
 				getBean(CloudFoundryRouteServiceRoutePredicateFactory.class).apply(c -> {
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.util.Assert;
+
+/**
+ * Byte accounting for streamed request and response bodies. The body is never buffered,
+ * each {@link DataBuffer} is counted as it passes through.
+ */
+public final class BodySizeUtils {
+
+	private BodySizeUtils() {
+		throw new AssertionError("Must not instantiate utility class.");
+	}
+
+	/**
+	 * Counts the bytes of the given body and signals an error as soon as more than
+	 * {@code maxSize} bytes have passed. The buffer that crossed the limit is released.
+	 * @param body the body to count.
+	 * @param maxSize the maximum number of bytes allowed.
+	 * @param errorFunction creates the error to signal from the number of bytes counted
+	 * so far.
+	 * @return the counted body.
+	 */
+	public static Flux<DataBuffer> limitSize(Publisher<? extends DataBuffer> body,
+			long maxSize, LongFunction<? extends RuntimeException> errorFunction) {
+		return Flux
+				.defer(() -> limitSize(body, new AtomicLong(), maxSize, errorFunction));
+	}
+
+	/**
+	 * Counts the bytes of the given body into a shared counter, allowing several
+	 * publishers (such as the ones passed to
+	 * {@code ServerHttpResponse.writeAndFlushWith}) to be accounted together.
+	 * @param body the body to count.
+	 * @param counter the number of bytes counted so far.
+	 * @param maxSize the maximum number of bytes allowed.
+	 * @param errorFunction creates the error to signal from the number of bytes counted
+	 * so far.
+	 * @return the counted body.
+	 */
+	public static Flux<DataBuffer> limitSize(Publisher<? extends DataBuffer> body,
+			AtomicLong counter, long maxSize,
+			LongFunction<? extends RuntimeException> errorFunction) {
+		Assert.notNull(counter, "counter may not be null");
+		Assert.notNull(errorFunction, "errorFunction may not be null");
+		return Flux.<DataBuffer>from(body).map(dataBuffer -> {
+			long count = counter.addAndGet(dataBuffer.readableByteCount());
+			if (count > maxSize) {
+				DataBufferUtils.release(dataBuffer);
+				throw errorFunction.apply(count);
+			}
+			return dataBuffer;
+		});
+	}
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.style.ToStringCreator;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.Assert;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.BUFFERED_BODY_RESERVATION_ATTR;
+
+/**
+ * Gateway wide budget for body bytes retained in memory, such as the cached request body
+ * or the bodies read by the modify body filters. Bytes are reserved as they are buffered
+ * and handed back once the exchange completes. When the budget is exhausted, new
+ * buffering is rejected with a {@link BufferedBodyRejectedException}.
+ */
+public class BufferedBodyBudget {
+
+	private final long maxBytes;
+
+	private final AtomicLong usedBytes = new AtomicLong();
+
+	public BufferedBodyBudget(DataSize maxSize) {
+		Assert.notNull(maxSize, "maxSize may not be null");
+		Assert.isTrue(maxSize.toBytes() > 0, "maxSize must be greater than 0");
+		this.maxBytes = maxSize.toBytes();
+	}
+
+	/**
+	 * Wraps the body so that its bytes are reserved against the budget of the current
+	 * exchange as they are buffered. Returns the body unchanged if no budget is in use.
+	 * @param exchange the current exchange.
+	 * @param body the body about to be buffered.
+	 * @param contentLength the expected size of the body, or -1 if unknown.
+	 * @return the accounted body.
+	 */
+	public static Flux<DataBuffer> retain(ServerWebExchange exchange,
+			Publisher<? extends DataBuffer> body, long contentLength) {
+		Reservation reservation = exchange.getAttribute(BUFFERED_BODY_RESERVATION_ATTR);
+		if (reservation == null) {
+			return Flux.from(body);
+		}
+		return reservation.retain(body, contentLength);
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public long getUsedBytes() {
+		return usedBytes.get();
+	}
+
+	/**
+	 * Creates a reservation tracking the bytes retained by a single exchange.
+	 * @return a new reservation.
+	 */
+	public Reservation reserve() {
+		return new Reservation();
+	}
+
+	boolean tryAcquire(long bytes) {
+		while (true) {
+			long used = usedBytes.get();
+			if (used + bytes > maxBytes) {
+				return false;
+			}
+			if (usedBytes.compareAndSet(used, used + bytes)) {
+				return true;
+			}
+		}
+	}
+
+	void release(long bytes) {
+		usedBytes.addAndGet(-bytes);
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringCreator(this).append("maxBytes", maxBytes)
+				.append("usedBytes", usedBytes.get()).toString();
+	}
+
+	/**
+	 * Bytes retained by a single exchange. All of them are handed back to the budget by
+	 * {@link #release()}, which also closes the reservation: the bytes of any body
+	 * buffered after that are handed back right away.
+	 */
+	public class Reservation {
+
+		private final AtomicLong reservedBytes = new AtomicLong();
+
+		private volatile boolean closed;
+
+		Flux<DataBuffer> retain(Publisher<? extends DataBuffer> body,
+				long contentLength) {
+			if (contentLength > maxBytes) {
+				// will never fit, no need to keep any of it
+				return reject(body, new BufferedBodyRejectedException(
+						HttpStatus.PAYLOAD_TOO_LARGE, "Body of " + contentLength
+								+ " bytes is larger than the buffered body budget"));
+			}
+			if (contentLength > 0 && maxBytes - usedBytes.get() < contentLength) {
+				return reject(body, exhausted());
+			}
+			return Flux.<DataBuffer>from(body).map(dataBuffer -> {
+				int bytes = dataBuffer.readableByteCount();
+				if (!tryAcquire(bytes)) {
+					DataBufferUtils.release(dataBuffer);
+					throw exhausted();
+				}
+				reservedBytes.addAndGet(bytes);
+				if (closed) {
+					// the exchange completed, the bytes are no longer tracked
+					releaseReserved();
+				}
+				return dataBuffer;
+			});
+		}
+
+		public boolean isClosed() {
+			return closed;
+		}
+
+		public long getReservedBytes() {
+			return reservedBytes.get();
+		}
+
+		public void release() {
+			closed = true;
+			releaseReserved();
+		}
+
+		private void releaseReserved() {
+			long bytes = reservedBytes.getAndSet(0);
+			if (bytes > 0) {
+				BufferedBodyBudget.this.release(bytes);
+			}
+		}
+
+		// the body is drained, so that the connection it is read from is not left
+		// behind, and its buffers are released here rather than discarded downstream
+		private Flux<DataBuffer> reject(Publisher<? extends DataBuffer> body,
+				BufferedBodyRejectedException ex) {
+			return Flux.<DataBuffer>from(body)
+					.<DataBuffer>handle(
+							(dataBuffer, sink) -> DataBufferUtils.release(dataBuffer))
+					.thenMany(Flux.error(ex));
+		}
+
+		private BufferedBodyRejectedException exhausted() {
+			return new BufferedBodyRejectedException(HttpStatus.SERVICE_UNAVAILABLE,
+					"Buffered body budget of " + maxBytes + " bytes is exhausted");
+		}
+
+	}
+
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.Collection;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * A set of IPv4 and IPv6 subnets, such as {@code 10.0.0.0/8} or {@code 2001:db8::/32},
+ * kept in path compressed binary tries, so that an address is matched against all of them
+ * in time proportional to its length rather than to the number of subnets. Matches the
+ * same addresses as a list of {@link io.netty.handler.ipfilter.IpSubnetFilterRule}s.
+ */
+public final class CidrTrie {
+
+	private final Node ipv4 = new Node(new byte[4], 0);
+
+	private final Node ipv6 = new Node(new byte[16], 0);
+
+	private int size;
+
+	private CidrTrie() {
+	}
+
+	/**
+	 * Parses the subnets. A subnet without a prefix length stands for the address alone.
+	 * @param subnets the subnets, such as {@code 10.0.0.0/8}
+	 * @return the trie
+	 * @throws IllegalArgumentException if a subnet can not be parsed
+	 */
+	public static CidrTrie of(Collection<String> subnets) {
+		CidrTrie trie = new CidrTrie();
+		for (String subnet : subnets) {
+			trie.add(subnet);
+		}
+		return trie;
+	}
+
+	private void add(String subnet) {
+		String[] addressAndPrefix = subnet.trim().split("/", 2);
+		InetAddress address;
+		try {
+			address = InetAddress.getByName(addressAndPrefix[0]);
+		}
+		catch (UnknownHostException e) {
+			throw new IllegalArgumentException("Invalid subnet " + subnet, e);
+		}
+		byte[] bytes = address.getAddress();
+		int prefixLength = bytes.length * 8;
+		if (addressAndPrefix.length > 1) {
+			try {
+				prefixLength = Integer.parseInt(addressAndPrefix[1].trim());
+			}
+			catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid subnet " + subnet, e);
+			}
+		}
+		if (prefixLength < 0 || prefixLength > bytes.length * 8) {
+			throw new IllegalArgumentException(String.format(
+					"Invalid prefix length %d for subnet %s", prefixLength, subnet));
+		}
+		insert(address instanceof Inet4Address ? ipv4 : ipv6, mask(bytes, prefixLength),
+				prefixLength);
+		size++;
+	}
+
+	/**
+	 * Returns whether the trie has no subnets.
+	 * @return {@code true} if no address matches
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns whether the address of the socket address is in one of the subnets.
+	 * @param address the address to match
+	 * @return {@code true} if the address matches
+	 */
+	public boolean matches(@Nullable InetSocketAddress address) {
+		return address != null && matches(address.getAddress());
+	}
+
+	/**
+	 * Returns whether the address is in one of the subnets.
+	 * @param address the address to match
+	 * @return {@code true} if the address matches
+	 */
+	public boolean matches(@Nullable InetAddress address) {
+		if (address == null) {
+			return false;
+		}
+		byte[] bytes = address.getAddress();
+		Node node = address instanceof Inet4Address ? ipv4 : ipv6;
+		int checked = 0;
+		while (node != null) {
+			if (!bitsEqual(node.prefix, bytes, checked, node.length)) {
+				return false;
+			}
+			if (node.terminal) {
+				return true;
+			}
+			checked = node.length;
+			if (checked == bytes.length * 8) {
+				return false;
+			}
+			node = node.child(bit(bytes, checked));
+		}
+		return false;
+	}
+
+	private static void insert(Node root, byte[] prefix, int length) {
+		Node node = root;
+		while (true) {
+			if (node.terminal) {
+				// already covered by a shorter prefix
+				return;
+			}
+			if (node.length == length) {
+				// covers the longer prefixes below it
+				node.terminal = true;
+				node.children[0] = null;
+				node.children[1] = null;
+				return;
+			}
+			int bit = bit(prefix, node.length);
+			Node child = node.children[bit];
+			if (child == null) {
+				Node leaf = new Node(prefix, length);
+				leaf.terminal = true;
+				node.children[bit] = leaf;
+				return;
+			}
+			int common = commonLength(child.prefix, prefix, node.length + 1,
+					Math.min(child.length, length));
+			if (common == child.length) {
+				node = child;
+				continue;
+			}
+			Node leaf = new Node(prefix, length);
+			leaf.terminal = true;
+			if (common == length) {
+				// the new prefix covers the child
+				node.children[bit] = leaf;
+				return;
+			}
+			Node split = new Node(mask(prefix, common), common);
+			split.children[bit(child.prefix, common)] = child;
+			split.children[bit(prefix, common)] = leaf;
+			node.children[bit] = split;
+			return;
+		}
+	}
+
+	private static int bit(byte[] bytes, int index) {
+		return (bytes[index >>> 3] >>> (7 - (index & 7))) & 1;
+	}
+
+	// the index of the first bit in [from, to) that differs, or to
+	private static int commonLength(byte[] a, byte[] b, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (bit(a, i) != bit(b, i)) {
+				return i;
+			}
+		}
+		return to;
+	}
+
+	private static boolean bitsEqual(byte[] a, byte[] b, int from, int to) {
+		int i = from;
+		// compare bit by bit up to a byte boundary, then whole bytes
+		for (; i < to && (i & 7) != 0; i++) {
+			if (bit(a, i) != bit(b, i)) {
+				return false;
+			}
+		}
+		for (; i + 8 <= to; i += 8) {
+			if (a[i >>> 3] != b[i >>> 3]) {
+				return false;
+			}
+		}
+		for (; i < to; i++) {
+			if (bit(a, i) != bit(b, i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static byte[] mask(byte[] bytes, int length) {
+		byte[] masked = bytes.clone();
+		for (int i = 0; i < masked.length; i++) {
+			int bits = length - i * 8;
+			if (bits <= 0) {
+				masked[i] = 0;
+			}
+			else if (bits < 8) {
+				masked[i] &= (byte) (0xff << (8 - bits));
+			}
+		}
+		return masked;
+	}
+
+	private static final class Node {
+
+		// the address bits of the prefix, the rest are zero
+		private final byte[] prefix;
+
+		private final int length;
+
+		private final Node[] children = new Node[2];
+
+		// whether the prefix is one of the subnets
+		private boolean terminal;
+
+		private Node(byte[] prefix, int length) {
+			this.prefix = prefix;
+			this.length = length;
+		}
+
+		private Node child(int bit) {
+			return children[bit];
+		}
+
+	}
+
+}
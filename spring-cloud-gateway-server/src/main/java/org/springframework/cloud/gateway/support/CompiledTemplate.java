@@ -0,0 +1,193 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * A template, such as {@code my-{segment}}, parsed once into literal and variable
+ * segments, so that it can be expanded with the URI template variables of each exchange
+ * in a single pass. Expands the same way as {@link ServerWebExchangeUtils#expand}.
+ */
+public final class CompiledTemplate {
+
+	// same as the variable pattern of UriComponents
+	private static final Pattern NAMES_PATTERN = Pattern.compile("\\{([^/]+?)\\}");
+
+	private final String template;
+
+	// literal segments, with the variable names between them
+	private final String[] literals;
+
+	private final String[] variables;
+
+	private CompiledTemplate(String template, String[] literals, String[] variables) {
+		this.template = template;
+		this.literals = literals;
+		this.variables = variables;
+	}
+
+	/**
+	 * Parses the given template.
+	 * @param template the template to parse
+	 * @return the compiled template
+	 */
+	public static CompiledTemplate compile(String template) {
+		if (template == null) {
+			// fails when expanded, as ServerWebExchangeUtils.expand does
+			return new CompiledTemplate(null, new String[0], new String[0]);
+		}
+		if (template.indexOf('{') == -1) {
+			return new CompiledTemplate(template, new String[] { template },
+					new String[0]);
+		}
+
+		return parse(template, sanitizePath(template));
+	}
+
+	/**
+	 * Parses the given URI template, such as {@code http://example.org/users/{id}}.
+	 * Unlike {@link #compile(String)}, only the path of the URI is sanitized, so that it
+	 * expands the same way as {@code UriComponentsBuilder.fromUriString(uri)}.
+	 * @param uri the URI template to parse
+	 * @return the compiled template
+	 */
+	public static CompiledTemplate compileUri(String uri) {
+		if (uri == null || uri.indexOf('{') == -1) {
+			return compile(uri);
+		}
+		int authority = uri.indexOf("://");
+		int path = authority != -1 ? uri.indexOf('/', authority + 3) : 0;
+		if (path == -1) {
+			return parse(uri, uri);
+		}
+		int end = path;
+		while (end < uri.length() && uri.charAt(end) != '?' && uri.charAt(end) != '#') {
+			end++;
+		}
+		return parse(uri, uri.substring(0, path) + sanitizePath(uri.substring(path, end))
+				+ uri.substring(end));
+	}
+
+	private static CompiledTemplate parse(String template, String source) {
+		if (source.indexOf(':') != -1) {
+			source = sanitizeSource(source);
+		}
+		List<String> literals = new ArrayList<>();
+		List<String> variables = new ArrayList<>();
+		Matcher matcher = NAMES_PATTERN.matcher(source);
+		int end = 0;
+		while (matcher.find()) {
+			literals.add(source.substring(end, matcher.start()));
+			String match = matcher.group(1);
+			int colonIdx = match.indexOf(':');
+			variables.add(colonIdx != -1 ? match.substring(0, colonIdx) : match);
+			end = matcher.end();
+		}
+		literals.add(source.substring(end));
+		return new CompiledTemplate(template, literals.toArray(new String[0]),
+				variables.toArray(new String[0]));
+	}
+
+	/**
+	 * Expands the template with the URI template variables of the exchange.
+	 * @param exchange the current exchange
+	 * @return the expanded value
+	 * @throws IllegalArgumentException if a variable has no value
+	 */
+	public String expand(ServerWebExchange exchange) {
+		Assert.notNull(exchange, "exchange may not be null");
+		Assert.notNull(template, "template may not be null");
+		if (variables.length == 0) {
+			return literals[0];
+		}
+		return expand(ServerWebExchangeUtils.getUriTemplateVariables(exchange));
+	}
+
+	/**
+	 * Expands the template with the given variables.
+	 * @param uriVariables the variables
+	 * @return the expanded value
+	 * @throws IllegalArgumentException if a variable has no value
+	 */
+	public String expand(Map<String, ?> uriVariables) {
+		Assert.notNull(template, "template may not be null");
+		if (variables.length == 0) {
+			return literals[0];
+		}
+		StringBuilder expanded = new StringBuilder(template.length() + 16);
+		for (int i = 0; i < variables.length; i++) {
+			expanded.append(literals[i]);
+			String name = variables[i];
+			if (!uriVariables.containsKey(name)) {
+				throw new IllegalArgumentException("Map has no value for '" + name + "'");
+			}
+			Object value = uriVariables.get(name);
+			if (value != null) {
+				expanded.append(value);
+			}
+		}
+		return expanded.append(literals[variables.length]).toString();
+	}
+
+	@Override
+	public String toString() {
+		return template;
+	}
+
+	// UriComponentsBuilder.fromPath removes duplicate slashes
+	private static String sanitizePath(String path) {
+		int index = path.indexOf("//");
+		if (index == -1) {
+			return path;
+		}
+		StringBuilder sanitized = new StringBuilder(path);
+		while (index != -1) {
+			sanitized.deleteCharAt(index);
+			index = sanitized.indexOf("//", index);
+		}
+		return sanitized.toString();
+	}
+
+	// removes nested braces, as UriComponents does for variables with a regex
+	private static String sanitizeSource(String source) {
+		int level = 0;
+		StringBuilder sanitized = new StringBuilder(source.length());
+		for (int i = 0; i < source.length(); i++) {
+			char c = source.charAt(i);
+			if (c == '{') {
+				level++;
+			}
+			if (c == '}') {
+				level--;
+			}
+			if (level > 1 || (level == 1 && c == '}')) {
+				continue;
+			}
+			sanitized.append(c);
+		}
+		return sanitized.toString();
+	}
+
+}
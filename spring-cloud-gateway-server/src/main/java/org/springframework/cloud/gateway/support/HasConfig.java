@@ -0,0 +1,43 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support;
+
+import org.springframework.cloud.gateway.handler.predicate.PredicateTraits;
+
+/**
+ * Implemented by predicates that expose the configuration and traits they were created
+ * with, so that the route table can inspect them.
+ */
+public interface HasConfig {
+
+	/**
+	 * Returns the configuration this was created from.
+	 * @return the configuration, or {@code null} if not known
+	 */
+	default Object getConfig() {
+		return null;
+	}
+
+	/**
+	 * Returns the traits of the factory this was created by.
+	 * @return the traits, {@link PredicateTraits#UNKNOWN} if not known
+	 */
+	default PredicateTraits getTraits() {
+		return PredicateTraits.UNKNOWN;
+	}
+
+}
@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -39,6 +40,7 @@ import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.core.io.buffer.NettyDataBuffer;
 import org.springframework.core.io.buffer.NettyDataBufferFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
 import org.springframework.http.server.reactive.AbstractServerHttpResponse;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
@@ -54,6 +56,14 @@ public final class ServerWebExchangeUtils {
 
 	private static final Log log = LogFactory.getLog(ServerWebExchangeUtils.class);
 
+	/**
+	 * Maximum number of templates compiled by {@link #expand} that are kept.
+	 */
+	static final int COMPILED_TEMPLATES_MAX_SIZE = 256;
+
+	// templates usually come from configuration, once full new ones are not kept
+	static final Map<String, CompiledTemplate> COMPILED_TEMPLATES = new ConcurrentHashMap<>();
+
 	/**
 	 * Preserve-Host header attribute name.
 	 */
@@ -165,6 +175,26 @@ public final class ServerWebExchangeUtils {
 	 */
 	public static final String CACHED_REQUEST_BODY_ATTR = "cachedRequestBody";
 
+	/**
+	 * Buffered body budget reservation attribute name. Present when the
+	 * {@link BufferedBodyBudget} is enabled.
+	 */
+	public static final String BUFFERED_BODY_RESERVATION_ATTR = qualify(
+			"bufferedBodyReservation");
+
+	/**
+	 * Parsed request path attribute name. Only used when the path of the request does
+	 * not match its URI, see {@link #getRequestPath(ServerWebExchange)}.
+	 */
+	public static final String GATEWAY_REQUEST_PATH_ATTR = qualify("gatewayRequestPath");
+
+	/**
+	 * Load balancer hash key attribute name. Requests with the same key are routed to the
+	 * same instance of an {@code lb://} service.
+	 */
+	public static final String LOAD_BALANCER_HASH_KEY_ATTR = qualify(
+			"loadBalancerHashKey");
+
 	private ServerWebExchangeUtils() {
 		throw new AssertionError("Must not instantiate utility class.");
 	}
@@ -282,9 +312,14 @@ public final class ServerWebExchangeUtils {
 			return template;
 		}
 
-		Map<String, String> variables = getUriTemplateVariables(exchange);
-		return UriComponentsBuilder.fromPath(template).build().expand(variables)
-				.getPath();
+		CompiledTemplate compiled = COMPILED_TEMPLATES.get(template);
+		if (compiled == null) {
+			compiled = CompiledTemplate.compile(template);
+			if (COMPILED_TEMPLATES.size() < COMPILED_TEMPLATES_MAX_SIZE) {
+				COMPILED_TEMPLATES.putIfAbsent(template, compiled);
+			}
+		}
+		return compiled.expand(exchange);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -309,6 +344,29 @@ public final class ServerWebExchangeUtils {
 				new HashMap<>());
 	}
 
+	/**
+	 * Returns the raw path of the request URI, parsed once and shared by all the
+	 * predicates and filters of the exchange. This is the path the request parsed when
+	 * it was created, unless a decorator changed the URI, in which case the path is
+	 * parsed and cached in the {@link #GATEWAY_REQUEST_PATH_ATTR} attribute.
+	 * @param exchange the current exchange
+	 * @return the parsed request path
+	 */
+	public static PathContainer getRequestPath(ServerWebExchange exchange) {
+		ServerHttpRequest request = exchange.getRequest();
+		String rawPath = request.getURI().getRawPath();
+		PathContainer path = request.getPath();
+		if (path.value().equals(rawPath)) {
+			return path;
+		}
+		path = exchange.getAttribute(GATEWAY_REQUEST_PATH_ATTR);
+		if (path == null || !path.value().equals(rawPath)) {
+			path = PathContainer.parsePath(rawPath);
+			exchange.getAttributes().put(GATEWAY_REQUEST_PATH_ATTR, path);
+		}
+		return path;
+	}
+
 	/**
 	 * Caches the request body and the created {@link ServerHttpRequestDecorator} in
 	 * ServerWebExchange attributes. Those attributes are
@@ -362,7 +420,10 @@ public final class ServerWebExchangeUtils {
 				.bufferFactory();
 		// Join all the DataBuffers so we have a single DataBuffer for the body
 		//将所有DataBuffer拼接起来，这样我们可以有一个完整的body
-		return DataBufferUtils.join(exchange.getRequest().getBody())
+		Flux<DataBuffer> body = BufferedBodyBudget.retain(exchange,
+				exchange.getRequest().getBody(),
+				exchange.getRequest().getHeaders().getContentLength());
+		return DataBufferUtils.join(body)
 				.defaultIfEmpty(
 						factory.wrap(new EmptyByteBuf(factory.getByteBufAllocator())))
 				//此处decorate方法中会将缓存放入网关上下文
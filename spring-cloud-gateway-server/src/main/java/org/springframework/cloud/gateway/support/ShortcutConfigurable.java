@@ -162,6 +162,30 @@ public interface ShortcutConfigurable {
 								.collect(Collectors.toList()));
 				return map;
 			}
+		},
+
+		// each field takes one element, except the last, which gathers the rest as a list
+		GATHER_LIST_TAIL {
+			@Override
+			public Map<String, Object> normalize(Map<String, String> args,
+					ShortcutConfigurable shortcutConf, SpelExpressionParser parser,
+					BeanFactory beanFactory) {
+				Map<String, Object> map = new HashMap<>();
+				List<String> fieldOrder = shortcutConf.shortcutFieldOrder();
+				Assert.isTrue(fieldOrder != null && !fieldOrder.isEmpty(),
+						"Shortcut Configuration Type GATHER_LIST_TAIL must have shortcutFieldOrder of at least size 1");
+				List<String> values = new ArrayList<>(args.values());
+				int head = Math.min(fieldOrder.size() - 1, values.size());
+				for (int i = 0; i < head; i++) {
+					map.put(fieldOrder.get(i),
+							getValue(parser, beanFactory, values.get(i)));
+				}
+				map.put(fieldOrder.get(fieldOrder.size() - 1),
+						values.subList(head, values.size()).stream()
+								.map(value -> getValue(parser, beanFactory, value))
+								.collect(Collectors.toList()));
+				return map;
+			}
 		};
 
 		public abstract Map<String, Object> normalize(Map<String, String> args,
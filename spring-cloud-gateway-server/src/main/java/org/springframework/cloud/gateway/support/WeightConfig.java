@@ -19,6 +19,7 @@ package org.springframework.cloud.gateway.support;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
 
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
 import org.springframework.core.style.ToStringCreator;
 import org.springframework.validation.annotation.Validated;
 
@@ -38,6 +39,12 @@ public class WeightConfig {
 	@Min(0)
 	private int weight;
 
+	private String header;
+
+	private String cookie;
+
+	private KeyResolver keyResolver;
+
 	private WeightConfig() {
 	}
 
@@ -78,10 +85,55 @@ public class WeightConfig {
 		return this;
 	}
 
+	public String getHeader() {
+		return header;
+	}
+
+	/**
+	 * Chooses the route of the group from the value of a request header, rather than
+	 * randomly.
+	 * @param header the header name
+	 * @return this
+	 */
+	public WeightConfig setHeader(String header) {
+		this.header = header;
+		return this;
+	}
+
+	public String getCookie() {
+		return cookie;
+	}
+
+	/**
+	 * Chooses the route of the group from the value of a cookie, rather than randomly.
+	 * @param cookie the cookie name
+	 * @return this
+	 */
+	public WeightConfig setCookie(String cookie) {
+		this.cookie = cookie;
+		return this;
+	}
+
+	public KeyResolver getKeyResolver() {
+		return keyResolver;
+	}
+
+	/**
+	 * Chooses the route of the group from the key resolved for the request, rather than
+	 * randomly.
+	 * @param keyResolver the key resolver
+	 * @return this
+	 */
+	public WeightConfig setKeyResolver(KeyResolver keyResolver) {
+		this.keyResolver = keyResolver;
+		return this;
+	}
+
 	@Override
 	public String toString() {
 		return new ToStringCreator(this).append("group", group).append("routeId", routeId)
-				.append("weight", weight).toString();
+				.append("weight", weight).append("header", header)
+				.append("cookie", cookie).append("keyResolver", keyResolver).toString();
 	}
 
 }
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support.loadbalancer;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntPredicate;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.reactive.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.reactive.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.reactive.Request;
+import org.springframework.cloud.client.loadbalancer.reactive.Response;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceStats.InstanceStats;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link ReactorServiceInstanceLoadBalancer} that hashes the key given as the
+ * {@link Request#getContext() context} of the request onto a ring of the instances of the
+ * service, so that requests with the same key go to the same instance, and only a small
+ * share of the keys move when an instance is added or removed. Requests without a key are
+ * spread at random.
+ * <p>
+ * When {@link ServiceInstanceStats} are given, the load is bounded: an instance that
+ * already has more than {@code loadFactor} times the average number of requests in flight
+ * is skipped, and the next instance on the ring is chosen. So are the instances that are
+ * ejected by outlier detection or unhealthy.
+ * <p>
+ * The ring is only built, and rebuilt when the instances of the service change, off the
+ * request path, on the given {@link Scheduler}. The first requests wait for the first
+ * ring. Until it is rebuilt, the previous ring is used, skipping the instances that were
+ * removed. The instances are compared by address, whatever order they are listed in.
+ */
+public class ConsistentHashLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+	/**
+	 * The default number of points of every instance on the ring.
+	 */
+	public static final int DEFAULT_REPLICAS = 100;
+
+	private static final Log log = LogFactory.getLog(ConsistentHashLoadBalancer.class);
+
+	private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+
+	private final String serviceId;
+
+	@Nullable
+	private final ServiceInstanceStats stats;
+
+	private final double loadFactor;
+
+	private final int replicas;
+
+	private final Scheduler scheduler;
+
+	private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+	@Nullable
+	private volatile Ring ring;
+
+	private final AtomicReference<Mono<Ring>> firstRing = new AtomicReference<>();
+
+	public ConsistentHashLoadBalancer(
+			ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+			String serviceId, @Nullable ServiceInstanceStats stats, double loadFactor) {
+		this(serviceInstanceListSupplierProvider, serviceId, stats, loadFactor,
+				DEFAULT_REPLICAS, Schedulers.parallel());
+	}
+
+	ConsistentHashLoadBalancer(
+			ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+			String serviceId, @Nullable ServiceInstanceStats stats, double loadFactor,
+			int replicas, Scheduler scheduler) {
+		Assert.isTrue(loadFactor > 1, "loadFactor must be greater than 1");
+		Assert.isTrue(replicas > 0, "replicas must be greater than 0");
+		this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+		this.serviceId = serviceId;
+		this.stats = stats;
+		this.loadFactor = loadFactor;
+		this.replicas = replicas;
+		this.scheduler = scheduler;
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public Mono<Response<ServiceInstance>> choose(Request request) {
+		Object key = request.getContext();
+		ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider
+				.getIfAvailable(NoopServiceInstanceListSupplier::new);
+		return supplier.get().next().flatMap(instances -> {
+			if (instances.isEmpty()) {
+				if (log.isWarnEnabled()) {
+					log.warn("No servers available for service: " + serviceId);
+				}
+				return Mono.just(new EmptyResponse());
+			}
+			Ring current = this.ring;
+			Mono<Ring> ring = current != null ? Mono.just(current)
+					: getFirstRing(instances);
+			return ring.map(built -> {
+				Response<ServiceInstance> response = getInstanceResponse(built, instances,
+						key);
+				if (supplier instanceof SelectedInstanceCallback
+						&& response.hasServer()) {
+					((SelectedInstanceCallback) supplier)
+							.selectedServiceInstance(response.getServer());
+				}
+				return response;
+			});
+		});
+	}
+
+	private Response<ServiceInstance> getInstanceResponse(Ring current,
+			List<ServiceInstance> instances, @Nullable Object key) {
+		boolean stale = !current.isBuiltFrom(instances);
+		if (stale) {
+			rebuild(instances);
+		}
+		long hash = key != null ? hash(key.toString())
+				: ThreadLocalRandom.current().nextLong();
+		IntPredicate available = stale
+				? index -> contains(instances, current.instances[index]) : index -> true;
+		IntPredicate healthy = index -> available.test(index)
+				&& current.isAvailable(index);
+		int capacity = current.getCapacity(loadFactor);
+		int chosen = current.find(hash,
+				index -> healthy.test(index) && current.getInFlight(index) < capacity);
+		if (chosen < 0) {
+			// every instance is at capacity
+			chosen = current.find(hash, healthy);
+		}
+		if (chosen < 0) {
+			// no instance is available
+			chosen = current.find(hash, available);
+		}
+		if (chosen < 0) {
+			// every instance on the ring was removed
+			return new DefaultResponse(
+					instances.get(ThreadLocalRandom.current().nextInt(instances.size())));
+		}
+		return new DefaultResponse(current.instances[chosen]);
+	}
+
+	// nothing to route with until the first ring is built, which every request waits for
+	private Mono<Ring> getFirstRing(List<ServiceInstance> instances) {
+		Mono<Ring> first = firstRing.get();
+		if (first == null) {
+			Mono<Ring> created = Mono.fromSupplier(() -> {
+				Ring built = new Ring(instances, replicas, stats);
+				this.ring = built;
+				return built;
+			}).subscribeOn(scheduler).cache();
+			first = firstRing.compareAndSet(null, created) ? created : firstRing.get();
+		}
+		return first;
+	}
+
+	private void rebuild(List<ServiceInstance> instances) {
+		if (rebuilding.compareAndSet(false, true)) {
+			scheduler.schedule(() -> {
+				try {
+					this.ring = new Ring(instances, replicas, stats);
+				}
+				finally {
+					rebuilding.set(false);
+				}
+			});
+		}
+	}
+
+	private static boolean contains(List<ServiceInstance> instances,
+			ServiceInstance instance) {
+		for (ServiceInstance candidate : instances) {
+			if (isSame(candidate, instance)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isSame(ServiceInstance a, ServiceInstance b) {
+		return a == b
+				|| (a.getPort() == b.getPort() && Objects.equals(a.getHost(), b.getHost())
+						&& Objects.equals(a.getServiceId(), b.getServiceId()));
+	}
+
+	private static String address(ServiceInstance instance) {
+		return instance.getHost() + ":" + instance.getPort();
+	}
+
+	private static String[] sortedAddresses(List<ServiceInstance> instances) {
+		String[] addresses = new String[instances.size()];
+		for (int i = 0; i < addresses.length; i++) {
+			addresses[i] = address(instances.get(i));
+		}
+		Arrays.sort(addresses);
+		return addresses;
+	}
+
+	// FNV-1a, finalized with the MurmurHash3 mixer to spread close keys over the ring
+	static long hash(String value) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			hash ^= value.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	private static final class Ring {
+
+		private final ServiceInstance[] instances;
+
+		@Nullable
+		private final InstanceStats[] stats;
+
+		// the points of the instances on the ring, sorted, and the instance owning each
+		private final long[] points;
+
+		private final int[] owners;
+
+		// the addresses of the instances, sorted, to compare them in any order
+		private final String[] addresses;
+
+		private Ring(List<ServiceInstance> instances, int replicas,
+				@Nullable ServiceInstanceStats stats) {
+			this.instances = instances.toArray(new ServiceInstance[0]);
+			this.addresses = sortedAddresses(instances);
+			this.stats = stats != null ? new InstanceStats[this.instances.length] : null;
+			long[][] entries = new long[this.instances.length * replicas][];
+			for (int i = 0; i < this.instances.length; i++) {
+				ServiceInstance instance = this.instances[i];
+				if (this.stats != null) {
+					this.stats[i] = stats.get(instance);
+				}
+				String key = address(instance);
+				for (int replica = 0; replica < replicas; replica++) {
+					entries[i * replicas + replica] = new long[] {
+							hash(key + "#" + replica), i };
+				}
+			}
+			Arrays.sort(entries, Comparator.comparingLong(entry -> entry[0]));
+			this.points = new long[entries.length];
+			this.owners = new int[entries.length];
+			for (int i = 0; i < entries.length; i++) {
+				this.points[i] = entries[i][0];
+				this.owners[i] = (int) entries[i][1];
+			}
+		}
+
+		private boolean isBuiltFrom(List<ServiceInstance> instances) {
+			if (instances.size() != this.instances.length) {
+				return false;
+			}
+			// the instances are usually listed in the same order, which needs no sorting
+			boolean sameOrder = true;
+			for (int i = 0; i < this.instances.length && sameOrder; i++) {
+				sameOrder = isSame(instances.get(i), this.instances[i]);
+			}
+			return sameOrder || Arrays.equals(sortedAddresses(instances), addresses);
+		}
+
+		private boolean isAvailable(int index) {
+			return stats == null || stats[index].isAvailable();
+		}
+
+		private int getInFlight(int index) {
+			return stats != null ? stats[index].getInFlight() : 0;
+		}
+
+		// the most requests in flight an instance may have to take one more
+		private int getCapacity(double loadFactor) {
+			if (stats == null) {
+				return Integer.MAX_VALUE;
+			}
+			long total = 1;
+			for (InstanceStats instanceStats : stats) {
+				total += instanceStats.getInFlight();
+			}
+			return (int) Math.ceil(loadFactor * total / instances.length);
+		}
+
+		// the index of the first instance clockwise from the hash that is accepted
+		private int find(long hash, IntPredicate accept) {
+			int start = Arrays.binarySearch(points, hash);
+			if (start < 0) {
+				start = -start - 1;
+			}
+			boolean[] seen = new boolean[instances.length];
+			int remaining = instances.length;
+			for (int i = 0; i < points.length && remaining > 0; i++) {
+				int owner = owners[(start + i) % points.length];
+				if (!seen[owner]) {
+					seen[owner] = true;
+					remaining--;
+					if (accept.test(owner)) {
+						return owner;
+					}
+				}
+			}
+			return -1;
+		}
+
+	}
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support.loadbalancer;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Mono;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.reactive.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.reactive.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.reactive.Request;
+import org.springframework.cloud.client.loadbalancer.reactive.Response;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceStats.InstanceStats;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+/**
+ * A {@link ReactorServiceInstanceLoadBalancer} that picks two instances at random and
+ * chooses the less loaded one, according to the {@link ServiceInstanceStats} recorded
+ * while routing. The load of an instance is its average latency times the number of
+ * requests in flight to it, plus one. As long as one of the two instances has no latency
+ * recorded yet, the one with fewer requests in flight is chosen. Instances ejected by
+ * outlier detection or unhealthy are left out, unless all of them are.
+ */
+public class LeastLoadedLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+	private static final Log log = LogFactory.getLog(LeastLoadedLoadBalancer.class);
+
+	private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+
+	private final String serviceId;
+
+	private final ServiceInstanceStats stats;
+
+	public LeastLoadedLoadBalancer(
+			ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+			String serviceId, ServiceInstanceStats stats) {
+		this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+		this.serviceId = serviceId;
+		this.stats = stats;
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public Mono<Response<ServiceInstance>> choose(Request request) {
+		ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider
+				.getIfAvailable(NoopServiceInstanceListSupplier::new);
+		return supplier.get().next().map(instances -> {
+			Response<ServiceInstance> response = getInstanceResponse(instances);
+			if (supplier instanceof SelectedInstanceCallback && response.hasServer()) {
+				((SelectedInstanceCallback) supplier)
+						.selectedServiceInstance(response.getServer());
+			}
+			return response;
+		});
+	}
+
+	private Response<ServiceInstance> getInstanceResponse(
+			List<ServiceInstance> instances) {
+		if (instances.isEmpty()) {
+			if (log.isWarnEnabled()) {
+				log.warn("No servers available for service: " + serviceId);
+			}
+			return new EmptyResponse();
+		}
+		instances = stats.getAvailable(instances);
+		if (instances.size() == 1) {
+			return new DefaultResponse(instances.get(0));
+		}
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int first = random.nextInt(instances.size());
+		// a second, distinct instance
+		int second = random.nextInt(instances.size() - 1);
+		if (second >= first) {
+			second++;
+		}
+		ServiceInstance a = instances.get(first);
+		ServiceInstance b = instances.get(second);
+		return new DefaultResponse(compare(stats.get(a), stats.get(b)) <= 0 ? a : b);
+	}
+
+	static int compare(InstanceStats a, InstanceStats b) {
+		double latencyA = a.getLatency();
+		double latencyB = b.getLatency();
+		if (Double.isNaN(latencyA) || Double.isNaN(latencyB)) {
+			return Integer.compare(a.getInFlight(), b.getInFlight());
+		}
+		return Double.compare(latencyA * (a.getInFlight() + 1),
+				latencyB * (b.getInFlight() + 1));
+	}
+
+}
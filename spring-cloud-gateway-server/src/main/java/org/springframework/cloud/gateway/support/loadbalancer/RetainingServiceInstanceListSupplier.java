@@ -0,0 +1,59 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support.loadbalancer;
+
+import java.util.List;
+
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.DelegatingServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+/**
+ * A {@link ServiceInstanceListSupplier} that
+ * {@link ServiceInstanceStats#retain(String, List) retains} the statistics of the
+ * instances supplied by its delegate, so that those of the instances that left discovery
+ * are dropped.
+ */
+public class RetainingServiceInstanceListSupplier extends
+		DelegatingServiceInstanceListSupplier implements SelectedInstanceCallback {
+
+	private final ServiceInstanceStats stats;
+
+	public RetainingServiceInstanceListSupplier(ServiceInstanceListSupplier delegate,
+			ServiceInstanceStats stats) {
+		super(delegate);
+		this.stats = stats;
+	}
+
+	@Override
+	public Flux<List<ServiceInstance>> get() {
+		return delegate.get()
+				.doOnNext(instances -> stats.retain(getServiceId(), instances));
+	}
+
+	@Override
+	public void selectedServiceInstance(ServiceInstance serviceInstance) {
+		if (delegate instanceof SelectedInstanceCallback) {
+			((SelectedInstanceCallback) delegate)
+					.selectedServiceInstance(serviceInstance);
+		}
+	}
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support.loadbalancer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.gateway.config.LoadBalancerProperties.HealthCheck;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceStats.InstanceStats;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.util.Assert;
+
+/**
+ * Probes, every interval, every instance of the services that requests were routed to,
+ * and marks the instances that fail the probes unhealthy in the
+ * {@link ServiceInstanceStats}, so that they are skipped when an instance is chosen,
+ * without waiting for the service discovery to notice.
+ * <p>
+ * The probes are plain {@code GET} requests, sent with the {@link HttpClient} of the
+ * gateway. They are spread over the interval, with a random jitter, rather than sent all
+ * at once. The instances are those of the {@link ServiceInstanceListSupplier} of the
+ * service, so only the subset of the gateway node is probed when subsetting is enabled,
+ * but the instances of every zone are.
+ */
+public class ServiceInstanceHealthChecker implements SmartLifecycle {
+
+	private static final Log log = LogFactory.getLog(ServiceInstanceHealthChecker.class);
+
+	private final LoadBalancerClientFactory clientFactory;
+
+	private final ServiceInstanceStats stats;
+
+	private final HttpClient httpClient;
+
+	private final HealthCheck properties;
+
+	private final Scheduler scheduler;
+
+	private volatile Disposable checks;
+
+	public ServiceInstanceHealthChecker(LoadBalancerClientFactory clientFactory,
+			ServiceInstanceStats stats, HttpClient httpClient, HealthCheck properties) {
+		this(clientFactory, stats, httpClient, properties, Schedulers.parallel());
+	}
+
+	ServiceInstanceHealthChecker(LoadBalancerClientFactory clientFactory,
+			ServiceInstanceStats stats, HttpClient httpClient, HealthCheck properties,
+			Scheduler scheduler) {
+		Assert.hasText(properties.getPath(), "path must not be empty");
+		Assert.isTrue(
+				!properties.getInterval().isNegative()
+						&& !properties.getInterval().isZero(),
+				"interval must be positive");
+		Assert.isTrue(!properties.getJitter().isNegative(),
+				"jitter must not be negative");
+		Assert.isTrue(properties.getUnhealthyThreshold() > 0,
+				"unhealthyThreshold must be greater than 0");
+		Assert.isTrue(properties.getHealthyThreshold() > 0,
+				"healthyThreshold must be greater than 0");
+		this.clientFactory = clientFactory;
+		this.stats = stats;
+		this.httpClient = httpClient;
+		this.properties = properties;
+		this.scheduler = scheduler;
+	}
+
+	@Override
+	public void start() {
+		checks = Flux.interval(properties.getInterval(), scheduler)
+				.flatMap(tick -> check()).subscribe();
+	}
+
+	@Override
+	public void stop() {
+		Disposable checks = this.checks;
+		if (checks != null) {
+			checks.dispose();
+			this.checks = null;
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return checks != null;
+	}
+
+	/**
+	 * Probes every instance of the services requests were routed to once.
+	 * @return the probes, completing when every one did
+	 */
+	Mono<Void> check() {
+		return Flux.fromIterable(new ArrayList<>(stats.getStats().keySet()))
+				.flatMap(this::getInstances).collectList().flatMap(lists -> {
+					List<ServiceInstance> instances = new ArrayList<>();
+					lists.forEach(instances::addAll);
+					if (instances.isEmpty()) {
+						return Mono.empty();
+					}
+					// spreads the probes evenly over the interval
+					return Flux.fromIterable(instances)
+							.delayElements(
+									properties.getInterval().dividedBy(instances.size()),
+									scheduler)
+							.flatMap(instance -> Mono.delay(getJitter(), scheduler)
+									.then(probe(instance)))
+							.then();
+				});
+	}
+
+	private Mono<List<ServiceInstance>> getInstances(String serviceId) {
+		ServiceInstanceListSupplier supplier = clientFactory
+				.getLazyProvider(serviceId, ServiceInstanceListSupplier.class)
+				.getIfAvailable(NoopServiceInstanceListSupplier::new);
+		// instances out of the zone of the gateway take requests when they spill over
+		while (supplier instanceof ZoneAwareServiceInstanceListSupplier) {
+			supplier = ((ZoneAwareServiceInstanceListSupplier) supplier).getDelegate();
+		}
+		return supplier.get().next().timeout(properties.getTimeout(), scheduler)
+				.onErrorResume(throwable -> {
+					if (log.isDebugEnabled()) {
+						log.debug("Unable to get the instances of " + serviceId,
+								throwable);
+					}
+					return Mono.empty();
+				});
+	}
+
+	private Duration getJitter() {
+		long jitter = properties.getJitter().toNanos();
+		return jitter > 0 ? Duration.ofNanos(ThreadLocalRandom.current().nextLong(jitter))
+				: Duration.ZERO;
+	}
+
+	private Mono<Void> probe(ServiceInstance instance) {
+		URI uri = DefaultServiceInstance.getUri(instance).resolve(properties.getPath());
+		return httpClient.get().uri(uri.toString()).response()
+				.map(response -> response.status().code() / 100 == 2)
+				.timeout(properties.getTimeout(), scheduler).onErrorResume(throwable -> {
+					if (log.isTraceEnabled()) {
+						log.trace("Health check of " + uri + " failed", throwable);
+					}
+					return Mono.just(false);
+				}).doOnNext(healthy -> onProbe(instance, healthy)).then();
+	}
+
+	private void onProbe(ServiceInstance instance, boolean success) {
+		InstanceStats instanceStats = stats.get(instance);
+		int threshold = success ? properties.getHealthyThreshold()
+				: properties.getUnhealthyThreshold();
+		if (stats.onHealthCheck(instanceStats, success, threshold)
+				&& log.isWarnEnabled()) {
+			log.warn(instanceStats.getServiceId() + "@" + instanceStats.getAddress()
+					+ " is now " + (success ? "healthy" : "unhealthy"));
+		}
+	}
+
+}
@@ -0,0 +1,648 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support.loadbalancer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.gateway.config.LoadBalancerProperties.OutlierDetection;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Keeps, for every {@link ServiceInstance} requests are routed to, the number of requests
+ * in flight and an exponentially weighted moving average of their latency. The counters
+ * are lock free, as they are updated on every request.
+ * <p>
+ * When {@link OutlierDetection outlier detection} is enabled, the outcome of the requests
+ * is tracked too, and an instance is ejected, for a back-off that grows every time it is
+ * ejected in a row, when it fails too many requests in a row, when it fails too large a
+ * share of its requests within an interval, or when it is much slower than the other
+ * instances of its service. No more than a percentage of the instances of a service are
+ * ejected at the same time, and never all of them.
+ * <p>
+ * Instances can also be marked unhealthy by a {@link ServiceInstanceHealthChecker}. Both
+ * ejected and unhealthy instances are {@link #getAvailable(List) left out} of load
+ * balancing, unless no instance of the service is left.
+ * <p>
+ * The instances of a service are {@link #retain(String, List) retained} every time they
+ * are discovered, so that the statistics of the instances that left are dropped, and the
+ * share of the instances that may be ejected is taken of those currently discovered.
+ */
+public class ServiceInstanceStats {
+
+	/**
+	 * The default weight of the latest latency in the moving average.
+	 */
+	public static final double DEFAULT_ALPHA = 0.3;
+
+	// the fewest instances with a latency needed to tell a slow one from the others
+	private static final int MIN_LATENCY_SAMPLES = 3;
+
+	private static final Log log = LogFactory.getLog(ServiceInstanceStats.class);
+
+	private final Map<String, Map<String, InstanceStats>> services = new ConcurrentHashMap<>();
+
+	// the instances of every service as last discovered
+	private final Map<String, List<ServiceInstance>> discovered = new ConcurrentHashMap<>();
+
+	private final List<Consumer<InstanceStats>> listeners = new CopyOnWriteArrayList<>();
+
+	private final List<Consumer<InstanceStats>> removalListeners = new CopyOnWriteArrayList<>();
+
+	private final double alpha;
+
+	@Nullable
+	private final OutlierDetection outlierDetection;
+
+	private final LongSupplier clock;
+
+	private final AtomicLong nextSweep;
+
+	// whether any instance may be left out, so that choosing one needs no lookups
+	// otherwise
+	private volatile boolean excluding;
+
+	public ServiceInstanceStats() {
+		this(DEFAULT_ALPHA);
+	}
+
+	public ServiceInstanceStats(double alpha) {
+		this(alpha, null);
+	}
+
+	public ServiceInstanceStats(double alpha,
+			@Nullable OutlierDetection outlierDetection) {
+		this(alpha, outlierDetection, System::nanoTime);
+	}
+
+	ServiceInstanceStats(double alpha, @Nullable OutlierDetection outlierDetection,
+			LongSupplier clock) {
+		Assert.isTrue(alpha > 0 && alpha <= 1, "alpha must be in (0, 1]");
+		if (outlierDetection != null && outlierDetection.isEnabled()) {
+			validate(outlierDetection);
+			this.outlierDetection = outlierDetection;
+		}
+		else {
+			this.outlierDetection = null;
+		}
+		this.excluding = this.outlierDetection != null;
+		this.alpha = alpha;
+		this.clock = clock;
+		this.nextSweep = new AtomicLong(clock.getAsLong() + (this.outlierDetection != null
+				? this.outlierDetection.getInterval().toNanos() : 0));
+	}
+
+	private static void validate(OutlierDetection outlierDetection) {
+		Assert.isTrue(outlierDetection.getConsecutiveErrors() > 0,
+				"consecutiveErrors must be greater than 0");
+		Assert.isTrue(
+				outlierDetection.getErrorRate() > 0
+						&& outlierDetection.getErrorRate() <= 1,
+				"errorRate must be in (0, 1]");
+		Assert.isTrue(outlierDetection.getLatencyFactor() > 1,
+				"latencyFactor must be greater than 1");
+		Assert.isTrue(
+				!outlierDetection.getInterval().isNegative()
+						&& !outlierDetection.getInterval().isZero(),
+				"interval must be positive");
+		Assert.isTrue(
+				!outlierDetection.getBaseEjectionTime().isNegative()
+						&& !outlierDetection.getBaseEjectionTime().isZero(),
+				"baseEjectionTime must be positive");
+		Assert.isTrue(
+				outlierDetection.getMaxEjectionTime()
+						.compareTo(outlierDetection.getBaseEjectionTime()) >= 0,
+				"maxEjectionTime must not be less than baseEjectionTime");
+		Assert.isTrue(
+				outlierDetection.getMaxEjectionPercent() >= 0
+						&& outlierDetection.getMaxEjectionPercent() <= 100,
+				"maxEjectionPercent must be in [0, 100]");
+	}
+
+	/**
+	 * Returns the statistics of an instance, creating them on first use.
+	 * @param instance the instance
+	 * @return the statistics of the instance
+	 */
+	public InstanceStats get(ServiceInstance instance) {
+		String serviceId = String.valueOf(instance.getServiceId());
+		Map<String, InstanceStats> instances = services.computeIfAbsent(serviceId,
+				id -> new ConcurrentHashMap<>());
+		String address = address(instance);
+		InstanceStats instanceStats = instances.get(address);
+		if (instanceStats == null) {
+			InstanceStats created = new InstanceStats(serviceId, address, alpha, clock);
+			instanceStats = instances.putIfAbsent(address, created);
+			if (instanceStats == null) {
+				instanceStats = created;
+				listeners.forEach(listener -> listener.accept(created));
+			}
+		}
+		return instanceStats;
+	}
+
+	/**
+	 * Returns the statistics of every instance, by service id and by address.
+	 * @return the statistics of the instances
+	 */
+	public Map<String, Map<String, InstanceStats>> getStats() {
+		Map<String, Map<String, InstanceStats>> stats = new LinkedHashMap<>();
+		services.forEach((serviceId, instances) -> stats.put(serviceId,
+				Collections.unmodifiableMap(new LinkedHashMap<>(instances))));
+		return Collections.unmodifiableMap(stats);
+	}
+
+	/**
+	 * Calls the given consumer with the statistics of every instance known so far, and of
+	 * every instance that requests are routed to later on.
+	 * @param consumer the consumer of the statistics
+	 */
+	public void onInstance(Consumer<InstanceStats> consumer) {
+		listeners.add(consumer);
+		services.values().forEach(instances -> instances.values().forEach(consumer));
+	}
+
+	/**
+	 * Calls the given consumer with the statistics of every instance that is dropped
+	 * because it left discovery.
+	 * @param consumer the consumer of the statistics
+	 */
+	public void onRemoval(Consumer<InstanceStats> consumer) {
+		removalListeners.add(consumer);
+	}
+
+	/**
+	 * Keeps the statistics of the given instances of a service and drops those of the
+	 * other instances of the service, which left discovery. An empty list is ignored, so
+	 * that a discovery outage does not reset every statistic.
+	 * @param serviceId the id of the service
+	 * @param instances the instances of the service currently discovered
+	 */
+	public void retain(String serviceId, List<ServiceInstance> instances) {
+		if (instances.isEmpty()) {
+			return;
+		}
+		List<ServiceInstance> previous = discovered.put(serviceId, instances);
+		Map<String, InstanceStats> stats = services.get(serviceId);
+		// the supplier of the instances usually hands out the same list until they change
+		if (stats == null
+				|| (previous == instances && stats.size() <= instances.size())) {
+			return;
+		}
+		Set<String> addresses = new HashSet<>();
+		for (ServiceInstance instance : instances) {
+			addresses.add(address(instance));
+		}
+		stats.forEach((address, instanceStats) -> {
+			if (!addresses.contains(address) && stats.remove(address, instanceStats)) {
+				removalListeners.forEach(listener -> listener.accept(instanceStats));
+			}
+		});
+	}
+
+	/**
+	 * Returns whether instances are ejected when they fail or are slow.
+	 * @return whether outlier detection is enabled
+	 */
+	public boolean isOutlierDetectionEnabled() {
+		return outlierDetection != null;
+	}
+
+	/**
+	 * Returns whether some instances may be left out of load balancing, because outlier
+	 * detection is enabled or because a health check failed.
+	 * @return whether instances may be left out
+	 */
+	public boolean isExcludingInstances() {
+		return excluding;
+	}
+
+	/**
+	 * Returns whether an instance is currently ejected.
+	 * @param instance the instance
+	 * @return whether the instance is ejected
+	 */
+	public boolean isEjected(ServiceInstance instance) {
+		InstanceStats instanceStats = find(instance);
+		return instanceStats != null && instanceStats.isEjected();
+	}
+
+	/**
+	 * Returns whether an instance is neither ejected nor unhealthy.
+	 * @param instance the instance
+	 * @return whether the instance is available
+	 */
+	public boolean isAvailable(ServiceInstance instance) {
+		if (!excluding) {
+			return true;
+		}
+		InstanceStats instanceStats = find(instance);
+		return instanceStats == null || instanceStats.isAvailable();
+	}
+
+	@Nullable
+	private InstanceStats find(ServiceInstance instance) {
+		return find(String.valueOf(instance.getServiceId()), address(instance));
+	}
+
+	// the statistics of an instance, without creating them
+	@Nullable
+	InstanceStats find(String serviceId, String address) {
+		Map<String, InstanceStats> instances = services.get(serviceId);
+		return instances != null ? instances.get(address) : null;
+	}
+
+	/**
+	 * Returns the instances that are available, or all of them if none is.
+	 * @param instances the instances of a service
+	 * @return the instances to choose from
+	 */
+	public List<ServiceInstance> getAvailable(List<ServiceInstance> instances) {
+		if (!excluding) {
+			return instances;
+		}
+		List<ServiceInstance> available = null;
+		for (int i = 0; i < instances.size(); i++) {
+			ServiceInstance instance = instances.get(i);
+			if (!isAvailable(instance)) {
+				if (available == null) {
+					available = new ArrayList<>(instances.subList(0, i));
+				}
+			}
+			else if (available != null) {
+				available.add(instance);
+			}
+		}
+		if (available == null) {
+			return instances;
+		}
+		return available.isEmpty() ? instances : available;
+	}
+
+	/**
+	 * Counts a request to an instance as in flight until the given publisher terminates,
+	 * and then records its latency.
+	 * @param instance the instance the request is routed to
+	 * @param request the request
+	 * @param <T> the type of the request result
+	 * @return the request, recording its statistics
+	 */
+	public <T> Mono<T> record(ServiceInstance instance, Mono<T> request) {
+		return record(instance, request, () -> false);
+	}
+
+	/**
+	 * Counts a request to an instance as in flight until the given publisher terminates,
+	 * and then records its latency and whether it failed.
+	 * @param instance the instance the request is routed to
+	 * @param request the request
+	 * @param failed whether a request that completed failed, for instance because of the
+	 * status of its response
+	 * @param <T> the type of the request result
+	 * @return the request, recording its statistics
+	 */
+	public <T> Mono<T> record(ServiceInstance instance, Mono<T> request,
+			BooleanSupplier failed) {
+		return Mono.defer(() -> {
+			InstanceStats instanceStats = get(instance);
+			long start = instanceStats.start();
+			return request.doFinally(signal -> {
+				instanceStats.end(start, signal);
+				if (outlierDetection != null && signal != SignalType.CANCEL) {
+					onOutcome(instanceStats,
+							signal == SignalType.ON_ERROR || failed.getAsBoolean());
+				}
+			});
+		});
+	}
+
+	private void onOutcome(InstanceStats instanceStats, boolean failure) {
+		instanceStats.requests.incrementAndGet();
+		if (failure) {
+			instanceStats.failures.incrementAndGet();
+			if (instanceStats.consecutiveFailures.incrementAndGet() >= outlierDetection
+					.getConsecutiveErrors()) {
+				eject(instanceStats, "consecutive errors");
+			}
+		}
+		else {
+			instanceStats.consecutiveFailures.set(0);
+		}
+		long now = clock.getAsLong();
+		long next = nextSweep.get();
+		if (now - next >= 0 && nextSweep.compareAndSet(next,
+				now + outlierDetection.getInterval().toNanos())) {
+			sweep();
+		}
+	}
+
+	// compares the error rates and the latencies of the last interval
+	private void sweep() {
+		for (Map<String, InstanceStats> instances : services.values()) {
+			double median = medianLatency(instances.values());
+			for (InstanceStats instanceStats : instances.values()) {
+				int requests = instanceStats.requests.getAndSet(0);
+				int failures = instanceStats.failures.getAndSet(0);
+				if (instanceStats.isEjected()) {
+					continue;
+				}
+				if (requests >= outlierDetection.getMinimumRequests()
+						&& failures >= outlierDetection.getErrorRate() * requests) {
+					eject(instanceStats, "error rate");
+				}
+				else if (requests > 0 && instanceStats
+						.getLatency() > outlierDetection.getLatencyFactor() * median) {
+					eject(instanceStats, "latency");
+				}
+				else if (failures == 0) {
+					// a healthy interval shortens the next ejection
+					instanceStats.ejections
+							.getAndUpdate(ejections -> Math.max(0, ejections - 1));
+				}
+			}
+		}
+	}
+
+	// the median latency of the instances that got requests, NaN if too few did
+	private static double medianLatency(Iterable<InstanceStats> instances) {
+		List<Double> latencies = new ArrayList<>();
+		for (InstanceStats instanceStats : instances) {
+			double latency = instanceStats.getLatency();
+			if (instanceStats.requests.get() > 0 && !Double.isNaN(latency)
+					&& !instanceStats.isEjected()) {
+				latencies.add(latency);
+			}
+		}
+		if (latencies.size() < MIN_LATENCY_SAMPLES) {
+			return Double.NaN;
+		}
+		Collections.sort(latencies);
+		return latencies.get(latencies.size() / 2);
+	}
+
+	private void eject(InstanceStats instanceStats, String reason) {
+		Map<String, InstanceStats> instances = services.get(instanceStats.getServiceId());
+		long duration;
+		synchronized (instances) {
+			// whatever happens, start counting consecutive errors again
+			instanceStats.consecutiveFailures.set(0);
+			if (instanceStats.isEjected()) {
+				return;
+			}
+			int ejected = 0;
+			for (InstanceStats other : instances.values()) {
+				if (other.isEjected()) {
+					ejected++;
+				}
+			}
+			List<ServiceInstance> current = discovered.get(instanceStats.getServiceId());
+			int total = current != null ? current.size() : instances.size();
+			int maxEjected = Math.min(total - 1,
+					Math.max(1, total * outlierDetection.getMaxEjectionPercent() / 100));
+			if (ejected >= maxEjected) {
+				if (log.isDebugEnabled()) {
+					log.debug("Not ejecting " + instanceStats.getServiceId() + "@"
+							+ instanceStats.getAddress() + " (" + reason + "), " + ejected
+							+ " of " + total + " instances are already ejected");
+				}
+				return;
+			}
+			int ejections = instanceStats.ejections.incrementAndGet();
+			duration = Math.min(
+					outlierDetection.getBaseEjectionTime().toNanos() * ejections,
+					outlierDetection.getMaxEjectionTime().toNanos());
+			instanceStats.ejectedUntil = clock.getAsLong() + duration;
+			instanceStats.totalEjections.incrementAndGet();
+		}
+		if (log.isWarnEnabled()) {
+			log.warn("Ejecting " + instanceStats.getServiceId() + "@"
+					+ instanceStats.getAddress() + " for " + duration / 1_000_000 + "ms ("
+					+ reason + ")");
+		}
+	}
+
+	/**
+	 * Records the outcome of a health check of an instance, and marks it healthy or
+	 * unhealthy once enough checks in a row disagree with its current health.
+	 * @param instanceStats the statistics of the instance
+	 * @param success whether the health check succeeded
+	 * @param threshold how many checks in a row change the health of the instance
+	 * @return whether the health of the instance changed
+	 */
+	boolean onHealthCheck(InstanceStats instanceStats, boolean success, int threshold) {
+		if (success == instanceStats.healthy) {
+			instanceStats.healthChecks.set(0);
+			return false;
+		}
+		if (instanceStats.healthChecks.incrementAndGet() < threshold) {
+			return false;
+		}
+		instanceStats.healthChecks.set(0);
+		if (!success) {
+			excluding = true;
+		}
+		instanceStats.healthy = success;
+		return true;
+	}
+
+	static String address(ServiceInstance instance) {
+		return instance.getHost() + ":" + instance.getPort();
+	}
+
+	/**
+	 * The statistics of a single instance.
+	 */
+	public static final class InstanceStats {
+
+		// a failed request is counted at least as slow as this many times the average,
+		// so that an instance that fails fast does not attract more requests
+		private static final int ERROR_PENALTY = 2;
+
+		private static final long NO_LATENCY = Double.doubleToRawLongBits(Double.NaN);
+
+		private final String serviceId;
+
+		private final String address;
+
+		private final double alpha;
+
+		private final LongSupplier clock;
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		private final AtomicLong latency = new AtomicLong(NO_LATENCY);
+
+		// the outcomes of the current interval
+		private final AtomicInteger requests = new AtomicInteger();
+
+		private final AtomicInteger failures = new AtomicInteger();
+
+		private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+		// the number of times the instance was ejected in a row, which the back-off
+		// grows with
+		private final AtomicInteger ejections = new AtomicInteger();
+
+		private final AtomicLong totalEjections = new AtomicLong();
+
+		private volatile long ejectedUntil;
+
+		private volatile boolean healthy = true;
+
+		// the health checks in a row that disagree with the current health
+		private final AtomicInteger healthChecks = new AtomicInteger();
+
+		private InstanceStats(String serviceId, String address, double alpha,
+				LongSupplier clock) {
+			this.serviceId = serviceId;
+			this.address = address;
+			this.alpha = alpha;
+			this.clock = clock;
+			this.ejectedUntil = clock.getAsLong();
+		}
+
+		long start() {
+			inFlight.incrementAndGet();
+			return clock.getAsLong();
+		}
+
+		void end(long start, SignalType signal) {
+			inFlight.decrementAndGet();
+			if (signal == SignalType.CANCEL) {
+				return;
+			}
+			double elapsed = clock.getAsLong() - start;
+			long current;
+			long next;
+			do {
+				current = latency.get();
+				double average = Double.longBitsToDouble(current);
+				double sample = elapsed;
+				if (signal == SignalType.ON_ERROR && !Double.isNaN(average)) {
+					sample = Math.max(sample, ERROR_PENALTY * average);
+				}
+				next = Double.doubleToRawLongBits(Double.isNaN(average) ? sample
+						: average + alpha * (sample - average));
+			}
+			while (!latency.compareAndSet(current, next));
+		}
+
+		/**
+		 * Returns the id of the service of the instance.
+		 * @return the service id
+		 */
+		public String getServiceId() {
+			return serviceId;
+		}
+
+		/**
+		 * Returns the host and port of the instance.
+		 * @return the address of the instance
+		 */
+		public String getAddress() {
+			return address;
+		}
+
+		/**
+		 * Returns the number of requests routed to the instance that have not completed.
+		 * @return the requests in flight
+		 */
+		public int getInFlight() {
+			return inFlight.get();
+		}
+
+		/**
+		 * Returns the moving average of the latency of the requests routed to the
+		 * instance, in nanoseconds.
+		 * @return the average latency, or {@link Double#NaN} before the first request
+		 * completed
+		 */
+		public double getLatency() {
+			return Double.longBitsToDouble(latency.get());
+		}
+
+		/**
+		 * Returns the number of requests routed to the instance that failed in a row.
+		 * @return the consecutive failures
+		 */
+		public int getConsecutiveFailures() {
+			return consecutiveFailures.get();
+		}
+
+		/**
+		 * Returns whether the instance is ejected from load balancing.
+		 * @return whether the instance is ejected
+		 */
+		public boolean isEjected() {
+			return clock.getAsLong() - ejectedUntil < 0;
+		}
+
+		/**
+		 * Returns whether the last health checks of the instance succeeded, or whether it
+		 * is not checked.
+		 * @return whether the instance is healthy
+		 */
+		public boolean isHealthy() {
+			return healthy;
+		}
+
+		/**
+		 * Returns whether the instance is neither ejected nor unhealthy.
+		 * @return whether the instance is available
+		 */
+		public boolean isAvailable() {
+			return healthy && !isEjected();
+		}
+
+		/**
+		 * Returns the number of times the instance was ejected.
+		 * @return the number of ejections
+		 */
+		public long getEjections() {
+			return totalEjections.get();
+		}
+
+		@Override
+		public String toString() {
+			return "InstanceStats{serviceId=" + serviceId + ", address=" + address
+					+ ", inFlight=" + getInFlight() + ", latency=" + getLatency()
+					+ ", ejected=" + isEjected() + ", ejections=" + getEjections()
+					+ ", healthy=" + isHealthy() + "}";
+		}
+
+	}
+
+}
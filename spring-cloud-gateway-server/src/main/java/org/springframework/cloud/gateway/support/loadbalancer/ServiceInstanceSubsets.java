@@ -0,0 +1,183 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support.loadbalancer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.util.Assert;
+
+/**
+ * Chooses, for the gateway node it is given the id of, a subset of a bounded size of the
+ * instances of every service, so that the node only opens connections to the instances of
+ * its subset.
+ * <p>
+ * The subsets are chosen deterministically, so that every node computes the same ones
+ * without coordination. The instances, sorted by address, are shuffled over and over,
+ * with the number of the shuffle as the seed, and the node takes the instances at the
+ * position of its id in that endless sequence, each node id after the other. With
+ * consecutive numeric node ids, every instance is taken by as many nodes as the others,
+ * but for the subsets that wrap around into the next shuffle, which skip the instances
+ * they already took. Other node ids are hashed, which spreads them evenly on average.
+ * <p>
+ * The subset of a service is only chosen again when its instances change.
+ */
+public class ServiceInstanceSubsets {
+
+	private final String nodeId;
+
+	private final long node;
+
+	private final int size;
+
+	private final Map<String, Subset> subsets = new ConcurrentHashMap<>();
+
+	public ServiceInstanceSubsets(String nodeId, int size) {
+		Assert.hasText(nodeId, "nodeId must not be empty");
+		Assert.isTrue(size > 0, "size must be greater than 0");
+		this.nodeId = nodeId;
+		this.node = toNode(nodeId);
+		this.size = size;
+	}
+
+	private static long toNode(String nodeId) {
+		try {
+			long node = Long.parseLong(nodeId);
+			if (node >= 0) {
+				return node;
+			}
+		}
+		catch (NumberFormatException ex) {
+			// hashed below
+		}
+		return ConsistentHashLoadBalancer.hash(nodeId) & Long.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the id of the gateway node.
+	 * @return the node id
+	 */
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	/**
+	 * Returns the number of instances of a subset.
+	 * @return the size of the subsets
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the instances of a service that requests should be balanced over.
+	 * @param serviceId the id of the service
+	 * @param instances every instance of the service
+	 * @return the subset of the node, or every instance when there are no more than the
+	 * size of a subset
+	 */
+	public List<ServiceInstance> select(String serviceId,
+			List<ServiceInstance> instances) {
+		if (instances.size() <= size) {
+			return instances;
+		}
+		Subset subset = subsets.get(serviceId);
+		if (subset == null || !subset.isChosenFrom(instances)) {
+			subset = new Subset(instances, choose(instances));
+			subsets.put(serviceId, subset);
+		}
+		return subset.instances;
+	}
+
+	private List<ServiceInstance> choose(List<ServiceInstance> instances) {
+		List<ServiceInstance> sorted = new ArrayList<>(instances);
+		sorted.sort(Comparator.comparing(ServiceInstanceSubsets::address));
+		int count = sorted.size();
+		// the subset starts at node * size in the sequence of shuffles, without overflow
+		long shuffle = node / count * size + node % count * size / count;
+		int position = (int) (node % count * size % count);
+		List<Integer> order = shuffled(count, shuffle);
+		boolean[] taken = new boolean[count];
+		List<ServiceInstance> subset = new ArrayList<>(size);
+		while (subset.size() < size) {
+			if (position == count) {
+				order = shuffled(count, ++shuffle);
+				position = 0;
+			}
+			int index = order.get(position++);
+			if (!taken[index]) {
+				taken[index] = true;
+				subset.add(sorted.get(index));
+			}
+		}
+		return Collections.unmodifiableList(subset);
+	}
+
+	private static List<Integer> shuffled(int count, long seed) {
+		List<Integer> order = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			order.add(i);
+		}
+		Collections.shuffle(order, new Random(seed));
+		return order;
+	}
+
+	private static String address(ServiceInstance instance) {
+		return instance.getHost() + ":" + instance.getPort();
+	}
+
+	private static final class Subset {
+
+		private final List<ServiceInstance> chosenFrom;
+
+		private final List<ServiceInstance> instances;
+
+		private Subset(List<ServiceInstance> chosenFrom,
+				List<ServiceInstance> instances) {
+			this.chosenFrom = chosenFrom;
+			this.instances = instances;
+		}
+
+		// the supplier of the instances usually hands out the same list until they change
+		private boolean isChosenFrom(List<ServiceInstance> instances) {
+			if (instances == chosenFrom) {
+				return true;
+			}
+			if (instances.size() != chosenFrom.size()) {
+				return false;
+			}
+			for (int i = 0; i < instances.size(); i++) {
+				ServiceInstance a = instances.get(i);
+				ServiceInstance b = chosenFrom.get(i);
+				if (a.getPort() != b.getPort()
+						|| !Objects.equals(a.getHost(), b.getHost())) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+}
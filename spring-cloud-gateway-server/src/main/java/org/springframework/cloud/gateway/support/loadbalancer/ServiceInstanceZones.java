@@ -0,0 +1,369 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support.loadbalancer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.gateway.config.LoadBalancerProperties.ZoneAwareness;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceStats.InstanceStats;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Narrows the instances of a service that requests are balanced over to those in the zone
+ * of the gateway, according to their {@code zone} metadata, as long as enough of them are
+ * available and they are not much more loaded than the instances in the other zones.
+ * Otherwise, requests spill over to every zone.
+ * <p>
+ * Availability and load are read from the {@link ServiceInstanceStats}: an instance is
+ * available when it is neither ejected by outlier detection nor unhealthy, and its load
+ * is the number of requests in flight to it, plus one. Without statistics, requests stay
+ * in the zone of the gateway whenever it has instances.
+ * <p>
+ * For every service, the requests and those that spilled over are counted, and the share
+ * of the requests that spilled over is averaged over time, with the requests of the last
+ * {@link #DEFAULT_WINDOW window} weighing the most, however many requests there are.
+ */
+public class ServiceInstanceZones {
+
+	/**
+	 * The metadata key of the zone of an instance.
+	 */
+	public static final String ZONE = "zone";
+
+	/**
+	 * The default time constant of the average spill ratio.
+	 */
+	public static final Duration DEFAULT_WINDOW = Duration.ofSeconds(30);
+
+	private final String zone;
+
+	private final ZoneAwareness properties;
+
+	@Nullable
+	private final ServiceInstanceStats stats;
+
+	private final long window;
+
+	private final LongSupplier clock;
+
+	private final Map<String, ZoneStats> services = new ConcurrentHashMap<>();
+
+	// the instances of every service as last split by zone
+	private final Map<String, Split> splits = new ConcurrentHashMap<>();
+
+	private final List<Consumer<ZoneStats>> listeners = new CopyOnWriteArrayList<>();
+
+	public ServiceInstanceZones(String zone, ZoneAwareness properties,
+			@Nullable ServiceInstanceStats stats) {
+		this(zone, properties, stats, DEFAULT_WINDOW, System::nanoTime);
+	}
+
+	ServiceInstanceZones(String zone, ZoneAwareness properties,
+			@Nullable ServiceInstanceStats stats, Duration window, LongSupplier clock) {
+		Assert.hasText(zone, "zone must not be empty");
+		Assert.isTrue(
+				properties.getMinAvailable() >= 0 && properties.getMinAvailable() <= 1,
+				"minAvailable must be in [0, 1]");
+		Assert.isTrue(properties.getLoadFactor() >= 1, "loadFactor must be at least 1");
+		Assert.isTrue(!window.isNegative() && !window.isZero(),
+				"window must be positive");
+		this.zone = zone;
+		this.properties = properties;
+		this.stats = stats;
+		this.window = window.toNanos();
+		this.clock = clock;
+	}
+
+	/**
+	 * Returns the zone of the gateway.
+	 * @return the zone
+	 */
+	public String getZone() {
+		return zone;
+	}
+
+	/**
+	 * Returns the instances that a request to a service should be balanced over.
+	 * @param serviceId the id of the service
+	 * @param instances every instance of the service
+	 * @return the instances in the zone of the gateway, or every instance when requests
+	 * spill over
+	 */
+	public List<ServiceInstance> select(String serviceId,
+			List<ServiceInstance> instances) {
+		if (instances.isEmpty()) {
+			return instances;
+		}
+		Split split = splits.get(serviceId);
+		if (split == null || !split.isSplitFrom(instances)) {
+			split = new Split(instances);
+			splits.put(serviceId, split);
+		}
+		boolean spill = split.local.isEmpty()
+				|| (!split.remote.isEmpty() && shouldSpill(split));
+		get(serviceId).record(spill);
+		return spill || split.remote.isEmpty() ? instances : split.local;
+	}
+
+	private boolean isLocal(ServiceInstance instance) {
+		Map<String, String> metadata = instance.getMetadata();
+		return metadata != null && zone.equalsIgnoreCase(metadata.get(ZONE));
+	}
+
+	private boolean shouldSpill(Split split) {
+		if (stats == null) {
+			return false;
+		}
+		Load localLoad = load(split.local, split.localAddresses);
+		if (localLoad.available == 0 || localLoad.available < properties.getMinAvailable()
+				* split.local.size()) {
+			return true;
+		}
+		Load remoteLoad = load(split.remote, split.remoteAddresses);
+		return remoteLoad.available > 0
+				&& localLoad.get() > properties.getLoadFactor() * remoteLoad.get();
+	}
+
+	private Load load(List<ServiceInstance> instances, String[] addresses) {
+		Load load = new Load();
+		for (int i = 0; i < addresses.length; i++) {
+			InstanceStats instanceStats = stats
+					.find(String.valueOf(instances.get(i).getServiceId()), addresses[i]);
+			// an instance without statistics got no request yet, so it is idle
+			if (instanceStats == null) {
+				load.available++;
+			}
+			else if (instanceStats.isAvailable()) {
+				load.available++;
+				load.inFlight += instanceStats.getInFlight();
+			}
+		}
+		return load;
+	}
+
+	/**
+	 * Returns the statistics of a service, creating them on first use.
+	 * @param serviceId the id of the service
+	 * @return the statistics of the service
+	 */
+	public ZoneStats get(String serviceId) {
+		ZoneStats zoneStats = services.get(serviceId);
+		if (zoneStats == null) {
+			ZoneStats created = new ZoneStats(serviceId, window, clock);
+			zoneStats = services.putIfAbsent(serviceId, created);
+			if (zoneStats == null) {
+				zoneStats = created;
+				listeners.forEach(listener -> listener.accept(created));
+			}
+		}
+		return zoneStats;
+	}
+
+	/**
+	 * Calls the given consumer with the statistics of every service known so far, and of
+	 * every service that requests are routed to later on.
+	 * @param consumer the consumer of the statistics
+	 */
+	public void onService(Consumer<ZoneStats> consumer) {
+		listeners.add(consumer);
+		services.values().forEach(consumer);
+	}
+
+	// the instances of a service in the zone of the gateway and in the other zones
+	private final class Split {
+
+		private final List<ServiceInstance> splitFrom;
+
+		private final List<ServiceInstance> local;
+
+		private final List<ServiceInstance> remote;
+
+		// the addresses the statistics of the instances are kept by
+		private final String[] localAddresses;
+
+		private final String[] remoteAddresses;
+
+		private Split(List<ServiceInstance> instances) {
+			List<ServiceInstance> local = new ArrayList<>();
+			List<ServiceInstance> remote = new ArrayList<>();
+			for (ServiceInstance instance : instances) {
+				(isLocal(instance) ? local : remote).add(instance);
+			}
+			this.splitFrom = instances;
+			this.local = Collections.unmodifiableList(local);
+			this.remote = Collections.unmodifiableList(remote);
+			this.localAddresses = addresses(local);
+			this.remoteAddresses = addresses(remote);
+		}
+
+		private String[] addresses(List<ServiceInstance> instances) {
+			String[] addresses = new String[instances.size()];
+			for (int i = 0; i < addresses.length; i++) {
+				addresses[i] = ServiceInstanceStats.address(instances.get(i));
+			}
+			return addresses;
+		}
+
+		// the supplier of the instances usually hands out the same list until they
+		// change; the instances themselves are compared, as their zone is in their
+		// metadata
+		private boolean isSplitFrom(List<ServiceInstance> instances) {
+			if (instances == splitFrom) {
+				return true;
+			}
+			if (instances.size() != splitFrom.size()) {
+				return false;
+			}
+			for (int i = 0; i < instances.size(); i++) {
+				if (instances.get(i) != splitFrom.get(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+	// the average load of the available instances of a zone
+	private static final class Load {
+
+		private int available;
+
+		private long inFlight;
+
+		private double get() {
+			return (double) inFlight / available + 1;
+		}
+
+	}
+
+	/**
+	 * How many of the requests to a service spilled over to other zones.
+	 */
+	public static final class ZoneStats {
+
+		private final String serviceId;
+
+		private final long window;
+
+		private final LongSupplier clock;
+
+		private final AtomicLong requests = new AtomicLong();
+
+		private final AtomicLong spilled = new AtomicLong();
+
+		// the requests and those that spilled over, decayed with the time since then
+		private final AtomicReference<Decayed> decayed;
+
+		private ZoneStats(String serviceId, long window, LongSupplier clock) {
+			this.serviceId = serviceId;
+			this.window = window;
+			this.clock = clock;
+			this.decayed = new AtomicReference<>(new Decayed(0, 0, clock.getAsLong()));
+		}
+
+		private void record(boolean spill) {
+			requests.incrementAndGet();
+			if (spill) {
+				spilled.incrementAndGet();
+			}
+			long now = clock.getAsLong();
+			Decayed current;
+			Decayed next;
+			do {
+				current = decayed.get();
+				double decay = Math
+						.exp(-(double) Math.max(0, now - current.time) / window);
+				next = new Decayed(current.requests * decay + 1,
+						current.spilled * decay + (spill ? 1 : 0),
+						Math.max(now, current.time));
+			}
+			while (!decayed.compareAndSet(current, next));
+		}
+
+		/**
+		 * Returns the id of the service.
+		 * @return the service id
+		 */
+		public String getServiceId() {
+			return serviceId;
+		}
+
+		/**
+		 * Returns the number of requests to the service.
+		 * @return the number of requests
+		 */
+		public long getRequests() {
+			return requests.get();
+		}
+
+		/**
+		 * Returns the number of requests to the service that spilled over to other zones.
+		 * @return the number of requests that spilled over
+		 */
+		public long getSpilled() {
+			return spilled.get();
+		}
+
+		/**
+		 * Returns the share of the requests to the service that spilled over to other
+		 * zones, weighted by how recent they are.
+		 * @return the spill ratio, or {@code 0} before the first request
+		 */
+		public double getSpillRatio() {
+			Decayed current = decayed.get();
+			return current.requests > 0 ? current.spilled / current.requests : 0;
+		}
+
+		@Override
+		public String toString() {
+			return "ZoneStats{serviceId=" + serviceId + ", requests=" + getRequests()
+					+ ", spilled=" + getSpilled() + ", spillRatio=" + getSpillRatio()
+					+ "}";
+		}
+
+	}
+
+	private static final class Decayed {
+
+		private final double requests;
+
+		private final double spilled;
+
+		private final long time;
+
+		private Decayed(double requests, double spilled, long time) {
+			this.requests = requests;
+			this.spilled = spilled;
+			this.time = time;
+		}
+
+	}
+
+}
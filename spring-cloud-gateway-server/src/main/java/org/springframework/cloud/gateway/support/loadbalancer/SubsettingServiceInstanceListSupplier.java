@@ -0,0 +1,56 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support.loadbalancer;
+
+import java.util.List;
+
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.DelegatingServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+/**
+ * A {@link ServiceInstanceListSupplier} that narrows the instances supplied by its
+ * delegate to the subset the {@link ServiceInstanceSubsets} choose for the gateway node.
+ */
+public class SubsettingServiceInstanceListSupplier extends
+		DelegatingServiceInstanceListSupplier implements SelectedInstanceCallback {
+
+	private final ServiceInstanceSubsets subsets;
+
+	public SubsettingServiceInstanceListSupplier(ServiceInstanceListSupplier delegate,
+			ServiceInstanceSubsets subsets) {
+		super(delegate);
+		this.subsets = subsets;
+	}
+
+	@Override
+	public Flux<List<ServiceInstance>> get() {
+		return delegate.get().map(instances -> subsets.select(getServiceId(), instances));
+	}
+
+	@Override
+	public void selectedServiceInstance(ServiceInstance serviceInstance) {
+		if (delegate instanceof SelectedInstanceCallback) {
+			((SelectedInstanceCallback) delegate)
+					.selectedServiceInstance(serviceInstance);
+		}
+	}
+
+}
@@ -107,6 +107,19 @@ public class GatewayControllerEndpointTests {
 								Maps.newHashMap("name", "value")));
 	}
 
+	@Test
+	public void testWeights() {
+		testClient.get().uri("http://localhost:" + port + "/actuator/gateway/weights")
+				.exchange().expectStatus().isOk().expectBody()
+				.jsonPath("$.weight-group.weight-service").isEqualTo(3.0);
+	}
+
+	@Test
+	public void testInstances() {
+		testClient.get().uri("http://localhost:" + port + "/actuator/gateway/instances")
+				.exchange().expectStatus().isOk().expectBody(Map.class);
+	}
+
 	@Test
 	public void testRouteFilters() {
 		testClient.get()
@@ -203,6 +216,9 @@ public class GatewayControllerEndpointTests {
 			return routeLocatorBuilder.routes()
 					.route("test-service",
 							r -> r.path("/test-service/**").uri("lb://test-service"))
+					.route("weight-service",
+							r -> r.path("/weight-service/**").and()
+									.weight("weight-group", 3).uri("lb://weight-service"))
 					.build();
 		}
 
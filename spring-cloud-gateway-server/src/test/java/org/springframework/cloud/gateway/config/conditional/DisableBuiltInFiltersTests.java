@@ -108,6 +108,11 @@ public class DisableBuiltInFiltersTests {
 			"spring.cloud.gateway.filter.strip-prefix.enabled=false",
 			"spring.cloud.gateway.filter.request-header-to-request-uri.enabled=false",
 			"spring.cloud.gateway.filter.request-size.enabled=false",
+			"spring.cloud.gateway.filter.response-size.enabled=false",
+			"spring.cloud.gateway.filter.ip-filter.enabled=false",
+			"spring.cloud.gateway.filter.consistent-hash.enabled=false",
+			"spring.cloud.gateway.filter.transcode.enabled=false",
+			"spring.cloud.gateway.filter.fan-out.enabled=false",
 			"spring.cloud.gateway.filter.request-header-size.enabled=false",
 			"spring.cloud.gateway.filter.circuit-breaker.enabled=false",
 			"spring.cloud.gateway.filter.hystrix.enabled=false",
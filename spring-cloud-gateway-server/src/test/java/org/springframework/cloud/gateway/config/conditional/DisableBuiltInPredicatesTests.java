@@ -83,12 +83,14 @@ public class DisableBuiltInPredicatesTests {
 			"spring.cloud.gateway.predicate.before.enabled=false",
 			"spring.cloud.gateway.predicate.between.enabled=false",
 			"spring.cloud.gateway.predicate.cookie.enabled=false",
+			"spring.cloud.gateway.predicate.dispatch.enabled=false",
 			"spring.cloud.gateway.predicate.header.enabled=false",
 			"spring.cloud.gateway.predicate.host.enabled=false",
 			"spring.cloud.gateway.predicate.method.enabled=false",
 			"spring.cloud.gateway.predicate.path.enabled=false",
 			"spring.cloud.gateway.predicate.query.enabled=false",
 			"spring.cloud.gateway.predicate.read-body.enabled=false",
+			"spring.cloud.gateway.predicate.json-pointer.enabled=false",
 			"spring.cloud.gateway.predicate.remote-addr.enabled=false",
 			"spring.cloud.gateway.predicate.weight.enabled=false",
 			"spring.cloud.gateway.predicate.cloud-foundry-route-service.enabled=false" })
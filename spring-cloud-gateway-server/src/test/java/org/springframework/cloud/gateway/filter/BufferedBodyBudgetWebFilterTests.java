@@ -0,0 +1,113 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import reactor.core.publisher.Mono;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
+import org.springframework.cloud.gateway.support.BufferedBodyBudget;
+import org.springframework.cloud.gateway.test.BaseWebClientTests;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.reactive.function.BodyInserters;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT,
+		properties = { "spring.cloud.gateway.buffered-body.enabled=true",
+				"spring.cloud.gateway.buffered-body.max-size=16B" })
+@DirtiesContext
+public class BufferedBodyBudgetWebFilterTests extends BaseWebClientTests {
+
+	@Autowired
+	private BufferedBodyBudget budget;
+
+	@Test
+	public void bodyWithinBudgetIsModified() throws Exception {
+		testClient.post().uri("/post").header("Host", "www.bufferedbody.org")
+				.header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
+				.body(BodyInserters.fromValue("request")).exchange().expectStatus().isOk()
+				.expectBody().jsonPath("data").isEqualTo("REQUEST");
+		assertBudgetReleased();
+	}
+
+	@Test
+	public void bodyLargerThanBudgetIsRejected() throws Exception {
+		testClient.post().uri("/post").header("Host", "www.bufferedbody.org")
+				.header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
+				.body(BodyInserters.fromValue("a request larger than the budget"))
+				.exchange().expectStatus().isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+		assertBudgetReleased();
+	}
+
+	@Test
+	public void readBodyLargerThanBudgetIsRejected() throws Exception {
+		testClient.post().uri("/post").header("Host", "www.bufferedreadbody.org")
+				.header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
+				.body(BodyInserters.fromValue("a request larger than the budget"))
+				.exchange().expectStatus().isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+		assertBudgetReleased();
+	}
+
+	// the reservation is released once the exchange completes, which may be just
+	// after the client has received the response
+	private void assertBudgetReleased() throws InterruptedException {
+		for (int i = 0; i < 100 && budget.getUsedBytes() != 0; i++) {
+			Thread.sleep(50);
+		}
+		assertThat(budget.getUsedBytes()).isZero();
+	}
+
+	@EnableAutoConfiguration
+	@SpringBootConfiguration
+	@Import(DefaultTestConfig.class)
+	public static class TestConfig {
+
+		@Value("${test.uri}")
+		String uri;
+
+		@Bean
+		public RouteLocator testRouteLocator(RouteLocatorBuilder builder) {
+			return builder.routes().route("test_buffered_body",
+					r -> r.order(-1).host("**.bufferedbody.org")
+							.filters(f -> f.modifyRequestBody(String.class, String.class,
+									(exchange, s) -> Mono.just(s.toUpperCase())))
+							.uri(uri))
+					.route("test_buffered_read_body",
+							r -> r.order(-1).host("**.bufferedreadbody.org").and()
+									.readBody(String.class, s -> true).uri(uri))
+					.build();
+		}
+
+	}
+
+}
@@ -17,7 +17,9 @@
 package org.springframework.cloud.gateway.filter;
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.LinkedHashSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.netflix.loadbalancer.ILoadBalancer;
 import com.netflix.loadbalancer.Server;
@@ -28,6 +30,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import org.springframework.cloud.client.DefaultServiceInstance;
 import org.springframework.cloud.client.ServiceInstance;
@@ -46,8 +49,10 @@ import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -111,7 +116,7 @@ public class LoadBalancerClientFilterTests {
 		exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, uri);
 
 		try {
-			loadBalancerClientFilter.filter(exchange, chain);
+			loadBalancerClientFilter.filter(exchange, chain).block();
 		}
 		catch (NotFoundException e) {
 			assertThat(e.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
@@ -127,7 +132,7 @@ public class LoadBalancerClientFilterTests {
 		exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, uri);
 		properties.setUse404(true);
 		try {
-			loadBalancerClientFilter.filter(exchange, chain);
+			loadBalancerClientFilter.filter(exchange, chain).block();
 		}
 		catch (NotFoundException e) {
 			assertThat(e.getStatus()).isEqualTo(HttpStatus.NOT_FOUND);
@@ -150,8 +155,11 @@ public class LoadBalancerClientFilterTests {
 				.build().toUri();
 		when(loadBalancerClient.reconstructURI(any(ServiceInstance.class),
 				any(URI.class))).thenReturn(requestUrl);
+		when(chain.filter(exchange)).thenReturn(Mono.empty());
 
-		loadBalancerClientFilter.filter(exchange, chain);
+		loadBalancerClientFilter = new LoadBalancerClientFilter(loadBalancerClient,
+				properties);
+		loadBalancerClientFilter.filter(exchange, chain).block();
 
 		LinkedHashSet<URI> attribute = exchange
 				.getAttribute(GATEWAY_ORIGINAL_REQUEST_URL_ATTR);
@@ -175,6 +183,128 @@ public class LoadBalancerClientFilterTests {
 		verifyNoMoreInteractions(chain);
 	}
 
+	@Test
+	public void shouldRouteWithInstancesChosenAhead() {
+		URI url = UriComponentsBuilder.fromUriString("lb://myservice").build().toUri();
+		AtomicInteger chosen = new AtomicInteger();
+		when(loadBalancerClient.choose("myservice"))
+				.thenAnswer(invocation -> new DefaultServiceInstance(
+						"myservice" + chosen.incrementAndGet(), "myservice",
+						"myservice-host" + chosen.get(), 8080, false));
+		when(loadBalancerClient.reconstructURI(any(ServiceInstance.class),
+				any(URI.class)))
+						.thenAnswer(invocation -> URI.create("http://"
+								+ invocation.<ServiceInstance>getArgument(0).getHost()));
+		when(chain.filter(any())).thenReturn(Mono.empty());
+		properties.setPrefetch(4);
+		loadBalancerClientFilter = new LoadBalancerClientFilter(loadBalancerClient,
+				properties);
+
+		assertThat(routedHost(url)).isNotNull();
+		verify(loadBalancerClient, timeout(5000).atLeast(5)).choose("myservice");
+
+		// the load balancer is down, the instances chosen ahead are still used
+		when(loadBalancerClient.choose("myservice"))
+				.thenThrow(new IllegalStateException("down"));
+		assertThat(routedHost(url)).startsWith("myservice-host");
+		assertThat(routedHost(url)).startsWith("myservice-host");
+	}
+
+	@Test
+	public void shouldNotBlockTheRequestPathWhileChoosing() {
+		URI url = UriComponentsBuilder.fromUriString("lb://myservice").build().toUri();
+		when(loadBalancerClient.choose("myservice")).thenAnswer(invocation -> {
+			// a blocking load balancer, such as Ribbon fetching its server list
+			Thread.sleep(10);
+			return new DefaultServiceInstance("myservice1", "myservice", "localhost",
+					8080, false);
+		});
+		when(loadBalancerClient.reconstructURI(any(ServiceInstance.class),
+				any(URI.class))).thenReturn(URI.create("http://localhost:8080"));
+		when(chain.filter(any())).thenReturn(Mono.empty());
+
+		// BlockHound fails any of these if choose is called on the parallel scheduler
+		properties.setPrefetch(4);
+		loadBalancerClientFilter = new LoadBalancerClientFilter(loadBalancerClient,
+				properties);
+		for (int i = 0; i < 20; i++) {
+			routedHost(url);
+		}
+		LoadBalancerClientFilter overriding = new LoadBalancerClientFilter(
+				loadBalancerClient, properties) {
+			@Override
+			protected ServiceInstance choose(ServerWebExchange exchange) {
+				return super.choose(exchange);
+			}
+		};
+		ServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("http://localhost/get").build());
+		exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, url);
+		overriding.filter(exchange, chain).subscribeOn(Schedulers.parallel()).block();
+
+		assertThat((URI) exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR))
+				.hasHost("localhost");
+	}
+
+	@Test
+	public void shouldRefillOnceAtATimeWhenChoosingTimesOut() throws Exception {
+		URI url = UriComponentsBuilder.fromUriString("lb://myservice").build().toUri();
+		AtomicInteger choosing = new AtomicInteger();
+		AtomicInteger maxChoosing = new AtomicInteger();
+		when(loadBalancerClient.choose("myservice")).thenAnswer(invocation -> {
+			maxChoosing.accumulateAndGet(choosing.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(300);
+				return null;
+			}
+			finally {
+				choosing.decrementAndGet();
+			}
+		});
+		when(loadBalancerClient.reconstructURI(any(ServiceInstance.class),
+				any(URI.class))).thenReturn(URI.create("http://localhost:8080"));
+		when(chain.filter(any())).thenReturn(Mono.empty());
+		properties.setPrefetch(4);
+		properties.setChooseTimeout(Duration.ofMillis(50));
+		// only the refills call the load balancer client
+		loadBalancerClientFilter = new LoadBalancerClientFilter(loadBalancerClient,
+				properties) {
+			@Override
+			protected ServiceInstance choose(ServerWebExchange exchange) {
+				return new DefaultServiceInstance("myservice1", "myservice", "localhost",
+						8080, false);
+			}
+		};
+
+		for (int i = 0; i < 5; i++) {
+			assertThat(routedHost(url)).isEqualTo("localhost");
+			Thread.sleep(100);
+		}
+
+		verify(loadBalancerClient, timeout(5000).times(2)).choose("myservice");
+		assertThat(maxChoosing).hasValue(1);
+	}
+
+	@Test
+	public void shouldFailWhenChoosingTimesOut() {
+		URI url = UriComponentsBuilder.fromUriString("lb://myservice").build().toUri();
+		exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, url);
+		when(loadBalancerClient.choose("myservice")).thenAnswer(invocation -> {
+			Thread.sleep(500);
+			return null;
+		});
+		properties.setChooseTimeout(Duration.ofMillis(50));
+		loadBalancerClientFilter = new LoadBalancerClientFilter(loadBalancerClient,
+				properties);
+
+		assertThatThrownBy(() -> loadBalancerClientFilter.filter(exchange, chain)
+				.subscribeOn(Schedulers.parallel()).block())
+						.isInstanceOf(NotFoundException.class)
+						.satisfies(e -> assertThat(((NotFoundException) e).getStatus())
+								.isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+		verifyNoInteractions(chain);
+	}
+
 	@Test
 	public void instanceOverrideNonSecureScheme() {
 		MockServerHttpRequest request = MockServerHttpRequest.get("https://localhost")
@@ -322,6 +452,7 @@ public class LoadBalancerClientFilterTests {
 
 	@Test
 	public void shouldSelectSpecifiedServer() {
+		when(chain.filter(any())).thenReturn(Mono.empty());
 		URI uri1 = UriComponentsBuilder.fromUriString("lb://myservice").port(11111)
 				.build().toUri();
 		URI uri2 = UriComponentsBuilder.fromUriString("lb://myservice").port(22222)
@@ -369,18 +500,28 @@ public class LoadBalancerClientFilterTests {
 		ServerWebExchange exchange = MockServerWebExchange.from(request);
 
 		exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, uri1);
-		loadBalancerClientFilter.filter(exchange, chain);
+		loadBalancerClientFilter.filter(exchange, chain).block();
 		assertThat(
 				((URI) exchange.getAttributes().get(GATEWAY_REQUEST_URL_ATTR)).getHost())
 						.isEqualTo("myservice-host1");
 
 		exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, uri2);
-		loadBalancerClientFilter.filter(exchange, chain);
+		loadBalancerClientFilter.filter(exchange, chain).block();
 		assertThat(
 				((URI) exchange.getAttributes().get(GATEWAY_REQUEST_URL_ATTR)).getHost())
 						.isEqualTo("myservice-host2");
 	}
 
+	// routes a request off the event loop, with BlockHound watching
+	private String routedHost(URI url) {
+		ServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("http://localhost/get").build());
+		exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, url);
+		loadBalancerClientFilter.filter(exchange, chain)
+				.subscribeOn(Schedulers.parallel()).block();
+		return ((URI) exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR)).getHost();
+	}
+
 	private ServerWebExchange testFilter(MockServerHttpRequest request, URI uri) {
 		return testFilter(MockServerWebExchange.from(request), uri, 8081);
 	}
@@ -410,7 +551,7 @@ public class LoadBalancerClientFilterTests {
 
 		LoadBalancerClientFilter filter = new LoadBalancerClientFilter(client,
 				properties);
-		filter.filter(exchange, chain);
+		filter.filter(exchange, chain).block();
 
 		return captor.getValue();
 	}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.gateway.test.BaseWebClientTests;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.cloud.gateway.httpclient.fused-headers-filters=true",
+		webEnvironment = RANDOM_PORT)
+@DirtiesContext
+public class NettyRoutingFilterFusedHeadersFiltersTests extends BaseWebClientTests {
+
+	@Autowired
+	private NettyRoutingFilter routingFilter;
+
+	@Test
+	public void requestHeadersAreFiltered() {
+		WebTestClient client = testClient.mutate().baseUrl("http://127.0.0.1:" + port)
+				.build();
+
+		client.get().uri("/headers").header("X-Custom", "custom")
+				.header("Proxy-Authorization", "secret")
+				.header("X-Forwarded-For", "10.0.0.1").exchange().expectStatus().isOk()
+				.expectBody().jsonPath("$.headers.X-Custom").isEqualTo("custom")
+				.jsonPath("$.headers.Proxy-Authorization").doesNotExist()
+				.jsonPath("$.headers.X-Forwarded-For").isEqualTo("10.0.0.1,127.0.0.1")
+				.jsonPath("$.headers.host").isEqualTo("localhost:" + port);
+
+		assertThat(routingFilter).extracting("fusedRequestHeadersFilter").isNotNull();
+	}
+
+	@Test
+	public void responseHeadersAreFilteredInPlace() {
+		Map<String, String> responseHeaders = new HashMap<>();
+		responseHeaders.put("X-Response", "response");
+		responseHeaders.put("Proxy-Authenticate", "Basic");
+
+		testClient.patch().uri("/headers").contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(responseHeaders).exchange().expectStatus().isOk()
+				.expectHeader().valueEquals("X-Response", "response").expectHeader()
+				.doesNotExist("Proxy-Authenticate");
+
+		assertThat(routingFilter).extracting("fusedResponseHeadersFilter").isNotNull();
+	}
+
+	@EnableAutoConfiguration
+	@SpringBootConfiguration
+	@Import(DefaultTestConfig.class)
+	public static class TestConfig {
+
+	}
+
+}
@@ -17,7 +17,10 @@
 package org.springframework.cloud.gateway.filter;
 
 import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -28,15 +31,28 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import reactor.core.publisher.Mono;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.cloud.client.DefaultServiceInstance;
 import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.reactive.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.reactive.Response;
+import org.springframework.cloud.gateway.config.GatewayReactiveLoadBalancerClientAutoConfiguration;
 import org.springframework.cloud.gateway.config.LoadBalancerProperties;
 import org.springframework.cloud.gateway.support.NotFoundException;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceStats;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceSubsets;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceZones;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClientSpecification;
 import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
 import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
 import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
 import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
 import org.springframework.cloud.loadbalancer.support.ServiceInstanceSuppliers;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
@@ -45,6 +61,7 @@ import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -52,6 +69,7 @@ import static org.mockito.Mockito.when;
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ORIGINAL_REQUEST_URL_ATTR;
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_SCHEME_PREFIX_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.LOAD_BALANCER_HASH_KEY_ATTR;
 
 /**
  * Tests for {@link ReactiveLoadBalancerClientFilter}.
@@ -291,6 +309,192 @@ public class ReactiveLoadBalancerClientFilterTests {
 		verifyNoMoreInteractions(chain);
 	}
 
+	@Test
+	public void shouldChooseLeastLoadedInstanceAndRecordItsStats() {
+		URI url = UriComponentsBuilder.fromUriString("lb://myservice").build().toUri();
+		exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, url);
+		ServiceInstance busy = new DefaultServiceInstance("myservice1", "myservice",
+				"busy", 8080, false);
+		ServiceInstance idle = new DefaultServiceInstance("myservice2", "myservice",
+				"idle", 8080, false);
+		when(clientFactory.getLazyProvider("myservice",
+				ServiceInstanceListSupplier.class)).thenReturn(
+						ServiceInstanceListSuppliers.toProvider("myservice", busy, idle));
+		ServiceInstanceStats stats = new ServiceInstanceStats();
+		stats.record(busy, Mono.never()).subscribe();
+		when(chain.filter(exchange)).thenReturn(Mono.fromRunnable(
+				() -> assertThat(stats.get(idle).getInFlight()).isEqualTo(1)));
+		properties.setStrategy(LoadBalancerProperties.Strategy.LEAST_LOADED);
+		ReactiveLoadBalancerClientFilter filter = new ReactiveLoadBalancerClientFilter(
+				clientFactory, properties, stats);
+
+		filter.filter(exchange, chain).block();
+
+		assertThat((URI) exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR))
+				.isEqualTo(URI.create("http://idle:8080/mypath"));
+		assertThat(stats.get(idle).getInFlight()).isZero();
+		assertThat(stats.get(idle).getLatency()).isNotNaN();
+		verify(chain).filter(exchange);
+		verify(clientFactory).getLazyProvider("myservice",
+				ServiceInstanceListSupplier.class);
+		verifyNoMoreInteractions(clientFactory);
+	}
+
+	@Test
+	public void shouldChooseSameInstanceForSameHashKey() {
+		ServiceInstance[] instances = new ServiceInstance[5];
+		for (int i = 0; i < instances.length; i++) {
+			instances[i] = new DefaultServiceInstance("myservice" + i, "myservice",
+					"host" + i, 8080, false);
+		}
+		when(clientFactory.getLazyProvider("myservice",
+				ServiceInstanceListSupplier.class)).thenReturn(
+						ServiceInstanceListSuppliers.toProvider("myservice", instances));
+		when(chain.filter(any())).thenReturn(Mono.empty());
+		ReactiveLoadBalancerClientFilter filter = new ReactiveLoadBalancerClientFilter(
+				clientFactory, properties, new ServiceInstanceStats());
+
+		URI first = routedUri(filter, "alice");
+		for (int i = 0; i < 10; i++) {
+			assertThat(routedUri(filter, "alice")).isEqualTo(first);
+		}
+		verify(clientFactory).getLazyProvider("myservice",
+				ServiceInstanceListSupplier.class);
+		verifyNoMoreInteractions(clientFactory);
+	}
+
+	@Test
+	public void shouldEjectInstanceAnsweringWithServerErrors() {
+		ServiceInstance first = new DefaultServiceInstance("myservice1", "myservice",
+				"host1", 8080, false);
+		ServiceInstance second = new DefaultServiceInstance("myservice2", "myservice",
+				"host2", 8080, false);
+		when(clientFactory.getInstance("myservice",
+				ReactorServiceInstanceLoadBalancer.class))
+						.thenReturn(
+								new RoundRobinLoadBalancer(
+										ServiceInstanceListSuppliers
+												.toProvider("myservice", first, second),
+										"myservice", -1));
+		when(chain.filter(any())).thenAnswer(invocation -> {
+			ServerWebExchange exchange = invocation.getArgument(0);
+			return Mono.fromRunnable(() -> exchange.getResponse()
+					.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE));
+		});
+		properties.getOutlierDetection().setEnabled(true);
+		properties.getOutlierDetection().setConsecutiveErrors(1);
+		ServiceInstanceStats stats = new ServiceInstanceStats(
+				ServiceInstanceStats.DEFAULT_ALPHA, properties.getOutlierDetection());
+		stats.get(first);
+		stats.get(second);
+		ReactiveLoadBalancerClientFilter filter = new ReactiveLoadBalancerClientFilter(
+				clientFactory, properties, stats);
+
+		URI ejected = routedUri(filter, null);
+		assertThat(stats.getStats().get("myservice").values())
+				.filteredOn(ServiceInstanceStats.InstanceStats::isEjected).hasSize(1);
+
+		// the round robin load balancer is asked again while it chooses the ejected one
+		for (int i = 0; i < 4; i++) {
+			assertThat(routedUri(filter, null)).isNotEqualTo(ejected);
+		}
+	}
+
+	@Test
+	public void shouldPreferInstancesInTheZoneOfTheGateway() {
+		ServiceInstance local = new DefaultServiceInstance("myservice1", "myservice",
+				"local", 8080, false, Collections.singletonMap("zone", "zone-a"));
+		ServiceInstance remote = new DefaultServiceInstance("myservice2", "myservice",
+				"remote", 8080, false, Collections.singletonMap("zone", "zone-b"));
+		LastInstanceConfiguration.instances = new ServiceInstance[] { local, remote };
+		when(chain.filter(any())).thenReturn(Mono.empty());
+		ServiceInstanceStats stats = new ServiceInstanceStats();
+		ServiceInstanceZones zones = new ServiceInstanceZones("zone-a",
+				properties.getZoneAwareness(), stats);
+
+		try (AnnotationConfigApplicationContext parent = parentContext(zones)) {
+			LoadBalancerClientFactory clientFactory = clientFactory(parent);
+			ReactiveLoadBalancerClientFilter filter = new ReactiveLoadBalancerClientFilter(
+					clientFactory, properties, stats);
+
+			// the configured load balancer chooses among the instances in the zone
+			for (int i = 0; i < 4; i++) {
+				assertThat(routedUri(filter, null)).hasHost("local");
+			}
+			assertThat(zones.get("myservice").getSpilled()).isZero();
+
+			// the only instance in the zone is busy, requests spill over to every zone
+			for (int i = 0; i < 3; i++) {
+				stats.record(local, Mono.never()).subscribe();
+			}
+			assertThat(routedUri(filter, null)).hasHost("remote");
+			assertThat(zones.get("myservice").getSpilled()).isEqualTo(1);
+			clientFactory.destroy();
+		}
+	}
+
+	@Test
+	public void shouldBalanceOverTheSubsetOfTheNode() {
+		ServiceInstance[] instances = new ServiceInstance[50];
+		for (int i = 0; i < instances.length; i++) {
+			instances[i] = new DefaultServiceInstance("myservice" + i, "myservice",
+					"host" + i, 8080, false);
+		}
+		LastInstanceConfiguration.instances = instances;
+		when(chain.filter(any())).thenReturn(Mono.empty());
+		ServiceInstanceSubsets subsets = new ServiceInstanceSubsets("gateway-1", 5);
+		List<ServiceInstance> subset = subsets.select("myservice",
+				Arrays.asList(instances));
+
+		try (AnnotationConfigApplicationContext parent = parentContext(subsets)) {
+			LoadBalancerClientFactory clientFactory = clientFactory(parent);
+			ReactiveLoadBalancerClientFilter filter = new ReactiveLoadBalancerClientFilter(
+					clientFactory, properties, new ServiceInstanceStats());
+
+			// the configured load balancer chooses among the instances of the subset
+			assertThat(routedUri(filter, null))
+					.hasHost(subset.get(subset.size() - 1).getHost());
+			clientFactory.destroy();
+		}
+	}
+
+	private static AnnotationConfigApplicationContext parentContext(Object bean) {
+		AnnotationConfigApplicationContext parent = new AnnotationConfigApplicationContext();
+		registerBean(parent, bean);
+		parent.refresh();
+		return parent;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> void registerBean(AnnotationConfigApplicationContext context,
+			T bean) {
+		context.registerBean((Class<T>) bean.getClass(), () -> bean);
+	}
+
+	// with the child context configurations of the gateway and of the service
+	private static LoadBalancerClientFactory clientFactory(ApplicationContext parent) {
+		LoadBalancerClientFactory clientFactory = new LoadBalancerClientFactory();
+		clientFactory.setApplicationContext(parent);
+		clientFactory.setConfigurations(Arrays.asList(
+				new GatewayReactiveLoadBalancerClientAutoConfiguration()
+						.gatewayLoadBalancerClientSpecification(),
+				new LoadBalancerClientSpecification("myservice",
+						new Class<?>[] { LastInstanceConfiguration.class })));
+		return clientFactory;
+	}
+
+	private URI routedUri(ReactiveLoadBalancerClientFilter filter, String key) {
+		ServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/mypath").build());
+		exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR,
+				URI.create("lb://myservice"));
+		if (key != null) {
+			exchange.getAttributes().put(LOAD_BALANCER_HASH_KEY_ATTR, key);
+		}
+		filter.filter(exchange, chain).block();
+		return exchange.getRequiredAttribute(GATEWAY_REQUEST_URL_ATTR);
+	}
+
 	private ServerWebExchange testFilter(MockServerHttpRequest request, URI uri) {
 		return testFilter(MockServerWebExchange.from(request), uri);
 	}
@@ -318,4 +522,27 @@ public class ReactiveLoadBalancerClientFilterTests {
 		return captor.getValue();
 	}
 
+	/**
+	 * Configures a load balancer that chooses the last of the instances it is supplied.
+	 */
+	@Configuration(proxyBeanMethods = false)
+	protected static class LastInstanceConfiguration {
+
+		static ServiceInstance[] instances;
+
+		@Bean
+		public ServiceInstanceListSupplier serviceInstanceListSupplier() {
+			return ServiceInstanceListSuppliers.from("myservice", instances);
+		}
+
+		@Bean
+		public ReactorServiceInstanceLoadBalancer lastInstanceLoadBalancer(
+				ObjectProvider<ServiceInstanceListSupplier> supplier) {
+			return request -> supplier.getObject().get().next()
+					.<Response<ServiceInstance>>map(instances -> new DefaultResponse(
+							instances.get(instances.size() - 1)));
+		}
+
+	}
+
 }
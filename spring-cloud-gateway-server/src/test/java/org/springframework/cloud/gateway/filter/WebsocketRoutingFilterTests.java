@@ -24,7 +24,9 @@ import java.util.List;
 import org.junit.Test;
 
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.filter.headers.FusedHttpHeadersFilter;
 import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter.Type;
 import org.springframework.http.HttpHeaders;
 import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
 import org.springframework.mock.web.server.MockServerWebExchange;
@@ -85,16 +87,26 @@ public class WebsocketRoutingFilterTests {
 
 	@Test
 	public void testHeadersFilter() {
-		assertDefaultHeadersFilters(false);
+		assertDefaultHeadersFilters(false, false);
 	}
 
 	@Test
 	public void testHeadersFilterPreserveHost() {
-		assertDefaultHeadersFilters(true);
+		assertDefaultHeadersFilters(true, false);
+	}
+
+	@Test
+	public void testFusedHeadersFilter() {
+		assertDefaultHeadersFilters(false, true);
+	}
+
+	@Test
+	public void testFusedHeadersFilterPreserveHost() {
+		assertDefaultHeadersFilters(true, true);
 	}
 
 	@SuppressWarnings("unchecked")
-	private void assertDefaultHeadersFilters(boolean preserveHostHeader) {
+	private void assertDefaultHeadersFilters(boolean preserveHostHeader, boolean fused) {
 		ObjectProvider<List<HttpHeadersFilter>> headersFilters = mock(
 				ObjectProvider.class);
 		when(headersFilters.getIfAvailable(any())).thenReturn(new ArrayList<>());
@@ -107,7 +119,10 @@ public class WebsocketRoutingFilterTests {
 				.header("x-foo", "bar").build();
 		MockServerWebExchange exchange = MockServerWebExchange.from(request);
 		exchange.getAttributes().put(PRESERVE_HOST_HEADER_ATTRIBUTE, preserveHostHeader);
-		HttpHeaders httpHeaders = HttpHeadersFilter.filterRequest(filters, exchange);
+		HttpHeaders httpHeaders = fused
+				? FusedHttpHeadersFilter.compile(filters, Type.REQUEST)
+						.filter(request.getHeaders(), exchange)
+				: HttpHeadersFilter.filterRequest(filters, exchange);
 		assertThat(httpHeaders).doesNotContainKeys("Sec-Websocket-Something")
 				.containsKey("x-foo");
 		if (preserveHostHeader) {
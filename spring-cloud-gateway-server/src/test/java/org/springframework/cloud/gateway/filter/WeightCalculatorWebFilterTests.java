@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.gateway.filter;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,10 +24,14 @@ import java.util.Random;
 
 import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
+import reactor.core.publisher.Mono;
 
+import org.springframework.cloud.gateway.config.AdaptiveWeightProperties;
 import org.springframework.cloud.gateway.event.PredicateArgsEvent;
 import org.springframework.cloud.gateway.filter.WeightCalculatorWebFilter.GroupWeightConfig;
+import org.springframework.cloud.gateway.route.Route;
 import org.springframework.cloud.gateway.support.WeightConfig;
+import org.springframework.http.HttpStatus;
 import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
 import org.springframework.mock.web.server.MockServerWebExchange;
 import org.springframework.web.server.WebFilterChain;
@@ -34,7 +39,11 @@ import org.springframework.web.server.WebFilterChain;
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
 
 public class WeightCalculatorWebFilterTests {
 
@@ -124,6 +133,151 @@ public class WeightCalculatorWebFilterTests {
 		assertThat(weights).containsEntry("groupa", "route3");
 	}
 
+	@Test
+	public void routesAreOnlyChosenForGroupsThatAreLookedUp() {
+		WeightCalculatorWebFilter filter = new WeightCalculatorWebFilter();
+		filter.addWeightConfig(new WeightConfig("groupa", "route1", 1));
+		filter.addWeightConfig(new WeightConfig("groupa", "route2", 1));
+		filter.addWeightConfig(new WeightConfig("groupb", "route3", 1));
+
+		Random random = mock(Random.class);
+		when(random.nextDouble()).thenReturn(0.7);
+		filter.setRandom(random);
+
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("http://localhost").build());
+		filter.filter(exchange, mock(WebFilterChain.class));
+		verify(random, never()).nextDouble();
+
+		Map<String, String> weights = WeightCalculatorWebFilter.getWeights(exchange);
+		assertThat(weights.get("groupa")).isEqualTo("route2");
+		assertThat(weights.get("groupa")).isEqualTo("route2");
+		assertThat(weights.containsKey("groupc")).isFalse();
+		verify(random, times(1)).nextDouble();
+	}
+
+	@Test
+	public void routesWithoutWeightAreNeverChosen() {
+		WeightCalculatorWebFilter filter = new WeightCalculatorWebFilter();
+		filter.addWeightConfig(new WeightConfig("groupa", "route1", 1));
+		filter.addWeightConfig(new WeightConfig("groupa", "route2", 0));
+		filter.addWeightConfig(new WeightConfig("groupa", "route3", 1));
+
+		Random random = mock(Random.class);
+		when(random.nextDouble()).thenReturn(0.0).thenReturn(0.5)
+				.thenReturn(0.9999999999999999);
+		filter.setRandom(random);
+
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("http://localhost").build());
+		WebFilterChain filterChain = mock(WebFilterChain.class);
+		for (String expected : asList("route1", "route3", "route3")) {
+			filter.filter(exchange, filterChain);
+			assertThat(WeightCalculatorWebFilter.getWeights(exchange))
+					.containsEntry("groupa", expected);
+		}
+	}
+
+	@Test
+	public void sameKeyIsRoutedToSameRoute() {
+		WeightCalculatorWebFilter filter = new WeightCalculatorWebFilter();
+		filter.addWeightConfig(new WeightConfig("groupa", "route1", 1));
+		filter.addWeightConfig(new WeightConfig("groupa", "route2", 3));
+		filter.addWeightConfig(new WeightConfig("groupa", "route3", 6));
+
+		Map<String, Integer> counts = new HashMap<>();
+		for (int i = 0; i < 10000; i++) {
+			String route = route(filter, "user" + i);
+			assertThat(route(filter, "user" + i)).isEqualTo(route);
+			counts.merge(route, 1, Integer::sum);
+		}
+
+		assertThat(counts.get("route1")).isBetween(800, 1200);
+		assertThat(counts.get("route2")).isBetween(2700, 3300);
+		assertThat(counts.get("route3")).isBetween(5600, 6400);
+	}
+
+	@Test
+	public void changingAWeightOnlyMovesKeysFromOrToThatRoute() {
+		WeightCalculatorWebFilter filter = new WeightCalculatorWebFilter();
+		filter.addWeightConfig(new WeightConfig("groupa", "route1", 1));
+		filter.addWeightConfig(new WeightConfig("groupa", "route2", 3));
+		filter.addWeightConfig(new WeightConfig("groupa", "route3", 6));
+
+		Map<String, String> before = new HashMap<>();
+		for (int i = 0; i < 10000; i++) {
+			before.put("user" + i, route(filter, "user" + i));
+		}
+
+		filter.addWeightConfig(new WeightConfig("groupa", "route1", 5));
+
+		int moved = 0;
+		for (Map.Entry<String, String> entry : before.entrySet()) {
+			String after = route(filter, entry.getKey());
+			if (!after.equals(entry.getValue())) {
+				assertThat(after).isEqualTo("route1");
+				moved++;
+			}
+		}
+		// route1 goes from 10% to ~35.7% of the keys
+		assertThat(moved).isBetween(2300, 2900);
+	}
+
+	private String route(WeightCalculatorWebFilter filter, String key) {
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("http://localhost").build());
+		filter.filter(exchange, mock(WebFilterChain.class));
+		return WeightCalculatorWebFilter.getRoute(exchange, "groupa", key);
+	}
+
+	@Test
+	public void adaptiveWeightsMoveTrafficAwayFromFailingRoute() {
+		AdaptiveWeightProperties properties = new AdaptiveWeightProperties();
+		properties.setEnabled(true);
+		properties.setUpdateInterval(Duration.ZERO);
+		WeightCalculatorWebFilter filter = new WeightCalculatorWebFilter(properties);
+		filter.addWeightConfig(new WeightConfig("groupa", "route1", 1));
+		filter.addWeightConfig(new WeightConfig("groupa", "route2", 1));
+
+		for (int i = 0; i < 10; i++) {
+			routeTo(filter, "route1", HttpStatus.OK);
+			routeTo(filter, "route2", HttpStatus.SERVICE_UNAVAILABLE);
+		}
+
+		// bounded by the default factors of 2 and 0.5
+		assertThat(filter.getEffectiveWeights().get("groupa"))
+				.containsEntry("route1", 2.0).containsEntry("route2", 0.5);
+		GroupWeightConfig config = filter.getGroupWeights().get("groupa");
+		assertThat(config.weights).containsEntry("route1", 1).containsEntry("route2", 1);
+		assertThat(config.normalizedWeights).containsEntry("route1", 0.8)
+				.containsEntry("route2", 0.2);
+	}
+
+	@Test
+	public void weightsAreNotAdaptedByDefault() {
+		WeightCalculatorWebFilter filter = new WeightCalculatorWebFilter();
+		filter.addWeightConfig(new WeightConfig("groupa", "route1", 1));
+		filter.addWeightConfig(new WeightConfig("groupa", "route2", 3));
+
+		routeTo(filter, "route1", HttpStatus.SERVICE_UNAVAILABLE);
+
+		assertThat(filter.getEffectiveWeights().get("groupa"))
+				.containsEntry("route1", 1.0).containsEntry("route2", 3.0);
+	}
+
+	private void routeTo(WeightCalculatorWebFilter filter, String routeId,
+			HttpStatus status) {
+		Route route = Route.async().id(routeId).uri("http://localhost")
+				.predicate(exchange -> true).build();
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("http://localhost").build());
+		filter.filter(exchange, e -> {
+			e.getAttributes().put(GATEWAY_ROUTE_ATTR, route);
+			e.getResponse().setStatusCode(status);
+			return Mono.empty();
+		}).block();
+	}
+
 	@Test
 	public void receivesPredicateArgsEvent() {
 		TestWeightCalculatorWebFilter filter = new TestWeightCalculatorWebFilter();
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory;
+
+import java.util.Collections;
+
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.ConsistentHashGatewayFilterFactory.Config;
+import org.springframework.http.HttpCookie;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.LOAD_BALANCER_HASH_KEY_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.putUriTemplateVariables;
+
+public class ConsistentHashGatewayFilterFactoryTests {
+
+	@Test
+	public void keyIsReadFromHeader() {
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/").header("X-User", "alice").build());
+
+		assertThat(filter(new Config().setHeader("X-User"), exchange)).isEqualTo("alice");
+	}
+
+	@Test
+	public void keyIsReadFromCookie() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+				.get("/").cookie(new HttpCookie("SESSION", "123")).build());
+
+		assertThat(filter(new Config().setCookie("SESSION"), exchange)).isEqualTo("123");
+	}
+
+	@Test
+	public void keyIsReadFromPathVariable() {
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/users/bob").build());
+		putUriTemplateVariables(exchange, Collections.singletonMap("user", "bob"));
+
+		assertThat(filter(new Config().setPathVariable("user"), exchange))
+				.isEqualTo("bob");
+	}
+
+	@Test
+	public void keyIsResolved() {
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/").build());
+
+		assertThat(
+				filter(new Config().setKeyResolver(e -> Mono.just("resolved")), exchange))
+						.isEqualTo("resolved");
+	}
+
+	@Test
+	public void noKeyIsSetWhenMissing() {
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/").build());
+
+		assertThat(filter(new Config().setHeader("X-User"), exchange)).isNull();
+		assertThat(filter(new Config().setKeyResolver(e -> Mono.empty()), exchange))
+				.isNull();
+	}
+
+	@Test
+	public void exactlyOneKeySourceIsRequired() {
+		ConsistentHashGatewayFilterFactory factory = new ConsistentHashGatewayFilterFactory();
+
+		assertThatThrownBy(() -> factory.apply(new Config()))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> factory
+				.apply(new Config().setHeader("X-User").setCookie("SESSION")))
+						.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void toStringFormat() {
+		GatewayFilter filter = new ConsistentHashGatewayFilterFactory()
+				.apply(new Config().setHeader("X-User"));
+
+		assertThat(filter.toString()).contains("ConsistentHash").contains("X-User");
+	}
+
+	private static String filter(Config config, ServerWebExchange exchange) {
+		GatewayFilter filter = new ConsistentHashGatewayFilterFactory().apply(config);
+		exchange.getAttributes().remove(LOAD_BALANCER_HASH_KEY_ATTR);
+		String[] key = new String[1];
+		filter.filter(exchange, e -> {
+			key[0] = e.getAttribute(LOAD_BALANCER_HASH_KEY_ATTR);
+			return Mono.empty();
+		}).block();
+		return key[0];
+	}
+
+}
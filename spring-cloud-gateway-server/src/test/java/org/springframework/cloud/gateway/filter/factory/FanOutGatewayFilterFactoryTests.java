@@ -0,0 +1,278 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.factory.FanOutGatewayFilterFactory.Leg;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
+import org.springframework.cloud.gateway.test.BaseWebClientTests;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.isAlreadyRouted;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@DirtiesContext
+public class FanOutGatewayFilterFactoryTests extends BaseWebClientTests {
+
+	private static final AtomicInteger ROUTED = new AtomicInteger();
+
+	private static DisposableServer backend;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@BeforeClass
+	public static void startBackend() {
+		backend = HttpServer.create().port(0)
+				.route(routes -> routes
+						.get("/users/{id}",
+								(req, res) -> json(
+										res.header("X-Seen",
+												String.valueOf(req.requestHeaders()
+														.get("X-Request"))),
+										"{\"id\":" + req.param("id") + "}"))
+						.get("/orders", (req, res) -> json(res, "[1,2]"))
+						.get("/request",
+								(req, res) -> json(res, "{\"request\":\""
+										+ req.requestHeaders().get("X-Request") + "\"}"))
+						.get("/slow",
+								(req, res) -> Mono.delay(Duration.ofSeconds(2))
+										.then(json(res, "{}")))
+						.get("/text",
+								(req, res) -> res
+										.header(HttpHeaders.CONTENT_TYPE,
+												MediaType.TEXT_PLAIN_VALUE)
+										.sendString(Mono.just("hello")).then())
+						.get("/fail", (req, res) -> res
+								.status(HttpStatus.INTERNAL_SERVER_ERROR.value()).send()))
+				.bindNow();
+	}
+
+	@AfterClass
+	public static void stopBackend() {
+		backend.disposeNow();
+	}
+
+	private static Mono<Void> json(HttpServerResponse res, String body) {
+		return res.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+				.sendString(Mono.just(body)).then();
+	}
+
+	private static String backendUri(String path) {
+		return "http://localhost:" + backend.port() + path;
+	}
+
+	@Test
+	public void legsAreMerged() {
+		testClient.get().uri("/items/42").header("Host", "www.fanout.org")
+				.header("X-Request", "abc").exchange().expectStatus().isOk()
+				.expectHeader().contentType(MediaType.APPLICATION_JSON).expectBody()
+				.json("{\"user\":{\"id\":42},\"orders\":[1,2]}");
+
+		assertThat(meterRegistry.get("gateway.fanout.legs").tag("routeId", "fan_out")
+				.tag("leg", "user").tag("outcome", "SUCCESS").timer().count())
+						.isGreaterThan(0);
+	}
+
+	@Test
+	public void legsAreSentAfterTheOtherFiltersAndTheChainGoesOn() {
+		int routed = ROUTED.get();
+
+		// the request header is set by a filter declared after the fan-out
+		testClient.get().uri("/items/1").header("Host", "www.fanoutchain.org").exchange()
+				.expectStatus().isOk().expectBody()
+				.json("{\"request\":{\"request\":\"set\"}}");
+
+		assertThat(ROUTED.get()).isGreaterThan(routed);
+	}
+
+	@Test
+	public void failedOptionalLegsAreNull() {
+		testClient.get().uri("/items/7").header("Host", "www.fanoutoptional.org")
+				.exchange().expectStatus().isOk().expectBody()
+				.json("{\"user\":{\"id\":7},\"slow\":null,\"text\":null}");
+
+		assertThat(meterRegistry.get("gateway.fanout.legs")
+				.tag("routeId", "fan_out_optional").tag("leg", "slow")
+				.tag("outcome", "TIMEOUT").timer().count()).isGreaterThan(0);
+	}
+
+	@Test
+	public void requiredLegTimeoutIsGatewayTimeout() {
+		testClient.get().uri("/items/1").header("Host", "www.fanouttimeout.org")
+				.exchange().expectStatus().isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+	}
+
+	@Test
+	public void requiredLegFailureIsBadGateway() {
+		testClient.get().uri("/items/1").header("Host", "www.fanoutfail.org").exchange()
+				.expectStatus().isEqualTo(HttpStatus.BAD_GATEWAY);
+	}
+
+	@Test
+	public void legLargerThanItsMaxSizeIsBadGateway() {
+		testClient.get().uri("/items/1").header("Host", "www.fanoutlarge.org").exchange()
+				.expectStatus().isEqualTo(HttpStatus.BAD_GATEWAY);
+	}
+
+	@Test
+	public void optionalLegLargerThanItsMaxSizeIsNull() {
+		testClient.get().uri("/items/3").header("Host", "www.fanoutlargeoptional.org")
+				.exchange().expectStatus().isOk().expectBody()
+				.json("{\"user\":{\"id\":3},\"orders\":null}");
+	}
+
+	@Test
+	public void duplicateLegNamesAreRejected() {
+		FanOutGatewayFilterFactory.Config config = new FanOutGatewayFilterFactory.Config()
+				.addLeg("a", "http://localhost/a").addLeg("a", "http://localhost/b");
+		assertThatThrownBy(config::validate).isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("duplicate leg name a");
+	}
+
+	@Test
+	public void toStringFormat() {
+		GatewayFilter filter = new FanOutGatewayFilterFactory(null, null,
+				new StaticListableBeanFactory()
+						.getBeanProvider(FanOutGatewayFilterFactory.LegObserver.class))
+								.apply(c -> c.addLeg("user", "http://users/1"));
+		assertThat(filter.toString()).contains("user=http://users/1");
+	}
+
+	@EnableAutoConfiguration
+	@SpringBootConfiguration
+	@Import(DefaultTestConfig.class)
+	public static class TestConfig {
+
+		@Bean
+		public GlobalFilter routedFanOutCounter() {
+			return new GlobalFilterAfterFanOut();
+		}
+
+		@Bean
+		public RouteLocator testRouteLocator(RouteLocatorBuilder builder) {
+			return builder.routes()
+					.route("fan_out",
+							r -> r.order(-1).host("**.fanout.org").and()
+									.path("/items/{id}")
+									.filters(f -> f.fanOut(c -> c
+											.addLeg("user", backendUri("/users/{id}"))
+											.addLeg("orders", backendUri("/orders"))))
+									.uri("no://op"))
+					.route("fan_out_optional",
+							r -> r.order(-1).host("**.fanoutoptional.org").and()
+									.path("/items/{id}")
+									.filters(f -> f.fanOut(c -> c
+											.addLeg("user", backendUri("/users/{id}"))
+											.addLeg(new Leg().setName("slow")
+													.setUri(backendUri("/slow"))
+													.setTimeout(Duration.ofMillis(100))
+													.setOptional(true))
+											.addLeg(new Leg().setName("text")
+													.setUri(backendUri("/text"))
+													.setOptional(true))))
+									.uri("no://op"))
+					.route("fan_out_chain", r -> r.order(-1).host("**.fanoutchain.org")
+							.filters(f -> f.fanOut(
+									c -> c.addLeg("request", backendUri("/request")))
+									.setRequestHeader("X-Request", "set"))
+							.uri("no://op"))
+					.route("fan_out_timeout",
+							r -> r.order(-1).host("**.fanouttimeout.org")
+									.filters(f -> f.fanOut(c -> c.addLeg(new Leg()
+											.setName("slow").setUri(backendUri("/slow"))
+											.setTimeout(Duration.ofMillis(100)))))
+									.uri("no://op"))
+					.route("fan_out_large", r -> r.order(-1).host("**.fanoutlarge.org")
+							.filters(f -> f.fanOut(c -> c.addLeg(new Leg()
+									.setName("orders").setUri(backendUri("/orders"))
+									.setMaxSize(DataSize.ofBytes(3)))))
+							.uri("no://op"))
+					.route("fan_out_large_optional",
+							r -> r.order(-1).host("**.fanoutlargeoptional.org").and()
+									.path("/items/{id}")
+									.filters(f -> f.fanOut(c -> c
+											.addLeg("user", backendUri("/users/{id}"))
+											.addLeg(new Leg().setName("orders")
+													.setUri(backendUri("/orders"))
+													.setMaxSize(DataSize.ofBytes(3))
+													.setOptional(true))))
+									.uri("no://op"))
+					.route("fan_out_fail",
+							r -> r.order(-1).host("**.fanoutfail.org")
+									.filters(f -> f.fanOut(
+											c -> c.addLeg("orders", backendUri("/orders"))
+													.addLeg("fail", backendUri("/fail"))))
+									.uri("no://op"))
+					.build();
+		}
+
+	}
+
+	// runs after the fan-out, at the order of the routing filters
+	private static class GlobalFilterAfterFanOut implements GlobalFilter, Ordered {
+
+		@Override
+		public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+			if (isAlreadyRouted(exchange)) {
+				ROUTED.incrementAndGet();
+			}
+			return chain.filter(exchange);
+		}
+
+		@Override
+		public int getOrder() {
+			return Ordered.LOWEST_PRECEDENCE;
+		}
+
+	}
+
+}
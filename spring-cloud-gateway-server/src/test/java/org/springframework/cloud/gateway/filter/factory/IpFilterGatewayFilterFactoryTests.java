@@ -0,0 +1,158 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.IpFilterGatewayFilterFactory.Config;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class IpFilterGatewayFilterFactoryTests {
+
+	/**
+	 * Holds the rule files of the tests.
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void deniedAddressesAreRejected() {
+		GatewayFilter filter = new IpFilterGatewayFilterFactory().apply(
+				new Config().setDeny(Arrays.asList("10.0.0.0/8", "2001:db8::/32")));
+
+		assertThat(filter(filter, "10.1.2.3")).isEqualTo(HttpStatus.FORBIDDEN);
+		assertThat(filter(filter, "2001:db8::1")).isEqualTo(HttpStatus.FORBIDDEN);
+		assertThat(filter(filter, "11.1.2.3")).isEqualTo(HttpStatus.OK);
+	}
+
+	@Test
+	public void onlyAllowedAddressesAreAccepted() {
+		GatewayFilter filter = new IpFilterGatewayFilterFactory()
+				.apply(new Config().setAllow(Collections.singletonList("10.0.0.0/8"))
+						.setDeny(Collections.singletonList("10.0.0.1")));
+
+		assertThat(filter(filter, "10.1.2.3")).isEqualTo(HttpStatus.OK);
+		assertThat(filter(filter, "10.0.0.1")).isEqualTo(HttpStatus.FORBIDDEN);
+		assertThat(filter(filter, "11.1.2.3")).isEqualTo(HttpStatus.FORBIDDEN);
+	}
+
+	@Test
+	public void rulesAreReloadedFromFile() throws Exception {
+		File file = folder.newFile("ip-rules.txt");
+		Files.write(file.toPath(),
+				Arrays.asList("# partners", "allow 10.0.0.0/8", "deny 10.0.0.1"),
+				StandardCharsets.UTF_8);
+		GatewayFilter filter = new IpFilterGatewayFilterFactory()
+				.apply(new Config().setFile(file.getAbsolutePath())
+						.setAllow(Collections.singletonList("192.168.0.0/16"))
+						.setReloadInterval(Duration.ZERO));
+
+		assertThat(filter(filter, "10.1.2.3")).isEqualTo(HttpStatus.OK);
+		assertThat(filter(filter, "192.168.1.1")).isEqualTo(HttpStatus.OK);
+		assertThat(filter(filter, "10.0.0.1")).isEqualTo(HttpStatus.FORBIDDEN);
+
+		Files.write(file.toPath(), Collections.singletonList("deny 10.1.0.0/16"),
+				StandardCharsets.UTF_8);
+		Files.setLastModifiedTime(file.toPath(),
+				FileTime.fromMillis(System.currentTimeMillis() + 60000));
+		for (int i = 0; i < 100
+				&& filter(filter, "10.1.2.3") != HttpStatus.FORBIDDEN; i++) {
+			Thread.sleep(50);
+		}
+
+		assertThat(filter(filter, "10.1.2.3")).isEqualTo(HttpStatus.FORBIDDEN);
+		assertThat(filter(filter, "10.0.0.1")).isEqualTo(HttpStatus.FORBIDDEN);
+		assertThat(filter(filter, "192.168.1.1")).isEqualTo(HttpStatus.OK);
+	}
+
+	@Test
+	public void invalidFileKeepsPreviousRules() throws Exception {
+		File file = folder.newFile("ip-rules.txt");
+		Files.write(file.toPath(), Collections.singletonList("deny 10.0.0.0/8"),
+				StandardCharsets.UTF_8);
+		GatewayFilter filter = new IpFilterGatewayFilterFactory().apply(new Config()
+				.setFile(file.getAbsolutePath()).setReloadInterval(Duration.ZERO));
+
+		Files.write(file.toPath(), Collections.singletonList("block 10.0.0.0/8"),
+				StandardCharsets.UTF_8);
+		Files.setLastModifiedTime(file.toPath(),
+				FileTime.fromMillis(System.currentTimeMillis() + 60000));
+		for (int i = 0; i < 10; i++) {
+			assertThat(filter(filter, "10.1.2.3")).isEqualTo(HttpStatus.FORBIDDEN);
+			Thread.sleep(20);
+		}
+	}
+
+	@Test
+	public void missingFileFailsTheFilter() {
+		String file = new File(folder.getRoot(), "missing.txt").getAbsolutePath();
+
+		assertThatThrownBy(() -> new IpFilterGatewayFilterFactory()
+				.apply(new Config().setFile(file)))
+						.isInstanceOf(IllegalArgumentException.class)
+						.hasMessageContaining(file);
+	}
+
+	@Test
+	public void invalidFileFailsTheFilter() throws Exception {
+		File file = folder.newFile("ip-rules.txt");
+		Files.write(file.toPath(), Collections.singletonList("block 10.0.0.0/8"),
+				StandardCharsets.UTF_8);
+
+		assertThatThrownBy(() -> new IpFilterGatewayFilterFactory()
+				.apply(new Config().setFile(file.getAbsolutePath())))
+						.isInstanceOf(IllegalArgumentException.class)
+						.hasMessageContaining("block 10.0.0.0/8");
+	}
+
+	@Test
+	public void toStringFormat() {
+		GatewayFilter filter = new IpFilterGatewayFilterFactory()
+				.apply(new Config().setAllow(Collections.singletonList("10.0.0.0/8")));
+		assertThat(filter.toString()).contains("allow").contains("10.0.0.0/8");
+	}
+
+	private static HttpStatus filter(GatewayFilter filter, String remoteAddress) {
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("http://localhost/get")
+						.remoteAddress(new InetSocketAddress(remoteAddress, 80)).build());
+		filter.filter(exchange, e -> {
+			e.getResponse().setStatusCode(HttpStatus.OK);
+			return Mono.empty();
+		}).block();
+		return exchange.getResponse().getStatusCode();
+	}
+
+}
@@ -18,6 +18,7 @@ package org.springframework.cloud.gateway.filter.factory;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import reactor.core.publisher.Flux;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringBootConfiguration;
@@ -31,6 +32,7 @@ import org.springframework.cloud.gateway.test.BaseWebClientTests;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.util.unit.DataSize;
@@ -58,6 +60,23 @@ public class RequestSizeGatewayFilterFactoryTest extends BaseWebClientTests {
 				.valueMatches("errorMessage", responseMesssage);
 	}
 
+	@Test
+	public void setRequestSizeFilterWorksForChunkedRequest() {
+		testClient.post().uri("/post").header("Host", "www.setrequestsize.org")
+				.contentType(MediaType.TEXT_PLAIN)
+				.body(Flux.just("123", "456"), String.class).exchange().expectStatus()
+				.isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE).expectHeader()
+				.valueMatches("errorMessage", responseMesssage);
+	}
+
+	@Test
+	public void chunkedRequestWithinLimitIsRouted() {
+		testClient.post().uri("/post").header("Host", "www.setrequestsize.org")
+				.contentType(MediaType.TEXT_PLAIN)
+				.body(Flux.just("12", "3"), String.class).exchange().expectStatus()
+				.isOk();
+	}
+
 	@Test
 	public void toStringFormat() {
 		RequestSizeConfig config = new RequestSizeConfig();
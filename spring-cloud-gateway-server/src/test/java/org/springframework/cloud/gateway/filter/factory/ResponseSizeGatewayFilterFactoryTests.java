@@ -0,0 +1,130 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.ResponseSizeGatewayFilterFactory.ResponseSizeConfig;
+import org.springframework.cloud.gateway.filter.factory.ResponseSizeGatewayFilterFactory.ResponseSizeExceededException;
+import org.springframework.cloud.gateway.filter.factory.ResponseSizeGatewayFilterFactory.ResponseSizeServerHttpResponse;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
+import org.springframework.cloud.gateway.test.BaseWebClientTests;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.unit.DataSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@DirtiesContext
+public class ResponseSizeGatewayFilterFactoryTests extends BaseWebClientTests {
+
+	@Test
+	public void responseLargerThanLimitIsRejected() {
+		testClient.get().uri("/get").header("Host", "www.setresponsesize.org").exchange()
+				.expectStatus().isEqualTo(HttpStatus.BAD_GATEWAY).expectHeader()
+				.valueMatches("errorMessage",
+						"Response size is larger than permissible limit.*");
+	}
+
+	@Test
+	public void responseWithinLimitIsWritten() {
+		testClient.get().uri("/get").header("Host", "www.setlargeresponsesize.org")
+				.exchange().expectStatus().isOk();
+	}
+
+	@Test
+	public void streamedResponseLargerThanLimitErrors() {
+		MockServerHttpResponse delegate = new MockServerHttpResponse();
+		ResponseSizeServerHttpResponse response = new ResponseSizeServerHttpResponse(
+				delegate, DataSize.ofBytes(5));
+
+		StepVerifier.create(response.writeWith(Flux.just(buffer("123"), buffer("456"))))
+				.expectError(ResponseSizeExceededException.class).verify(DURATION);
+	}
+
+	@Test
+	public void streamedResponseWithinLimitIsWritten() {
+		MockServerHttpResponse delegate = new MockServerHttpResponse();
+		ResponseSizeServerHttpResponse response = new ResponseSizeServerHttpResponse(
+				delegate, DataSize.ofBytes(6));
+
+		StepVerifier
+				.create(response.writeAndFlushWith(
+						Flux.just(Flux.just(buffer("123")), Flux.just(buffer("456")))))
+				.verifyComplete();
+		StepVerifier.create(delegate.getBodyAsString()).expectNext("123456")
+				.verifyComplete();
+	}
+
+	@Test
+	public void toStringFormat() {
+		ResponseSizeConfig config = new ResponseSizeConfig();
+		config.setMaxSize(DataSize.ofBytes(1000L));
+		GatewayFilter filter = new ResponseSizeGatewayFilterFactory().apply(config);
+		assertThat(filter.toString()).contains("max").contains("1000");
+	}
+
+	private static DataBuffer buffer(String value) {
+		return new DefaultDataBufferFactory()
+				.wrap(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@EnableAutoConfiguration
+	@SpringBootConfiguration
+	@Import(DefaultTestConfig.class)
+	public static class TestConfig {
+
+		@Value("${test.uri}")
+		String uri;
+
+		@Bean
+		public RouteLocator testRouteLocator(RouteLocatorBuilder builder) {
+			return builder.routes()
+					.route("test_response_size",
+							r -> r.order(-1).host("**.setresponsesize.org")
+									.filters(f -> f.setResponseSize(DataSize.ofBytes(5)))
+									.uri(uri))
+					.route("test_large_response_size",
+							r -> r.order(-1).host("**.setlargeresponsesize.org").filters(
+									f -> f.setResponseSize(DataSize.ofMegabytes(1)))
+									.uri(uri))
+					.build();
+		}
+
+	}
+
+}
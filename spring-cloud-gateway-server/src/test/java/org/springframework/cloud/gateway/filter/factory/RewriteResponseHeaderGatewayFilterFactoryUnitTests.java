@@ -16,18 +16,22 @@
 
 package org.springframework.cloud.gateway.filter.factory;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
+import reactor.core.publisher.Mono;
 
 import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.factory.RewriteResponseHeaderGatewayFilterFactory.Config;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.server.ServerWebExchange;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.HttpHeaders.SET_COOKIE;
@@ -75,6 +79,37 @@ public class RewriteResponseHeaderGatewayFilterFactoryUnitTests {
 				"OtherCookie=Value;SameSite=Strict");
 	}
 
+	@Test
+	public void filterCallsTheRewriteHooks() {
+		List<String> rewritten = new ArrayList<>();
+		RewriteResponseHeaderGatewayFilterFactory factory = new RewriteResponseHeaderGatewayFilterFactory() {
+			@Override
+			protected List<String> rewriteHeaders(Config config, List<String> headers) {
+				List<String> result = super.rewriteHeaders(config, headers);
+				rewritten.addAll(result);
+				return result;
+			}
+		};
+		Config config = new Config();
+		config.setName("X-Response");
+		config.setRegexp("password=[^&]+");
+		config.setReplacement("password=***");
+
+		ServerWebExchange exchange = mock(ServerWebExchange.class);
+		ServerHttpResponse response = mock(ServerHttpResponse.class);
+		HttpHeaders headers = new HttpHeaders();
+		headers.add("X-Response", "user=1&password=secret");
+		when(response.getHeaders()).thenReturn(headers);
+		when(exchange.getResponse()).thenReturn(response);
+		GatewayFilterChain chain = mock(GatewayFilterChain.class);
+		when(chain.filter(any())).thenReturn(Mono.empty());
+
+		factory.apply(config).filter(exchange, chain).block();
+
+		assertThat(rewritten).containsExactly("user=1&password=***");
+		assertThat(headers.get("X-Response")).containsExactly("user=1&password=***");
+	}
+
 	@Test
 	public void toStringFormat() {
 		Config config = new Config();
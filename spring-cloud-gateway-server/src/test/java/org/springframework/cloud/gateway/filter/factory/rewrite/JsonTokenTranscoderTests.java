@@ -0,0 +1,132 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory.rewrite;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonTokenTranscoderTests {
+
+	private static final String JSON = "{\"name\":\"gateway\",\"count\":42,"
+			+ "\"ratio\":0.5,\"tags\":[\"a\",\"b\"],\"nested\":{\"ok\":true,\"none\":null}}";
+
+	private final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+	private final JsonFactory json = new JsonFactory();
+
+	@Test
+	public void jsonIsConvertedToCborAsBuffersArrive() throws IOException {
+		JsonTokenTranscoder transcoder = new JsonTokenTranscoder(json, new CBORFactory());
+
+		// split in the middle of tokens
+		byte[] cbor = join(transcoder.transcode(chunks(JSON, 7), bufferFactory));
+
+		assertThat(read(new CBORFactory(), cbor)).isEqualTo(read(json, bytes(JSON)));
+	}
+
+	@Test
+	public void jsonIsConvertedToSmile() throws IOException {
+		JsonTokenTranscoder transcoder = new JsonTokenTranscoder(json,
+				new SmileFactory());
+
+		byte[] smile = join(transcoder.transcode(chunks(JSON, 3), bufferFactory));
+
+		assertThat(read(new SmileFactory(), smile)).isEqualTo(read(json, bytes(JSON)));
+	}
+
+	@Test
+	public void binaryFormatsAreConvertedToJson() throws IOException {
+		Object value = read(json, bytes(JSON));
+		for (JsonFactory binary : Arrays.asList(new CBORFactory(), new SmileFactory())) {
+			byte[] encoded = new ObjectMapper(binary).writeValueAsBytes(value);
+			JsonTokenTranscoder transcoder = new JsonTokenTranscoder(binary, json);
+
+			byte[] converted = join(transcoder
+					.transcode(Flux.just(bufferFactory.wrap(encoded)), bufferFactory));
+
+			assertThat(read(json, converted)).as(binary.getFormatName()).isEqualTo(value);
+		}
+	}
+
+	@Test
+	public void emptyBodyStaysEmpty() {
+		JsonTokenTranscoder transcoder = new JsonTokenTranscoder(json, new CBORFactory());
+
+		StepVerifier.create(transcoder.transcode(Flux.empty(), bufferFactory))
+				.verifyComplete();
+	}
+
+	@Test
+	public void malformedBodyErrors() {
+		JsonTokenTranscoder transcoder = new JsonTokenTranscoder(json, new CBORFactory());
+
+		StepVerifier
+				.create(transcoder.transcode(chunks("{\"name\" 1}", 4), bufferFactory)
+						.doOnNext(DataBufferUtils::release))
+				// tokens read before the error have already been converted
+				.thenConsumeWhile(dataBuffer -> true)
+				.expectError(JsonParseException.class).verify();
+	}
+
+	@Test
+	public void toStringFormat() {
+		assertThat(new JsonTokenTranscoder(json, new CBORFactory()).toString())
+				.isEqualTo("JSON -> CBOR");
+	}
+
+	private Flux<DataBuffer> chunks(String value, int size) {
+		byte[] bytes = bytes(value);
+		return Flux.range(0, (bytes.length + size - 1) / size)
+				.map(i -> bufferFactory.wrap(Arrays.copyOfRange(bytes, i * size,
+						Math.min(bytes.length, (i + 1) * size))));
+	}
+
+	private static byte[] join(Flux<DataBuffer> body) {
+		DataBuffer joined = DataBufferUtils.join(body).block();
+		byte[] bytes = new byte[joined.readableByteCount()];
+		joined.read(bytes);
+		DataBufferUtils.release(joined);
+		return bytes;
+	}
+
+	private static Map<?, ?> read(JsonFactory factory, byte[] bytes) throws IOException {
+		return new ObjectMapper(factory).readValue(bytes, Map.class);
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.factory.rewrite;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
+import org.springframework.cloud.gateway.test.BaseWebClientTests;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.cloud.gateway.filter.factory.rewrite.TranscodeGatewayFilterFactory.APPLICATION_SMILE;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@DirtiesContext
+public class TranscodeGatewayFilterFactoryTests extends BaseWebClientTests {
+
+	private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {
+	};
+
+	private final ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+
+	private final ObjectMapper smile = new ObjectMapper(new SmileFactory());
+
+	@Test
+	public void cborIsTranscodedBothWays() throws IOException {
+		byte[] request = cbor
+				.writeValueAsBytes(Collections.singletonMap("message", "hello"));
+
+		byte[] response = testClient.post().uri("/post")
+				.header("Host", "www.transcode.org")
+				.contentType(MediaType.APPLICATION_CBOR)
+				.accept(MediaType.APPLICATION_CBOR).bodyValue(request).exchange()
+				.expectStatus().isOk().expectHeader()
+				.contentType(MediaType.APPLICATION_CBOR).expectBody(byte[].class)
+				.returnResult().getResponseBody();
+
+		Map<String, Object> body = cbor.readValue(response, MAP_TYPE);
+		assertThat(body.get("data")).isEqualTo("{\"message\":\"hello\"}");
+		assertThat(cbor.convertValue(body.get("headers"), MAP_TYPE))
+				.containsEntry(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+				.containsEntry(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+	}
+
+	@Test
+	public void smileResponseIsReturnedWhenAccepted() throws IOException {
+		byte[] response = testClient.get().uri("/get").header("Host", "www.transcode.org")
+				.header(HttpHeaders.ACCEPT,
+						"application/json;q=0.5, " + APPLICATION_SMILE)
+				.exchange().expectStatus().isOk().expectHeader()
+				.contentType(APPLICATION_SMILE).expectBody(byte[].class).returnResult()
+				.getResponseBody();
+
+		Map<String, Object> body = smile.readValue(response, MAP_TYPE);
+		assertThat(body).containsKey("headers");
+	}
+
+	@Test
+	public void jsonIsPassedThroughWhenPreferred() {
+		testClient.get().uri("/get").header("Host", "www.transcode.org")
+				.header(HttpHeaders.ACCEPT, "application/json, application/cbor;q=0.5")
+				.exchange().expectStatus().isOk().expectHeader()
+				.contentType(MediaType.APPLICATION_JSON).expectBody()
+				.jsonPath("headers.Accept")
+				.isEqualTo("application/json, application/cbor;q=0.5");
+	}
+
+	@Test
+	public void malformedRequestIsRejected() {
+		testClient.post().uri("/post").header("Host", "www.transcode.org")
+				.contentType(APPLICATION_SMILE).bodyValue(new byte[] { 1, 2, 3 })
+				.exchange().expectStatus().isBadRequest();
+	}
+
+	@Test
+	public void toStringFormat() {
+		GatewayFilter filter = new TranscodeGatewayFilterFactory().apply(c -> {
+		});
+		assertThat(filter.toString()).contains("application/cbor")
+				.contains("application/x-jackson-smile");
+	}
+
+	@EnableAutoConfiguration
+	@SpringBootConfiguration
+	@Import(DefaultTestConfig.class)
+	public static class TestConfig {
+
+		@Value("${test.uri}")
+		String uri;
+
+		@Bean
+		public RouteLocator testRouteLocator(RouteLocatorBuilder builder) {
+			return builder.routes().route("test_transcode", r -> r.order(-1)
+					.host("**.transcode.org").filters(f -> f.transcode()).uri(uri))
+					.build();
+		}
+
+	}
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.headers;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import org.junit.Test;
+
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ORIGINAL_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+
+public class FusedHttpHeadersFilterTests {
+
+	@Test
+	public void fusedRequestFiltersMatchChainedFilters() throws Exception {
+		MockServerHttpRequest request = MockServerHttpRequest
+				.post("http://localhost:8080/prefix/get")
+				.remoteAddress(
+						new InetSocketAddress(InetAddress.getByName("10.0.0.1"), 80))
+				.header(HttpHeaders.HOST, "myhost").header("Connection", "keep-alive")
+				.header("Keep-Alive", "timeout=5")
+				.header(HttpHeaders.TRANSFER_ENCODING, "chunked")
+				.header(HttpHeaders.CONTENT_LENGTH, "10")
+				.header("Forwarded", "for=12.34.56.78;host=example.com;proto=https")
+				.header("X-Forwarded-For", "192.168.0.2").header("X-Custom", "a", "b")
+				.build();
+		ServerWebExchange exchange = MockServerWebExchange.from(request);
+		LinkedHashSet<URI> originalUris = new LinkedHashSet<>();
+		originalUris.add(URI.create("http://localhost:8080/prefix/get"));
+		exchange.getAttributes().put(GATEWAY_ORIGINAL_REQUEST_URL_ATTR, originalUris);
+		exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR,
+				URI.create("http://downstream:8090/get"));
+
+		List<HttpHeadersFilter> filters = Arrays.asList(new XForwardedHeadersFilter(),
+				new ForwardedHeadersFilter(),
+				new TransferEncodingNormalizationHeadersFilter(),
+				new RemoveHopByHopHeadersFilter());
+
+		HttpHeaders chained = HttpHeadersFilter.filterRequest(filters, exchange);
+		HttpHeaders fused = FusedHttpHeadersFilter.compile(filters, Type.REQUEST)
+				.filter(request.getHeaders(), exchange);
+
+		assertThat(normalize(fused)).isEqualTo(normalize(chained));
+		assertThat(fused).doesNotContainKeys("Connection", "Keep-Alive",
+				HttpHeaders.TRANSFER_ENCODING, HttpHeaders.CONTENT_LENGTH);
+		assertThat(fused.get("X-Custom")).containsExactly("a", "b");
+		assertThat(fused.getFirst("X-Forwarded-For")).isEqualTo("192.168.0.2,10.0.0.1");
+		assertThat(fused.getFirst("X-Forwarded-Prefix")).isEqualTo("/prefix");
+		assertThat(fused.get("Forwarded")).hasSize(2);
+	}
+
+	@Test
+	public void fusedFilterWritesToOutput() {
+		MockServerHttpRequest request = MockServerHttpRequest.get("http://localhost/get")
+				.header("Connection", "close").header("X-Custom", "a", "b").build();
+		List<String> output = new ArrayList<>();
+
+		FusedHttpHeadersFilter
+				.compile(Collections.singletonList(new RemoveHopByHopHeadersFilter()),
+						Type.REQUEST)
+				.filter(request.getHeaders(), MockServerWebExchange.from(request),
+						(name, value) -> output.add(name + "=" + value));
+
+		assertThat(output).containsExactly("X-Custom=a", "X-Custom=b");
+	}
+
+	@Test
+	public void onlyFiltersSupportingTypeAreFused() {
+		HttpHeadersFilter requestOnly = (headers, exchange) -> headers;
+		FusedHttpHeadersFilter fused = FusedHttpHeadersFilter.compile(
+				Arrays.asList(requestOnly, new RemoveHopByHopHeadersFilter()),
+				Type.RESPONSE);
+
+		assertThat(fused).isNotNull();
+		assertThat(fused.supports(Type.RESPONSE)).isTrue();
+		assertThat(fused.supports(Type.REQUEST)).isFalse();
+	}
+
+	@Test
+	public void filtersThatAreNotFusibleAreNotFused() {
+		HttpHeadersFilter requestOnly = (headers, exchange) -> headers;
+
+		assertThat(FusedHttpHeadersFilter.compile(
+				Arrays.asList(requestOnly, new RemoveHopByHopHeadersFilter()),
+				Type.REQUEST)).isNull();
+	}
+
+	@Test
+	public void laterRemovalsWinOverEarlierEdits() {
+		MockServerHttpRequest request = MockServerHttpRequest.get("http://localhost/get")
+				.build();
+		ServerWebExchange exchange = MockServerWebExchange.from(request);
+		List<HttpHeadersFilter> filters = Arrays.asList(new SetFilter("X-Foo", "bar"),
+				new RemoveFilter("x-foo"), new SetFilter("X-Bar", "baz"));
+
+		HttpHeaders chained = HttpHeadersFilter.filterRequest(filters, exchange);
+		HttpHeaders fused = FusedHttpHeadersFilter.compile(filters, Type.REQUEST)
+				.filter(request.getHeaders(), exchange);
+
+		assertThat(normalize(fused)).isEqualTo(normalize(chained));
+		assertThat(fused).doesNotContainKey("X-Foo").containsKey("X-Bar");
+	}
+
+	@Test
+	public void fusedFilterInPlaceMatchesChainedFilters() {
+		MockServerHttpRequest request = MockServerHttpRequest.get("http://localhost/get")
+				.build();
+		ServerWebExchange exchange = MockServerWebExchange.from(request);
+		DefaultHttpHeaders nettyHeaders = new DefaultHttpHeaders();
+		nettyHeaders.add("Connection", "keep-alive");
+		nettyHeaders.add("Keep-Alive", "timeout=5");
+		nettyHeaders.add("X-Foo", "foo");
+		nettyHeaders.add("X-Custom", "a");
+		nettyHeaders.add("X-Custom", "b");
+		HttpHeaders headers = new HttpHeaders(new NettyHeadersAdapter(nettyHeaders));
+		List<HttpHeadersFilter> filters = Arrays.asList(new RemoveHopByHopHeadersFilter(),
+				new RemoveFilter("x-foo"), new SetFilter("X-Bar", "baz"));
+
+		HttpHeaders chained = HttpHeadersFilter.filter(filters,
+				HttpHeaders.readOnlyHttpHeaders(headers), exchange, Type.RESPONSE);
+		FusedHttpHeadersFilter.compile(filters, Type.RESPONSE).filterInPlace(headers,
+				exchange);
+
+		assertThat(normalize(headers)).isEqualTo(normalize(chained));
+		assertThat(nettyHeaders.names()).containsExactlyInAnyOrder("X-Custom", "X-Bar");
+		assertThat(nettyHeaders.getAll("X-Custom")).containsExactly("a", "b");
+	}
+
+	private static Map<String, List<String>> normalize(HttpHeaders headers) {
+		Map<String, List<String>> normalized = new TreeMap<>();
+		headers.forEach((name, values) -> normalized.put(name.toLowerCase(), values));
+		return normalized;
+	}
+
+	private static class SetFilter implements FusibleHttpHeadersFilter {
+
+		private final String name;
+
+		private final String value;
+
+		SetFilter(String name, String value) {
+			this.name = name;
+			this.value = value;
+		}
+
+		@Override
+		public boolean supports(Type type) {
+			return true;
+		}
+
+		@Override
+		public HttpHeaders filter(HttpHeaders input, ServerWebExchange exchange) {
+			HttpHeaders filtered = new HttpHeaders();
+			filtered.addAll(input);
+			filtered.set(name, value);
+			return filtered;
+		}
+
+		@Override
+		public void edit(HttpHeaders input, ServerWebExchange exchange,
+				FusedHttpHeadersFilter.Edits edits) {
+			edits.set(name, value);
+		}
+
+	}
+
+	private static class RemoveFilter implements FusibleHttpHeadersFilter {
+
+		private final String name;
+
+		RemoveFilter(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public boolean supports(Type type) {
+			return true;
+		}
+
+		@Override
+		public HttpHeaders filter(HttpHeaders input, ServerWebExchange exchange) {
+			HttpHeaders filtered = new HttpHeaders();
+			filtered.addAll(input);
+			filtered.remove(name);
+			return filtered;
+		}
+
+		@Override
+		public Set<String> getRemovedHeaderNames() {
+			return Collections.singleton(name);
+		}
+
+	}
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.filter.headers;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import org.junit.Test;
+
+import org.springframework.http.HttpHeaders;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NettyHeadersAdapterTests {
+
+	@Test
+	public void readsNettyHeaders() {
+		DefaultHttpHeaders nettyHeaders = new DefaultHttpHeaders();
+		nettyHeaders.add("Content-Type", "text/plain");
+		nettyHeaders.add("X-Custom", "a");
+		nettyHeaders.add("X-Custom", "b");
+
+		HttpHeaders headers = new HttpHeaders(new NettyHeadersAdapter(nettyHeaders));
+
+		assertThat(headers.size()).isEqualTo(2);
+		assertThat(headers.getFirst("content-type")).isEqualTo("text/plain");
+		assertThat(headers.get("x-custom")).containsExactly("a", "b");
+		assertThat(headers.get("X-Missing")).isNull();
+		assertThat(headers.keySet()).containsExactly("Content-Type", "X-Custom");
+		assertThat(headers.toSingleValueMap()).containsEntry("X-Custom", "a");
+		assertThat(headers.entrySet()).hasSize(2);
+	}
+
+	@Test
+	public void writesThroughToNettyHeaders() {
+		DefaultHttpHeaders nettyHeaders = new DefaultHttpHeaders();
+		nettyHeaders.add("Connection", "close");
+		nettyHeaders.add("X-Custom", "a");
+
+		HttpHeaders headers = new HttpHeaders(new NettyHeadersAdapter(nettyHeaders));
+		headers.remove("connection");
+		headers.add("X-Custom", "b");
+		headers.put("X-Other", Arrays.asList("c", "d"));
+		headers.set("X-Single", "e");
+
+		assertThat(nettyHeaders.contains("Connection")).isFalse();
+		assertThat(nettyHeaders.getAll("X-Custom")).containsExactly("a", "b");
+		assertThat(nettyHeaders.getAll("X-Other")).containsExactly("c", "d");
+		assertThat(nettyHeaders.get("X-Single")).isEqualTo("e");
+
+		Iterator<String> names = headers.keySet().iterator();
+		while (names.hasNext()) {
+			if (names.next().startsWith("X-O")) {
+				names.remove();
+			}
+		}
+		assertThat(nettyHeaders.contains("X-Other")).isFalse();
+
+		headers.entrySet().iterator().next().setValue(Arrays.asList("f"));
+		assertThat(nettyHeaders.getAll("X-Custom")).containsExactly("f");
+	}
+
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.handler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PredicateTraits;
+import org.springframework.cloud.gateway.handler.predicate.PredicateTraits.Cost;
+import org.springframework.cloud.gateway.handler.predicate.ReadBodyRoutePredicateFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.getUriTemplateVariables;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.putUriTemplateVariables;
+
+public class AdaptiveAsyncPredicateTests {
+
+	@Test
+	public void cheaperOperandsAreTestedFirst() {
+		CountingPredicate expensive = new CountingPredicate(i -> true);
+		CountingPredicate cheap = new CountingPredicate(i -> false);
+		AdaptiveAsyncPredicate<Integer> predicate = new AdaptiveAsyncPredicate<>(
+				Arrays.asList(expensive, cheap),
+				Arrays.asList(PredicateTraits.pure(Cost.EXPENSIVE),
+						PredicateTraits.pure(Cost.CHEAP)));
+
+		assertThat(predicate.getOrder()).containsExactly(cheap, expensive);
+		assertThat(Mono.from(predicate.apply(1)).block()).isFalse();
+		assertThat(cheap.tests).isEqualTo(1);
+		assertThat(expensive.tests).isZero();
+	}
+
+	@Test
+	public void operandsWithSideEffectsAreTestedLast() {
+		CountingPredicate first = new CountingPredicate(i -> true);
+		CountingPredicate second = new CountingPredicate(i -> true);
+		CountingPredicate pure = new CountingPredicate(i -> false);
+		AdaptiveAsyncPredicate<Integer> predicate = new AdaptiveAsyncPredicate<>(
+				Arrays.asList(first, second, pure),
+				Arrays.asList(PredicateTraits.sideEffecting(Cost.CHEAP),
+						PredicateTraits.sideEffecting(Cost.CHEAP),
+						PredicateTraits.pure(Cost.EXPENSIVE)));
+
+		assertThat(predicate.getOrder()).containsExactly(pure, first, second);
+		assertThat(Mono.from(predicate.apply(1)).block()).isFalse();
+		assertThat(first.tests).isZero();
+		assertThat(second.tests).isZero();
+	}
+
+	@Test
+	public void operandsAddingUriVariablesKeepTheirOrderAmongThemselves() {
+		CountingPredicate path = new CountingPredicate(i -> true);
+		CountingPredicate host = new CountingPredicate(i -> false);
+		CountingPredicate method = new CountingPredicate(i -> true);
+		AdaptiveAsyncPredicate<Integer> predicate = new AdaptiveAsyncPredicate<>(
+				Arrays.asList(path, host, method),
+				Arrays.asList(PredicateTraits.uriVariables(Cost.EXPENSIVE),
+						PredicateTraits.uriVariables(Cost.MODERATE),
+						PredicateTraits.pure(Cost.CHEAP)));
+
+		assertThat(predicate.getOrder()).containsExactly(method, path, host);
+	}
+
+	@Test
+	public void uriVariablesAreRemovedWhenThePredicateDoesNotMatch() {
+		ServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/"));
+		putUriTemplateVariables(exchange, Collections.singletonMap("before", "0"));
+		AsyncPredicate<ServerWebExchange> path = e -> {
+			putUriTemplateVariables(e, Collections.singletonMap("segment", "1"));
+			return Mono.just(true);
+		};
+		AsyncPredicate<ServerWebExchange> method = e -> Mono.just(false);
+		AdaptiveAsyncPredicate<ServerWebExchange> predicate = new AdaptiveAsyncPredicate<>(
+				Arrays.asList(path, method),
+				Arrays.asList(PredicateTraits.uriVariables(Cost.CHEAP),
+						PredicateTraits.pure(Cost.EXPENSIVE)));
+
+		assertThat(Mono.from(predicate.apply(exchange)).block()).isFalse();
+		assertThat(getUriTemplateVariables(exchange)).containsOnlyKeys("before");
+	}
+
+	@Test
+	public void uriVariablesAreRemovedWhenTheBodyIsEmpty() {
+		ServerWebExchange exchange = new ServerWebExchangeDecorator(
+				MockServerWebExchange.from(MockServerHttpRequest.post("/empty/1"))) {
+			private final ServerHttpResponse response = new MockServerHttpResponse(
+					new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT));
+
+			@Override
+			public ServerHttpResponse getResponse() {
+				return response;
+			}
+		};
+		PathRoutePredicateFactory path = new PathRoutePredicateFactory();
+		ReadBodyRoutePredicateFactory readBody = new ReadBodyRoutePredicateFactory();
+		AdaptiveAsyncPredicate<ServerWebExchange> predicate = new AdaptiveAsyncPredicate<>(
+				Arrays.asList(
+						path.applyAsync(
+								new PathRoutePredicateFactory.Config().setPatterns(
+										Collections.singletonList("/empty/{segment}"))),
+						readBody.applyAsync(new ReadBodyRoutePredicateFactory.Config()
+								.setPredicate(String.class, body -> true))),
+				Arrays.asList(path.getTraits(), readBody.getTraits()));
+
+		assertThat(Mono.from(predicate.apply(exchange)).block()).isFalse();
+		assertThat(getUriTemplateVariables(exchange)).isEmpty();
+	}
+
+	@Test
+	public void uriVariablesAreRemovedWhenThePredicateFails() {
+		ServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/"));
+		putUriTemplateVariables(exchange, Collections.singletonMap("before", "0"));
+		AsyncPredicate<ServerWebExchange> path = e -> {
+			putUriTemplateVariables(e, Collections.singletonMap("segment", "1"));
+			return Mono.just(true);
+		};
+		AsyncPredicate<ServerWebExchange> failing = e -> Mono
+				.error(new IllegalStateException("failed"));
+		AdaptiveAsyncPredicate<ServerWebExchange> predicate = new AdaptiveAsyncPredicate<>(
+				Arrays.asList(path, failing),
+				Arrays.asList(PredicateTraits.uriVariables(Cost.CHEAP),
+						PredicateTraits.sideEffecting(Cost.EXPENSIVE)));
+
+		assertThatThrownBy(() -> Mono.from(predicate.apply(exchange)).block())
+				.isInstanceOf(IllegalStateException.class);
+		assertThat(getUriTemplateVariables(exchange)).containsOnlyKeys("before");
+	}
+
+	@Test
+	public void operandsThatRejectMoreAreTestedFirst() {
+		CountingPredicate rarelyRejects = new CountingPredicate(i -> i % 10 != 0);
+		CountingPredicate oftenRejects = new CountingPredicate(i -> i % 10 == 0);
+		AdaptiveAsyncPredicate<Integer> predicate = new AdaptiveAsyncPredicate<>(
+				Arrays.asList(rarelyRejects, oftenRejects),
+				Arrays.asList(PredicateTraits.pure(Cost.CHEAP),
+						PredicateTraits.pure(Cost.CHEAP)));
+
+		assertThat(predicate.getOrder()).containsExactly(rarelyRejects, oftenRejects);
+		for (int i = 0; i < 100; i++) {
+			Mono.from(predicate.apply(i)).block();
+		}
+		predicate.reorder();
+
+		assertThat(predicate.getOrder()).containsExactly(oftenRejects, rarelyRejects);
+	}
+
+	@Test
+	public void resultsMatchTestingInOrder() {
+		List<AsyncPredicate<Integer>> operands = new ArrayList<>();
+		List<PredicateTraits> traits = new ArrayList<>();
+		for (int divisor = 2; divisor < 6; divisor++) {
+			int d = divisor;
+			operands.add(new CountingPredicate(i -> i % d != 0));
+			traits.add(divisor % 2 == 0 ? PredicateTraits.pure(Cost.EXPENSIVE)
+					: PredicateTraits.sideEffecting(Cost.CHEAP));
+		}
+		AdaptiveAsyncPredicate<Integer> adaptive = new AdaptiveAsyncPredicate<>(operands,
+				traits);
+		AsyncPredicate<Integer> inOrder = operands.get(0);
+		for (AsyncPredicate<Integer> operand : operands.subList(1, operands.size())) {
+			inOrder = inOrder.and(operand);
+		}
+
+		Random random = new Random(42);
+		for (int i = 0; i < 10000; i++) {
+			int value = random.nextInt(1000);
+			if (i % 100 == 0) {
+				adaptive.reorder();
+			}
+			assertThat(Mono.from(adaptive.apply(value)).block()).as("value %d", value)
+					.isEqualTo(Mono.from(inOrder.apply(value)).block());
+		}
+	}
+
+	@Test
+	public void toStringKeepsTheOriginalOrder() {
+		AdaptiveAsyncPredicate<Integer> predicate = new AdaptiveAsyncPredicate<>(
+				Arrays.asList(new CountingPredicate(i -> true) {
+					@Override
+					public String toString() {
+						return "a";
+					}
+				}, new CountingPredicate(i -> true) {
+					@Override
+					public String toString() {
+						return "b";
+					}
+				}), Arrays.asList(PredicateTraits.pure(Cost.EXPENSIVE),
+						PredicateTraits.pure(Cost.CHEAP)));
+
+		assertThat(predicate).hasToString("(a && b)");
+	}
+
+	private static class CountingPredicate implements AsyncPredicate<Integer> {
+
+		private final Predicate<Integer> delegate;
+
+		private int tests;
+
+		CountingPredicate(Predicate<Integer> delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Publisher<Boolean> apply(Integer value) {
+			tests++;
+			return Mono.just(delegate.test(value));
+		}
+
+	}
+
+}
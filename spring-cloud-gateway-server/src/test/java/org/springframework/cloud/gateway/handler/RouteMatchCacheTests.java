@@ -0,0 +1,117 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.handler;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import org.springframework.cloud.gateway.handler.predicate.HeaderRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.HostRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.MethodRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RouteMatchCacheTests {
+
+	private final Route route = Route.async().id("route").uri("http://localhost")
+			.asyncPredicate(new PathRoutePredicateFactory()
+					.applyAsync(c -> c.setPatterns(Collections.singletonList("/**")))
+					.and(new HostRoutePredicateFactory().applyAsync(
+							c -> c.setPatterns(Collections.singletonList("**"))))
+					.and(new MethodRoutePredicateFactory()
+							.applyAsync(c -> c.setMethods(HttpMethod.GET))))
+			.build();
+
+	@Test
+	public void pathHostAndMethodRoutesAreCacheable() {
+		assertThat(RouteMatchCache.isCacheable(Arrays.asList(route))).isTrue();
+	}
+
+	@Test
+	public void routesReadingOtherInputsAreNotCacheable() {
+		Route header = Route.async().id("header").uri("http://localhost").asyncPredicate(
+				new HeaderRoutePredicateFactory().applyAsync(c -> c.setHeader("X-Foo")))
+				.build();
+		Route or = Route.async().id("or").uri("http://localhost")
+				.asyncPredicate(route.getPredicate().or(route.getPredicate())).build();
+		Route unknown = Route.async().id("unknown").uri("http://localhost")
+				.predicate(exchange -> true).build();
+
+		assertThat(RouteMatchCache.isCacheable(Arrays.asList(route, header))).isFalse();
+		assertThat(RouteMatchCache.isCacheable(Arrays.asList(or))).isFalse();
+		assertThat(RouteMatchCache.isCacheable(Arrays.asList(unknown))).isFalse();
+	}
+
+	@Test
+	public void matchesAreKeyedByMethodHostAndPath() {
+		RouteMatchCache cache = new RouteMatchCache(10);
+		cache.put(exchange(HttpMethod.GET, "a.org", "/foo"), route,
+				Collections.singletonMap("segment", "foo"));
+
+		RouteMatchCache.Match match = cache
+				.get(exchange(HttpMethod.GET, "a.org", "/foo"));
+		assertThat(match).isNotNull();
+		assertThat(match.getRoute()).isSameAs(route);
+		assertThat(match.getUriVariables()).containsEntry("segment", "foo");
+		assertThat(cache.get(exchange(HttpMethod.POST, "a.org", "/foo"))).isNull();
+		assertThat(cache.get(exchange(HttpMethod.GET, "b.org", "/foo"))).isNull();
+		assertThat(cache.get(exchange(HttpMethod.GET, "a.org", "/bar"))).isNull();
+	}
+
+	@Test
+	public void leastRecentlyUsedMatchIsEvicted() {
+		RouteMatchCache cache = new RouteMatchCache(2);
+		cache.put(exchange(HttpMethod.GET, "a.org", "/1"), route, Collections.emptyMap());
+		cache.put(exchange(HttpMethod.GET, "a.org", "/2"), route, Collections.emptyMap());
+		assertThat(cache.get(exchange(HttpMethod.GET, "a.org", "/1"))).isNotNull();
+		cache.put(exchange(HttpMethod.GET, "a.org", "/3"), route, Collections.emptyMap());
+
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.get(exchange(HttpMethod.GET, "a.org", "/1"))).isNotNull();
+		assertThat(cache.get(exchange(HttpMethod.GET, "a.org", "/2"))).isNull();
+		assertThat(cache.get(exchange(HttpMethod.GET, "a.org", "/3"))).isNotNull();
+	}
+
+	@Test
+	public void recentlyUsedMatchSurvivesManyEvictions() {
+		RouteMatchCache cache = new RouteMatchCache(100);
+		MockServerWebExchange hot = exchange(HttpMethod.GET, "a.org", "/hot");
+		cache.put(hot, route, Collections.emptyMap());
+		for (int i = 0; i < 1000; i++) {
+			assertThat(cache.get(hot)).isNotNull();
+			cache.put(exchange(HttpMethod.GET, "a.org", "/" + i), route,
+					Collections.emptyMap());
+		}
+
+		assertThat(cache.size()).isEqualTo(100);
+		assertThat(cache.get(hot)).isNotNull();
+	}
+
+	private static MockServerWebExchange exchange(HttpMethod method, String host,
+			String path) {
+		return MockServerWebExchange.from(MockServerHttpRequest
+				.method(method, "http://localhost" + path).header("Host", host).build());
+	}
+
+}
@@ -16,6 +16,10 @@
 
 package org.springframework.cloud.gateway.handler;
 
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -25,11 +29,21 @@ import reactor.test.StepVerifier;
 
 import org.springframework.boot.test.system.OutputCaptureRule;
 import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.config.RouteTableProperties;
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
+import org.springframework.cloud.gateway.handler.predicate.GatewayPredicate;
+import org.springframework.cloud.gateway.handler.predicate.HostRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PredicateTraits;
 import org.springframework.cloud.gateway.route.Route;
 import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
 import org.springframework.web.server.ServerWebExchange;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.containsString;
 
 /**
@@ -99,4 +113,97 @@ public class RoutePredicateHandlerMappingTests {
 		outputCapture.expect(containsString("java.lang.IllegalStateException: boom2"));
 	}
 
+	@Test
+	public void lookupRouteFromHostPartitions() {
+		AtomicReference<Flux<Route>> routes = new AtomicReference<>(Flux.just(
+				hostRoute("www", "www.example.org"), hostRoute("api", "**.example.org")));
+		RouteTableProperties properties = new RouteTableProperties();
+		properties.setHostPartitioning(true);
+		RoutePredicateHandlerMapping mapping = new RoutePredicateHandlerMapping(null,
+				() -> routes.get(), new GlobalCorsProperties(), new MockEnvironment(),
+				properties);
+
+		StepVerifier.create(
+				mapping.lookupRoute(exchange("api.example.org")).map(Route::getId))
+				.expectNext("api").verifyComplete();
+		StepVerifier.create(
+				mapping.lookupRoute(exchange("www.example.org")).map(Route::getId))
+				.expectNext("www").verifyComplete();
+		StepVerifier.create(mapping.lookupRoute(exchange("www.example.com")))
+				.verifyComplete();
+
+		routes.set(Flux.just(hostRoute("com", "www.example.com")));
+		StepVerifier.create(mapping.lookupRoute(exchange("www.example.com")))
+				.verifyComplete();
+
+		mapping.onApplicationEvent(new RefreshRoutesResultEvent(this));
+		StepVerifier.create(
+				mapping.lookupRoute(exchange("www.example.com")).map(Route::getId))
+				.expectNext("com").verifyComplete();
+	}
+
+	@Test
+	public void lookupRouteFromMatchCache() {
+		AtomicInteger tests = new AtomicInteger();
+		Route counted = Route.async().id("counted").uri("http://localhost")
+				.asyncPredicate(new AsyncPredicate.DefaultAsyncPredicate<>(
+						GatewayPredicate.wrapIfNeeded(exchange -> {
+							tests.incrementAndGet();
+							return exchange.getRequest().getPath().value()
+									.equals("/counted");
+						}), PredicateTraits.pure(PredicateTraits.Cost.CHEAP,
+								PredicateTraits.Input.PATH)))
+				.build();
+		Route path = Route.async().id("path").uri("http://localhost")
+				.asyncPredicate(new PathRoutePredicateFactory().applyAsync(
+						c -> c.setPatterns(Collections.singletonList("/foo/{segment}"))))
+				.build();
+		RouteTableProperties properties = new RouteTableProperties();
+		properties.setMatchCacheSize(10);
+		RoutePredicateHandlerMapping mapping = new RoutePredicateHandlerMapping(null,
+				() -> Flux.just(counted, path), new GlobalCorsProperties(),
+				new MockEnvironment(), properties);
+
+		StepVerifier
+				.create(mapping.lookupRoute(pathExchange("/counted")).map(Route::getId))
+				.expectNext("counted").verifyComplete();
+		StepVerifier
+				.create(mapping.lookupRoute(pathExchange("/counted")).map(Route::getId))
+				.expectNext("counted").verifyComplete();
+		assertThat(tests).hasValue(1);
+
+		StepVerifier
+				.create(mapping.lookupRoute(pathExchange("/foo/bar")).map(Route::getId))
+				.expectNext("path").verifyComplete();
+		ServerWebExchange cached = pathExchange("/foo/bar");
+		StepVerifier.create(mapping.lookupRoute(cached).map(Route::getId))
+				.expectNext("path").verifyComplete();
+		assertThat(tests).hasValue(2);
+		assertThat(ServerWebExchangeUtils.getUriTemplateVariables(cached))
+				.containsEntry("segment", "bar");
+
+		mapping.onApplicationEvent(new RefreshRoutesResultEvent(this));
+		StepVerifier
+				.create(mapping.lookupRoute(pathExchange("/counted")).map(Route::getId))
+				.expectNext("counted").verifyComplete();
+		assertThat(tests).hasValue(3);
+	}
+
+	private static Route hostRoute(String id, String pattern) {
+		return Route.async().id(id).uri("http://localhost")
+				.asyncPredicate(new HostRoutePredicateFactory().applyAsync(
+						c -> c.setPatterns(Collections.singletonList(pattern))))
+				.build();
+	}
+
+	private static ServerWebExchange pathExchange(String path) {
+		return MockServerWebExchange
+				.from(MockServerHttpRequest.get("http://localhost" + path).build());
+	}
+
+	private static ServerWebExchange exchange(String host) {
+		return MockServerWebExchange.from(MockServerHttpRequest
+				.get("http://localhost/get").header("Host", host).build());
+	}
+
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.handler;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.gateway.config.RouteTableProperties;
+import org.springframework.cloud.gateway.handler.predicate.DispatchRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.DispatchRoutePredicateFactory.Source;
+import org.springframework.cloud.gateway.handler.predicate.HostRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RouteTableTests {
+
+	private final List<Route> routes = Arrays.asList(
+			hostRoute("exact", "www.example.org"), hostRoute("suffix", "**.example.org"),
+			hostRoute("single", "*.example.org"), route("nohost", path("/get")),
+			hostRoute("template", "{sub}.example.org"),
+			route("and", path("/get").and(host("www.other.org")).and(path("/**"))),
+			route("or", host("www.example.org").or(host("www.other.org"))),
+			hostRoute("many", "api.example.org", "**.example.com"));
+
+	@Test
+	public void routesAreSelectedByHost() {
+		RouteTable table = new RouteTable(routes, properties(true, false));
+
+		assertThat(ids(table, "www.example.org")).containsExactly("exact", "suffix",
+				"single", "nohost", "template", "or");
+		assertThat(ids(table, "example.org")).containsExactly("suffix", "nohost",
+				"template", "or");
+		assertThat(ids(table, "www.other.org")).containsExactly("nohost", "template",
+				"and", "or");
+		assertThat(ids(table, "a.b.example.com")).containsExactly("nohost", "template",
+				"or", "many");
+		assertThat(ids(table, "api.example.org")).containsExactly("suffix", "single",
+				"nohost", "template", "or", "many");
+		assertThat(ids(table, "unknown.net")).containsExactly("nohost", "template", "or");
+		assertThat(ids(table, (String) null)).containsExactly("nohost", "template", "or");
+	}
+
+	@Test
+	public void selectedRoutesIncludeEveryMatchingRoute() {
+		RouteTable table = new RouteTable(routes, properties(true, false));
+
+		for (String host : Arrays.asList("www.example.org", "example.org",
+				".www.example.org.", "www..example.org", "www.other.org",
+				"a.b.example.com", "api.example.org", "WWW.EXAMPLE.ORG", "unknown.net",
+				"")) {
+			List<String> selected = ids(table, host);
+			for (Route route : routes) {
+				if (matches(route, host)) {
+					assertThat(selected).as("routes for host " + host)
+							.contains(route.getId());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void routesAreSelectedByDispatchValue() {
+		List<Route> routes = Arrays.asList(
+				route("acme", dispatch(Source.HEADER, "X-Tenant", "acme")),
+				route("globex", dispatch(Source.HEADER, "x-tenant", "globex", "acme")),
+				route("path", path("/get")),
+				route("query", dispatch(Source.QUERY, "tenant", "acme")), route("both",
+						path("/**").and(dispatch(Source.HEADER, "X-Tenant", "initech"))));
+		RouteTable table = new RouteTable(routes, properties(false, true));
+
+		assertThat(ids(table, exchange("/get", "acme"))).containsExactly("acme", "globex",
+				"path");
+		assertThat(ids(table, exchange("/get", "globex"))).containsExactly("globex",
+				"path");
+		assertThat(ids(table, exchange("/get?tenant=acme", "initech")))
+				.containsExactly("path", "query", "both");
+		assertThat(ids(table, exchange("/get", "unknown"))).containsExactly("path");
+		assertThat(ids(table, exchange("/get", null))).containsExactly("path");
+	}
+
+	@Test
+	public void dispatchRoutesAreNotIndexedWhenDisabled() {
+		List<Route> routes = Arrays.asList(
+				route("acme", dispatch(Source.HEADER, "X-Tenant", "acme")),
+				route("path", path("/get")));
+		RouteTable table = new RouteTable(routes, properties(true, false));
+
+		assertThat(ids(table, exchange("/get", null))).containsExactly("acme", "path");
+	}
+
+	@Test
+	public void allRoutesAreSelectedWithoutHostPartitioning() {
+		RouteTable table = new RouteTable(routes, new RouteTableProperties());
+
+		assertThat(table.getRoutes(exchange("unknown.net"))).isSameAs(table.getRoutes())
+				.hasSize(routes.size());
+	}
+
+	private static boolean matches(Route route, String host) {
+		Boolean matched = Mono.from(route.getPredicate().apply(exchange(host))).block();
+		return Boolean.TRUE.equals(matched);
+	}
+
+	private static List<String> ids(RouteTable table, String host) {
+		return ids(table, exchange(host));
+	}
+
+	private static List<String> ids(RouteTable table, ServerWebExchange exchange) {
+		return table.getRoutes(exchange).stream().map(Route::getId)
+				.collect(Collectors.toList());
+	}
+
+	private static ServerWebExchange exchange(String path, String tenant) {
+		MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest
+				.get("http://localhost" + path);
+		if (tenant != null) {
+			request.header("X-Tenant", tenant);
+		}
+		return MockServerWebExchange.from(request.build());
+	}
+
+	private static RouteTableProperties properties(boolean hostPartitioning,
+			boolean dispatchIndex) {
+		RouteTableProperties properties = new RouteTableProperties();
+		properties.setHostPartitioning(hostPartitioning);
+		properties.setDispatchIndex(dispatchIndex);
+		return properties;
+	}
+
+	private static ServerWebExchange exchange(String host) {
+		MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest
+				.get("http://localhost/get");
+		if (host != null) {
+			request.header("Host", host);
+		}
+		return MockServerWebExchange.from(request.build());
+	}
+
+	private static Route hostRoute(String id, String... patterns) {
+		return route(id, host(patterns));
+	}
+
+	private static AsyncPredicate<ServerWebExchange> host(String... patterns) {
+		return new HostRoutePredicateFactory()
+				.applyAsync(c -> c.setPatterns(Arrays.asList(patterns)));
+	}
+
+	private static AsyncPredicate<ServerWebExchange> dispatch(Source source, String name,
+			String... values) {
+		return new DispatchRoutePredicateFactory().applyAsync(
+				c -> c.setSource(source).setName(name).setValues(Arrays.asList(values)));
+	}
+
+	private static AsyncPredicate<ServerWebExchange> path(String pattern) {
+		return new PathRoutePredicateFactory()
+				.applyAsync(c -> c.setPatterns(Arrays.asList(pattern)));
+	}
+
+	private static Route route(String id, AsyncPredicate<ServerWebExchange> predicate) {
+		return Route.async().id(id).uri("http://localhost").asyncPredicate(predicate)
+				.build();
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.handler.predicate;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.gateway.handler.predicate.DispatchRoutePredicateFactory.Config;
+import org.springframework.cloud.gateway.handler.predicate.DispatchRoutePredicateFactory.Source;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
+import org.springframework.cloud.gateway.test.BaseWebClientTests;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpCookie;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT,
+		properties = "spring.cloud.gateway.route-table.dispatch-index=true")
+@DirtiesContext
+public class DispatchRoutePredicateFactoryTests extends BaseWebClientTests {
+
+	@Test
+	public void dispatchRouteWorks() {
+		testClient.get().uri("/get").header("X-Tenant", "acme").exchange().expectStatus()
+				.isOk().expectHeader().valueEquals(ROUTE_ID_HEADER, "dispatch_test");
+	}
+
+	@Test
+	public void dispatchRouteWorksForEveryShortcutValue() {
+		testClient.get().uri("/get").header("X-Tenant", "initrode").exchange()
+				.expectStatus().isOk().expectHeader()
+				.valueEquals(ROUTE_ID_HEADER, "dispatch_test");
+	}
+
+	@Test
+	public void dispatchRouteIgnoredForOtherValues() {
+		testClient.get().uri("/get").header("X-Tenant", "initech").exchange()
+				.expectStatus().isOk().expectHeader()
+				.valueEquals(ROUTE_ID_HEADER, "default_path_to_httpbin");
+	}
+
+	@Test
+	public void dispatchQueryWorksWithDsl() {
+		testClient.get().uri("/get?tenant=globex").exchange().expectStatus().isOk()
+				.expectHeader().valueEquals(ROUTE_ID_HEADER, "dispatch_query_dsl");
+	}
+
+	@Test
+	public void cookieValueMatches() {
+		Predicate<ServerWebExchange> predicate = new DispatchRoutePredicateFactory()
+				.apply(new Config().setSource(Source.COOKIE).setName("tenant")
+						.setValues(Arrays.asList("acme", "globex")));
+
+		assertThat(predicate.test(exchange(new HttpCookie("tenant", "globex")))).isTrue();
+		assertThat(predicate.test(exchange(new HttpCookie("tenant", "initech"))))
+				.isFalse();
+		assertThat(predicate.test(exchange(new HttpCookie("other", "acme")))).isFalse();
+	}
+
+	@Test
+	public void toStringFormat() {
+		Config config = new Config().setSource(Source.HEADER).setName("X-Tenant")
+				.setValues(Arrays.asList("acme", "globex"));
+		Predicate predicate = new DispatchRoutePredicateFactory().apply(config);
+		assertThat(predicate.toString())
+				.contains("Dispatch: HEADER X-Tenant=[acme, globex]");
+	}
+
+	private static ServerWebExchange exchange(HttpCookie cookie) {
+		return MockServerWebExchange.from(
+				MockServerHttpRequest.get("https://example.com").cookie(cookie).build());
+	}
+
+	@EnableAutoConfiguration
+	@SpringBootConfiguration
+	@Import(DefaultTestConfig.class)
+	public static class TestConfig {
+
+		@Value("${test.uri}")
+		private String uri;
+
+		@Bean
+		RouteLocator dispatchRouteLocator(RouteLocatorBuilder builder) {
+			return builder.routes()
+					.route("dispatch_query_dsl",
+							r -> r.dispatch(Source.QUERY, "tenant", "globex")
+									.filters(f -> f.prefixPath("/httpbin")).uri(uri))
+					.build();
+		}
+
+	}
+
+}
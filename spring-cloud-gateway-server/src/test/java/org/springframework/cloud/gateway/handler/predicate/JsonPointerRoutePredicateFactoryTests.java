@@ -0,0 +1,126 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.handler.predicate;
+
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.gateway.handler.AsyncPredicate;
+import org.springframework.cloud.gateway.handler.predicate.JsonPointerRoutePredicateFactory.Config;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
+import org.springframework.cloud.gateway.test.BaseWebClientTests;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@DirtiesContext
+public class JsonPointerRoutePredicateFactoryTests extends BaseWebClientTests {
+
+	private static final String USER_JSON = "{\"user\":{\"id\":7,\"role\":\"%s\"}}";
+
+	@Test
+	public void matchingFieldWorks() {
+		String body = String.format(USER_JSON, "admin");
+		testClient.post().uri("/post").header("Host", "www.jsonpointer.org")
+				.contentType(MediaType.APPLICATION_JSON).bodyValue(body).exchange()
+				.expectStatus().isOk().expectHeader()
+				.valueEquals(ROUTE_ID_HEADER, "json_pointer_admin").expectBody()
+				.jsonPath("$.data").isEqualTo(body);
+	}
+
+	@Test
+	public void presentFieldWorks() {
+		testClient.post().uri("/post").header("Host", "www.jsonpointer.org")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(String.format(USER_JSON, "guest")).exchange().expectStatus()
+				.isOk().expectHeader().valueEquals(ROUTE_ID_HEADER, "json_pointer_id");
+	}
+
+	@Test
+	public void sharesBodyWithReadBody() {
+		testClient.post().uri("/post").header("Host", "www.jsonpointer.org")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue("{\"user\":{\"role\":\"guest\"},\"tenant\":\"acme\"}")
+				.exchange().expectStatus().isOk().expectHeader()
+				.valueEquals(ROUTE_ID_HEADER, "json_pointer_read_body");
+	}
+
+	@Test
+	public void notJsonDoesNotMatch() {
+		testClient.post().uri("/post").header("Host", "www.jsonpointer.org")
+				.contentType(MediaType.TEXT_PLAIN).bodyValue("user=admin").exchange()
+				.expectStatus().isOk().expectHeader()
+				.valueEquals(ROUTE_ID_HEADER, "json_pointer_default");
+	}
+
+	@Test
+	public void toStringFormat() {
+		Config config = new Config().setPointer("/user/role").setRegexp("admin");
+		AsyncPredicate<ServerWebExchange> predicate = new JsonPointerRoutePredicateFactory()
+				.applyAsync(config);
+		assertThat(predicate.toString())
+				.contains("JsonPointer: pointer=/user/role regexp=admin");
+	}
+
+	@EnableAutoConfiguration
+	@SpringBootConfiguration
+	@Import(DefaultTestConfig.class)
+	public static class TestConfig {
+
+		@Value("${test.uri}")
+		private String uri;
+
+		@Bean
+		RouteLocator jsonPointerRouteLocator(RouteLocatorBuilder builder) {
+			return builder.routes()
+					.route("json_pointer_admin",
+							r -> r.order(-4).host("**.jsonpointer.org").and()
+									.jsonPointer("/user/role", "admin")
+									.filters(f -> f.prefixPath("/httpbin")).uri(uri))
+					.route("json_pointer_id",
+							r -> r.order(-3).host("**.jsonpointer.org").and()
+									.jsonPointer("/user/id")
+									.filters(f -> f.prefixPath("/httpbin")).uri(uri))
+					.route("json_pointer_read_body",
+							r -> r.order(-2).host("**.jsonpointer.org").and()
+									.readBody(Map.class,
+											body -> "acme".equals(body.get("tenant")))
+									.filters(f -> f.prefixPath("/httpbin")).uri(uri))
+					.route("json_pointer_default",
+							r -> r.order(-1).host("**.jsonpointer.org")
+									.filters(f -> f.prefixPath("/httpbin")).uri(uri))
+					.build();
+		}
+
+	}
+
+}
@@ -79,6 +79,24 @@ public class ReadBodyRoutePredicateFactoryTests {
 
 	}
 
+	@Test
+	public void readBodyWithDifferentClassesWorks() {
+		Event messageEvent = new Event("message", "bar");
+
+		webClient.post().uri("/mixed").body(BodyInserters.fromValue(messageEvent))
+				.exchange().expectStatus().isOk().expectBody().jsonPath("$.headers.Hello")
+				.isEqualTo("World");
+	}
+
+	@Test
+	public void lastDecodedBodyIsKeptAsCachedBodyObject() {
+		Event messageEvent = new Event("message", "bar");
+
+		webClient.post().uri("/cached").body(BodyInserters.fromValue(messageEvent))
+				.exchange().expectStatus().isOk().expectHeader()
+				.valueEquals("X-Cached-Body-Class", String.class.getName());
+	}
+
 	@Test
 	public void toStringFormat() {
 		Config config = new Config();
@@ -101,6 +119,27 @@ public class ReadBodyRoutePredicateFactoryTests {
 		@Bean
 		public RouteLocator routeLocator(RouteLocatorBuilder builder) {
 			return builder.routes()
+					.route(p -> p.path("/mixed").and().method(HttpMethod.POST).and()
+							.readBody(String.class, body -> body.contains("channels"))
+							.filters(f -> f.setPath("/messageChannel/events"))
+							.uri("lb://messageChannel"))
+					.route(p -> p.path("/mixed").and().method(HttpMethod.POST).and()
+							.readBody(Event.class, eventPredicate("message"))
+							.filters(f -> f.setPath("/message/events"))
+							.uri("lb://message"))
+					.route(p -> p.path("/cached").and().method(HttpMethod.POST).and()
+							.readBody(Event.class, eventPredicate("message.channels"))
+							.filters(f -> f.setPath("/messageChannel/events"))
+							.uri("lb://messageChannel"))
+					.route(p -> p.path("/cached").and().method(HttpMethod.POST).and()
+							.readBody(String.class, body -> body.contains("message"))
+							.filters(f -> f.filter((exchange, chain) -> {
+								exchange.getResponse().getHeaders()
+										.add("X-Cached-Body-Class", exchange
+												.getAttribute("cachedRequestBodyObject")
+												.getClass().getName());
+								return chain.filter(exchange);
+							}).setPath("/message/events")).uri("lb://message"))
 					.route(p -> p.path("/events").and().method(HttpMethod.POST).and()
 							.readBody(Event.class, eventPredicate("message.channels"))
 							.filters(f -> f.setPath("/messageChannel/events"))
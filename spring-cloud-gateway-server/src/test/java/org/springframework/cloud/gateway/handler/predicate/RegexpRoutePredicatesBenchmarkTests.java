@@ -0,0 +1,145 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.handler.predicate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.RewritePathGatewayFilterFactory;
+import org.springframework.http.HttpCookie;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the regexp based predicates and RewritePath filter, which compile their
+ * patterns once, with calling {@link String#matches(String)} and
+ * {@link String#replaceAll(String, String)} on every request. Run manually, the timings
+ * are printed to the console.
+ */
+@Ignore("benchmark, run manually")
+public class RegexpRoutePredicatesBenchmarkTests {
+
+	private static final int ROUTES = 500;
+
+	private static final int ITERATIONS = 2_000;
+
+	private static final int WARMUP_ITERATIONS = 500;
+
+	@Test
+	public void headerQueryAndCookieRouteTable() {
+		List<Predicate<ServerWebExchange>> predicates = new ArrayList<>();
+		List<String> regexps = new ArrayList<>();
+		for (int i = 0; i < ROUTES; i++) {
+			String regexp = "v\\d+-route-" + i;
+			regexps.add(regexp);
+			predicates.add(new HeaderRoutePredicateFactory()
+					.apply(new HeaderRoutePredicateFactory.Config().setHeader("X-Route")
+							.setRegexp(regexp))
+					.and(new QueryRoutePredicateFactory()
+							.apply(new QueryRoutePredicateFactory.Config()
+									.setParam("route").setRegexp(regexp)))
+					.and(new CookieRoutePredicateFactory()
+							.apply(new CookieRoutePredicateFactory.Config()
+									.setName("route").setRegexp(regexp))));
+		}
+		// only the last route matches, so every predicate is evaluated
+		String value = "v2-route-" + (ROUTES - 1);
+		ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+				.get("https://example.com/get?route=" + value).header("X-Route", value)
+				.cookie(new HttpCookie("route", value)).build());
+
+		Runnable precompiled = () -> assertThat(
+				predicates.stream().filter(p -> p.test(exchange)).count()).isOne();
+		Runnable recompiled = () -> {
+			int matches = 0;
+			for (String regexp : regexps) {
+				if (exchange.getRequest().getHeaders().getFirst("X-Route").matches(regexp)
+						&& exchange.getRequest().getQueryParams().getFirst("route")
+								.matches(regexp)
+						&& exchange.getRequest().getCookies().getFirst("route").getValue()
+								.matches(regexp)) {
+					matches++;
+				}
+			}
+			assertThat(matches).isOne();
+		};
+
+		report("Header, Query and Cookie route table", precompiled, recompiled);
+	}
+
+	@Test
+	public void rewritePath() {
+		String regexp = "/red/?(?<segment>.*)";
+		String replacement = "/${segment}";
+		GatewayFilter filter = new RewritePathGatewayFilterFactory()
+				.apply(new RewritePathGatewayFilterFactory.Config().setRegexp(regexp)
+						.setReplacement(replacement));
+		MockServerHttpRequest request = MockServerHttpRequest
+				.get("https://example.com/red/blue/green").build();
+
+		Runnable precompiled = () -> {
+			for (int i = 0; i < ROUTES; i++) {
+				ServerWebExchange exchange = MockServerWebExchange.from(request);
+				filter.filter(exchange, e -> {
+					assertThat(e.getRequest().getPath().value()).isEqualTo("/blue/green");
+					return null;
+				});
+			}
+		};
+		Runnable recompiled = () -> {
+			for (int i = 0; i < ROUTES; i++) {
+				ServerWebExchange exchange = MockServerWebExchange.from(request);
+				String newPath = request.getURI().getRawPath().replaceAll(regexp,
+						replacement);
+				assertThat(exchange.getRequest().mutate().path(newPath).build().getPath()
+						.value()).isEqualTo("/blue/green");
+			}
+		};
+
+		report("RewritePath", precompiled, recompiled);
+	}
+
+	private static void report(String name, Runnable precompiled, Runnable recompiled) {
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			precompiled.run();
+			recompiled.run();
+		}
+		long precompiledNanos = time(precompiled);
+		long recompiledNanos = time(recompiled);
+		System.out.println(String.format(
+				"%s: precompiled %d us/op, recompiled %d us/op (%.1fx)", name,
+				precompiledNanos / ITERATIONS / 1000, recompiledNanos / ITERATIONS / 1000,
+				(double) recompiledNanos / precompiledNanos));
+	}
+
+	private static long time(Runnable runnable) {
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			runnable.run();
+		}
+		return System.nanoTime() - start;
+	}
+
+}
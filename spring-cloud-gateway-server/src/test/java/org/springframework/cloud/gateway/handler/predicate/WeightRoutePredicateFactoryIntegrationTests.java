@@ -21,6 +21,7 @@ import java.util.function.Predicate;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import reactor.core.publisher.Mono;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -28,6 +29,7 @@ import org.springframework.boot.SpringBootConfiguration;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.cloud.gateway.filter.WeightCalculatorWebFilter;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
 import org.springframework.cloud.gateway.route.RouteLocator;
 import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
 import org.springframework.cloud.gateway.support.WeightConfig;
@@ -75,6 +77,22 @@ public class WeightRoutePredicateFactoryIntegrationTests extends BaseWebClientTe
 				.valueEquals(ROUTE_ID_HEADER, "weight_low_test");
 	}
 
+	@Test
+	public void sameKeySticksToRoute() {
+		filter.setRandom(getRandom(0.1));
+		String routeId = testClient.get().uri("/get")
+				.header(HttpHeaders.HOST, "www.weightsticky.org")
+				.header("X-Client", "client1").exchange().expectStatus().isOk()
+				.returnResult(String.class).getResponseHeaders()
+				.getFirst(ROUTE_ID_HEADER);
+		assertThat(routeId).startsWith("weight_sticky_");
+
+		filter.setRandom(getRandom(0.9));
+		testClient.get().uri("/get").header(HttpHeaders.HOST, "www.weightsticky.org")
+				.header("X-Client", "client1").exchange().expectStatus().isOk()
+				.expectHeader().valueEquals(ROUTE_ID_HEADER, routeId);
+	}
+
 	@Test
 	public void toStringFormat() {
 		WeightConfig config = new WeightConfig("mygroup", "myroute", 5);
@@ -102,9 +120,22 @@ public class WeightRoutePredicateFactoryIntegrationTests extends BaseWebClientTe
 					.route("weight_low_test",
 							r -> r.weight("group1", 2).and().host("**.weightlow.org")
 									.filters(f -> f.prefixPath("/httpbin")).uri(this.uri))
+					.route("weight_sticky_1",
+							r -> r.weight("sticky", 1, stickyKeyResolver()).and()
+									.host("**.weightsticky.org")
+									.filters(f -> f.prefixPath("/httpbin")).uri(this.uri))
+					.route("weight_sticky_2",
+							r -> r.weight("sticky", 1, stickyKeyResolver()).and()
+									.host("**.weightsticky.org")
+									.filters(f -> f.prefixPath("/httpbin")).uri(this.uri))
 					.build();
 		}
 
+		private KeyResolver stickyKeyResolver() {
+			return exchange -> Mono
+					.justOrEmpty(exchange.getRequest().getHeaders().getFirst("X-Client"));
+		}
+
 	}
 
 }
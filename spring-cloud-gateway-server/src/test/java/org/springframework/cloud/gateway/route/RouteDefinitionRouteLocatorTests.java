@@ -18,14 +18,18 @@ package org.springframework.cloud.gateway.route;
 
 import java.net.URI;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Test;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
 import org.springframework.cloud.gateway.config.GatewayProperties;
 import org.springframework.cloud.gateway.config.PropertiesRouteDefinitionLocator;
+import org.springframework.cloud.gateway.config.RouteTableProperties;
 import org.springframework.cloud.gateway.filter.FilterDefinition;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
@@ -34,10 +38,17 @@ import org.springframework.cloud.gateway.filter.factory.AddResponseHeaderGateway
 import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.RemoveResponseHeaderGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.RetryGatewayFilterFactory;
+import org.springframework.cloud.gateway.handler.AdaptiveAsyncPredicate;
 import org.springframework.cloud.gateway.handler.predicate.HostRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.MethodRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
 import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
 import org.springframework.cloud.gateway.handler.predicate.RoutePredicateFactory;
 import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
 import org.springframework.util.StringUtils;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -156,6 +167,51 @@ public class RouteDefinitionRouteLocatorTests {
 		}).expectComplete().verify();
 	}
 
+	@Test
+	public void adaptivePredicateOrderTestsCheapPredicatesFirst() {
+		List<RoutePredicateFactory> predicates = Arrays.asList(
+				new PathRoutePredicateFactory(), new MethodRoutePredicateFactory());
+		GatewayProperties gatewayProperties = new GatewayProperties();
+		gatewayProperties.setRoutes(Arrays.asList(new RouteDefinition() {
+			{
+				setId("foo");
+				setUri(URI.create("https://foo.example.com"));
+				setPredicates(
+						Arrays.asList(new PredicateDefinition("Path=/foo/{segment}"),
+								new PredicateDefinition("Method=GET")));
+			}
+		}));
+		RouteTableProperties routeTableProperties = new RouteTableProperties();
+		routeTableProperties.setAdaptivePredicateOrder(true);
+
+		PropertiesRouteDefinitionLocator routeDefinitionLocator = new PropertiesRouteDefinitionLocator(
+				gatewayProperties);
+		@SuppressWarnings("deprecation")
+		ConfigurationService configurationService = new ConfigurationService(
+				new StaticListableBeanFactory(), new DefaultConversionService(), null);
+		RouteDefinitionRouteLocator routeDefinitionRouteLocator = new RouteDefinitionRouteLocator(
+				new CompositeRouteDefinitionLocator(Flux.just(routeDefinitionLocator)),
+				predicates, Collections.emptyList(), gatewayProperties,
+				configurationService, routeTableProperties);
+
+		StepVerifier.create(routeDefinitionRouteLocator.getRoutes()).assertNext(route -> {
+			assertThat(route.getPredicate()).isInstanceOf(AdaptiveAsyncPredicate.class);
+			assertThat(((AdaptiveAsyncPredicate<?>) route.getPredicate()).getOrder()
+					.get(0).toString()).startsWith("Methods:");
+
+			MockServerWebExchange get = MockServerWebExchange
+					.from(MockServerHttpRequest.get("https://example.com/foo/bar"));
+			assertThat(Mono.from(route.getPredicate().apply(get)).block()).isTrue();
+			assertThat(ServerWebExchangeUtils.getUriTemplateVariables(get))
+					.containsEntry("segment", "bar");
+
+			MockServerWebExchange post = MockServerWebExchange
+					.from(MockServerHttpRequest.post("https://example.com/foo/bar"));
+			assertThat(Mono.from(route.getPredicate().apply(post)).block()).isFalse();
+			assertThat(ServerWebExchangeUtils.getUriTemplateVariables(post)).isEmpty();
+		}).expectComplete().verify();
+	}
+
 	private List<RouteDefinition> containsInvalidRoutes() {
 		RouteDefinition foo = new RouteDefinition();
 		foo.setId("foo");
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support;
+
+import java.nio.charset.StandardCharsets;
+
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.BUFFERED_BODY_RESERVATION_ATTR;
+
+public class BufferedBodyBudgetTests {
+
+	private final BufferedBodyBudget budget = new BufferedBodyBudget(
+			DataSize.ofBytes(10));
+
+	@Test
+	public void bodyIsPassedThroughWithoutReservation() {
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/get").build());
+
+		StepVerifier.create(
+				BufferedBodyBudget.retain(exchange, Flux.just(buffer("12345678901")), -1)
+						.map(this::release))
+				.expectNext(11).verifyComplete();
+		assertThat(budget.getUsedBytes()).isZero();
+	}
+
+	@Test
+	public void bytesAreReservedUntilReleased() {
+		BufferedBodyBudget.Reservation reservation = budget.reserve();
+
+		StepVerifier.create(reservation
+				.retain(Flux.just(buffer("123"), buffer("4567")), -1).map(this::release))
+				.expectNext(3, 4).verifyComplete();
+		assertThat(reservation.getReservedBytes()).isEqualTo(7);
+		assertThat(budget.getUsedBytes()).isEqualTo(7);
+
+		reservation.release();
+		assertThat(reservation.getReservedBytes()).isZero();
+		assertThat(budget.getUsedBytes()).isZero();
+
+		// releasing twice does not hand the bytes back twice
+		reservation.release();
+		assertThat(budget.getUsedBytes()).isZero();
+	}
+
+	@Test
+	public void bodiesRetainedAfterReleaseAreNotAccounted() {
+		BufferedBodyBudget.Reservation reservation = budget.reserve();
+		reservation.release();
+		assertThat(reservation.isClosed()).isTrue();
+
+		StepVerifier.create(
+				reservation.retain(Flux.just(buffer("123")), -1).map(this::release))
+				.expectNext(3).verifyComplete();
+		assertThat(reservation.getReservedBytes()).isZero();
+		assertThat(budget.getUsedBytes()).isZero();
+	}
+
+	@Test
+	public void bytesBufferedAfterReleaseAreHandedBack() {
+		BufferedBodyBudget.Reservation reservation = budget.reserve();
+		Flux<Integer> body = reservation
+				.retain(Flux.just(buffer("123"), buffer("4567")), -1).map(this::release);
+
+		StepVerifier.create(body.doOnNext(bytes -> reservation.release()))
+				.expectNext(3, 4).verifyComplete();
+		assertThat(reservation.getReservedBytes()).isZero();
+		assertThat(budget.getUsedBytes()).isZero();
+	}
+
+	@Test
+	public void exhaustedBudgetRejectsWithServiceUnavailable() {
+		BufferedBodyBudget.Reservation first = budget.reserve();
+		BufferedBodyBudget.Reservation second = budget.reserve();
+
+		StepVerifier.create(
+				first.retain(Flux.just(buffer("12345678")), -1).map(this::release))
+				.expectNext(8).verifyComplete();
+
+		StepVerifier
+				.create(second.retain(Flux.just(buffer("1"), buffer("234")), -1)
+						.map(this::release))
+				.expectNext(1).expectErrorSatisfies(
+						t -> assertStatus(t, HttpStatus.SERVICE_UNAVAILABLE))
+				.verify();
+		assertThat(budget.getUsedBytes()).isEqualTo(9);
+
+		first.release();
+		second.release();
+		assertThat(budget.getUsedBytes()).isZero();
+	}
+
+	@Test
+	public void knownContentLengthIsRejectedUpFront() {
+		BufferedBodyBudget.Reservation first = budget.reserve();
+		StepVerifier
+				.create(first.retain(Flux.just(buffer("123456")), 6).map(this::release))
+				.expectNext(6).verifyComplete();
+
+		NettyDataBuffer unread = nettyBuffer("12345");
+		StepVerifier.create(budget.reserve().retain(Flux.just(unread), 5))
+				.expectErrorSatisfies(
+						t -> assertStatus(t, HttpStatus.SERVICE_UNAVAILABLE))
+				.verify();
+		assertThat(budget.getUsedBytes()).isEqualTo(6);
+		// the rejected body is drained
+		assertThat(unread.getNativeBuffer().refCnt()).isZero();
+	}
+
+	@Test
+	public void bodyLargerThanBudgetIsRejectedWithPayloadTooLarge() {
+		NettyDataBuffer unread = nettyBuffer("12345678901");
+		StepVerifier.create(budget.reserve().retain(Flux.just(unread), 11))
+				.expectErrorSatisfies(t -> assertStatus(t, HttpStatus.PAYLOAD_TOO_LARGE))
+				.verify();
+		assertThat(budget.getUsedBytes()).isZero();
+		assertThat(unread.getNativeBuffer().refCnt()).isZero();
+	}
+
+	@Test
+	public void retainUsesReservationOfExchange() {
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/get").build());
+		BufferedBodyBudget.Reservation reservation = budget.reserve();
+		exchange.getAttributes().put(BUFFERED_BODY_RESERVATION_ATTR, reservation);
+
+		StepVerifier.create(BufferedBodyBudget
+				.retain(exchange, Flux.just(buffer("1234")), 4).map(this::release))
+				.expectNext(4).verifyComplete();
+		assertThat(reservation.getReservedBytes()).isEqualTo(4);
+	}
+
+	private int release(DataBuffer dataBuffer) {
+		int bytes = dataBuffer.readableByteCount();
+		DataBufferUtils.release(dataBuffer);
+		return bytes;
+	}
+
+	private static void assertStatus(Throwable t, HttpStatus status) {
+		assertThat(t).isInstanceOf(BufferedBodyRejectedException.class);
+		assertThat(((BufferedBodyRejectedException) t).getStatus()).isEqualTo(status);
+	}
+
+	private static NettyDataBuffer nettyBuffer(String value) {
+		return new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT)
+				.wrap(Unpooled.wrappedBuffer(value.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static DataBuffer buffer(String value) {
+		return new DefaultDataBufferFactory()
+				.wrap(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
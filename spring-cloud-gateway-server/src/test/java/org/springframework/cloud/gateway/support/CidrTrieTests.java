@@ -0,0 +1,131 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import io.netty.handler.ipfilter.IpFilterRuleType;
+import io.netty.handler.ipfilter.IpSubnetFilterRule;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CidrTrieTests {
+
+	@Test
+	public void matchesSubnets() throws Exception {
+		CidrTrie trie = CidrTrie.of(Arrays.asList("10.0.0.0/8", "192.168.1.0/24",
+				"172.16.5.4", "2001:db8::/32", "::1"));
+
+		assertThat(trie.matches(address("10.1.2.3"))).isTrue();
+		assertThat(trie.matches(address("11.1.2.3"))).isFalse();
+		assertThat(trie.matches(address("192.168.1.255"))).isTrue();
+		assertThat(trie.matches(address("192.168.2.1"))).isFalse();
+		assertThat(trie.matches(address("172.16.5.4"))).isTrue();
+		assertThat(trie.matches(address("172.16.5.5"))).isFalse();
+		assertThat(trie.matches(address("2001:db8:1::1"))).isTrue();
+		assertThat(trie.matches(address("2001:db9::1"))).isFalse();
+		assertThat(trie.matches(address("::1"))).isTrue();
+		assertThat(trie.matches(address("::2"))).isFalse();
+		assertThat(trie.matches((InetAddress) null)).isFalse();
+		assertThat(trie.matches(new InetSocketAddress(address("10.0.0.1"), 80))).isTrue();
+	}
+
+	@Test
+	public void shorterPrefixesCoverLongerOnes() throws Exception {
+		for (List<String> subnets : Arrays.asList(
+				Arrays.asList("10.1.2.0/24", "10.0.0.0/8", "10.1.0.0/16"),
+				Arrays.asList("10.0.0.0/8", "10.1.2.0/24", "10.1.0.0/16"))) {
+			CidrTrie trie = CidrTrie.of(subnets);
+
+			assertThat(trie.matches(address("10.200.0.1"))).isTrue();
+			assertThat(trie.matches(address("10.1.2.3"))).isTrue();
+			assertThat(trie.matches(address("9.255.255.255"))).isFalse();
+		}
+	}
+
+	@Test
+	public void zeroPrefixMatchesAllAddressesOfItsFamily() throws Exception {
+		CidrTrie trie = CidrTrie.of(Collections.singletonList("0.0.0.0/0"));
+
+		assertThat(trie.matches(address("1.2.3.4"))).isTrue();
+		assertThat(trie.matches(address("255.255.255.255"))).isTrue();
+		assertThat(trie.matches(address("2001:db8::1"))).isFalse();
+		assertThat(CidrTrie.of(Collections.emptyList()).isEmpty()).isTrue();
+		assertThat(trie.isEmpty()).isFalse();
+	}
+
+	@Test
+	public void invalidSubnetsAreRejected() {
+		assertThatThrownBy(() -> CidrTrie.of(Collections.singletonList("10.0.0.0/33")))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> CidrTrie.of(Collections.singletonList("10.0.0.0/x")))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> CidrTrie.of(Collections.singletonList("::/129")))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void matchesSameAddressesAsSubnetFilterRules() throws Exception {
+		Random random = new Random(42);
+		for (int round = 0; round < 20; round++) {
+			List<String> subnets = new ArrayList<>();
+			List<IpSubnetFilterRule> rules = new ArrayList<>();
+			List<InetAddress> addresses = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				byte[] bytes = new byte[random.nextBoolean() ? 4 : 16];
+				random.nextBytes(bytes);
+				// mostly long prefixes, as in partner lists, with a few short ones,
+				// the rules match IPv6 addresses by their sign for a zero prefix
+				int prefix = random.nextInt(10) == 0 ? 1 + random.nextInt(8)
+						: bytes.length * 8 - random.nextInt(bytes.length * 2 + 1);
+				InetAddress address = InetAddress.getByAddress(bytes);
+				subnets.add(address.getHostAddress() + "/" + prefix);
+				rules.add(
+						new IpSubnetFilterRule(address, prefix, IpFilterRuleType.ACCEPT));
+				addresses.add(address);
+				byte[] nearby = bytes.clone();
+				nearby[nearby.length - 1] ^= (byte) random.nextInt(256);
+				addresses.add(InetAddress.getByAddress(nearby));
+				byte[] other = new byte[bytes.length];
+				random.nextBytes(other);
+				addresses.add(InetAddress.getByAddress(other));
+			}
+			CidrTrie trie = CidrTrie.of(subnets);
+
+			for (InetAddress address : addresses) {
+				InetSocketAddress socketAddress = new InetSocketAddress(address, 0);
+				boolean expected = rules.stream()
+						.anyMatch(rule -> rule.matches(socketAddress));
+				assertThat(trie.matches(address)).as(address.getHostAddress())
+						.isEqualTo(expected);
+			}
+		}
+	}
+
+	private static InetAddress address(String address) throws Exception {
+		return InetAddress.getByName(address);
+	}
+
+}
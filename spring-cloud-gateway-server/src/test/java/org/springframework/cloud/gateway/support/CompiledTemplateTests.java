@@ -0,0 +1,101 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CompiledTemplateTests {
+
+	@Test
+	public void expandsLikeUriComponents() {
+		Map<String, String> vars = new HashMap<>();
+		vars.put("foo", "bar");
+		vars.put("baz", "b$m\\");
+		vars.put("segment", "a/b");
+		vars.put("empty", "");
+		vars.put("ab", "nested");
+
+		String[] templates = { "my-noop", "{foo}", "my-{foo}-{baz}", "/{segment}/x",
+				"http://example.com/{foo}", "{foo:[a-z]+}-{baz}", "a{foo}{empty}z",
+				"{foo", "foo}", "{foo/bar}", "{a{foo}b}:{baz}", "{foo}//{baz}" };
+		for (String template : templates) {
+			assertThat(CompiledTemplate.compile(template).expand(vars)).as(template)
+					.isEqualTo(UriComponentsBuilder.fromPath(template).build()
+							.expand(vars).getPath());
+		}
+	}
+
+	@Test
+	public void expandsUrisLikeUriComponents() {
+		Map<String, String> vars = new HashMap<>();
+		vars.put("id", "42");
+		vars.put("host", "users");
+
+		String[] uris = { "http://localhost:8080/users/{id}",
+				"https://{host}.example.org/users/{id}?user={id}",
+				"http://localhost//a//{id}?next=//{id}#{id}", "http://{host}",
+				"lb://users/{id}" };
+		for (String uri : uris) {
+			assertThat(CompiledTemplate.compileUri(uri).expand(vars)).as(uri)
+					.isEqualTo(UriComponentsBuilder.fromUriString(uri)
+							.buildAndExpand(vars).toUriString());
+		}
+	}
+
+	@Test
+	public void expandsExchangeVariables() {
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.get("/get").build());
+		ServerWebExchangeUtils.putUriTemplateVariables(exchange,
+				Collections.singletonMap("segment", "blue"));
+
+		CompiledTemplate template = CompiledTemplate.compile("X-{segment}");
+
+		assertThat(template.expand(exchange)).isEqualTo("X-blue");
+		assertThat(template).hasToString("X-{segment}");
+	}
+
+	@Test
+	public void missingVarThrowsException() {
+		CompiledTemplate template = CompiledTemplate.compile("my-{foo}");
+
+		assertThatThrownBy(() -> template.expand(Collections.emptyMap()))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Map has no value for 'foo'");
+	}
+
+	@Test
+	public void nullTemplateThrowsExceptionWhenExpanded() {
+		CompiledTemplate template = CompiledTemplate.compile(null);
+
+		assertThatThrownBy(() -> template.expand(Collections.emptyMap()))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("template may not be null");
+	}
+
+}
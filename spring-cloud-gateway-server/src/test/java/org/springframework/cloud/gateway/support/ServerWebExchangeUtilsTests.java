@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.gateway.support;
 
+import java.net.URI;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -24,11 +25,17 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
 import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
 import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_PATH_ATTR;
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.expand;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.getRequestPath;
 
 public class ServerWebExchangeUtilsTests {
 
@@ -50,6 +57,27 @@ public class ServerWebExchangeUtilsTests {
 		assertThat(expanded).isEqualTo("my-noop");
 	}
 
+	@Test
+	public void expandKeepsABoundedNumberOfCompiledTemplates() {
+		ServerWebExchangeUtils.COMPILED_TEMPLATES.clear();
+		MockServerWebExchange exchange = mockExchange(
+				Collections.singletonMap("foo", "bar"));
+
+		assertThat(expand(exchange, "cached-{foo}")).isEqualTo("cached-bar");
+		CompiledTemplate compiled = ServerWebExchangeUtils.COMPILED_TEMPLATES
+				.get("cached-{foo}");
+		assertThat(compiled).isNotNull();
+		assertThat(expand(exchange, "cached-{foo}")).isEqualTo("cached-bar");
+		assertThat(ServerWebExchangeUtils.COMPILED_TEMPLATES.get("cached-{foo}"))
+				.isSameAs(compiled);
+
+		for (int i = 0; i <= ServerWebExchangeUtils.COMPILED_TEMPLATES_MAX_SIZE; i++) {
+			assertThat(expand(exchange, i + "-{foo}")).isEqualTo(i + "-bar");
+		}
+		assertThat(ServerWebExchangeUtils.COMPILED_TEMPLATES.size())
+				.isLessThanOrEqualTo(ServerWebExchangeUtils.COMPILED_TEMPLATES_MAX_SIZE);
+	}
+
 	@Test
 	public void missingVarThrowsException() {
 		MockServerWebExchange exchange = mockExchange(Collections.emptyMap());
@@ -57,6 +85,38 @@ public class ServerWebExchangeUtilsTests {
 		expand(exchange, "my-{foo}-{baz}");
 	}
 
+	@Test
+	public void requestPathIsParsedOnce() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+				.method(HttpMethod.GET, URI.create("http://localhost/a//b%20c/"))
+				.build());
+
+		PathContainer path = getRequestPath(exchange);
+
+		assertThat(path).isSameAs(exchange.getRequest().getPath());
+		assertThat(path.value()).isEqualTo("/a//b%20c/");
+		assertThat(exchange.getAttributes()).doesNotContainKey(GATEWAY_REQUEST_PATH_ATTR);
+	}
+
+	@Test
+	public void requestPathFollowsDecoratedUri() {
+		MockServerHttpRequest request = MockServerHttpRequest.get("/original").build();
+		ServerWebExchange exchange = MockServerWebExchange.from(request).mutate()
+				.request(new ServerHttpRequestDecorator(request) {
+					@Override
+					public URI getURI() {
+						return URI.create("http://localhost/decorated/path");
+					}
+				}).build();
+
+		PathContainer path = getRequestPath(exchange);
+
+		assertThat(path.value()).isEqualTo("/decorated/path");
+		assertThat(getRequestPath(exchange)).isSameAs(path);
+		assertThat((Object) exchange.getAttribute(GATEWAY_REQUEST_PATH_ATTR))
+				.isSameAs(path);
+	}
+
 	private MockServerWebExchange mockExchange(Map<String, String> vars) {
 		MockServerHttpRequest request = MockServerHttpRequest.get("/get").build();
 		MockServerWebExchange exchange = MockServerWebExchange.from(request);
@@ -18,6 +18,7 @@ package org.springframework.cloud.gateway.support;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -97,6 +98,33 @@ public class ShortcutConfigurableTests {
 		assertListTailFlag(false);
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testNormalizeGatherListTail() {
+		parser = new SpelExpressionParser();
+		ShortcutConfigurable shortcutConfigurable = new ShortcutConfigurable() {
+			@Override
+			public List<String> shortcutFieldOrder() {
+				return Arrays.asList("source", "name", "values");
+			}
+
+			@Override
+			public ShortcutType shortcutType() {
+				return ShortcutType.GATHER_LIST_TAIL;
+			}
+		};
+		Map<String, String> args = new LinkedHashMap<>();
+		args.put("1", "header");
+		args.put("2", "X-Tenant");
+		args.put("3", "acme");
+		args.put("4", "#{@foo}");
+		Map<String, Object> map = ShortcutType.GATHER_LIST_TAIL.normalize(args,
+				shortcutConfigurable, parser, this.beanFactory);
+		assertThat(map).containsEntry("source", "header").containsEntry("name",
+				"X-Tenant");
+		assertThat((List) map.get("values")).containsExactly("acme", 42);
+	}
+
 	@SuppressWarnings("unchecked")
 	private void assertListTailFlag(boolean hasTailFlag) {
 		parser = new SpelExpressionParser();
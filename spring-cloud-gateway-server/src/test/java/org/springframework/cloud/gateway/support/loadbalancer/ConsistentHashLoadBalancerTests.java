@@ -0,0 +1,234 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support.loadbalancer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.reactive.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.reactive.Response;
+import org.springframework.cloud.gateway.config.LoadBalancerProperties.OutlierDetection;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.SimpleObjectProvider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConsistentHashLoadBalancerTests {
+
+	private final AtomicReference<List<ServiceInstance>> instances = new AtomicReference<>(
+			instances(5));
+
+	private final ServiceInstanceStats stats = new ServiceInstanceStats();
+
+	// rebuilds the ring as soon as the instances change
+	private final ConsistentHashLoadBalancer loadBalancer = new ConsistentHashLoadBalancer(
+			supplier(), "service1", stats, 1.25,
+			ConsistentHashLoadBalancer.DEFAULT_REPLICAS, Schedulers.immediate());
+
+	@Test
+	public void sameKeyIsSentToSameInstance() {
+		for (int i = 0; i < 100; i++) {
+			assertThat(choose("user" + i)).isEqualTo(choose("user" + i));
+		}
+	}
+
+	@Test
+	public void keysAreSpreadOverInstances() {
+		Map<String, Integer> counts = new HashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			counts.merge(choose("user" + i).getHost(), 1, Integer::sum);
+		}
+
+		assertThat(counts).hasSize(5);
+		assertThat(counts.values())
+				.allSatisfy(count -> assertThat(count).isBetween(100, 300));
+	}
+
+	@Test
+	public void onlyKeysOfAddedInstanceMove() {
+		Map<String, ServiceInstance> before = chooseAll(1000);
+		instances.set(instances(6));
+		// the first request after the change triggers the rebuild
+		choose("trigger");
+
+		Map<String, ServiceInstance> after = chooseAll(1000);
+
+		int moved = 0;
+		for (String key : before.keySet()) {
+			if (!before.get(key).equals(after.get(key))) {
+				assertThat(after.get(key).getHost()).isEqualTo("host5");
+				moved++;
+			}
+		}
+		// about a sixth of the keys
+		assertThat(moved).isBetween(80, 280);
+	}
+
+	@Test
+	public void keysOfRemovedInstanceMoveWhileRingIsStale() {
+		// builds the first ring, but never rebuilds it
+		AtomicBoolean built = new AtomicBoolean();
+		ConsistentHashLoadBalancer loadBalancer = new ConsistentHashLoadBalancer(
+				supplier(), "service1", null, 1.25,
+				ConsistentHashLoadBalancer.DEFAULT_REPLICAS,
+				Schedulers.fromExecutor(command -> {
+					if (built.compareAndSet(false, true)) {
+						command.run();
+					}
+				}));
+		Map<String, ServiceInstance> before = new HashMap<>();
+		for (int i = 0; i < 100; i++) {
+			before.put("user" + i, choose(loadBalancer, "user" + i));
+		}
+		List<ServiceInstance> remaining = new ArrayList<>(instances.get());
+		ServiceInstance removed = remaining.remove(0);
+		instances.set(remaining);
+
+		for (int i = 0; i < 100; i++) {
+			ServiceInstance chosen = choose(loadBalancer, "user" + i);
+			assertThat(chosen).isNotEqualTo(removed);
+			if (!before.get("user" + i).equals(removed)) {
+				assertThat(chosen).isEqualTo(before.get("user" + i));
+			}
+		}
+	}
+
+	@Test
+	public void ringsAreBuiltOnTheSchedulerOnlyWhenTheAddressesChange() {
+		AtomicInteger builds = new AtomicInteger();
+		ConsistentHashLoadBalancer loadBalancer = new ConsistentHashLoadBalancer(
+				supplier(), "service1", null, 1.25,
+				ConsistentHashLoadBalancer.DEFAULT_REPLICAS,
+				Schedulers.fromExecutor(command -> {
+					builds.incrementAndGet();
+					command.run();
+				}));
+		ServiceInstance chosen = choose(loadBalancer, "alice");
+		assertThat(builds).hasValue(1);
+
+		List<ServiceInstance> reversed = new ArrayList<>(instances.get());
+		Collections.reverse(reversed);
+		instances.set(reversed);
+		assertThat(choose(loadBalancer, "alice")).isEqualTo(chosen);
+		assertThat(builds).hasValue(1);
+
+		instances.set(instances(6));
+		choose(loadBalancer, "alice");
+		assertThat(builds).hasValue(2);
+	}
+
+	@Test
+	public void loadIsBounded() {
+		ServiceInstance first = choose("alice");
+		// with 10 requests in flight, the capacity is ceil(1.25 * 11 / 5) = 3
+		long[] starts = new long[10];
+		for (int i = 0; i < starts.length; i++) {
+			starts[i] = stats.get(first).start();
+		}
+
+		assertThat(choose("alice")).isNotEqualTo(first);
+
+		for (long start : starts) {
+			stats.get(first).end(start, SignalType.ON_COMPLETE);
+		}
+		assertThat(choose("alice")).isEqualTo(first);
+	}
+
+	@Test
+	public void keysOfEjectedInstanceMove() {
+		OutlierDetection outlierDetection = new OutlierDetection();
+		outlierDetection.setEnabled(true);
+		outlierDetection.setConsecutiveErrors(1);
+		ServiceInstanceStats stats = new ServiceInstanceStats(
+				ServiceInstanceStats.DEFAULT_ALPHA, outlierDetection);
+		ConsistentHashLoadBalancer loadBalancer = new ConsistentHashLoadBalancer(
+				supplier(), "service1", stats, 1.25);
+		Map<String, ServiceInstance> before = new HashMap<>();
+		for (int i = 0; i < 100; i++) {
+			before.put("user" + i, choose(loadBalancer, "user" + i));
+		}
+		ServiceInstance ejected = before.get("user0");
+		stats.record(ejected, Mono.empty(), () -> true).block();
+
+		for (int i = 0; i < 100; i++) {
+			ServiceInstance chosen = choose(loadBalancer, "user" + i);
+			assertThat(chosen).isNotEqualTo(ejected);
+			if (!before.get("user" + i).equals(ejected)) {
+				assertThat(chosen).isEqualTo(before.get("user" + i));
+			}
+		}
+	}
+
+	private Map<String, ServiceInstance> chooseAll(int keys) {
+		Map<String, ServiceInstance> chosen = new HashMap<>();
+		for (int i = 0; i < keys; i++) {
+			chosen.put("user" + i, choose("user" + i));
+		}
+		return chosen;
+	}
+
+	private ServiceInstance choose(String key) {
+		return choose(loadBalancer, key);
+	}
+
+	private static ServiceInstance choose(ConsistentHashLoadBalancer loadBalancer,
+			String key) {
+		Response<ServiceInstance> response = loadBalancer
+				.choose(new DefaultRequest<>(key)).block();
+		assertThat(response.hasServer()).isTrue();
+		return response.getServer();
+	}
+
+	private SimpleObjectProvider<ServiceInstanceListSupplier> supplier() {
+		return new SimpleObjectProvider<>(new ServiceInstanceListSupplier() {
+			@Override
+			public String getServiceId() {
+				return "service1";
+			}
+
+			@Override
+			public Flux<List<ServiceInstance>> get() {
+				return Flux.defer(() -> Flux.just(instances.get()));
+			}
+		});
+	}
+
+	private static List<ServiceInstance> instances(int count) {
+		ServiceInstance[] instances = new ServiceInstance[count];
+		for (int i = 0; i < count; i++) {
+			instances[i] = new DefaultServiceInstance("service1_" + i, "service1",
+					"host" + i, 8080, false);
+		}
+		return Arrays.asList(instances);
+	}
+
+}
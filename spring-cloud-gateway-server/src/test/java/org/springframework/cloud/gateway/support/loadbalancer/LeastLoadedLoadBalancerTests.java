@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support.loadbalancer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.cloud.client.loadbalancer.reactive.Response;
+import org.springframework.cloud.gateway.config.LoadBalancerProperties.OutlierDetection;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LeastLoadedLoadBalancerTests {
+
+	private final ServiceInstanceStats stats = new ServiceInstanceStats();
+
+	private final ServiceInstance slow = instance("slow");
+
+	private final ServiceInstance fast = instance("fast");
+
+	@Test
+	public void noInstanceIsChosenWithoutInstances() {
+		Response<ServiceInstance> response = choose();
+
+		assertThat(response.hasServer()).isFalse();
+	}
+
+	@Test
+	public void instanceWithFewerRequestsInFlightIsChosenWithoutLatency() {
+		stats.get(slow).start();
+
+		assertThat(choose(slow, fast).getServer()).isSameAs(fast);
+	}
+
+	@Test
+	public void instanceWithLowerLoadIsChosen() {
+		record(slow, 100);
+		record(fast, 10);
+		assertThat(choose(slow, fast).getServer()).isSameAs(fast);
+
+		// 10 requests of 10ms in flight outweigh an idle instance answering in 100ms
+		for (int i = 0; i < 10; i++) {
+			stats.get(fast).start();
+		}
+		assertThat(choose(slow, fast).getServer()).isSameAs(slow);
+	}
+
+	@Test
+	public void mostLoadedInstanceIsNeverChosen() {
+		ServiceInstance[] instances = new ServiceInstance[5];
+		for (int i = 0; i < instances.length; i++) {
+			instances[i] = instance("host" + i);
+			record(instances[i], 10 * (i + 1));
+		}
+
+		for (int i = 0; i < 100; i++) {
+			assertThat(choose(instances).getServer()).isNotSameAs(instances[4]);
+		}
+	}
+
+	@Test
+	public void ejectedInstanceIsNotChosen() {
+		OutlierDetection outlierDetection = new OutlierDetection();
+		outlierDetection.setEnabled(true);
+		outlierDetection.setConsecutiveErrors(1);
+		ServiceInstanceStats stats = new ServiceInstanceStats(
+				ServiceInstanceStats.DEFAULT_ALPHA, outlierDetection);
+		stats.get(slow);
+		stats.record(fast, Mono.error(new IllegalStateException()))
+				.onErrorResume(e -> Mono.empty()).block();
+
+		for (int i = 0; i < 10; i++) {
+			assertThat(choose(stats, slow, fast).getServer()).isSameAs(slow);
+		}
+	}
+
+	private Response<ServiceInstance> choose(ServiceInstance... instances) {
+		return choose(stats, instances);
+	}
+
+	@SuppressWarnings("deprecation")
+	private static Response<ServiceInstance> choose(ServiceInstanceStats stats,
+			ServiceInstance... instances) {
+		return new LeastLoadedLoadBalancer(
+				ServiceInstanceListSuppliers.toProvider("service1", instances),
+				"service1", stats).choose(ReactiveLoadBalancer.REQUEST).block();
+	}
+
+	private void record(ServiceInstance instance, long millis) {
+		ServiceInstanceStats.InstanceStats instanceStats = stats.get(instance);
+		long start = instanceStats.start();
+		instanceStats.end(start - TimeUnit.MILLISECONDS.toNanos(millis),
+				SignalType.ON_COMPLETE);
+	}
+
+	private static ServiceInstance instance(String host) {
+		return new DefaultServiceInstance(host, "service1", host, 8080, false);
+	}
+
+}
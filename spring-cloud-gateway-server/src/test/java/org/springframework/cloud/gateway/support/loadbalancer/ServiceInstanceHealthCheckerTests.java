@@ -0,0 +1,194 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support.loadbalancer;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.gateway.config.LoadBalancerProperties.HealthCheck;
+import org.springframework.cloud.gateway.config.LoadBalancerProperties.ZoneAwareness;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.cloud.loadbalancer.support.SimpleObjectProvider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class ServiceInstanceHealthCheckerTests {
+
+	private static final AtomicInteger status = new AtomicInteger();
+
+	private static DisposableServer healthy;
+
+	private static DisposableServer flaky;
+
+	private final LoadBalancerClientFactory clientFactory = mock(
+			LoadBalancerClientFactory.class);
+
+	private final ServiceInstanceStats stats = new ServiceInstanceStats();
+
+	private final HealthCheck properties = new HealthCheck();
+
+	private ServiceInstance healthyInstance;
+
+	private ServiceInstance flakyInstance;
+
+	private ServiceInstanceHealthChecker checker;
+
+	@BeforeClass
+	public static void startServers() {
+		healthy = HttpServer.create().port(0).route(routes -> routes.get("/health",
+				(req, res) -> res.sendString(Mono.just("UP")))).bindNow();
+		flaky = HttpServer.create().port(0).route(routes -> routes.get("/health",
+				(req, res) -> res.status(status.get()).send())).bindNow();
+	}
+
+	@AfterClass
+	public static void stopServers() {
+		healthy.disposeNow();
+		flaky.disposeNow();
+	}
+
+	@Before
+	public void setup() {
+		status.set(200);
+		healthyInstance = new DefaultServiceInstance("service1_1", "service1",
+				"localhost", healthy.port(), false);
+		flakyInstance = new DefaultServiceInstance("service1_2", "service1", "localhost",
+				flaky.port(), false);
+		properties.setPath("/health");
+		properties.setInterval(Duration.ofMillis(50));
+		properties.setJitter(Duration.ofMillis(10));
+		properties.setTimeout(Duration.ofSeconds(1));
+		properties.setHealthyThreshold(1);
+		checker = new ServiceInstanceHealthChecker(clientFactory, stats,
+				HttpClient.create(), properties);
+	}
+
+	@Test
+	public void unhealthyInstanceIsSkippedUntilItRecovers() {
+		instances(healthyInstance, flakyInstance);
+		status.set(503);
+
+		checker.check().block();
+		assertThat(stats.isAvailable(flakyInstance)).isTrue();
+
+		checker.check().block();
+		assertThat(stats.isAvailable(flakyInstance)).isFalse();
+		assertThat(stats.get(flakyInstance).isHealthy()).isFalse();
+		assertThat(stats.getAvailable(Arrays.asList(healthyInstance, flakyInstance)))
+				.containsExactly(healthyInstance);
+
+		status.set(200);
+		checker.check().block();
+		assertThat(stats.isAvailable(flakyInstance)).isTrue();
+		assertThat(stats.isAvailable(healthyInstance)).isTrue();
+	}
+
+	@Test
+	public void unreachableInstanceIsUnhealthy() {
+		DisposableServer stopped = HttpServer.create().port(0).bindNow();
+		stopped.disposeNow();
+		ServiceInstance unreachable = new DefaultServiceInstance("service1_3", "service1",
+				"localhost", stopped.port(), false);
+		instances(healthyInstance, unreachable);
+
+		checker.check().block();
+		checker.check().block();
+
+		assertThat(stats.isAvailable(unreachable)).isFalse();
+		assertThat(stats.isAvailable(healthyInstance)).isTrue();
+	}
+
+	@Test
+	public void onlyTheSubsetOfTheNodeIsCheckedInEveryZone() {
+		status.set(503);
+		properties.setUnhealthyThreshold(1);
+		ServiceInstanceSubsets subsets = new ServiceInstanceSubsets("0", 1);
+		ServiceInstanceZones zones = new ServiceInstanceZones("zone-a",
+				new ZoneAwareness(), null);
+		ServiceInstance checked = subsets
+				.select("service1", Arrays.asList(healthyInstance, flakyInstance)).get(0);
+		// as wrapped in the load balancer child context of the service
+		ServiceInstanceListSupplier supplier = new ZoneAwareServiceInstanceListSupplier(
+				new SubsettingServiceInstanceListSupplier(ServiceInstanceListSuppliers
+						.from("service1", healthyInstance, flakyInstance), subsets),
+				zones);
+		when(clientFactory.getLazyProvider("service1", ServiceInstanceListSupplier.class))
+				.thenReturn(new SimpleObjectProvider<>(supplier));
+		stats.get(checked);
+
+		checker.check().block();
+
+		// the instance outside the subset was never probed
+		assertThat(stats.getStats().get("service1")).hasSize(1);
+		assertThat(stats.get(checked).isHealthy()).isEqualTo(checked == healthyInstance);
+		// health checks are not requests spilling over to other zones
+		assertThat(zones.get("service1").getRequests()).isZero();
+	}
+
+	@Test
+	public void servicesNotRoutedToAreNotChecked() {
+		checker.check().block();
+
+		verifyNoInteractions(clientFactory);
+		assertThat(stats.isExcludingInstances()).isFalse();
+	}
+
+	@Test
+	public void checksRunEveryIntervalUntilStopped() throws InterruptedException {
+		instances(healthyInstance, flakyInstance);
+		status.set(503);
+
+		checker.start();
+		try {
+			assertThat(checker.isRunning()).isTrue();
+			for (int i = 0; i < 100 && stats.isAvailable(flakyInstance); i++) {
+				Thread.sleep(50);
+			}
+			assertThat(stats.isAvailable(flakyInstance)).isFalse();
+		}
+		finally {
+			checker.stop();
+		}
+		assertThat(checker.isRunning()).isFalse();
+	}
+
+	private void instances(ServiceInstance... instances) {
+		when(clientFactory.getLazyProvider("service1", ServiceInstanceListSupplier.class))
+				.thenReturn(
+						ServiceInstanceListSuppliers.toProvider("service1", instances));
+		// requests were routed to the service
+		stats.get(instances[0]);
+	}
+
+}
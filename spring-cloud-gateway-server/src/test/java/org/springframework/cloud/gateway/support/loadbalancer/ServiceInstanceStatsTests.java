@@ -0,0 +1,272 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support.loadbalancer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.gateway.config.LoadBalancerProperties.OutlierDetection;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceStats.InstanceStats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class ServiceInstanceStatsTests {
+
+	private final ServiceInstance instance = new DefaultServiceInstance("service1_1",
+			"service1", "host1", 8080, false);
+
+	private final ServiceInstance other = new DefaultServiceInstance("service1_2",
+			"service1", "host2", 8080, false);
+
+	private final AtomicLong clock = new AtomicLong();
+
+	private final OutlierDetection outlierDetection = new OutlierDetection();
+
+	@Before
+	public void setup() {
+		outlierDetection.setEnabled(true);
+		outlierDetection.setConsecutiveErrors(3);
+		outlierDetection.setMinimumRequests(10);
+		outlierDetection.setInterval(Duration.ofSeconds(10));
+		outlierDetection.setBaseEjectionTime(Duration.ofSeconds(30));
+		outlierDetection.setMaxEjectionTime(Duration.ofSeconds(50));
+	}
+
+	@Test
+	public void requestsAreInFlightUntilTheyTerminate() {
+		ServiceInstanceStats stats = new ServiceInstanceStats();
+		Mono<Void> request = stats.record(instance, Mono.fromRunnable(
+				() -> assertThat(stats.get(instance).getInFlight()).isEqualTo(1)));
+		assertThat(stats.get(instance).getInFlight()).isZero();
+
+		request.block();
+
+		assertThat(stats.get(instance).getInFlight()).isZero();
+		assertThat(stats.get(instance).getLatency()).isNotNaN();
+	}
+
+	@Test
+	public void latencyIsAMovingAverage() {
+		InstanceStats stats = new ServiceInstanceStats(0.5).get(instance);
+		assertThat(stats.getLatency()).isNaN();
+
+		end(stats, 100, SignalType.ON_COMPLETE);
+		assertThat(stats.getLatency()).isCloseTo(ms(100), within(ms(5)));
+
+		end(stats, 200, SignalType.ON_COMPLETE);
+		assertThat(stats.getLatency()).isCloseTo(ms(150), within(ms(5)));
+	}
+
+	@Test
+	public void failuresArePenalizedAndCancellationsIgnored() {
+		InstanceStats stats = new ServiceInstanceStats(0.5).get(instance);
+		end(stats, 100, SignalType.ON_COMPLETE);
+
+		end(stats, 0, SignalType.CANCEL);
+		assertThat(stats.getLatency()).isCloseTo(ms(100), within(ms(5)));
+
+		// counted as twice the average
+		end(stats, 0, SignalType.ON_ERROR);
+		assertThat(stats.getLatency()).isCloseTo(ms(150), within(ms(5)));
+		assertThat(stats.getInFlight()).isZero();
+	}
+
+	@Test
+	public void consecutiveErrorsEjectWithGrowingBackOff() {
+		ServiceInstanceStats stats = outlierStats();
+		stats.get(other);
+		fail(stats, instance, 3);
+
+		assertThat(stats.isEjected(instance)).isTrue();
+		assertThat(stats.isEjected(other)).isFalse();
+		assertThat(stats.getAvailable(Arrays.asList(instance, other)))
+				.containsExactly(other);
+		assertThat(stats.get(instance).getEjections()).isEqualTo(1);
+
+		advance(Duration.ofSeconds(30));
+		assertThat(stats.isEjected(instance)).isFalse();
+
+		// ejected again, for twice as long, but no longer than the maximum
+		fail(stats, instance, 3);
+		advance(Duration.ofSeconds(49));
+		assertThat(stats.isEjected(instance)).isTrue();
+		advance(Duration.ofSeconds(1));
+		assertThat(stats.isEjected(instance)).isFalse();
+		assertThat(stats.get(instance).getEjections()).isEqualTo(2);
+	}
+
+	@Test
+	public void successesResetConsecutiveErrors() {
+		ServiceInstanceStats stats = outlierStats();
+		fail(stats, instance, 2);
+		succeed(stats, instance, 1);
+		fail(stats, instance, 2);
+
+		assertThat(stats.isEjected(instance)).isFalse();
+		assertThat(stats.get(instance).getConsecutiveFailures()).isEqualTo(2);
+	}
+
+	@Test
+	public void errorsAreIgnoredWithoutOutlierDetection() {
+		ServiceInstanceStats stats = new ServiceInstanceStats();
+		fail(stats, instance, 10);
+		stats.get(other);
+
+		assertThat(stats.isOutlierDetectionEnabled()).isFalse();
+		assertThat(stats.isEjected(instance)).isFalse();
+	}
+
+	@Test
+	public void theLastInstancesAreNeverEjected() {
+		ServiceInstanceStats stats = outlierStats();
+		ServiceInstance third = new DefaultServiceInstance("service1_3", "service1",
+				"host3", 8080, false);
+		ServiceInstance alone = new DefaultServiceInstance("service2_1", "service2",
+				"host1", 8080, false);
+		stats.get(third);
+		fail(stats, instance, 3);
+		fail(stats, other, 3);
+		fail(stats, alone, 3);
+
+		// no more than 10%, but at least one, of the instances of a service
+		assertThat(stats.isEjected(instance)).isTrue();
+		assertThat(stats.isEjected(other)).isFalse();
+		assertThat(stats.isEjected(alone)).isFalse();
+		assertThat(stats.getAvailable(Arrays.asList(instance))).containsExactly(instance);
+	}
+
+	@Test
+	public void theInstancesThatLeftAreDropped() {
+		ServiceInstanceStats stats = outlierStats();
+		List<InstanceStats> removed = new ArrayList<>();
+		stats.onRemoval(removed::add);
+		InstanceStats left = stats.get(other);
+		fail(stats, instance, 1);
+
+		stats.retain("service1", Arrays.asList(instance));
+
+		assertThat(stats.getStats().get("service1")).containsOnlyKeys("host1:8080");
+		assertThat(stats.get(instance).getConsecutiveFailures()).isEqualTo(1);
+		assertThat(removed).containsExactly(left);
+
+		// no instance discovered is taken as an outage
+		stats.retain("service1", new ArrayList<>());
+
+		assertThat(stats.getStats().get("service1")).containsOnlyKeys("host1:8080");
+	}
+
+	@Test
+	public void theEjectedShareIsTakenOfTheDiscoveredInstances() {
+		ServiceInstanceStats stats = outlierStats();
+		List<ServiceInstance> instances = new ArrayList<>(Arrays.asList(instance, other));
+		for (int i = 3; i <= 20; i++) {
+			instances.add(new DefaultServiceInstance("service1_" + i, "service1",
+					"host" + i, 8080, false));
+		}
+		stats.retain("service1", instances);
+		fail(stats, instance, 3);
+		fail(stats, other, 3);
+
+		// 10% of the 20 instances discovered, though only 2 of them got requests
+		assertThat(stats.isEjected(instance)).isTrue();
+		assertThat(stats.isEjected(other)).isTrue();
+	}
+
+	@Test
+	public void errorRateEjectsAtTheEndOfTheInterval() {
+		ServiceInstanceStats stats = outlierStats();
+		for (int i = 0; i < 5; i++) {
+			fail(stats, instance, 2);
+			succeed(stats, instance, 2);
+			succeed(stats, other, 4);
+		}
+		assertThat(stats.isEjected(instance)).isFalse();
+
+		advance(Duration.ofSeconds(10));
+		succeed(stats, other, 1);
+
+		assertThat(stats.isEjected(instance)).isTrue();
+		assertThat(stats.isEjected(other)).isFalse();
+	}
+
+	@Test
+	public void slowInstancesAreEjected() {
+		ServiceInstanceStats stats = outlierStats();
+		ServiceInstance slow = new DefaultServiceInstance("service1_3", "service1",
+				"host3", 8080, false);
+		respond(stats, instance, Duration.ofMillis(10));
+		respond(stats, other, Duration.ofMillis(12));
+		respond(stats, slow, Duration.ofMillis(50));
+
+		advance(Duration.ofSeconds(10));
+		respond(stats, instance, Duration.ofMillis(10));
+
+		assertThat(stats.isEjected(slow)).isTrue();
+		assertThat(stats.isEjected(instance)).isFalse();
+		assertThat(stats.isEjected(other)).isFalse();
+	}
+
+	private ServiceInstanceStats outlierStats() {
+		return new ServiceInstanceStats(ServiceInstanceStats.DEFAULT_ALPHA,
+				outlierDetection, clock::get);
+	}
+
+	private void advance(Duration duration) {
+		clock.addAndGet(duration.toNanos());
+	}
+
+	private void respond(ServiceInstanceStats stats, ServiceInstance instance,
+			Duration latency) {
+		stats.record(instance, Mono.fromRunnable(() -> advance(latency))).block();
+	}
+
+	private static void fail(ServiceInstanceStats stats, ServiceInstance instance,
+			int times) {
+		for (int i = 0; i < times; i++) {
+			stats.record(instance, Mono.empty(), () -> true).block();
+		}
+	}
+
+	private static void succeed(ServiceInstanceStats stats, ServiceInstance instance,
+			int times) {
+		for (int i = 0; i < times; i++) {
+			stats.record(instance, Mono.empty(), () -> false).block();
+		}
+	}
+
+	private static void end(InstanceStats stats, long millis, SignalType signal) {
+		long start = stats.start();
+		stats.end(start - TimeUnit.MILLISECONDS.toNanos(millis), signal);
+	}
+
+	private static double ms(long millis) {
+		return TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support.loadbalancer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ServiceInstanceSubsetsTests {
+
+	@Test
+	public void smallServicesAreNotSubset() {
+		List<ServiceInstance> instances = instances(10);
+
+		assertThat(new ServiceInstanceSubsets("0", 10).select("myservice", instances))
+				.isSameAs(instances);
+	}
+
+	@Test
+	public void subsetIsBoundedAndDeterministic() {
+		List<ServiceInstance> instances = instances(600);
+		List<ServiceInstance> shuffled = new ArrayList<>(instances);
+		Collections.reverse(shuffled);
+
+		List<ServiceInstance> subset = new ServiceInstanceSubsets("gateway-1", 20)
+				.select("myservice", instances);
+
+		assertThat(subset).hasSize(20).doesNotHaveDuplicates();
+		assertThat(instances).containsAll(subset);
+		// another node with the same id, seeing the instances in another order
+		assertThat(
+				new ServiceInstanceSubsets("gateway-1", 20).select("myservice", shuffled))
+						.containsExactlyElementsOf(subset);
+		assertThat(new ServiceInstanceSubsets("gateway-2", 20).select("myservice",
+				instances)).isNotEqualTo(subset);
+	}
+
+	@Test
+	public void consecutiveNodesAreSpreadExactlyEvenly() {
+		List<ServiceInstance> instances = instances(600);
+		Map<ServiceInstance, Integer> nodes = new HashMap<>();
+
+		// 30 subsets of 20 instances per round, 3 rounds
+		for (int node = 0; node < 90; node++) {
+			new ServiceInstanceSubsets(String.valueOf(node), 20)
+					.select("myservice", instances)
+					.forEach(instance -> nodes.merge(instance, 1, Integer::sum));
+		}
+
+		assertThat(nodes).hasSize(600);
+		assertThat(nodes.values()).containsOnly(3);
+	}
+
+	@Test
+	public void subsetsWrapAroundWhenTheSizeDoesNotDivideTheInstances() {
+		List<ServiceInstance> instances = instances(25);
+		Map<ServiceInstance, Integer> nodes = new HashMap<>();
+
+		// 2 subsets and a half per shuffle, the third one wraps around
+		for (int node = 0; node < 5; node++) {
+			List<ServiceInstance> subset = new ServiceInstanceSubsets(
+					String.valueOf(node), 10).select("myservice", instances);
+			assertThat(subset).hasSize(10).doesNotHaveDuplicates();
+			subset.forEach(instance -> nodes.merge(instance, 1, Integer::sum));
+		}
+
+		assertThat(nodes).hasSize(25);
+		assertThat(nodes.values()).allMatch(count -> count >= 1 && count <= 3);
+	}
+
+	@Test
+	public void hashedNodesAreSpreadOverEveryInstance() {
+		List<ServiceInstance> instances = instances(100);
+		Map<ServiceInstance, Integer> nodes = new HashMap<>();
+
+		for (int node = 0; node < 100; node++) {
+			new ServiceInstanceSubsets("gateway-" + node, 10)
+					.select("myservice", instances)
+					.forEach(instance -> nodes.merge(instance, 1, Integer::sum));
+		}
+
+		// 10 nodes per instance on average
+		assertThat(nodes).hasSize(100);
+		assertThat(nodes.values()).allMatch(count -> count <= 25);
+	}
+
+	@Test
+	public void subsetIsChosenAgainWhenInstancesChange() {
+		ServiceInstanceSubsets subsets = new ServiceInstanceSubsets("7", 5);
+		List<ServiceInstance> instances = instances(20);
+		List<ServiceInstance> subset = subsets.select("myservice", instances);
+		assertThat(subsets.select("myservice", new ArrayList<>(instances)))
+				.isSameAs(subset);
+
+		List<ServiceInstance> fewer = instances.subList(0, 10);
+		assertThat(fewer).containsAll(subsets.select("myservice", fewer));
+		assertThat(subsets.select("myservice", fewer)).hasSize(5);
+	}
+
+	@Test
+	public void sizeMustBePositive() {
+		assertThatThrownBy(() -> new ServiceInstanceSubsets("0", 0))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static List<ServiceInstance> instances(int count) {
+		List<ServiceInstance> instances = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			instances.add(new DefaultServiceInstance("myservice" + i, "myservice",
+					"host" + i, 8080, false));
+		}
+		return instances;
+	}
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2013-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.gateway.support.loadbalancer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.gateway.config.LoadBalancerProperties.ZoneAwareness;
+import org.springframework.cloud.gateway.support.loadbalancer.ServiceInstanceZones.ZoneStats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+public class ServiceInstanceZonesTests {
+
+	private final ServiceInstanceStats stats = new ServiceInstanceStats();
+
+	private final ZoneAwareness properties = new ZoneAwareness();
+
+	private final ServiceInstance local1 = instance("local1", "zone-a");
+
+	private final ServiceInstance local2 = instance("local2", "ZONE-A");
+
+	private final ServiceInstance local3 = instance("local3", "zone-a");
+
+	private final ServiceInstance remote1 = instance("remote1", "zone-b");
+
+	private final ServiceInstance remote2 = instance("remote2", null);
+
+	private final List<ServiceInstance> instances = Arrays.asList(local1, remote1, local2,
+			remote2, local3);
+
+	private final AtomicLong clock = new AtomicLong();
+
+	private final ServiceInstanceZones zones = new ServiceInstanceZones("zone-a",
+			properties, stats, Duration.ofSeconds(10), clock::get);
+
+	@Test
+	public void instancesInTheZoneArePreferred() {
+		assertThat(zones.select("myservice", instances)).containsExactly(local1, local2,
+				local3);
+
+		ZoneStats zoneStats = zones.get("myservice");
+		assertThat(zoneStats.getRequests()).isEqualTo(1);
+		assertThat(zoneStats.getSpilled()).isZero();
+		assertThat(zoneStats.getSpillRatio()).isZero();
+	}
+
+	@Test
+	public void requestsSpillOverWithoutInstanceInTheZone() {
+		List<ServiceInstance> remote = Arrays.asList(remote1, remote2);
+
+		assertThat(zones.select("myservice", remote)).isSameAs(remote);
+		assertThat(zones.get("myservice").getSpilled()).isEqualTo(1);
+		assertThat(zones.select("myservice", Collections.emptyList())).isEmpty();
+		assertThat(zones.get("myservice").getRequests()).isEqualTo(1);
+	}
+
+	@Test
+	public void requestsSpillOverWhenTooFewInstancesInTheZoneAreAvailable() {
+		stats.onHealthCheck(stats.get(local1), false, 1);
+		assertThat(zones.select("myservice", instances)).containsExactly(local1, local2,
+				local3);
+
+		stats.onHealthCheck(stats.get(local2), false, 1);
+		assertThat(zones.select("myservice", instances)).isSameAs(instances);
+
+		stats.onHealthCheck(stats.get(local2), true, 1);
+		assertThat(zones.select("myservice", instances)).containsExactly(local1, local2,
+				local3);
+	}
+
+	@Test
+	public void requestsSpillOverWhenTheZoneIsMuchMoreLoaded() {
+		// a load of 2 against 1 in the other zones
+		for (ServiceInstance instance : Arrays.asList(local1, local2, local3)) {
+			stats.get(instance).start();
+		}
+		assertThat(zones.select("myservice", instances)).hasSize(3);
+
+		stats.get(local1).start();
+		assertThat(zones.select("myservice", instances)).isSameAs(instances);
+
+		// the other zones are loaded too
+		stats.get(remote1).start();
+		assertThat(zones.select("myservice", instances)).hasSize(3);
+	}
+
+	@Test
+	public void instancesAreSplitOnceWithoutCreatingStats() {
+		List<ServiceInstance> selected = zones.select("myservice", instances);
+
+		assertThat(zones.select("myservice", new ArrayList<>(instances)))
+				.isSameAs(selected);
+		assertThat(stats.getStats()).isEmpty();
+
+		// the same address in another zone is split again
+		List<ServiceInstance> moved = new ArrayList<>(instances);
+		moved.set(0, instance("local1", "zone-b"));
+		assertThat(zones.select("myservice", moved)).containsExactly(local2, local3);
+	}
+
+	@Test
+	public void spillRatioFollowsRecentRequests() {
+		List<ZoneStats> services = new ArrayList<>();
+		zones.onService(services::add);
+		List<ServiceInstance> remote = Collections.singletonList(remote1);
+
+		zones.select("myservice", remote);
+		assertThat(zones.get("myservice").getSpillRatio()).isEqualTo(1);
+		for (int i = 0; i < 99; i++) {
+			zones.select("myservice", instances);
+		}
+		// however many requests there are, each weighs the same within the window
+		assertThat(zones.get("myservice").getSpillRatio()).isEqualTo(0.01);
+
+		// requests of several windows ago barely weigh any more
+		clock.addAndGet(Duration.ofSeconds(100).toNanos());
+		for (int i = 0; i < 99; i++) {
+			zones.select("myservice", remote);
+		}
+		zones.select("myservice", instances);
+		assertThat(zones.get("myservice").getSpillRatio()).isCloseTo(0.99, offset(0.001));
+
+		assertThat(services).extracting(ZoneStats::getServiceId)
+				.containsExactly("myservice");
+	}
+
+	@Test
+	public void instancesInTheZoneArePreferredWithoutStats() {
+		ServiceInstanceZones zones = new ServiceInstanceZones("zone-a", properties, null);
+
+		assertThat(zones.select("myservice", instances)).containsExactly(local1, local2,
+				local3);
+	}
+
+	@Test
+	public void zoneMustBeSet() {
+		assertThatThrownBy(() -> new ServiceInstanceZones("", properties, stats))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static ServiceInstance instance(String host, String zone) {
+		return new DefaultServiceInstance(host, "myservice", host, 8080, false,
+				zone != null ? Collections.singletonMap(ServiceInstanceZones.ZONE, zone)
+						: Collections.emptyMap());
+	}
+
+}